@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.Channel;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.DefaultMessageFactory;
+import com.adaptris.core.MetadataElement;
+import com.adaptris.core.NullConnection;
+import com.adaptris.core.NullMessageProducer;
+import com.adaptris.core.ProduceDestination;
+import com.adaptris.core.ProduceException;
+import com.adaptris.core.Service;
+import com.adaptris.core.ServiceList;
+import com.adaptris.core.Workflow;
+import com.adaptris.core.lms.PooledBufferMessageFactory;
+import com.adaptris.core.metadata.CopyOnWriteMetadataStoreFactory;
+import com.adaptris.core.metadata.DefaultMetadataStoreFactory;
+import com.adaptris.core.metadata.MetadataStoreFactory;
+import com.adaptris.core.services.metadata.AddMetadataService;
+import com.adaptris.core.services.metadata.CopyMetadataService;
+import com.adaptris.core.services.metadata.PayloadFromTemplateService;
+import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.util.KeyValuePair;
+
+/**
+ * Shared fixtures for the benchmarks.
+ *
+ */
+final class BenchmarkHelper {
+
+  static final String PAYLOAD = "The quick brown fox jumps over the lazy dog";
+  static final String METADATA_KEY_PREFIX = "key";
+  static final String METADATA_VALUE_PREFIX = "value";
+
+  private BenchmarkHelper() {
+  }
+
+  static MetadataStoreFactory metadataStoreFactory(String type) {
+    return "copy-on-write".equals(type) ? new CopyOnWriteMetadataStoreFactory() : new DefaultMetadataStoreFactory();
+  }
+
+  static AdaptrisMessageFactory messageFactory(String type) {
+    return "pooled-buffer".equals(type) ? new PooledBufferMessageFactory() : new DefaultMessageFactory();
+  }
+
+  static String key(int i) {
+    return METADATA_KEY_PREFIX + i;
+  }
+
+  static String value(int i) {
+    return METADATA_VALUE_PREFIX + i;
+  }
+
+  /**
+   * Create a message with {@code count} metadata keys ({@code key0=value0}...).
+   */
+  static AdaptrisMessage createMessage(AdaptrisMessageFactory factory, int count) {
+    AdaptrisMessage msg = factory.newMessage(PAYLOAD);
+    for (int i = 0; i < count; i++) {
+      msg.addMetadata(key(i), value(i));
+    }
+    return msg;
+  }
+
+  /**
+   * Create something that looks like a typical metadata heavy service chain.
+   * <p>
+   * Each "link" in the chain is an {@link AddMetadataService}, a {@link CopyMetadataService} and a
+   * {@link PayloadFromTemplateService} that uses {@code %message{}} expressions.
+   * </p>
+   */
+  static ServiceList createServiceChain(int links) {
+    List<Service> services = new ArrayList<>();
+    for (int i = 0; i < links; i++) {
+      services.add(new AddMetadataService(new MetadataElement(key(i), value(i))));
+      CopyMetadataService copy = new CopyMetadataService();
+      copy.getMetadataKeys().addKeyValuePair(new KeyValuePair(key(i), "copy-" + key(i)));
+      services.add(copy);
+      services.add(new PayloadFromTemplateService()
+          .withTemplate("<root><id>%message{%uniqueId}</id><value>%message{copy-" + key(i) + "}</value></root>"));
+    }
+    return new ServiceList(services);
+  }
+
+  static Channel createChannel(Workflow wf) throws CoreException {
+    Channel c = new Channel();
+    c.setConsumeConnection(new NullConnection());
+    c.setProduceConnection(new NullConnection());
+    c.getWorkflowList().add(wf);
+    c.prepare();
+    return c;
+  }
+
+  static Channel start(Channel c) throws CoreException {
+    return LifecycleHelper.initAndStart(c, false);
+  }
+
+  static void stop(Channel c) {
+    LifecycleHelper.stopAndClose(c, false);
+  }
+
+  /**
+   * Producer that counts down a latch so that we can measure asynchronous workflows.
+   */
+  static class CountingProducer extends NullMessageProducer {
+    private transient volatile CountDownLatch latch = new CountDownLatch(0);
+
+    void expect(int count) {
+      latch = new CountDownLatch(count);
+    }
+
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+      return latch.await(timeout, unit);
+    }
+
+    @Override
+    public void produce(AdaptrisMessage msg) throws ProduceException {
+      latch.countDown();
+    }
+
+    @Override
+    public void produce(AdaptrisMessage msg, ProduceDestination overload) throws ProduceException {
+      latch.countDown();
+    }
+  }
+}
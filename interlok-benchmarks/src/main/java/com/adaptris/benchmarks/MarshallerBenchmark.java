@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adaptris.core.AdaptrisMarshaller;
+import com.adaptris.core.DefaultMarshaller;
+import com.adaptris.core.PoolingWorkflow;
+import com.adaptris.core.util.CloneHelper;
+
+/**
+ * Benchmarks the XStream {@link DefaultMarshaller} round trip that is used (amongst other things) to clone services.
+ * <p>
+ * {@link #deepCopy()} copies the same workflow using {@link CloneHelper}, for comparison against {@link #roundTrip()}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshallerBenchmark {
+
+  @Param({"1", "20"})
+  public int chainLength;
+
+  private AdaptrisMarshaller marshaller;
+  private PoolingWorkflow workflow;
+  private String xml;
+
+  @Setup
+  public void setup() throws Exception {
+    marshaller = DefaultMarshaller.getDefaultMarshaller();
+    workflow = new PoolingWorkflow();
+    workflow.setServiceCollection(BenchmarkHelper.createServiceChain(chainLength));
+    xml = marshaller.marshal(workflow);
+  }
+
+  @Benchmark
+  public String marshal() throws Exception {
+    return marshaller.marshal(workflow);
+  }
+
+  @Benchmark
+  public Object unmarshal() throws Exception {
+    return marshaller.unmarshal(xml);
+  }
+
+  @Benchmark
+  public Object roundTrip() throws Exception {
+    return DefaultMarshaller.roundTrip(workflow);
+  }
+
+  @Benchmark
+  public Object deepCopy() throws Exception {
+    return CloneHelper.deepCopy(workflow);
+  }
+}
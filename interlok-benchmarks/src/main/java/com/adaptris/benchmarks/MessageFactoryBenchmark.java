@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.DefaultMessageFactory;
+
+/**
+ * Benchmarks {@link DefaultMessageFactory#newMessage()} and friends.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageFactoryBenchmark {
+
+  private AdaptrisMessageFactory factory;
+  private byte[] bytes;
+
+  @Setup
+  public void setup() {
+    factory = new DefaultMessageFactory();
+    bytes = BenchmarkHelper.PAYLOAD.getBytes();
+  }
+
+  @Benchmark
+  public AdaptrisMessage newMessage() {
+    return factory.newMessage();
+  }
+
+  @Benchmark
+  public AdaptrisMessage newMessage_Bytes() {
+    return factory.newMessage(bytes);
+  }
+
+  @Benchmark
+  public AdaptrisMessage newMessage_String() {
+    return factory.newMessage(BenchmarkHelper.PAYLOAD);
+  }
+}
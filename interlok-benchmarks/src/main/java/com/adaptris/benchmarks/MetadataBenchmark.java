@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.benchmarks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.AdaptrisMessageImp;
+import com.adaptris.core.DefaultMessageFactory;
+import com.adaptris.core.MetadataElement;
+
+/**
+ * Benchmarks metadata access and {@code %message{}} resolution on {@link AdaptrisMessageImp}.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataBenchmark {
+
+  @Param({"10", "50"})
+  public int metadataCount;
+
+  @Param({"default", "copy-on-write"})
+  public String metadataStore;
+
+  private AdaptrisMessageFactory factory;
+  private AdaptrisMessage message;
+  private String lastKey;
+  private String expression;
+
+  @Setup
+  public void setup() {
+    factory = new DefaultMessageFactory().withMetadataStoreFactory(BenchmarkHelper.metadataStoreFactory(metadataStore));
+    message = BenchmarkHelper.createMessage(factory, metadataCount);
+    lastKey = BenchmarkHelper.key(metadataCount - 1);
+    expression = "http://localhost:8080/%message{" + BenchmarkHelper.key(0) + "}/path?id=%message{%uniqueId}&value=%message{"
+        + lastKey + "}";
+  }
+
+  @Benchmark
+  public AdaptrisMessage addMetadata() {
+    return BenchmarkHelper.createMessage(factory, metadataCount);
+  }
+
+  @Benchmark
+  public AdaptrisMessage addMetadata_Overwrite() {
+    message.addMetadata(lastKey, "newValue");
+    return message;
+  }
+
+  @Benchmark
+  public String getMetadataValue() {
+    return message.getMetadataValue(lastKey);
+  }
+
+  @Benchmark
+  public String getMetadataValue_Missing() {
+    return message.getMetadataValue("missing");
+  }
+
+  @Benchmark
+  public boolean headersContainsKey() {
+    return message.headersContainsKey(lastKey);
+  }
+
+  @Benchmark
+  public Set<MetadataElement> getMetadata() {
+    return message.getMetadata();
+  }
+
+  @Benchmark
+  public Map<String, String> getMessageHeaders() {
+    return message.getMessageHeaders();
+  }
+
+  @Benchmark
+  public String resolve() {
+    return message.resolve(expression);
+  }
+
+  @Benchmark
+  public String resolve_NoExpression() {
+    return message.resolve(BenchmarkHelper.PAYLOAD);
+  }
+
+  @Benchmark
+  public Object cloneMessage() throws CloneNotSupportedException {
+    return ((AdaptrisMessageImp) message).clone();
+  }
+}
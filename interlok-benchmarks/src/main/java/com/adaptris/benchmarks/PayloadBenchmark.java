@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.benchmarks;
+package com.adaptris.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+
+/**
+ * Benchmarks writing, reading and cloning large payloads with the different message factories.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadBenchmark {
+
+  @Param({"default", "pooled-buffer"})
+  public String messageFactory;
+
+  @Param({"1048576", "16777216"})
+  public int payloadSize;
+
+  private AdaptrisMessageFactory factory;
+  private AdaptrisMessage message;
+  private byte[] chunk;
+
+  @Setup
+  public void setup() throws Exception {
+    factory = BenchmarkHelper.messageFactory(messageFactory);
+    chunk = new byte[8192];
+    new Random().nextBytes(chunk);
+    message = factory.newMessage();
+    write(message);
+  }
+
+  @Benchmark
+  public AdaptrisMessage write() throws Exception {
+    return write(factory.newMessage());
+  }
+
+  @Benchmark
+  public long read() throws Exception {
+    long total = 0;
+    try (InputStream in = message.getInputStream()) {
+      byte[] buf = new byte[8192];
+      int read;
+      while ((read = in.read(buf)) != -1) {
+        total += read;
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  public Object cloneMessage() throws Exception {
+    return message.clone();
+  }
+
+  private AdaptrisMessage write(AdaptrisMessage msg) throws Exception {
+    try (OutputStream out = msg.getOutputStream()) {
+      for (int i = 0; i < payloadSize; i += chunk.length) {
+        out.write(chunk, 0, Math.min(chunk.length, payloadSize - i));
+      }
+    }
+    return msg;
+  }
+}
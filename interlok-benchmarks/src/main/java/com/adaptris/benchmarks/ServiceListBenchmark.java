@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.DefaultMessageFactory;
+import com.adaptris.core.ServiceList;
+import com.adaptris.core.util.LifecycleHelper;
+
+/**
+ * Benchmarks {@link ServiceList#doService(AdaptrisMessage)} across a typical metadata heavy service chain.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceListBenchmark {
+
+  @Param({"1", "5", "20"})
+  public int chainLength;
+
+  @Param({"10", "50"})
+  public int metadataCount;
+
+  private AdaptrisMessageFactory factory;
+  private ServiceList services;
+
+  @Setup
+  public void setup() throws Exception {
+    factory = new DefaultMessageFactory();
+    services = BenchmarkHelper.createServiceChain(chainLength);
+    LifecycleHelper.prepare(services);
+    LifecycleHelper.initAndStart(services, false);
+  }
+
+  @TearDown
+  public void teardown() {
+    LifecycleHelper.stopAndClose(services, false);
+  }
+
+  @Benchmark
+  public AdaptrisMessage doService() throws Exception {
+    AdaptrisMessage msg = BenchmarkHelper.createMessage(factory, metadataCount);
+    services.doService(msg);
+    return msg;
+  }
+}
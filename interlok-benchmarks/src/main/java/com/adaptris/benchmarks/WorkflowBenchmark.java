@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adaptris.benchmarks.BenchmarkHelper.CountingProducer;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.Channel;
+import com.adaptris.core.DefaultMessageFactory;
+import com.adaptris.core.PoolingWorkflow;
+import com.adaptris.core.StandardWorkflow;
+import com.adaptris.core.WorkflowImp;
+
+/**
+ * Benchmarks message throughput through {@link StandardWorkflow} and {@link PoolingWorkflow}.
+ * <p>
+ * Each invocation submits {@value #BATCH_SIZE} messages and waits for them all to be produced, so the reported score is
+ * messages/time for both workflow types.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkflowBenchmark {
+
+  static final int BATCH_SIZE = 100;
+
+  @Param({"standard", "pooling"})
+  public String workflowType;
+
+  @Param({"5"})
+  public int chainLength;
+
+  @Param({"10"})
+  public int metadataCount;
+
+  private AdaptrisMessageFactory factory;
+  private CountingProducer producer;
+  private WorkflowImp workflow;
+  private Channel channel;
+
+  @Setup
+  public void setup() throws Exception {
+    factory = new DefaultMessageFactory();
+    producer = new CountingProducer();
+    workflow = createWorkflow();
+    workflow.setServiceCollection(BenchmarkHelper.createServiceChain(chainLength));
+    workflow.setProducer(producer);
+    channel = BenchmarkHelper.start(BenchmarkHelper.createChannel(workflow));
+  }
+
+  @TearDown
+  public void teardown() {
+    BenchmarkHelper.stop(channel);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void onAdaptrisMessage() throws Exception {
+    producer.expect(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      workflow.onAdaptrisMessage(BenchmarkHelper.createMessage(factory, metadataCount));
+    }
+    if (!producer.await(1, TimeUnit.MINUTES)) {
+      throw new IllegalStateException("Timed out waiting for messages to be produced");
+    }
+  }
+
+  private WorkflowImp createWorkflow() {
+    if ("pooling".equals(workflowType)) {
+      PoolingWorkflow wf = new PoolingWorkflow();
+      wf.setPoolSize(Runtime.getRuntime().availableProcessors());
+      return wf;
+    }
+    return new StandardWorkflow();
+  }
+}
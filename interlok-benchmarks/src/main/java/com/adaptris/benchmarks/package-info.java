@@ -0,0 +1,8 @@
+/**
+ * JMH benchmarks covering the message hot path.
+ * <p>
+ * These are not unit tests, and nothing here is shipped; run them via {@code ./gradlew :interlok-benchmarks:jmh} and compare
+ * the JSON results in {@code build/reports/jmh} before and after a change.
+ * </p>
+ */
+package com.adaptris.benchmarks;
@@ -23,6 +23,9 @@ import java.util.Set;
 import javax.validation.Valid;
 
 import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.core.metadata.DefaultMetadataStoreFactory;
+import com.adaptris.core.metadata.MetadataStore;
+import com.adaptris.core.metadata.MetadataStoreFactory;
 import com.adaptris.util.GuidGenerator;
 import com.adaptris.util.IdGenerator;
 
@@ -38,10 +41,16 @@ public abstract class AdaptrisMessageFactory {
 
   private static final IdGenerator DEFAULT_GENERATOR = new GuidGenerator();
 
+  private static final MetadataStoreFactory DEFAULT_METADATA_STORE = new DefaultMetadataStoreFactory();
+
   @AdvancedConfig
   @Valid
   private IdGenerator uniqueIdGenerator;
 
+  @AdvancedConfig
+  @Valid
+  private MetadataStoreFactory metadataStoreFactory;
+
   /**
    * Get the default implementationion of AdaptrisMessageFactory.
    *
@@ -220,4 +229,40 @@ public abstract class AdaptrisMessageFactory {
     return getUniqueIdGenerator() != null ? getUniqueIdGenerator() : DEFAULT_GENERATOR;
   }
 
+  /**
+   * @return the metadataStoreFactory
+   */
+  public MetadataStoreFactory getMetadataStoreFactory() {
+    return metadataStoreFactory;
+  }
+
+  /**
+   * Set how metadata is stored for each message.
+   * <p>
+   * If not explicitly configured then {@link DefaultMetadataStoreFactory} is used, which has the same behaviour as previous
+   * versions. You might want to use {@link com.adaptris.core.metadata.CopyOnWriteMetadataStoreFactory} if your messages carry
+   * a lot of metadata.
+   * </p>
+   *
+   * @param f the metadataStoreFactory to set
+   * @since 3.10
+   */
+  public void setMetadataStoreFactory(MetadataStoreFactory f) {
+    this.metadataStoreFactory = f;
+  }
+
+  public <T extends AdaptrisMessageFactory> T withMetadataStoreFactory(MetadataStoreFactory f) {
+    setMetadataStoreFactory(f);
+    return (T) this;
+  }
+
+  /**
+   * Create the metadata store for a new message.
+   *
+   * @return a new {@link MetadataStore} from the configured {@link MetadataStoreFactory}.
+   */
+  protected MetadataStore newMetadataStore() {
+    return getMetadataStoreFactory() != null ? getMetadataStoreFactory().create() : DEFAULT_METADATA_STORE.create();
+  }
+
 }
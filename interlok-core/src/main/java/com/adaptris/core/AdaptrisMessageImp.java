@@ -16,6 +16,7 @@
 
 package com.adaptris.core;
 
+import com.adaptris.core.metadata.MetadataStore;
 import com.adaptris.core.util.Args;
 import com.adaptris.interlok.resolver.ExternalResolver;
 import com.adaptris.util.IdGenerator;
@@ -36,11 +37,8 @@ import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static com.adaptris.core.metadata.MetadataResolver.resolveKey;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
@@ -67,18 +65,12 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
  */
 public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
 
-  // If we have %message{key1}%message{key2} group(1) is key2
-  // Which is then replaced so it all works out int the end.
-  private static final String RESOLVE_REGEXP = "^.*%message\\{([\\w!\\$\"#&%'\\*\\+,\\-\\.:=]+)\\}.*$";
-
   private transient Logger log = LoggerFactory.getLogger(AdaptrisMessage.class);
-  private transient Pattern normalResolver = Pattern.compile(RESOLVE_REGEXP);
-  private transient Pattern dotAllResolver = Pattern.compile(RESOLVE_REGEXP, Pattern.DOTALL);
 
   private IdGenerator guidGenerator;
   // persistent fields
   private String uniqueId;
-  private Set<MetadataElement> metadata;
+  private MetadataStore metadata;
   private String contentEncoding;
 
   // in memory only e.g. lost on send or persist
@@ -138,7 +130,7 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
   protected AdaptrisMessageImp(IdGenerator guid, AdaptrisMessageFactory fac) {
     this();
     factory = fac;
-    metadata = new HashSet<MetadataElement>();
+    metadata = AdaptrisMessageFactory.defaultIfNull(fac).newMetadataStore();
     objectMetadata = new HashMap<>();
     guidGenerator = guid;
     messageLifeCycle = new MessageLifecycleEvent();
@@ -169,48 +161,46 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
   /** @see AdaptrisMessage#headersContainsKey(String) */
   @Override
   public boolean headersContainsKey(String key) {
-    return metadata.contains(new MetadataElement(resolveKey(this, key), ""));
+    return metadata.containsKey(resolveKey(this, key));
   }
 
   @Override
-  public synchronized void addMetadata(String key, String value) {
+  public void addMetadata(String key, String value) {
     this.addMessageHeader(resolveKey(this, key), value);
   }
 
   @Override
   public void addMessageHeader(String key, String value) {
-    this.addMetadata(new MetadataElement(resolveKey(this, key), value));
+    metadata.put(resolveKey(this, key), value);
   }
 
   /** @see AdaptrisMessage#addMetadata(MetadataElement) */
   @Override
-  public synchronized void addMetadata(MetadataElement e) {
+  public void addMetadata(MetadataElement e) {
     e.setKey(resolveKey(this, e.getKey()));
-    if (metadata.contains(e)) {
-      removeMetadata(e);
-    }
-    metadata.add(e);
+    metadata.put(e);
   }
 
   /** @see AdaptrisMessage#removeMetadata(MetadataElement) */
   @Override
   public void removeMetadata(MetadataElement element) {
     element.setKey(resolveKey(this, element.getKey()));
-    metadata.remove(element);
+    metadata.remove(element.getKey());
   }
 
   /** @see AdaptrisMessage#removeMessageHeader(String) */
   @Override
   public void removeMessageHeader(String key) {
-    metadata.remove(new MetadataElement(resolveKey(this, key), ""));
+    metadata.remove(resolveKey(this, key));
   }
 
   @Override
-  public synchronized void setMetadata(Set<MetadataElement> set) {
+  public void setMetadata(Set<MetadataElement> set) {
     if (set != null) {
       for (MetadataElement e : set) {
-        addMetadata(e);
+        e.setKey(resolveKey(this, e.getKey()));
       }
+      metadata.putAll(set);
     }
   }
 
@@ -223,8 +213,8 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
 
   /** @see AdaptrisMessage#clearMetadata() */
   @Override
-  public synchronized void clearMetadata() {
-    metadata = new HashSet<MetadataElement>();
+  public void clearMetadata() {
+    metadata.clear();
   }
 
   /** @see AdaptrisMessage#getMetadataValue(String) */
@@ -249,16 +239,12 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
 
   @Override
   public Map<String, String> getMessageHeaders() {
-    Map<String, String> newSet = new HashMap<String, String>();
-    for (MetadataElement kp : metadata) {
-      newSet.put(kp.getKey(), kp.getValue());
-    }
-    return newSet;
+    return metadata.asMap();
   }
 
   @Override
   public Set<MetadataElement> getMetadata() { // lgtm [java/unsynchronized-getter]
-    return new HashSet<MetadataElement>(metadata);
+    return metadata.elements();
   }
 
   @Override
@@ -396,26 +382,8 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
     }
     // see if there are any external resolvers before processing any %message{…}'s
     s = ExternalResolver.resolve(s, this);
-    return resolve(s, dotAll ? dotAllResolver : normalResolver);
-  }
-  
-  private String resolve(String s, Pattern pattern) {
-    String result = s;
-    Matcher m = pattern.matcher(s);
-    while (m.matches()) {
-      String key = m.group(1);
-      String metadataValue = internalResolve(key);
-      // Optional<String> metadataValue = (Optional<String>) Optional.ofNullable(internalResolve(key));
-      if (metadataValue == null) {
-        throw new UnresolvedMetadataException("Could not resolve [" + key + "] as metadata/uniqueId/size/payload");
-      }
-      String toReplace = "%message{" + key + "}";
-      result = result.replace(toReplace, metadataValue);
-      // result = result.replace(toReplace, metadataValue
-      // .orElseThrow(() -> new UnresolvedMetadataException("Could not resolve [" + key + "] as metadata/uniqueId/size")));
-      m = pattern.matcher(result);
-    }
-    return result;
+    // %message{…} expressions are parsed once and cached, so this is a single pass.
+    return MessageExpression.resolve(s, dotAll, this::internalResolve);
   }
 
   private String internalResolve(String key) {
@@ -470,7 +438,7 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
     String result = getMetadataValue(key);
     if (result == null) {
       String resolvedKey = resolveKey(this, key);
-      for (MetadataElement e : metadata) {
+      for (MetadataElement e : metadata.elements()) {
         if (e.getKey().equalsIgnoreCase(resolvedKey)) {
           result = e.getValue();
           break;
@@ -485,8 +453,7 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
   public Object clone() throws CloneNotSupportedException {
     AdaptrisMessage result = (AdaptrisMessage) super.clone();
 
-    result.clearMetadata();
-    result.setMetadata(cloneMetadata());
+    ((AdaptrisMessageImp) result).metadata = metadata.copy();
 
     MessageLifecycleEvent copy = getMessageLifecycleEvent().clone();
     ((AdaptrisMessageImp) result).messageLifeCycle = copy;
@@ -498,15 +465,6 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
     return result;
   }
 
-  private Set<MetadataElement> cloneMetadata() throws CloneNotSupportedException {
-    Set<MetadataElement> metadata = getMetadata();
-    Set<MetadataElement> result = new HashSet<MetadataElement>();
-    for (MetadataElement m : metadata) {
-      result.add((MetadataElement) m.clone());
-    }
-    return result;
-  }
-
   /**
    * Copy the payload from one AdaptrisMessage to another.
    *
@@ -524,12 +482,7 @@ public abstract class AdaptrisMessageImp implements AdaptrisMessage, Cloneable {
   }
 
   private String getValue(String key) {
-    for (MetadataElement e : metadata) {
-      if (e.getKey().equals(key)) {
-        return e.getValue();
-      }
-    }
-    return null;
+    return metadata.get(key);
   }
   
   private class ContentEncodingOnClose extends OutputStreamWriter {
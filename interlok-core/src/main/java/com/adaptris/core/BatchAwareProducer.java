@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * An {@link AdaptrisMessageProducer} that can produce a batch of messages in a single invocation.
+ * <p>
+ * Used by {@link BatchingWorkflow}; in any other context {@link #produce(AdaptrisMessage)} is used as normal.
+ * </p>
+ *
+ * @since 3.10
+ */
+public interface BatchAwareProducer extends AdaptrisMessageProducer {
+
+  /**
+   * Produce a batch of messages to the default destination.
+   *
+   * @param batch the messages.
+   * @param failures invoked for each message that failed individually; any message that is not reported is considered to have
+   *          been successful.
+   * @throws ProduceException if the batch as a whole failed, in which case every message is treated as failed.
+   */
+  void produce(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures) throws ProduceException;
+
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core;
+
+import static com.adaptris.core.CoreConstants.KEY_WORKFLOW_SKIP_PRODUCER;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+
+import org.apache.commons.lang3.BooleanUtils;
+
+import com.adaptris.annotation.AdapterComponent;
+import com.adaptris.annotation.ComponentProfile;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.core.util.ManagedThreadFactory;
+import com.adaptris.util.NumberUtils;
+import com.adaptris.util.TimeInterval;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * Single threaded workflow that processes messages in batches.
+ * <p>
+ * Messages from the consumer are collected until either {@link #setBatchSize(Integer)} messages have been received, or
+ * {@link #setBatchWindow(TimeInterval)} has elapsed since the first message in the batch was received. The batch is then
+ * processed as a unit:
+ * </p>
+ * <ul>
+ * <li>Each {@link BatchAwareService} in the service collection is invoked once with the whole batch; other services are invoked
+ * once per message as normal.</li>
+ * <li>If the producer is a {@link BatchAwareProducer} then it is invoked once with the whole batch, otherwise each message is
+ * produced individually.</li>
+ * </ul>
+ * <p>
+ * Failures are still handled per message; a message that fails is passed to the configured {@link ProcessingExceptionHandler} and
+ * takes no further part in the batch while the rest of the batch carries on. {@code continue-on-fail} and
+ * {@code restart-affected-service-on-exception} are honoured as they would be by {@link ServiceList}. The batch goes through the
+ * service collection, so it is subject to the same locking and out-of-state handling as a single message. Batch-aware services
+ * are only used if the service collection is a plain {@link ServiceList} that does not explicitly allow forward searching; any
+ * other service collection is applied to each message in turn.
+ * </p>
+ * <p>
+ * Messages that are waiting for the batch to fill are held in memory and are not acknowledged to the consumer until the batch has
+ * been processed, so you should bear this in mind when configuring the batch size for consumers that acknowledge messages.
+ * </p>
+ *
+ * @config batching-workflow
+ * @since 3.10
+ */
+@XStreamAlias("batching-workflow")
+@AdapterComponent
+@ComponentProfile(summary = "Single Threaded Workflow that processes messages in batches", tag = "workflow,base")
+@DisplayOrder(order = {"batchSize", "batchWindow", "disableDefaultMessageCount", "sendEvents", "logPayload"})
+public class BatchingWorkflow extends StandardWorkflowImpl {
+
+  /**
+   * The default batch size.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+  private static final TimeInterval DEFAULT_BATCH_WINDOW = new TimeInterval(1L, TimeUnit.SECONDS);
+
+  @InputFieldDefault(value = "100")
+  @Min(1)
+  private Integer batchSize;
+  @InputFieldDefault(value = "1 second")
+  @Valid
+  private TimeInterval batchWindow;
+
+  private transient List<AdaptrisMessage> pending;
+  private transient ScheduledExecutorService scheduler;
+  private transient ScheduledFuture<?> batchTimer;
+  private transient long batchNumber;
+
+  public BatchingWorkflow() {
+    super();
+    pending = new ArrayList<>();
+  }
+
+  public BatchingWorkflow(AdaptrisMessageConsumer consumer, AdaptrisMessageProducer producer) {
+    this(consumer, new ServiceList(), producer);
+  }
+
+  public BatchingWorkflow(AdaptrisMessageConsumer consumer, ServiceCollection services, AdaptrisMessageProducer producer) {
+    this();
+    setConsumer(consumer);
+    setServiceCollection(services != null ? services : new ServiceList());
+    setProducer(producer);
+  }
+
+  @Override
+  protected void startWorkflow() throws CoreException {
+    scheduler = Executors.newSingleThreadScheduledExecutor(new ManagedThreadFactory(getClass().getSimpleName()));
+    super.startWorkflow();
+  }
+
+  @Override
+  protected void stopWorkflow() {
+    LifecycleHelper.stop(getConsumer());
+    // Anything still waiting needs to be processed before the services are stopped.
+    flush();
+    ManagedThreadFactory.shutdownQuietly(scheduler, batchWindowMs());
+    scheduler = null;
+    LifecycleHelper.stop(getServiceCollection());
+    LifecycleHelper.stop(getProducer());
+  }
+
+  @Override
+  public synchronized void onAdaptrisMessage(AdaptrisMessage msg, Consumer<AdaptrisMessage> success) {
+    ListenerCallbackHelper.prepare(msg, success);
+    if (!obtainChannel().isAvailable()) {
+      handleChannelUnavailable(msg);
+      return;
+    }
+    pending.add(msg);
+    if (pending.size() >= batchSize()) {
+      flush();
+    }
+    else if (pending.size() == 1) {
+      scheduleFlush();
+    }
+  }
+
+  @Override
+  protected synchronized void resubmitMessage(AdaptrisMessage msg) {
+    super.resubmitMessage(msg);
+  }
+
+  private void scheduleFlush() {
+    final long batch = batchNumber;
+    if (scheduler != null) {
+      batchTimer = scheduler.schedule(() -> flushIfCurrent(batch), batchWindowMs(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private synchronized void flushIfCurrent(long batch) {
+    // The batch may already have been processed because it was full.
+    if (batch == batchNumber) {
+      flush();
+    }
+  }
+
+  private synchronized void flush() {
+    if (batchTimer != null) {
+      batchTimer.cancel(false);
+      batchTimer = null;
+    }
+    batchNumber++;
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<AdaptrisMessage> batch = pending;
+    pending = new ArrayList<>();
+    processBatch(batch);
+  }
+
+  private void processBatch(List<AdaptrisMessage> batch) {
+    log.debug("Processing batch of [{}] messages", batch.size());
+    List<BatchEntry> entries = new ArrayList<>(batch.size());
+    try {
+      for (AdaptrisMessage msg : batch) {
+        BatchEntry entry = new BatchEntry(msg);
+        entries.add(entry);
+        try {
+          entry.begin();
+        }
+        catch (Exception e) {
+          entry.fail("Exception processing message", e);
+        }
+      }
+      applyServices(entries);
+      produce(entries);
+      for (BatchEntry e : live(entries)) {
+        ListenerCallbackHelper.handleSuccessCallback(e.wip);
+        logSuccess(e.wip, e.start);
+      }
+    }
+    catch (Exception e) {
+      for (BatchEntry entry : live(entries)) {
+        entry.fail("Exception processing message", e);
+      }
+    }
+    finally {
+      for (BatchEntry e : entries) {
+        sendMessageLifecycleEvent(e.wip);
+        workflowEnd(e.msg, e.wip);
+      }
+    }
+  }
+
+  private void applyServices(List<BatchEntry> entries) {
+    ServiceCollection services = getServiceCollection();
+    List<BatchEntry> live = live(entries);
+    if (!(services instanceof ServiceCollectionImp)) {
+      for (BatchEntry entry : live) {
+        try {
+          services.doService(entry.wip);
+        }
+        catch (Exception e) {
+          entry.fail("Exception from ServiceCollection", e);
+        }
+      }
+      return;
+    }
+    Map<AdaptrisMessage, Exception> failures = new IdentityHashMap<>();
+    try {
+      ((ServiceCollectionImp) services).doService(wips(live), failures::put);
+    }
+    catch (ServiceException e) {
+      live.forEach(entry -> failures.put(entry.wip, e));
+    }
+    for (BatchEntry entry : live) {
+      Exception failure = failures.get(entry.wip);
+      if (failure != null) {
+        entry.fail("Exception from ServiceCollection", failure);
+      }
+    }
+  }
+
+  private void produce(List<BatchEntry> entries) {
+    List<BatchEntry> live = new ArrayList<>();
+    for (BatchEntry entry : live(entries)) {
+      if (BooleanUtils.toBoolean(entry.wip.getMetadataValue(KEY_WORKFLOW_SKIP_PRODUCER))) {
+        log.debug("Skipping message producer, {} set to true", KEY_WORKFLOW_SKIP_PRODUCER);
+      }
+      else {
+        live.add(entry);
+      }
+    }
+    if (getProducer() instanceof BatchAwareProducer && !live.isEmpty()) {
+      Map<AdaptrisMessage, Exception> failures = new IdentityHashMap<>();
+      try {
+        ((BatchAwareProducer) getProducer()).produce(wips(live), failures::put);
+      }
+      catch (ProduceException e) {
+        live.forEach(entry -> failures.put(entry.wip, e));
+      }
+      for (BatchEntry entry : live) {
+        Exception failure = failures.get(entry.wip);
+        if (failure == null) {
+          entry.wip.addEvent(getProducer(), true);
+        }
+        else {
+          produceFailed(entry, failure);
+        }
+      }
+    }
+    else {
+      for (BatchEntry entry : live) {
+        try {
+          doProduce(entry.wip);
+        }
+        catch (Exception e) {
+          produceFailed(entry, e);
+        }
+      }
+    }
+  }
+
+  private void produceFailed(BatchEntry entry, Exception e) {
+    entry.wip.addEvent(getProducer(), false);
+    entry.fail("Exception producing msg", e);
+    handleProduceException();
+  }
+
+  private static List<BatchEntry> live(List<BatchEntry> entries) {
+    return entries.stream().filter(e -> !e.failed).collect(Collectors.toList());
+  }
+
+  private static List<AdaptrisMessage> wips(List<BatchEntry> entries) {
+    return entries.stream().map(e -> e.wip).collect(Collectors.toList());
+  }
+
+  /**
+   * Set the maximum number of messages in a batch.
+   *
+   * @param i the batch size, default is {@value #DEFAULT_BATCH_SIZE} if not specified.
+   */
+  public void setBatchSize(Integer i) {
+    batchSize = i;
+  }
+
+  public Integer getBatchSize() {
+    return batchSize;
+  }
+
+  public <T extends BatchingWorkflow> T withBatchSize(Integer i) {
+    setBatchSize(i);
+    return (T) this;
+  }
+
+  /**
+   * Set the maximum time to wait for a batch to fill.
+   * <p>
+   * This is measured from the time that the first message in the batch is received.
+   * </p>
+   *
+   * @param interval the batch window, default is 1 second if not specified.
+   */
+  public void setBatchWindow(TimeInterval interval) {
+    batchWindow = interval;
+  }
+
+  public TimeInterval getBatchWindow() {
+    return batchWindow;
+  }
+
+  public <T extends BatchingWorkflow> T withBatchWindow(TimeInterval interval) {
+    setBatchWindow(interval);
+    return (T) this;
+  }
+
+  int batchSize() {
+    return NumberUtils.toIntDefaultIfNull(getBatchSize(), DEFAULT_BATCH_SIZE);
+  }
+
+  long batchWindowMs() {
+    return TimeInterval.toMillisecondsDefaultIfNull(getBatchWindow(), DEFAULT_BATCH_WINDOW);
+  }
+
+  private class BatchEntry {
+    private final AdaptrisMessage msg;
+    private AdaptrisMessage wip;
+    private long start;
+    private boolean failed;
+
+    BatchEntry(AdaptrisMessage msg) {
+      this.msg = msg;
+      wip = addConsumeLocation(msg);
+      workflowStart(msg);
+      processingStart(msg);
+    }
+
+    void begin() throws CloneNotSupportedException {
+      start = System.currentTimeMillis();
+      log.debug("start processing msg [{}]", messageLogger().toString(msg));
+      wip = (AdaptrisMessage) msg.clone(); // retain orig. for error handling
+      wip.getMessageLifecycleEvent().setChannelId(obtainChannel().getUniqueId());
+      wip.getMessageLifecycleEvent().setWorkflowId(obtainWorkflowId());
+      wip.addEvent(getConsumer(), true); // initial receive event
+    }
+
+    void fail(String logMsg, Exception e) {
+      failed = true;
+      handleBadMessage(logMsg, e, copyExceptionHeaders(wip, msg));
+    }
+  }
+}
@@ -19,7 +19,6 @@ package com.adaptris.core;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import javax.validation.Valid;
 import org.apache.commons.lang3.BooleanUtils;
@@ -29,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import com.adaptris.annotation.AdvancedConfig;
 import com.adaptris.annotation.InputFieldDefault;
 import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.core.util.ManagedExecutors;
 import com.adaptris.core.util.ManagedThreadFactory;
 import com.adaptris.util.NumberUtils;
 import com.adaptris.util.TimeInterval;
@@ -316,7 +316,7 @@ public abstract class EventHandlerBase implements EventHandler {
 
     @Override
     public void start() throws CoreException {
-      executor = Executors.newSingleThreadExecutor();
+      executor = ManagedExecutors.newSingleThreadExecutor(getClass().getSimpleName());
     }
 
     @Override
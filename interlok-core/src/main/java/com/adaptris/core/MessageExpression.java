@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A pre-parsed {@code %message{...}} expression; literal segments interleaved with metadata key references.
+ * <p>
+ * Parsing is done once per distinct expression and cached globally, so resolving an expression against a message is a single
+ * pass with no regular expressions. The behaviour mirrors the original {@code ^.*%message\{([\w!\$"#&%'\*\+,\-\.:=]+)\}.*$}
+ * regular expression:
+ * </p>
+ * <ul>
+ * <li>keys consist of {@code [a-zA-Z_0-9]} and {@code !$"#&%'*+,-.:=}</li>
+ * <li>if not in {@code dotAll} mode, then an expression containing a line terminator is never resolved.</li>
+ * <li>if a resolved value itself contains {@code %message{...}} then the result is resolved again.</li>
+ * </ul>
+ */
+final class MessageExpression {
+
+  static final String PREFIX = "%message{";
+  private static final char SUFFIX = '}';
+  // Not expected to be hit with "normal" configuration; but resolve() is sometimes used on metadata values.
+  private static final int MAX_CACHE_SIZE = 1024;
+
+  // Only successfully parsed expressions are cached; once full, an arbitrary entry makes way for a new one.
+  private static final Map<String, MessageExpression> DOTALL_CACHE = new ConcurrentHashMap<>();
+  private static final Map<String, MessageExpression> NORMAL_CACHE = new ConcurrentHashMap<>();
+
+  // Alternating literal / key segments; isKey[i] is false if segments[i] is a literal.
+  private final String[] segments;
+  private final boolean[] isKey;
+  private final int literalLength;
+
+  private MessageExpression(List<String> segmentList, List<Boolean> keyList) {
+    segments = segmentList.toArray(new String[segmentList.size()]);
+    isKey = new boolean[keyList.size()];
+    int len = 0;
+    for (int i = 0; i < isKey.length; i++) {
+      isKey[i] = keyList.get(i);
+      len += isKey[i] ? 0 : segments[i].length();
+    }
+    literalLength = len;
+  }
+
+  /**
+   * Resolve the expression.
+   *
+   * @param expression the expression
+   * @param dotAll whether line terminators are allowed in the expression.
+   * @param lookup the lookup function, which should return null if the key cannot be resolved.
+   * @return the resolved expression.
+   * @throws UnresolvedMetadataException if {@code lookup} returns null.
+   */
+  static String resolve(String expression, boolean dotAll, Function<String, String> lookup) {
+    String result = expression;
+    MessageExpression compiled = compile(expression, dotAll);
+    while (compiled != null) {
+      result = compiled.resolve(lookup);
+      // Values that are themselves expressions; this isn't cached, since it's dynamic.
+      compiled = result.contains(PREFIX) ? parse(result, dotAll) : null;
+    }
+    return result;
+  }
+
+  /**
+   * Get the compiled form of the expression.
+   *
+   * @return the compiled expression, or null if there is nothing to resolve.
+   */
+  static MessageExpression compile(String expression, boolean dotAll) {
+    if (expression.indexOf(PREFIX) < 0) {
+      return null;
+    }
+    Map<String, MessageExpression> cache = dotAll ? DOTALL_CACHE : NORMAL_CACHE;
+    MessageExpression result = cache.get(expression);
+    if (result == null) {
+      // If two threads race, then we parse twice which is harmless.
+      result = parse(expression, dotAll);
+      if (result != null) {
+        evictIfFull(cache);
+        cache.putIfAbsent(expression, result);
+      }
+    }
+    return result;
+  }
+
+  static int cacheSize(boolean dotAll) {
+    return (dotAll ? DOTALL_CACHE : NORMAL_CACHE).size();
+  }
+
+  private static void evictIfFull(Map<String, MessageExpression> cache) {
+    if (cache.size() >= MAX_CACHE_SIZE) {
+      Iterator<String> keys = cache.keySet().iterator();
+      if (keys.hasNext()) {
+        keys.next();
+        keys.remove();
+      }
+    }
+  }
+
+  static MessageExpression parse(String expression, boolean dotAll) {
+    if (!dotAll && hasLineTerminator(expression)) {
+      return null;
+    }
+    List<String> segments = new ArrayList<>();
+    List<Boolean> keys = new ArrayList<>();
+    int literalStart = 0;
+    int pos = expression.indexOf(PREFIX);
+    while (pos >= 0) {
+      int keyStart = pos + PREFIX.length();
+      int keyEnd = keyStart;
+      while (keyEnd < expression.length() && isKeyChar(expression.charAt(keyEnd))) {
+        keyEnd++;
+      }
+      if (keyEnd > keyStart && keyEnd < expression.length() && expression.charAt(keyEnd) == SUFFIX) {
+        segments.add(expression.substring(literalStart, pos));
+        keys.add(Boolean.FALSE);
+        segments.add(expression.substring(keyStart, keyEnd));
+        keys.add(Boolean.TRUE);
+        literalStart = keyEnd + 1;
+        pos = expression.indexOf(PREFIX, literalStart);
+      }
+      else {
+        pos = expression.indexOf(PREFIX, pos + 1);
+      }
+    }
+    if (segments.isEmpty()) {
+      return null;
+    }
+    segments.add(expression.substring(literalStart));
+    keys.add(Boolean.FALSE);
+    return new MessageExpression(segments, keys);
+  }
+
+  String resolve(Function<String, String> lookup) {
+    StringBuilder result = new StringBuilder(literalLength + 32);
+    for (int i = 0; i < segments.length; i++) {
+      if (isKey[i]) {
+        String value = lookup.apply(segments[i]);
+        if (value == null) {
+          throw new UnresolvedMetadataException("Could not resolve [" + segments[i] + "] as metadata/uniqueId/size/payload");
+        }
+        result.append(value);
+      }
+      else {
+        result.append(segments[i]);
+      }
+    }
+    return result.toString();
+  }
+
+  private static boolean isKeyChar(char c) {
+    if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9') {
+      return true;
+    }
+    switch (c) {
+      case '_':
+      case '!':
+      case '$':
+      case '"':
+      case '#':
+      case '&':
+      case '%':
+      case '\'':
+      case '*':
+      case '+':
+      case ',':
+      case '-':
+      case '.':
+      case ':':
+      case '=':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // The line terminators that stop '.' from matching in a non DOTALL regular expression.
+  private static boolean hasLineTerminator(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      switch (s.charAt(i)) {
+        case '\n':
+        case '\r':
+        case '\u0085':
+        case '\u2028':
+        case '\u2029':
+          return true;
+        default:
+      }
+    }
+    return false;
+  }
+}
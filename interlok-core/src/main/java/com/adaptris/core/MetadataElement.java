@@ -68,7 +68,7 @@ public class MetadataElement implements NameValuePair, Cloneable {
 
 
   public MetadataElement(String key, String value) {
-    this();
+    // Don't chain to this(), generating a UUID key only to overwrite it is expensive on the hot path.
     setKey(key);
     setValue(value);
   }
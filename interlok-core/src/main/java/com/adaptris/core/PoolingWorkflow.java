@@ -18,13 +18,17 @@ package com.adaptris.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import javax.validation.Valid;
 import javax.validation.constraints.Max;
@@ -39,8 +43,10 @@ import com.adaptris.annotation.AdvancedConfig;
 import com.adaptris.annotation.ComponentProfile;
 import com.adaptris.annotation.DisplayOrder;
 import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.util.CloneHelper;
 import com.adaptris.core.util.LifecycleHelper;
 import com.adaptris.core.util.LoggingHelper;
+import com.adaptris.core.util.ManagedExecutors;
 import com.adaptris.core.util.ManagedThreadFactory;
 import com.adaptris.util.FifoMutexLock;
 import com.adaptris.util.NumberUtils;
@@ -70,6 +76,18 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * <code>AdaptrisMessageConsumer</code> is succesfully stopped will be treated as <b>bad</b> messages and sent directly to the
  * configured {@link com.adaptris.core.ProcessingExceptionHandler}.
  * </p>
+ * <p>
+ * By default each message is handed to an unbounded thread pool and a worker is borrowed from an object pool. If
+ * {@link #setQueueHighWatermark(Integer)} is configured, then a fixed number of threads ({@link #setPoolSize(Integer)}) is used
+ * instead; each thread has its own service collection so there is no object pool, and messages waiting for a thread are held in
+ * a bounded queue. When the queue reaches the high watermark, the consumer is blocked in
+ * {@link #onAdaptrisMessage(AdaptrisMessage, Consumer)} until the queue has drained to the low watermark; the queue depth and the
+ * time the consumer has spent blocked are available via {@link com.adaptris.core.interceptor.MessageInFlightMBean}.
+ * </p>
+ * <p>
+ * If virtual threads are enabled (see {@link ManagedExecutors}) then they are used in place of the unbounded thread pool; they
+ * are not used with a queue-high-watermark since service collections are bound to platform threads in that mode.
+ * </p>
  * 
  * @config pooling-workflow
  * 
@@ -81,7 +99,8 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 @XStreamAlias("pooling-workflow")
 @AdapterComponent
 @ComponentProfile(summary = "Workflow with a thread pool handling the service chain", tag = "workflow,base")
-@DisplayOrder(order = {"poolSize", "minIdle", "maxIdle", "threadPriority", "disableDefaultMessageCount"})
+@DisplayOrder(order = {"poolSize", "minIdle", "maxIdle", "threadPriority", "queueHighWatermark", "queueLowWatermark",
+    "disableDefaultMessageCount"})
 public class PoolingWorkflow extends WorkflowImp {
 
   /**
@@ -146,17 +165,29 @@ public class PoolingWorkflow extends WorkflowImp {
   @Max(Thread.MAX_PRIORITY)
   private Integer threadPriority;
 
+  @AdvancedConfig
+  @Min(1)
+  private Integer queueHighWatermark;
+  @AdvancedConfig
+  @Min(0)
+  private Integer queueLowWatermark;
+
   private transient ExecutorService threadPool;
   private transient GenericObjectPool<Worker> objectPool;
   private transient FifoMutexLock poolLock;
-  private transient AdaptrisMarshaller serviceListMarshaller;
   private transient String currentThreadName;
   private transient ServiceCollection marshalledServiceCollection;
+  private transient WatermarkBackpressure backpressure;
+  private transient ThreadLocal<Worker> boundWorker;
+  private transient Set<Worker> boundWorkers;
+  private transient AtomicInteger activeBoundWorkers;
 
   public PoolingWorkflow() {
     super();
     poolLock = new FifoMutexLock();
-    serviceListMarshaller = DefaultMarshaller.getDefaultMarshaller();
+    boundWorker = new ThreadLocal<>();
+    boundWorkers = ConcurrentHashMap.newKeySet();
+    activeBoundWorkers = new AtomicInteger();
   }
 
   public PoolingWorkflow(String uniqueId) throws CoreException {
@@ -266,9 +297,16 @@ public class PoolingWorkflow extends WorkflowImp {
   @Override
   protected void startWorkflow() throws CoreException {
     LifecycleHelper.start(getProducer());
-    objectPool = createObjectPool();
-    threadPool = createExecutor();
-    populatePool();
+    if (boundedQueue()) {
+      backpressure = new WatermarkBackpressure(queueHighWatermark(), queueLowWatermark());
+      threadPool = createBoundedExecutor();
+      populateBoundWorkers();
+    }
+    else {
+      objectPool = createObjectPool();
+      threadPool = createExecutor();
+      populatePool();
+    }
     LifecycleHelper.start(getConsumer());
   }
 
@@ -330,7 +368,11 @@ public class PoolingWorkflow extends WorkflowImp {
     try {
       addConsumeLocation(msg);
       currentThreadName = Thread.currentThread().getName();
-      if (poolLock.permitAvailable()) {
+      WatermarkBackpressure gate = backpressure;
+      if (poolLock.permitAvailable() && gate != null) {
+        submitBounded(gate, msg);
+      }
+      else if (poolLock.permitAvailable()) {
         workflowStart(msg);
         // workflowCompletion.add(msg, threadPool.submit(new CallableWorker(msg)));
         threadPool.submit(new CallableWorker(msg));
@@ -346,6 +388,23 @@ public class PoolingWorkflow extends WorkflowImp {
     }
   }
 
+  // Blocks the consumer thread while the queue is above its watermarks.
+  private void submitBounded(WatermarkBackpressure gate, AdaptrisMessage msg) throws InterruptedException {
+    if (!gate.acquire()) {
+      log.warn("Attempt to process message during shutdown; failing it");
+      handleBadMessage(msg);
+      return;
+    }
+    try {
+      workflowStart(msg);
+      threadPool.execute(new BoundWorkerTask(msg, gate));
+    }
+    catch (RuntimeException e) {
+      gate.release();
+      throw e;
+    }
+  }
+
   /**
    *
    * @see WorkflowImp#handleBadMessage(AdaptrisMessage)
@@ -409,13 +468,78 @@ public class PoolingWorkflow extends WorkflowImp {
   }
 
   private ExecutorService createExecutor() {
-    ExecutorService es = Executors.newCachedThreadPool(new WorkerThreadFactory());
+    // Virtual threads are fine here since the object pool bounds the concurrency.
+    ExecutorService es =
+        ManagedExecutors.newCachedThreadPool(new WorkerThreadFactory(), PoolingWorkflow.class.getSimpleName());
     if (es instanceof ThreadPoolExecutor) {
       ((ThreadPoolExecutor) es).setKeepAliveTime(threadLifetimeMs(), TimeUnit.MILLISECONDS);
     }
     return es;
   }
 
+  private ExecutorService createBoundedExecutor() {
+    // The queue is bounded by the backpressure gate, so the executor itself never rejects work.
+    return new ThreadPoolExecutor(poolSize(), poolSize(), 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        new WorkerThreadFactory());
+  }
+
+  // Each thread creates its worker on first use; start min-idle of them now, much like populatePool().
+  private void populateBoundWorkers() throws CoreException {
+    int size = Math.min(minIdle(), poolSize());
+    final CyclicBarrier barrier = new CyclicBarrier(size + 1);
+    for (int i = 0; i < size; i++) {
+      threadPool.execute(() -> {
+        try {
+          boundWorker();
+          barrier.await(initWaitTimeMs(), TimeUnit.MILLISECONDS);
+        }
+        catch (Exception e) {
+          barrier.reset();
+        }
+      });
+    }
+    try {
+      barrier.await(initWaitTimeMs(), TimeUnit.MILLISECONDS);
+    }
+    catch (Exception e) {
+      throw new CoreException(e);
+    }
+  }
+
+  private Worker boundWorker() throws CoreException {
+    Worker w = boundWorker.get();
+    if (w == null) {
+      w = new Worker();
+      w.start();
+      boundWorker.set(w);
+      boundWorkers.add(w);
+    }
+    return w;
+  }
+
+  private void unbindWorker(Worker w) {
+    boundWorker.remove();
+    if (boundWorkers.remove(w)) {
+      stopQuietly(w);
+    }
+  }
+
+  private void stopBoundWorkers() {
+    for (Worker w : boundWorkers) {
+      stopQuietly(w);
+    }
+    boundWorkers.clear();
+  }
+
+  private void stopQuietly(Worker w) {
+    try {
+      w.stop();
+    }
+    catch (Exception e) {
+      log.trace("Ignoring exception stopping worker", e);
+    }
+  }
+
   private void populatePool() throws CoreException {
     int size = minIdle();
     ExecutorService populator = Executors.newCachedThreadPool();
@@ -453,13 +577,24 @@ public class PoolingWorkflow extends WorkflowImp {
   private void shutdownPool() {
     try {
       poolLock.acquire();
+      if (backpressure != null) {
+        backpressure.close();
+      }
       List<Runnable> list = ManagedThreadFactory.shutdownQuietly(threadPool, shutdownWaitTimeMs());
       for (Runnable l : list) {
-        CallableWorker sd = (CallableWorker) l;
-        handleBadMessage(sd.getMessage());
+        if (l instanceof BoundWorkerTask) {
+          handleBadMessage(((BoundWorkerTask) l).getMessage());
+        }
+        else {
+          CallableWorker sd = (CallableWorker) l;
+          handleBadMessage(sd.getMessage());
+        }
       }
       log.trace("All children terminated; existence pointless");
-      objectPool.close();
+      if (objectPool != null) {
+        objectPool.close();
+      }
+      stopBoundWorkers();
     }
     catch (Exception e) {
       log.warn("Exception shutting down Pool : ", e);
@@ -467,6 +602,7 @@ public class PoolingWorkflow extends WorkflowImp {
     finally {
       threadPool = null;
       objectPool = null;
+      backpressure = null;
     }
     poolLock.release();
   }
@@ -569,12 +705,87 @@ public class PoolingWorkflow extends WorkflowImp {
     return TimeInterval.toMillisecondsDefaultIfNull(getInitWaitTime(), DEFAULT_INIT_WAIT);
   }
 
+  public Integer getQueueHighWatermark() {
+    return queueHighWatermark;
+  }
+
+  /**
+   * Set the maximum number of messages that can be waiting for a thread before the consumer is blocked.
+   * <p>
+   * Setting this switches the workflow to use a fixed size thread pool where each thread has its own service collection, rather
+   * than borrowing one from an object pool.
+   * </p>
+   *
+   * @param i the high watermark; default is null, which means the queue is unbounded and there is no backpressure.
+   */
+  public void setQueueHighWatermark(Integer i) {
+    queueHighWatermark = i;
+  }
+
+  public <T extends PoolingWorkflow> T withQueueHighWatermark(Integer i) {
+    setQueueHighWatermark(i);
+    return (T) this;
+  }
+
+  public Integer getQueueLowWatermark() {
+    return queueLowWatermark;
+  }
+
+  /**
+   * Set the number of waiting messages at which a blocked consumer is allowed to continue.
+   *
+   * @param i the low watermark; if not specified then defaults to half of {@link #getQueueHighWatermark()}.
+   */
+  public void setQueueLowWatermark(Integer i) {
+    queueLowWatermark = i;
+  }
+
+  public <T extends PoolingWorkflow> T withQueueLowWatermark(Integer i) {
+    setQueueLowWatermark(i);
+    return (T) this;
+  }
+
+  boolean boundedQueue() {
+    return getQueueHighWatermark() != null;
+  }
+
+  int queueHighWatermark() {
+    return getQueueHighWatermark().intValue();
+  }
+
+  int queueLowWatermark() {
+    return NumberUtils.toIntDefaultIfNull(getQueueLowWatermark(), queueHighWatermark() / 2);
+  }
+
+  /**
+   * Return the number of messages that are waiting for a thread.
+   *
+   * @return the queue depth, always 0 unless {@link #setQueueHighWatermark(Integer)} is configured.
+   */
+  public int currentQueueDepth() {
+    WatermarkBackpressure gate = backpressure;
+    return gate != null ? gate.depth() : 0;
+  }
+
+  /**
+   * Return the total time the consumer has been blocked because the queue was full since the workflow was started.
+   *
+   * @return the time in milliseconds, always 0 unless {@link #setQueueHighWatermark(Integer)} is configured.
+   */
+  public long backpressureWaitTimeMs() {
+    WatermarkBackpressure gate = backpressure;
+    return gate != null ? gate.waitTimeMs() : 0;
+  }
+
   /**
    * Return the total number of objects in the pool. This includes active and idle objects.
    *
    * @return the total number of objects in the pool.
    */
   public int currentObjectPoolCount() {
+    if (boundedQueue()) {
+      return boundWorkers.size();
+    }
     return objectPool.getNumActive() + objectPool.getNumIdle();
   }
 
@@ -585,6 +796,9 @@ public class PoolingWorkflow extends WorkflowImp {
    * @return the currently active objects.
    */
   public int currentlyActiveObjects() {
+    if (boundedQueue()) {
+      return activeBoundWorkers.get();
+    }
     return objectPool.getNumActive();
   }
 
@@ -594,12 +808,15 @@ public class PoolingWorkflow extends WorkflowImp {
    * @return the number of idle objects.
    */
   public int currentlyIdleObjects() {
+    if (boundedQueue()) {
+      return Math.max(0, boundWorkers.size() - activeBoundWorkers.get());
+    }
     return objectPool.getNumIdle();
   }
 
   private ServiceCollection cloneServiceCollection(ServiceCollection original) throws CoreException {
     ServiceCollection result = null;
-    result = (ServiceCollection) serviceListMarshaller.unmarshal(serviceListMarshaller.marshal(original));
+    result = CloneHelper.deepCopy(original);
     LifecycleHelper.registerEventHandler(result, eventHandler);
     return result;
   }
@@ -611,7 +828,11 @@ public class PoolingWorkflow extends WorkflowImp {
    * @return the number of threads in the threadpool.
    */
   public int currentThreadPoolCount() {
-    return ((ThreadPoolExecutor) threadPool).getPoolSize();
+    if (threadPool instanceof ThreadPoolExecutor) {
+      return ((ThreadPoolExecutor) threadPool).getPoolSize();
+    }
+    // Virtual threads; one per active message.
+    return currentlyActiveObjects();
   }
 
   @Override
@@ -695,14 +916,10 @@ public class PoolingWorkflow extends WorkflowImp {
       return message;
     }
 
-    private String getThreadName() {
-      return currentThreadName + "(" + Integer.toHexString(Thread.currentThread().hashCode()) + ")";
-    }
-
     @Override
     public AdaptrisMessage call() throws Exception {
       String oldName = Thread.currentThread().getName();
-      Thread.currentThread().setName(getThreadName());
+      Thread.currentThread().setName(workerThreadName());
       AdaptrisMessage result = null;
       try {
         processingStart(message);
@@ -724,6 +941,57 @@ public class PoolingWorkflow extends WorkflowImp {
   }
 
 
+  private String workerThreadName() {
+    return currentThreadName + "(" + Integer.toHexString(Thread.currentThread().hashCode()) + ")";
+  }
+
+  // Used when there is a queue-high-watermark; the worker is bound to the executing thread.
+  private class BoundWorkerTask implements Runnable {
+    private final AdaptrisMessage message;
+    private final WatermarkBackpressure gate;
+
+    BoundWorkerTask(AdaptrisMessage msg, WatermarkBackpressure gate) {
+      message = msg;
+      this.gate = gate;
+    }
+
+    private AdaptrisMessage getMessage() {
+      return message;
+    }
+
+    @Override
+    public void run() {
+      // No longer waiting for a thread.
+      gate.release();
+      String oldName = Thread.currentThread().getName();
+      Thread.currentThread().setName(workerThreadName());
+      Worker worker = null;
+      try {
+        worker = boundWorker();
+      }
+      catch (Exception e) {
+        message.addObjectHeader(CoreConstants.OBJ_METADATA_EXCEPTION, e);
+        handleBadMessage(message);
+        Thread.currentThread().setName(oldName);
+        return;
+      }
+      activeBoundWorkers.incrementAndGet();
+      try {
+        processingStart(message);
+        AdaptrisMessage result = worker.handleMessage(message);
+        workflowEnd(message, result);
+      }
+      catch (Exception e) {
+        log.trace("[{}] failed, discarding the worker bound to this thread", toString());
+        unbindWorker(worker);
+      }
+      finally {
+        activeBoundWorkers.decrementAndGet();
+        Thread.currentThread().setName(oldName);
+      }
+    }
+  }
+
   class Worker {
 
     private ServiceCollection sc;
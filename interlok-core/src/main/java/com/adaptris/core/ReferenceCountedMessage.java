@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core;
+
+/**
+ * An {@link AdaptrisMessage} that holds resources (such as pooled buffers) which should be released as soon as the message is no
+ * longer needed, rather than when it is garbage collected.
+ * <p>
+ * The message starts with a single reference, which belongs to the workflow that processes it; the workflow releases it once it
+ * has finished with the message. Anything that still needs the message after that (e.g. something that produces it
+ * asynchronously) should call {@link #retain()} beforehand, and {@link #release()} once it is done. The resources are only
+ * released along with the last reference.
+ * </p>
+ *
+ * @since 3.10
+ */
+public interface ReferenceCountedMessage {
+
+  /**
+   * Add a reference to the message.
+   *
+   * @return the message.
+   * @throws IllegalStateException if the message has already been released.
+   */
+  ReferenceCountedMessage retain();
+
+  /**
+   * Remove a reference from the message, releasing its resources if it was the last one.
+   *
+   * @return true if the resources were released.
+   */
+  boolean release();
+
+  /**
+   * The number of references to the message.
+   *
+   */
+  int referenceCount();
+
+  /**
+   * Release the message if it is reference counted.
+   *
+   * @param msg the message.
+   */
+  static void release(AdaptrisMessage msg) {
+    if (msg instanceof ReferenceCountedMessage) {
+      ((ReferenceCountedMessage) msg).release();
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.function.BiConsumer;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.apache.commons.lang3.BooleanUtils;
@@ -220,6 +221,48 @@ public abstract class ServiceCollectionImp extends AbstractCollection<Service> i
     }
   }
 
+  /**
+   * Apply the services to a batch of messages, with the same locking and state checks as {@link #doService(AdaptrisMessage)}.
+   *
+   * @param batch the messages.
+   * @param failures invoked for each message that failed; any message that is not reported was successful.
+   * @throws ServiceException if the services could not be run at all, in which case every message has failed.
+   * @see BatchingWorkflow
+   */
+  final void doService(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures) throws ServiceException {
+    try {
+      lock.acquire();
+      this.checkServiceStates();
+      applyServices(batch, failures);
+    }
+    catch (InterruptedException e) {
+      throw new ServiceException(e);
+    }
+    catch (OutOfStateException e) {
+      throw new ServiceException(e);
+    }
+    finally {
+      lock.release();
+    }
+  }
+
+  /**
+   * Apply the services to a batch of messages.
+   * <p>
+   * The default is to call {@link #applyServices(AdaptrisMessage)} for each message in turn.
+   * </p>
+   */
+  void applyServices(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures) {
+    for (AdaptrisMessage msg : batch) {
+      try {
+        applyServices(msg);
+      }
+      catch (Exception e) {
+        failures.accept(msg, e);
+      }
+    }
+  }
+
   private void checkServiceStates() throws OutOfStateException {
     OutOfStateHandler handler = outOfStateHandler();
     for(Service service : this.getServices()) {
@@ -21,8 +21,15 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 import org.apache.commons.lang3.BooleanUtils;
 import com.adaptris.annotation.AdapterComponent;
 import com.adaptris.annotation.AdvancedConfig;
@@ -106,6 +113,74 @@ public class ServiceList extends ServiceListBase {
   }
 
 
+  /**
+   * Apply the services to a batch of messages.
+   * <p>
+   * Each {@link BatchAwareService} is invoked once with all the messages that are still being processed; other services are
+   * invoked once per message. This is only done for a plain {@link ServiceList} where {@link #getAllowForwardSearch()} has not
+   * been explicitly set to true; subclasses (which may do more than execute each service in turn) apply the services to each
+   * message in turn.
+   * </p>
+   */
+  @Override
+  void applyServices(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures) {
+    if (getClass() != ServiceList.class || BooleanUtils.isTrue(getAllowForwardSearch())) {
+      super.applyServices(batch, failures);
+      return;
+    }
+    Set<AdaptrisMessage> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+    BiConsumer<AdaptrisMessage, Exception> failure = (msg, e) -> {
+      failed.add(msg);
+      failures.accept(msg, e);
+    };
+    for (Service service : this) {
+      List<AdaptrisMessage> live = batch.stream().filter(m -> !failed.contains(m) && !haltProcessing(m))
+          .collect(Collectors.toList());
+      if (live.isEmpty()) {
+        break;
+      }
+      live.forEach(m -> m.setNextServiceId(""));
+      log.debug("Executing doService on [{}] for {} messages", friendlyName(service), live.size());
+      if (service instanceof BatchAwareService) {
+        Map<AdaptrisMessage, Exception> serviceFailures = new IdentityHashMap<>();
+        try {
+          ((BatchAwareService) service).doService(live, serviceFailures::put);
+        }
+        catch (Exception e) {
+          live.forEach(m -> serviceFailures.put(m, e));
+        }
+        for (AdaptrisMessage msg : live) {
+          serviceComplete(service, msg, serviceFailures.get(msg), failure);
+        }
+      }
+      else {
+        for (AdaptrisMessage msg : live) {
+          Exception e = null;
+          try {
+            service.doService(msg);
+          }
+          catch (Exception ex) {
+            e = ex;
+          }
+          serviceComplete(service, msg, e, failure);
+        }
+      }
+    }
+  }
+
+  private void serviceComplete(Service service, AdaptrisMessage msg, Exception e,
+      BiConsumer<AdaptrisMessage, Exception> failures) {
+    msg.addEvent(service, e == null);
+    if (e != null) {
+      try {
+        handleException(service, msg, e);
+      }
+      catch (Exception ex) {
+        failures.accept(msg, ex);
+      }
+    }
+  }
+
   /**
    * @return whether or not forward-search is allowed.
    */
@@ -9,6 +9,7 @@ import com.adaptris.annotation.AdvancedConfig;
 import com.adaptris.annotation.AutoPopulated;
 import com.adaptris.annotation.InputFieldDefault;
 import com.adaptris.core.util.Args;
+import com.adaptris.core.util.CloneHelper;
 import com.adaptris.core.util.ExceptionHelper;
 import com.adaptris.util.GuidGenerator;
 
@@ -47,8 +48,7 @@ public abstract class SharedServiceImpl extends SharedComponent implements Servi
   }
 
   protected Service deepClone(Service lookedUpService) throws CoreException {
-    AdaptrisMarshaller marshaller = DefaultMarshaller.getDefaultMarshaller();
-    return (Service) marshaller.unmarshal(marshaller.marshal(lookedUpService));
+    return CloneHelper.deepCopy(lookedUpService);
   }
 
   @Override
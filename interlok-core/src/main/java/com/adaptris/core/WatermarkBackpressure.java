@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gates submission to a work queue using a high and low watermark.
+ * <p>
+ * Once the number of queued items reaches the high watermark, callers of {@link #acquire()} block until the queue has drained to
+ * the low watermark; the hysteresis stops the consumer from flapping between blocked and unblocked on every message.
+ * </p>
+ */
+final class WatermarkBackpressure {
+
+  private final int highWatermark;
+  private final int lowWatermark;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition drained = lock.newCondition();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private int depth;
+  private boolean paused;
+  private boolean closed;
+
+  WatermarkBackpressure(int high, int low) {
+    highWatermark = Math.max(1, high);
+    lowWatermark = Math.max(0, Math.min(low, highWatermark - 1));
+  }
+
+  /**
+   * Add an item to the queue, blocking while the queue is above its watermarks.
+   *
+   * @return true if the item may be queued, false if {@link #close()} was invoked.
+   */
+  boolean acquire() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      if (paused && !closed) {
+        long start = System.nanoTime();
+        try {
+          while (paused && !closed) {
+            drained.await();
+          }
+        }
+        finally {
+          waitNanos.addAndGet(System.nanoTime() - start);
+        }
+      }
+      if (closed) {
+        return false;
+      }
+      depth++;
+      if (depth >= highWatermark) {
+        paused = true;
+      }
+      return true;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Remove an item from the queue.
+   */
+  void release() {
+    lock.lock();
+    try {
+      depth = Math.max(0, depth - 1);
+      if (paused && depth <= lowWatermark) {
+        paused = false;
+        drained.signalAll();
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Release anything blocked in {@link #acquire()}, subsequent calls will return false.
+   */
+  void close() {
+    lock.lock();
+    try {
+      closed = true;
+      drained.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  int depth() {
+    lock.lock();
+    try {
+      return depth;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The total time that callers have spent blocked in {@link #acquire()}.
+   */
+  long waitTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+  }
+}
@@ -734,6 +734,11 @@ public abstract class WorkflowImp implements Workflow {
 
   /**
    * Mark the workflow as finished on this message.
+   * <p>
+   * Once the interceptors have been notified, the workflow's reference to any {@link ReferenceCountedMessage} is released; the
+   * input message is only released if it was processed successfully, since a failed message may have been retained by the
+   * error handler.
+   * </p>
    *
    * @param input the input message
    * @param output the message that was produced.
@@ -743,6 +748,13 @@ public abstract class WorkflowImp implements Workflow {
     for (WorkflowInterceptor i : getInterceptors()) {
       i.workflowEnd(input, output);
     }
+    boolean failed = input.getObjectHeaders().containsKey(OBJ_METADATA_EXCEPTION);
+    if (output != null && output != input) {
+      ReferenceCountedMessage.release(output);
+    }
+    if (!failed) {
+      ReferenceCountedMessage.release(input);
+    }
   }
 
   protected AdaptrisMessage copyExceptionHeaders(AdaptrisMessage workingCopy, AdaptrisMessage orig) {
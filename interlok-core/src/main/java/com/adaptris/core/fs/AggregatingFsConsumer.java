@@ -25,8 +25,8 @@ import java.lang.reflect.Constructor;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import javax.validation.Valid;
 
@@ -41,6 +41,7 @@ import com.adaptris.core.CoreException;
 import com.adaptris.core.ServiceException;
 import com.adaptris.core.services.aggregator.AggregatingConsumerImpl;
 import com.adaptris.core.services.aggregator.ConsumeDestinationGenerator;
+import com.adaptris.core.services.aggregator.MessageAggregation;
 import com.adaptris.fs.FsWorker;
 import com.adaptris.fs.NioWorker;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
@@ -58,7 +59,8 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * trigger the use of a FileFilter, and ultimately cause multiple files to be read and passed to the configured message aggregator.
  * Note that no decision is made about the resulting size of the message, all messages that match the filter-expression will be
  * aggregated; if there a 2000 files sitting in a directory that match the filter-expression, then that is how many will be picked
- * up.
+ * up. Each file is passed to the message aggregator as it is read, so aggregators that support it (such as
+ * {@link com.adaptris.core.services.aggregator.ZipAggregator}) do not need to hold all the files in memory.
  * </p>
  * 
  * @config aggregating-fs-consumer
@@ -69,8 +71,6 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 public class AggregatingFsConsumer extends AggregatingConsumerImpl<AggregatingFsConsumeService> {
   private static final String DEFAULT_FILE_FILTER_IMP = "org.apache.commons.io.filefilter.RegexFileFilter";
   private static final String DEFAULT_WIP_SUFFIX = "_wip";
-  private static final String OBJ_METADATA_KEY_FILE = AggregatingFsConsumer.class.getCanonicalName() + ".file";
-  private static final String OBJ_METADATA_KEY_FILENAME = AggregatingFsConsumer.class.getCanonicalName() + ".filename";
 
   @InputFieldHint(ofType = "java.io.FileFilter")
   private String fileFilterImp;
@@ -96,11 +96,16 @@ public class AggregatingFsConsumer extends AggregatingConsumerImpl<AggregatingFs
   @Override
   public void aggregateMessages(AdaptrisMessage msg, AggregatingFsConsumeService service) throws ServiceException {
     ConsumeDestination dest = getDestination().generate(msg);
-    List<AdaptrisMessage> result = new ArrayList<>();
-    try {
-      result = isEmpty(dest.getFilterExpression()) ? readSingleFile(dest, msg.getFactory()) : readMultipleFiles(dest,
-          msg.getFactory());
-      getMessageAggregator().joinMessage(msg, result);
+    List<File> result = new ArrayList<>();
+    try (MessageAggregation aggregation = getMessageAggregator().start(msg)) {
+      List<File> files = isEmpty(dest.getFilterExpression()) ? singleFile(dest) : multipleFiles(dest);
+      for (File f : files) {
+        log.trace("Reading " + f.getCanonicalPath());
+        File wipFile = FsHelper.renameFile(f, wipSuffix(), fsWorker);
+        result.add(wipFile);
+        aggregation.append(decode(fsWorker.get(wipFile), msg.getFactory()));
+      }
+      aggregation.finish();
     }
     catch (Exception e) {
       rethrowServiceException(e);
@@ -113,77 +118,34 @@ public class AggregatingFsConsumer extends AggregatingConsumerImpl<AggregatingFs
     }
   }
 
-  private void deleteAggregatedFiles(List<AdaptrisMessage> msgs) {
-    for (AdaptrisMessage m : msgs) {
-      Map<?,?> objectMetadata = m.getObjectHeaders();
-      if (objectMetadata.containsKey(OBJ_METADATA_KEY_FILE)) {
-        log.trace("Deleting aggregated file : " + objectMetadata.get(OBJ_METADATA_KEY_FILENAME));
-        ((File) objectMetadata.get(OBJ_METADATA_KEY_FILE)).delete();
-      }
+  private void deleteAggregatedFiles(List<File> files) {
+    for (File f : files) {
+      log.trace("Deleting aggregated file : " + f);
+      f.delete();
     }
   }
-  private void renameAggregatedFiles(List<AdaptrisMessage> msgs) {
-    for (AdaptrisMessage m : msgs) {
-      Map<?,?> objectMetadata = m.getObjectHeaders();
-      if (objectMetadata.containsKey(OBJ_METADATA_KEY_FILE)) {
-        File f = (File) objectMetadata.get(OBJ_METADATA_KEY_FILE);
-        File parent = f.getParentFile();
-        String name = f.getName().replaceAll(wipSuffix().replaceAll("\\.", "\\\\."), "");
-        log.trace("Will Rename " + f.getName() + " back to " + name);
-        File newFile = new File(parent, name);
-        f.renameTo(newFile);
-      }
+  private void renameAggregatedFiles(List<File> files) {
+    for (File f : files) {
+      File parent = f.getParentFile();
+      String name = f.getName().replaceAll(wipSuffix().replaceAll("\\.", "\\\\."), "");
+      log.trace("Will Rename " + f.getName() + " back to " + name);
+      File newFile = new File(parent, name);
+      f.renameTo(newFile);
     }
   }
 
-  private List<AdaptrisMessage> readMultipleFiles(ConsumeDestination dest, AdaptrisMessageFactory factory) throws ServiceException {
-    ArrayList<AdaptrisMessage> result = new ArrayList<>();
-    try {
-      String baseUrl = dest.getDestination();
-      URL url = FsHelper.createUrlFromString(baseUrl, true);
-      File directory = FsHelper.createFileReference(url);
-      FileFilter filter = createFileFilter(dest.getFilterExpression());
-      File[] files = directory.listFiles(filter);
-      for (File f : files) {
-        result.add(read(f, factory));
-      }
-    }
-    catch (Exception e) {
-      rethrowServiceException(e);
-    }
-    return result;
+  private List<File> multipleFiles(ConsumeDestination dest) throws Exception {
+    String baseUrl = dest.getDestination();
+    URL url = FsHelper.createUrlFromString(baseUrl, true);
+    File directory = FsHelper.createFileReference(url);
+    FileFilter filter = createFileFilter(dest.getFilterExpression());
+    return Arrays.asList(directory.listFiles(filter));
   }
 
-  private List<AdaptrisMessage> readSingleFile(ConsumeDestination dest, AdaptrisMessageFactory factory) throws ServiceException {
-    AdaptrisMessage newMsg = null;
-    try {
-      String baseUrl = dest.getDestination();
-      URL url = FsHelper.createUrlFromString(baseUrl, true);
-      File fileToRead = FsHelper.createFileReference(url);
-      newMsg = read(fileToRead, factory);
-    }
-    catch (Exception e) {
-      rethrowServiceException(e);
-    }
-    return Arrays.asList(new AdaptrisMessage[]
-    {
-      newMsg
-    });
-  }
-
-  private AdaptrisMessage read(File src, AdaptrisMessageFactory factory) throws ServiceException {
-    AdaptrisMessage msg = null;
-    try {
-      log.trace("Reading " + src.getCanonicalPath());
-      File wipFile = FsHelper.renameFile(src, wipSuffix(), fsWorker);
-      msg = decode(fsWorker.get(wipFile), factory);
-      msg.addObjectHeader(OBJ_METADATA_KEY_FILE, wipFile);
-      msg.addObjectHeader(OBJ_METADATA_KEY_FILENAME, src.getCanonicalPath());
-    }
-    catch (Exception e) {
-      rethrowServiceException(e);
-    }
-    return msg;
+  private List<File> singleFile(ConsumeDestination dest) throws Exception {
+    String baseUrl = dest.getDestination();
+    URL url = FsHelper.createUrlFromString(baseUrl, true);
+    return Collections.singletonList(FsHelper.createFileReference(url));
   }
 
 
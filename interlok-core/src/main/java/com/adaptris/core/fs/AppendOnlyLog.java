@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.fs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only log of records on the local filesystem.
+ * <p>
+ * The log starts with a header (a magic number and version) followed by the records. When it is opened, the existing records are
+ * replayed, and any partially written record at the end of the file (e.g. because the JVM crashed while writing it) is
+ * discarded. Compaction rewrites the log with just the records that are still current to a temporary file (with the suffix
+ * {@code .tmp}) which is then atomically moved over the existing log.
+ * </p>
+ * <p>
+ * This is not thread-safe; callers are expected to provide their own synchronization.
+ * </p>
+ *
+ * @param <T> the type of record.
+ * @see LogStructuredItemCache
+ * @see com.adaptris.core.services.duplicate.ExactDuplicateStore
+ * @since 3.10
+ */
+public final class AppendOnlyLog<T> implements Closeable {
+
+  private static final int HEADER_SIZE = 8;
+
+  private transient Logger log = LoggerFactory.getLogger(AppendOnlyLog.class);
+
+  private final File file;
+  private final int magic;
+  private final int version;
+  private final RecordReader<T> reader;
+  private final RecordWriter<T> writer;
+
+  private DataOutputStream out;
+  private FileOutputStream logFile;
+  // Number of records in the log, some of which may be superseded.
+  private long records;
+
+  /**
+   * Read a single record.
+   */
+  @FunctionalInterface
+  public interface RecordReader<T> {
+    /**
+     * Read the next record.
+     *
+     * @param in the input.
+     * @return the record.
+     * @throws EOFException if there is no more (or only a partial) record.
+     * @throws IOException on any other error.
+     */
+    T read(DataInput in) throws IOException;
+  }
+
+  /**
+   * Write a single record.
+   */
+  @FunctionalInterface
+  public interface RecordWriter<T> {
+    /**
+     * Write the record.
+     *
+     * @param out the output.
+     * @param record the record.
+     * @throws IOException on error.
+     */
+    void write(DataOutput out, T record) throws IOException;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param file the file.
+   * @param magic the magic number that identifies the type of log.
+   * @param version the version of the record format.
+   * @param reader reads records.
+   * @param writer writes records.
+   */
+  public AppendOnlyLog(File file, int magic, int version, RecordReader<T> reader, RecordWriter<T> writer) {
+    this.file = file;
+    this.magic = magic;
+    this.version = version;
+    this.reader = reader;
+    this.writer = writer;
+  }
+
+  /**
+   * Open the log for appending, creating it if required.
+   *
+   * @param replay passed each existing record, oldest first.
+   * @throws IOException if the log could not be opened, or the file is not a log of the expected type.
+   */
+  public void open(Consumer<T> replay) throws IOException {
+    close();
+    records = 0;
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    if (file.length() > HEADER_SIZE) {
+      replay(replay);
+    }
+    else {
+      try (DataOutputStream header = new DataOutputStream(new FileOutputStream(file))) {
+        writeHeader(header);
+      }
+    }
+    openForAppend();
+  }
+
+  /**
+   * Append a record; it is buffered until {@link #flush()} or {@link #sync()} is called.
+   *
+   * @param record the record.
+   * @throws IOException on error.
+   */
+  public void append(T record) throws IOException {
+    writer.write(out, record);
+    records++;
+  }
+
+  /**
+   * Flush any buffered records to the operating system.
+   *
+   */
+  public void flush() throws IOException {
+    if (out != null) {
+      out.flush();
+    }
+  }
+
+  /**
+   * Flush any buffered records and force them to disk.
+   *
+   */
+  public void sync() throws IOException {
+    if (out != null) {
+      out.flush();
+      logFile.getChannel().force(false);
+    }
+  }
+
+  /**
+   * Rewrite the log with just the records that are current.
+   *
+   * @param current the current records, oldest first.
+   * @throws IOException on error.
+   */
+  public void compact(Iterable<T> current) throws IOException {
+    File tmp = new File(file.getAbsolutePath() + ".tmp");
+    close();
+    long count = 0;
+    try (DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      writeHeader(tmpOut);
+      for (T record : current) {
+        writer.write(tmpOut, record);
+        count++;
+      }
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    records = count;
+    openForAppend();
+  }
+
+  /**
+   * Close the log without flushing it to disk.
+   *
+   */
+  @Override
+  public void close() {
+    IOUtils.closeQuietly(out);
+    IOUtils.closeQuietly(logFile);
+    out = null;
+    logFile = null;
+  }
+
+  /**
+   * Whether or not the log is open.
+   *
+   */
+  public boolean isOpen() {
+    return out != null;
+  }
+
+  /**
+   * The number of records in the log, including those that have been superseded.
+   *
+   */
+  public long records() {
+    return records;
+  }
+
+  /**
+   * Write a string as its length followed by its UTF-8 bytes.
+   * <p>
+   * Unlike {@link DataOutput#writeUTF(String)} there is no 64k limit on the length of the string.
+   * </p>
+   *
+   * @param out the output.
+   * @param s the string.
+   * @throws IOException on error.
+   * @see #readString(DataInput)
+   */
+  public static void writeString(DataOutput out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read a string written by {@link #writeString(DataOutput, String)}.
+   *
+   * @param in the input.
+   * @return the string.
+   * @throws IOException on error.
+   */
+  public static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Invalid string length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void replay(Consumer<T> replay) throws IOException {
+    long validLength = HEADER_SIZE;
+    try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+        DataInputStream in = new DataInputStream(counter)) {
+      if (in.readInt() != magic || in.readInt() != version) {
+        throw new IOException("[" + file.getAbsolutePath() + "] is not a valid log");
+      }
+      while (true) {
+        T record = reader.read(in);
+        validLength = counter.getByteCount();
+        records++;
+        replay.accept(record);
+      }
+    }
+    catch (EOFException e) {
+      // Discard any partially written record at the end of the file.
+      if (file.length() > validLength) {
+        log.warn("Discarding partial record at the end of [{}]", file.getAbsolutePath());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+          raf.setLength(validLength);
+        }
+      }
+    }
+  }
+
+  private void writeHeader(DataOutputStream header) throws IOException {
+    header.writeInt(magic);
+    header.writeInt(version);
+  }
+
+  private void openForAppend() throws IOException {
+    logFile = new FileOutputStream(file, true);
+    out = new DataOutputStream(new BufferedOutputStream(logFile));
+  }
+}
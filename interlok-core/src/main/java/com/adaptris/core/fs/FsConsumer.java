@@ -95,7 +95,8 @@ metadata =
   {
       NullConnection.class
   })
-@DisplayOrder(order = {"poller", "createDirs", "fileFilterImp", "fileSorter", "wipSuffix", "resetWipFiles"})
+@DisplayOrder(order = {"poller", "createDirs", "fileFilterImp", "fileSorter", "wipSuffix", "resetWipFiles",
+    "processingThreads", "orderingKey"})
 public class FsConsumer extends FsConsumerImpl {
 
   @NotBlank
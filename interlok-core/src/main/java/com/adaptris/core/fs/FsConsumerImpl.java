@@ -26,10 +26,24 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.management.MalformedObjectNameException;
 import javax.validation.Valid;
@@ -47,14 +61,19 @@ import com.adaptris.core.AdaptrisPollingConsumer;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.fs.enhanced.FileSorter;
 import com.adaptris.core.fs.enhanced.NoSorting;
+import com.adaptris.core.lms.FileBackedMessage;
+import com.adaptris.core.lms.FileBackedMessageFactory;
+import com.adaptris.core.lms.ZipFileBackedMessageFactory;
 import com.adaptris.core.runtime.ParentRuntimeInfoComponent;
 import com.adaptris.core.runtime.RuntimeInfoComponent;
 import com.adaptris.core.runtime.RuntimeInfoComponentFactory;
 import com.adaptris.core.runtime.WorkflowManager;
 import com.adaptris.core.util.Args;
+import com.adaptris.core.util.ManagedThreadFactory;
 import com.adaptris.fs.FsException;
 import com.adaptris.fs.FsWorker;
 import com.adaptris.fs.NioWorker;
+import com.adaptris.util.NumberUtils;
 import com.adaptris.util.TimeInterval;
 
 /**
@@ -65,6 +84,7 @@ import com.adaptris.util.TimeInterval;
 public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
 
   private static final TimeInterval DEFAULT_OLDER_THAN = new TimeInterval(0L, TimeUnit.MILLISECONDS);
+  private static final TimeInterval DEFAULT_SHUTDOWN_WAIT = new TimeInterval(1L, TimeUnit.MINUTES);
   private static final String DEFAULT_FILE_FILTER_IMP = "org.apache.commons.io.filefilter.RegexFileFilter";
 
   // marshalled
@@ -83,6 +103,11 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
   @AutoPopulated
   @AdvancedConfig
   private FileSorter fileSorter;
+  @AdvancedConfig
+  @InputFieldDefault(value = "1")
+  private Integer processingThreads;
+  @AdvancedConfig
+  private String orderingKey;
 
   static {
     RuntimeInfoComponentFactory.registerComponentFactory(new JmxFactory());
@@ -91,6 +116,8 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
   // not marshalled
   protected transient FileFilter fileFilter;
   protected transient FsWorker fsWorker = new NioWorker();
+  private transient Pattern orderingPattern;
+  private transient volatile ExecutorService executor;
 
   public FsConsumerImpl() {
     setFileSorter(new NoSorting());
@@ -102,16 +129,18 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
    * gives other Threads (e.g. something stopping the adapter) the opportunity to obtain the lock without waiting for all messages
    * to be processed.
    * </p>
+   * <p>
+   * If {@link #setProcessingThreads(Integer)} is greater than 1, then files are handed off to a bounded pool of threads and this
+   * method waits for all of them to complete before returning.
+   * </p>
    *
    * @see com.adaptris.core.AdaptrisPollingConsumer#processMessages()
    */
   @Override
   protected int processMessages() {
     List<File> fileList;
-    int filesProcessed = 0;
     try {
-      File dir = verifyDirectory();
-      fileList = Arrays.asList(dir.listFiles(fileFilter));
+      fileList = getFileSorter().sort(listFiles(verifyDirectory()));
     }
     catch (Exception e) {
       log.warn("Exception listing files in [{}], waiting for next scheduled poll", getDestination().getDestination());
@@ -120,8 +149,24 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
       }
       return 0;
     }
-    fileList = getFileSorter().sort(fileList);
-    for (File file : fileList) {
+    ExecutorService pool = executor;
+    return pool != null ? processInParallel(fileList, pool) : process(fileList);
+  }
+
+  // The listing is complete before any file is renamed; renaming files while iterating over the directory is unspecified.
+  private List<File> listFiles(File dir) throws IOException {
+    List<File> fileList = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath(), p -> fileFilter.accept(p.toFile()))) {
+      for (Path p : stream) {
+        fileList.add(p.toFile());
+      }
+    }
+    return fileList;
+  }
+
+  private int process(List<File> files) {
+    int filesProcessed = 0;
+    for (File file : files) {
       try {
         filesProcessed += processFile(file);
         if (!continueProcessingMessages(filesProcessed)) {
@@ -129,15 +174,98 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
         }
       }
       catch (Exception e) {
-        log.warn("Exception processing [{}], waiting for next scheduled poll", file.getName());
-        if (logAllExceptions()) {
-          log.trace(e.getMessage(), e);
-        }
+        logProcessingFailure(file, e);
       }
     }
     return filesProcessed;
   }
 
+  // Files with the same ordering key are chained so that they are processed in order, everything else is free to run
+  // concurrently. The number of outstanding files is bounded so that a large directory doesn't flood the executor;
+  // continueProcessingMessages() is always called from the polling thread as it may release and reacquire the lock.
+  private int processInParallel(List<File> files, ExecutorService pool) {
+    int maxOutstanding = processingThreads() * 2;
+    Semaphore outstanding = new Semaphore(maxOutstanding);
+    AtomicInteger filesProcessed = new AtomicInteger();
+    AtomicBoolean keepGoing = new AtomicBoolean(true);
+    Map<String, CompletableFuture<Void>> chains = new HashMap<>();
+    try {
+      for (File file : files) {
+        outstanding.acquireUninterruptibly();
+        if (!continueProcessingMessages(filesProcessed.get())) {
+          keepGoing.set(false);
+          outstanding.release();
+          break;
+        }
+        Runnable task = () -> {
+          try {
+            if (keepGoing.get()) {
+              filesProcessed.addAndGet(processFile(file));
+            }
+          }
+          catch (Exception e) {
+            logProcessingFailure(file, e);
+          }
+          finally {
+            outstanding.release();
+          }
+        };
+        String key = orderingKey(file);
+        try {
+          if (key == null) {
+            CompletableFuture.runAsync(task, pool);
+          }
+          else {
+            CompletableFuture<Void> previous = chains.get(key);
+            chains.put(key, previous == null ? CompletableFuture.runAsync(task, pool)
+                : previous.whenCompleteAsync((v, t) -> task.run(), pool));
+          }
+        }
+        catch (RejectedExecutionException e) {
+          // We've been stopped.
+          outstanding.release();
+          break;
+        }
+      }
+    }
+    finally {
+      awaitOutstanding(outstanding, maxOutstanding, pool);
+    }
+    return filesProcessed.get();
+  }
+
+  // Wait for everything that has been handed off; anything still queued when we are stopped will never run.
+  private static void awaitOutstanding(Semaphore outstanding, int permits, ExecutorService pool) {
+    try {
+      while (!outstanding.tryAcquire(permits, 1, TimeUnit.SECONDS)) {
+        if (pool.isTerminated()) {
+          break;
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private String orderingKey(File file) {
+    if (orderingPattern == null) {
+      return null;
+    }
+    Matcher m = orderingPattern.matcher(file.getName());
+    if (m.find()) {
+      return m.groupCount() > 0 ? m.group(1) : m.group();
+    }
+    return null;
+  }
+
+  private void logProcessingFailure(File file, Exception e) {
+    log.warn("Exception processing [{}], waiting for next scheduled poll", file.getName());
+    if (logAllExceptions()) {
+      log.trace(e.getMessage(), e);
+    }
+  }
+
   /**
    * Does this file match the quiet period directive.
    *
@@ -185,6 +313,7 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
     try {
       verifyDirectory();
       fileFilter = FsHelper.createFilter(getDestination().getFilterExpression(), fileFilterImp());
+      orderingPattern = isEmpty(getOrderingKey()) ? null : Pattern.compile(getOrderingKey());
     }
     catch (Exception e) {
       throw new CoreException(e);
@@ -192,6 +321,22 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
     super.init();
   }
 
+  @Override
+  public void start() throws CoreException {
+    if (processingThreads() > 1) {
+      executor = Executors.newFixedThreadPool(processingThreads(), new ManagedThreadFactory(getClass().getSimpleName()));
+    }
+    super.start();
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    ExecutorService pool = executor;
+    executor = null;
+    ManagedThreadFactory.shutdownQuietly(pool, DEFAULT_SHUTDOWN_WAIT);
+  }
+
 
   protected File verifyDirectory() throws Exception {
     File f = FsHelper.createFileReference(FsHelper.createUrlFromString(getDestination().getDestination(), true));
@@ -236,14 +381,35 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
   protected AdaptrisMessage createAdaptrisMessage(File fileToProcess) throws CoreException {
     AdaptrisMessage msg = null;
     try {
-      msg = decode(fsWorker.get(fileToProcess));
+      if (canTransferDirectly()) {
+        msg = createFileBackedMessage((FileBackedMessageFactory) getMessageFactory(), fileToProcess);
+      }
+      else {
+        msg = decode(fsWorker.get(fileToProcess));
+      }
     }
-    catch (FsException e) {
+    catch (FsException | IOException e) {
       throw new CoreException(e);
     }
     return msg;
   }
 
+  // The file backing a zip file backed message isn't necessarily the payload.
+  private boolean canTransferDirectly() {
+    return getEncoder() == null && getMessageFactory() instanceof FileBackedMessageFactory
+        && !(getMessageFactory() instanceof ZipFileBackedMessageFactory);
+  }
+
+  // Transfer the file into the message's own temporary file, rather than via a byte[].
+  private AdaptrisMessage createFileBackedMessage(FileBackedMessageFactory factory, File fileToProcess)
+      throws FsException, IOException {
+    FileBackedMessage msg = (FileBackedMessage) factory.newMessage();
+    File payload = factory.createTempFile(msg);
+    fsWorker.get(fileToProcess, payload);
+    msg.initialiseFrom(payload);
+    return msg;
+  }
+
   protected void addStandardMetadata(AdaptrisMessage msg, File originalFile, File wipFile) throws CoreException {
     if (originalFile == null) {
       return;
@@ -364,6 +530,65 @@ public abstract class FsConsumerImpl extends AdaptrisPollingConsumer {
     fileSorter = Args.notNull(fs, "file sorter");
   }
 
+  public Integer getProcessingThreads() {
+    return processingThreads;
+  }
+
+  /**
+   * Set the number of threads used to process the files found in a single poll.
+   * <p>
+   * By default each file is processed in turn by the polling thread; if you have a large number of small files then processing
+   * them concurrently may be much quicker. Each file is still claimed individually (e.g. by {@link FsConsumer} renaming it to its
+   * work-in-progress name) before it is processed, and the poll finishes once all the files have been processed. Bear in mind that
+   * the workflow needs to be able to handle messages concurrently (e.g. {@link com.adaptris.core.PoolingWorkflow}) to gain the
+   * most benefit, and that the configured {@link FileSorter} no longer guarantees the order in which files are processed, unless
+   * {@link #setOrderingKey(String)} is also configured. Since files are handed off before the preceding ones have completed, the
+   * number of files processed in a single poll may exceed {@link #setMaxMessagesPerPoll(Integer)} by up to twice the number of
+   * threads.
+   * </p>
+   *
+   * @param i the number of threads, default is 1 which means files are processed by the polling thread.
+   * @since 3.10
+   */
+  public void setProcessingThreads(Integer i) {
+    processingThreads = i;
+  }
+
+  public <T extends FsConsumerImpl> T withProcessingThreads(Integer i) {
+    setProcessingThreads(i);
+    return (T) this;
+  }
+
+  int processingThreads() {
+    return NumberUtils.toIntDefaultIfNull(getProcessingThreads(), 1);
+  }
+
+  public String getOrderingKey() {
+    return orderingKey;
+  }
+
+  /**
+   * Set a regular expression that derives an ordering key from each filename when {@link #setProcessingThreads(Integer)} is
+   * greater than 1.
+   * <p>
+   * Files that have the same key are processed one after another in the order determined by the configured {@link FileSorter};
+   * files with different keys may be processed concurrently. The key is the first capturing group of the expression (or the
+   * whole match if there are no groups); for instance {@code ^([^_]+)_} would use the filename prefix up to the first
+   * {@code _}. Files whose name doesn't match are not ordered with respect to any other file.
+   * </p>
+   *
+   * @param s the regular expression, default is null, which means there is no ordering.
+   * @since 3.10
+   */
+  public void setOrderingKey(String s) {
+    orderingKey = s;
+  }
+
+  public <T extends FsConsumerImpl> T withOrderingKey(String s) {
+    setOrderingKey(s);
+    return (T) this;
+  }
+
   int filesRemaining() throws Exception {
     return verifyDirectory().listFiles(FsHelper.createFilter(getDestination().getFilterExpression(), fileFilterImp())).length;
 
@@ -42,6 +42,8 @@ import com.adaptris.core.NullConnection;
 import com.adaptris.core.ProduceDestination;
 import com.adaptris.core.ProduceException;
 import com.adaptris.core.ProduceOnlyProducerImp;
+import com.adaptris.core.lms.FileBackedMessage;
+import com.adaptris.core.lms.ZipFileBackedMessageFactory;
 import com.adaptris.core.util.Args;
 import com.adaptris.fs.FsWorker;
 import com.adaptris.fs.NioWorker;
@@ -49,6 +51,11 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
  * {@link com.adaptris.core.AdaptrisMessageProducer} implementation that writes to the file system.
+ * <p>
+ * If no encoder is configured and the message is a {@link FileBackedMessage} (not created by a
+ * {@link ZipFileBackedMessageFactory}) then its contents are transferred directly from the file backing the message via
+ * {@link FsWorker#put(File, File)}, rather than being read into memory.
+ * </p>
  * 
  * @config fs-producer
  * 
@@ -176,13 +183,24 @@ public class FsProducer extends ProduceOnlyProducerImp {
       log.trace("Writing to temporary file " + tmpFile.getCanonicalPath());
       fileToWriteTo = tmpFile;
     }
-    fsWorker.put(encode(msg), fileToWriteTo);
+    if (canTransferDirectly(msg)) {
+      fsWorker.put(((FileBackedMessage) msg).currentSource(), fileToWriteTo);
+    }
+    else {
+      fsWorker.put(encode(msg), fileToWriteTo);
+    }
     if (getTempDirectory() != null) {
       log.trace("Renaming temporary file to " + destFile.getCanonicalPath());
       fileToWriteTo.renameTo(destFile);
     }
   }
 
+  // The file backing a zip file backed message isn't necessarily the payload.
+  private boolean canTransferDirectly(AdaptrisMessage msg) {
+    return getEncoder() == null && msg instanceof FileBackedMessage
+        && !(msg.getFactory() instanceof ZipFileBackedMessageFactory);
+  }
+
   protected File createTempFile(AdaptrisMessage msg) throws Exception {
     URL tmpDirUrl = FsHelper.createUrlFromString(getTempDirectory(), true);
     validateDir(tmpDirUrl);
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.fs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.validation.constraints.NotBlank;
+
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.util.Args;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.util.NumberUtils;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * {@link ProcessedItemCache} that persists processed items to an append-only log on the local filesystem.
+ * <p>
+ * Unlike {@link XStreamItemCache}, which rewrites every entry each time it is saved, this only appends the entries that have
+ * changed; {@link #save()} flushes and syncs the log to disk. The log is replayed into memory on {@link #init()}, and is
+ * periodically compacted (rewritten with just the current entries, then atomically renamed over the existing log) once it
+ * contains more obsolete records than current ones.
+ * </p>
+ * <p>
+ * Entries are held in the order in which they were last written, so {@link #evict()} only needs to visit the entries that have
+ * expired rather than every entry in the cache. An entry for a file that hasn't changed (same size and last modified time) is
+ * only rewritten once half of {@link #setAgeBeforeEviction(com.adaptris.util.TimeInterval)} has passed, which is enough to stop
+ * files that are still present from being evicted, without appending a record for every file on every poll.
+ * </p>
+ * <p>
+ * If multiple instances of this class point to the same persistent store then results are undefined.
+ * </p>
+ *
+ * @config fs-log-structured-processed-item-cache
+ * @since 3.10
+ */
+@XStreamAlias("fs-log-structured-processed-item-cache")
+@DisplayOrder(order = {"persistentStore", "ageBeforeEviction", "compactionThreshold"})
+public class LogStructuredItemCache extends InlineItemCache {
+
+  private static final int MAGIC = 0x49504943;
+  private static final int VERSION = 2;
+  private static final int DEFAULT_COMPACTION_THRESHOLD = 1024;
+
+  @NotBlank
+  private String persistentStore;
+  @AdvancedConfig
+  @InputFieldDefault(value = "1024")
+  private Integer compactionThreshold;
+
+  private transient AppendOnlyLog<ProcessedItem> appendLog;
+
+  public LogStructuredItemCache() {
+    super();
+    cache = new LinkedHashMap<>();
+  }
+
+  public LogStructuredItemCache(String store) {
+    this();
+    setPersistentStore(store);
+  }
+
+  @Override
+  public void init() throws CoreException {
+    try {
+      Args.notBlank(getPersistentStore(), "persistentStore");
+      cache = new LinkedHashMap<>();
+      closeLog();
+      appendLog = new AppendOnlyLog<>(new File(getPersistentStore()), MAGIC, VERSION, LogStructuredItemCache::read,
+          LogStructuredItemCache::write);
+      long now = System.currentTimeMillis();
+      appendLog.open(item -> {
+        cache.remove(item.getAbsolutePath());
+        if (now - item.getLastProcessed() <= ageBeforeEvictionMs()) {
+          cache.put(item.getAbsolutePath(), item);
+        }
+      });
+      logR.trace("Read {} entries from {} records in [{}]", cache.size(), appendLog.records(), getPersistentStore());
+    }
+    catch (Exception e) {
+      closeLog();
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+    super.init();
+  }
+
+  @Override
+  public void close() {
+    try {
+      flush();
+    }
+    catch (IOException e) {
+      logR.warn("Failed to flush [{}], recent entries may be lost upon restart", getPersistentStore());
+    }
+    closeLog();
+    super.close();
+  }
+
+  @Override
+  public void update(ProcessedItem item) {
+    ProcessedItem existing = cache.get(item.getAbsolutePath());
+    if (existing != null && isUnchanged(existing, item) && !isHalfExpired(existing, item.getLastProcessed())) {
+      return;
+    }
+    // remove first, so that the entries stay in the order they were written.
+    cache.remove(item.getAbsolutePath());
+    cache.put(item.getAbsolutePath(), item);
+    append(item);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    if (appendLog == null) {
+      return;
+    }
+    try {
+      compact();
+    }
+    catch (IOException e) {
+      logR.warn("Failed to clear [{}]", getPersistentStore());
+    }
+  }
+
+  @Override
+  public void save() {
+    try {
+      flush();
+      if (records() - cache.size() > Math.max(cache.size(), compactionThreshold())) {
+        compact();
+      }
+    }
+    catch (IOException e) {
+      logR.warn("Failed to save [{}], recent entries may be lost upon restart", getPersistentStore());
+    }
+  }
+
+  @Override
+  public void evict() {
+    long now = System.currentTimeMillis();
+    for (Iterator<ProcessedItem> i = cache.values().iterator(); i.hasNext();) {
+      if (now - i.next().getLastProcessed() <= ageBeforeEvictionMs()) {
+        break;
+      }
+      i.remove();
+    }
+  }
+
+  private static boolean isUnchanged(ProcessedItem existing, ProcessedItem item) {
+    return existing.getFilesize() == item.getFilesize() && existing.getLastModified() == item.getLastModified();
+  }
+
+  private boolean isHalfExpired(ProcessedItem existing, long now) {
+    return now - existing.getLastProcessed() > ageBeforeEvictionMs() / 2;
+  }
+
+  private void append(ProcessedItem item) {
+    if (appendLog == null) {
+      return;
+    }
+    try {
+      appendLog.append(item);
+    }
+    catch (IOException e) {
+      logR.warn("Failed to write [{}] to [{}]", item.getAbsolutePath(), getPersistentStore());
+    }
+  }
+
+  private void flush() throws IOException {
+    if (appendLog != null) {
+      appendLog.sync();
+    }
+  }
+
+  private void compact() throws IOException {
+    appendLog.compact(cache.values());
+    logR.trace("Compacted [{}] to {} entries", getPersistentStore(), appendLog.records());
+  }
+
+  private void closeLog() {
+    if (appendLog != null) {
+      appendLog.close();
+      appendLog = null;
+    }
+  }
+
+  private static ProcessedItem read(DataInput in) throws IOException {
+    ProcessedItem item = new ProcessedItem(AppendOnlyLog.readString(in), in.readLong(), in.readLong());
+    item.setLastProcessed(in.readLong());
+    return item;
+  }
+
+  private static void write(DataOutput out, ProcessedItem item) throws IOException {
+    AppendOnlyLog.writeString(out, item.getAbsolutePath());
+    out.writeLong(item.getLastModified());
+    out.writeLong(item.getFilesize());
+    out.writeLong(item.getLastProcessed());
+  }
+
+  public String getPersistentStore() {
+    return persistentStore;
+  }
+
+  /**
+   * Set the file used to store the log of processed items.
+   *
+   * @param filename the file; a temporary file with the suffix {@code .tmp} is also created alongside it during compaction.
+   */
+  public void setPersistentStore(String filename) {
+    persistentStore = filename;
+  }
+
+  public LogStructuredItemCache withPersistentStore(String filename) {
+    setPersistentStore(filename);
+    return this;
+  }
+
+  public Integer getCompactionThreshold() {
+    return compactionThreshold;
+  }
+
+  /**
+   * Set the minimum number of obsolete records before the log is compacted.
+   * <p>
+   * The log is compacted when the number of obsolete records exceeds both this and the number of current entries; so the log
+   * never grows beyond roughly twice the size it needs to be.
+   * </p>
+   *
+   * @param i the threshold, default is 1024.
+   */
+  public void setCompactionThreshold(Integer i) {
+    compactionThreshold = i;
+  }
+
+  public LogStructuredItemCache withCompactionThreshold(Integer i) {
+    setCompactionThreshold(i);
+    return this;
+  }
+
+  int compactionThreshold() {
+    return NumberUtils.toIntDefaultIfNull(getCompactionThreshold(), DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  long records() {
+    return appendLog != null ? appendLog.records() : 0;
+  }
+}
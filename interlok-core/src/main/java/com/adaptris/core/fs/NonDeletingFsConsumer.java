@@ -17,6 +17,8 @@
 package com.adaptris.core.fs;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import com.adaptris.annotation.AdapterComponent;
@@ -29,6 +31,7 @@ import com.adaptris.core.ConsumeDestination;
 import com.adaptris.core.CoreConstants;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.NullConnection;
+import com.adaptris.core.util.LifecycleHelper;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
@@ -68,7 +71,8 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 {
     NullConnection.class
 })
-@DisplayOrder(order = {"poller", "createDirs", "fileFilterImp", "fileSorter", "processedItemCache"})
+@DisplayOrder(order = {"poller", "createDirs", "fileFilterImp", "fileSorter", "processedItemCache", "processingThreads",
+    "orderingKey"})
 public class NonDeletingFsConsumer extends FsConsumerImpl {
 
   @NotNull
@@ -86,7 +90,8 @@ public class NonDeletingFsConsumer extends FsConsumerImpl {
   public NonDeletingFsConsumer() {
     super();
     setProcessedItemCache(new InlineItemCache());
-    filesDetected = new ProcessedItemList();
+    // processFile() may be called concurrently if processing-threads is configured.
+    filesDetected = new ProcessedItemList(Collections.synchronizedList(new ArrayList<ProcessedItem>()));
   }
 
   public NonDeletingFsConsumer(ConsumeDestination d) {
@@ -144,23 +149,27 @@ public class NonDeletingFsConsumer extends FsConsumerImpl {
    */
   @Override
   public void init() throws CoreException {
+    LifecycleHelper.init(getProcessedItemCache());
     super.init();
     filesDetected.getProcessedItems().clear();
   }
 
   @Override
   public void start() throws CoreException {
+    LifecycleHelper.start(getProcessedItemCache());
     super.start();
   }
 
   @Override
   public void close() {
     super.close();
+    LifecycleHelper.close(getProcessedItemCache());
   }
 
   @Override
   public void stop() {
     super.stop();
+    LifecycleHelper.stop(getProcessedItemCache());
   }
 
   public ProcessedItemCache getProcessedItemCache() {
@@ -40,6 +40,7 @@ import com.adaptris.core.ServiceException;
 import com.adaptris.core.fs.FsHelper;
 import com.adaptris.core.services.aggregator.AggregatingConsumerImpl;
 import com.adaptris.core.services.aggregator.ConsumeDestinationGenerator;
+import com.adaptris.core.services.aggregator.MessageAggregation;
 import com.adaptris.core.util.ExceptionHelper;
 import com.adaptris.filetransfer.FileTransferClient;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
@@ -57,7 +58,8 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * trigger the use of a FileFilter, and ultimately cause multiple files to be read and passed to the configured message aggregator.
  * Note that no decision is made about the resulting size of the message, all messages that match the filter-expression will be
  * aggregated; if there a 2000 files sitting on the filesystem that match the filter-expression, then that is how many will be
- * picked up.
+ * picked up. Each file is passed to the message aggregator as it is fetched, so aggregators that support it (such as
+ * {@link com.adaptris.core.services.aggregator.ZipAggregator}) do not need to hold all the files in memory.
  * </p>
  * 
  * @config aggregating-ftp-consumer
@@ -70,7 +72,6 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 })
 public class AggregatingFtpConsumer extends AggregatingConsumerImpl<AggregatingFtpConsumeService> {
   private static final String DEFAULT_FILE_FILTER_IMP = "org.apache.commons.io.filefilter.RegexFileFilter";
-  private static final String OBJ_METADATA_KEY_FILENAME = AggregatingFtpConsumer.class.getCanonicalName() + ".filename";
 
   @InputFieldHint(ofType = "java.io.FileFilter")
   @AdvancedConfig
@@ -93,12 +94,10 @@ public class AggregatingFtpConsumer extends AggregatingConsumerImpl<AggregatingF
 
   @Override
   public void aggregateMessages(AdaptrisMessage msg, AggregatingFtpConsumeService service) throws ServiceException {
-    List<AdaptrisMessage> result = new ArrayList<>();
     ConfigWrapper cfg = new ConfigWrapper(service.getConnection().retrieveConnection(FileTransferConnection.class),
         getDestination().generate(msg));
     try {
-      result = isEmpty(cfg.dest.getFilterExpression()) ? single(cfg, msg.getFactory()) : multiple(cfg, msg.getFactory());
-      getMessageAggregator().joinMessage(msg, result);
+      List<String> result = aggregate(msg, cfg);
       if (deleteAggregatedFiles()) {
         deleteFilesQuietly(result, cfg);
       }
@@ -109,10 +108,9 @@ public class AggregatingFtpConsumer extends AggregatingConsumerImpl<AggregatingF
 
   }
 
-  private void deleteFilesQuietly(List<AdaptrisMessage> msgs, ConfigWrapper cfg) throws Exception {
+  private void deleteFilesQuietly(List<String> files, ConfigWrapper cfg) throws Exception {
     FileTransferClient ftpClient = cfg.remote.connect(cfg.dest.getDestination());
-    for (AdaptrisMessage msg : msgs) {
-      String file = (String) msg.getObjectHeaders().get(OBJ_METADATA_KEY_FILENAME);
+    for (String file : files) {
       try {
         ftpClient.delete(file);
       }
@@ -125,23 +123,17 @@ public class AggregatingFtpConsumer extends AggregatingConsumerImpl<AggregatingF
     cfg.remote.disconnect(ftpClient);
   }
 
-  private List<AdaptrisMessage> multiple(ConfigWrapper cfg, AdaptrisMessageFactory factory) throws Exception {
+  private List<String> aggregate(AdaptrisMessage msg, ConfigWrapper cfg) throws Exception {
     FileTransferClient ftpClient = cfg.remote.connect(cfg.dest.getDestination());
-    String pollDirectory = cfg.remote.getDirectoryRoot(cfg.dest.getDestination());
     boolean additionalDebug = cfg.remote.additionalDebug();
-    List<AdaptrisMessage> result = new ArrayList<>();
-    try {
-      if (additionalDebug) {
-        log.trace("Polling {}", pollDirectory);
-      }
-      String[] files = ftpClient.dir(pollDirectory, FsHelper.createFilter(cfg.dest.getFilterExpression(), fileFilterImp()));
-      if (additionalDebug) {
-        log.trace("There are potentially [{}] messages to aggregate", files.length);
-      }
-      for (int i = 0; i < files.length; i++) {
-        String fullPath = pollDirectory + FORWARD_SLASH + FtpHelper.getFilename(files[i], cfg.remote.windowsWorkaround());
-        result.add(fetch(ftpClient, fullPath, additionalDebug, factory));
+    List<String> result = new ArrayList<>();
+    try (MessageAggregation aggregation = getMessageAggregator().start(msg)) {
+      List<String> files = isEmpty(cfg.dest.getFilterExpression()) ? single(cfg) : multiple(ftpClient, cfg);
+      for (String fullPath : files) {
+        aggregation.append(fetch(ftpClient, fullPath, additionalDebug, msg.getFactory()));
+        result.add(fullPath);
       }
+      aggregation.finish();
     }
     finally {
       cfg.remote.disconnect(ftpClient);
@@ -149,19 +141,27 @@ public class AggregatingFtpConsumer extends AggregatingConsumerImpl<AggregatingF
     return result;
   }
 
-  private List<AdaptrisMessage> single(ConfigWrapper cfg, AdaptrisMessageFactory factory) throws Exception {
-    FileTransferClient ftpClient = cfg.remote.connect(cfg.dest.getDestination());
-    List<AdaptrisMessage> result = new ArrayList<>();
-    try {
-      String fullPath = cfg.remote.getDirectoryRoot(cfg.dest.getDestination());
-      result = Arrays.asList(fetch(ftpClient, fullPath, cfg.remote.additionalDebug(), factory));
+  private List<String> multiple(FileTransferClient ftpClient, ConfigWrapper cfg) throws Exception {
+    String pollDirectory = cfg.remote.getDirectoryRoot(cfg.dest.getDestination());
+    boolean additionalDebug = cfg.remote.additionalDebug();
+    List<String> result = new ArrayList<>();
+    if (additionalDebug) {
+      log.trace("Polling {}", pollDirectory);
     }
-    finally {
-      cfg.remote.disconnect(ftpClient);
+    String[] files = ftpClient.dir(pollDirectory, FsHelper.createFilter(cfg.dest.getFilterExpression(), fileFilterImp()));
+    if (additionalDebug) {
+      log.trace("There are potentially [{}] messages to aggregate", files.length);
+    }
+    for (int i = 0; i < files.length; i++) {
+      result.add(pollDirectory + FORWARD_SLASH + FtpHelper.getFilename(files[i], cfg.remote.windowsWorkaround()));
     }
     return result;
   }
 
+  private List<String> single(ConfigWrapper cfg) throws Exception {
+    return Arrays.asList(cfg.remote.getDirectoryRoot(cfg.dest.getDestination()));
+  }
+
   private AdaptrisMessage fetch(FileTransferClient client, String fullPath, boolean debug, AdaptrisMessageFactory factory)
       throws Exception {
     String filename = FtpHelper.getFilename(fullPath);
@@ -173,7 +173,6 @@ public class AggregatingFtpConsumer extends AggregatingConsumerImpl<AggregatingF
       client.get(encoder, fullPath);
     }
     AdaptrisMessage msg = encoderSupport.build();
-    msg.addObjectHeader(OBJ_METADATA_KEY_FILENAME, fullPath);
     msg.addMetadata(CoreConstants.ORIGINAL_NAME_KEY, filename);
     msg.addMetadata(CoreConstants.FS_FILE_SIZE, "" + msg.getSize());
     return msg;
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.http.client.jetty;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpField;
+
+/**
+ * Presents a Jetty request/response as a {@link HttpURLConnection}.
+ * <p>
+ * This allows the existing {@link com.adaptris.core.http.client.RequestHeaderProvider},
+ * {@link com.adaptris.core.http.client.ResponseHeaderHandler} and
+ * {@link com.adaptris.core.http.client.net.HttpURLConnectionAuthenticator} implementations to be used with
+ * {@link JettyHttpProducer}. Request headers are simply recorded as request properties; once the response is available then
+ * the response code and headers are available via the standard methods. {@link #connect()} does nothing, since the Jetty request
+ * is sent by the producer.
+ * </p>
+ */
+class HttpURLConnectionAdapter extends HttpURLConnection {
+
+  private Map<String, List<String>> responseHeaders = Collections.emptyMap();
+  private List<String> headerKeys = Collections.emptyList();
+  private List<String> headerValues = Collections.emptyList();
+
+  HttpURLConnectionAdapter(URL url) {
+    super(url);
+  }
+
+  HttpURLConnectionAdapter withResponse(Response r) {
+    Map<String, List<String>> headers = new LinkedHashMap<>();
+    List<String> keys = new ArrayList<>();
+    List<String> values = new ArrayList<>();
+    for (HttpField field : r.getHeaders()) {
+      headers.computeIfAbsent(field.getName(), k -> new ArrayList<>()).add(field.getValue());
+      keys.add(field.getName());
+      values.add(field.getValue());
+    }
+    responseHeaders = Collections.unmodifiableMap(headers);
+    headerKeys = keys;
+    headerValues = values;
+    responseCode = r.getStatus();
+    responseMessage = r.getReason();
+    return this;
+  }
+
+  @Override
+  public int getResponseCode() throws IOException {
+    return responseCode;
+  }
+
+  @Override
+  public String getResponseMessage() throws IOException {
+    return responseMessage;
+  }
+
+  @Override
+  public Map<String, List<String>> getHeaderFields() {
+    return responseHeaders;
+  }
+
+  @Override
+  public String getHeaderField(String name) {
+    // Like HttpURLConnection, the last value wins.
+    for (int i = headerKeys.size() - 1; i >= 0; i--) {
+      if (headerKeys.get(i).equalsIgnoreCase(name)) {
+        return headerValues.get(i);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String getHeaderFieldKey(int n) {
+    return n >= 0 && n < headerKeys.size() ? headerKeys.get(n) : null;
+  }
+
+  @Override
+  public String getHeaderField(int n) {
+    return n >= 0 && n < headerValues.size() ? headerValues.get(n) : null;
+  }
+
+  @Override
+  public void connect() throws IOException {
+    // Nothing to do; the Jetty request is only sent once the producer has applied all the request headers.
+  }
+
+  @Override
+  public void disconnect() {
+  }
+
+  @Override
+  public boolean usingProxy() {
+    return false;
+  }
+}
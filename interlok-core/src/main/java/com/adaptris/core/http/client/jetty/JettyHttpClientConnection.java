@@ -0,0 +1,265 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.http.client.jetty;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.BooleanUtils;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpClientTransport;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+import com.adaptris.annotation.AdapterComponent;
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.ComponentProfile;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.AdaptrisConnectionImp;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.util.NumberUtils;
+import com.adaptris.util.TimeInterval;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * Connection that manages a shared, pooled Jetty {@link HttpClient} for use with {@link JettyHttpProducer}.
+ * <p>
+ * Every producer that uses this connection shares the same client, so TCP connections (and TLS sessions) to a destination are
+ * kept alive and re-used rather than being established for each request. The number of pooled connections to each destination
+ * (scheme, host and port) is controlled by {@link #setMaxConnectionsPerDestination(Integer)}; requests that can't immediately be
+ * given a connection are queued, up to {@link #setMaxRequestsQueuedPerDestination(Integer)}.
+ * </p>
+ * <p>
+ * If {@link #setHttp2(Boolean)} is true then requests are made using HTTP/2, multiplexing concurrent requests over a single
+ * connection to each destination. For {@code https} URLs the protocol is negotiated via ALPN which requires a Java 9+ runtime;
+ * plain {@code http} URLs use HTTP/2 directly (h2c with prior knowledge) so the server must support it.
+ * </p>
+ * <p>
+ * HTTPS uses the default JSSE trust and key stores; consult <a href=
+ * "https://docs.oracle.com/javase/8/docs/technotes/guides/security/jsse/JSSERefGuide.html#InstallationAndCustomization">Oracles
+ * JSSE documentation</a> for the system properties that control them.
+ * </p>
+ *
+ * @config jetty-http-client-connection
+ * @since 3.10
+ */
+@XStreamAlias("jetty-http-client-connection")
+@AdapterComponent
+@ComponentProfile(summary = "Connection that provides a pooled HTTP/HTTP2 client", tag = "connections,http,https")
+@DisplayOrder(order = {"http2", "maxConnectionsPerDestination", "maxRequestsQueuedPerDestination", "connectTimeout",
+    "idleTimeout"})
+public class JettyHttpClientConnection extends AdaptrisConnectionImp {
+
+  private static final int DEFAULT_MAX_CONNECTIONS = 64;
+  private static final int DEFAULT_MAX_QUEUED = 1024;
+  private static final TimeInterval DEFAULT_CONNECT_TIMEOUT = new TimeInterval(15L, TimeUnit.SECONDS);
+  private static final TimeInterval DEFAULT_IDLE_TIMEOUT = new TimeInterval(60L, TimeUnit.SECONDS);
+
+  @InputFieldDefault(value = "false")
+  private Boolean http2;
+  @AdvancedConfig
+  @InputFieldDefault(value = "64")
+  private Integer maxConnectionsPerDestination;
+  @AdvancedConfig
+  @InputFieldDefault(value = "1024")
+  private Integer maxRequestsQueuedPerDestination;
+  @AdvancedConfig
+  private TimeInterval connectTimeout;
+  @AdvancedConfig
+  private TimeInterval idleTimeout;
+
+  private transient HttpClient httpClient;
+
+  public JettyHttpClientConnection() {
+    super();
+  }
+
+  @Override
+  protected void prepareConnection() throws CoreException {
+  }
+
+  @Override
+  protected void initConnection() throws CoreException {
+    httpClient = new HttpClient(createTransport(), new SslContextFactory.Client());
+    httpClient.setMaxConnectionsPerDestination(maxConnectionsPerDestination());
+    httpClient.setMaxRequestsQueuedPerDestination(maxRequestsQueuedPerDestination());
+    httpClient.setConnectTimeout(connectTimeoutMs());
+    httpClient.setIdleTimeout(idleTimeoutMs());
+    // Redirects are controlled per request by the producer.
+    httpClient.setFollowRedirects(false);
+    httpClient.setName(getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()));
+  }
+
+  @Override
+  protected void startConnection() throws CoreException {
+    try {
+      httpClient.start();
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  @Override
+  protected void stopConnection() {
+    try {
+      if (httpClient != null) {
+        httpClient.stop();
+      }
+    }
+    catch (Exception e) {
+      log.trace("Exception stopping HttpClient : {}", e.getMessage());
+    }
+  }
+
+  @Override
+  protected void closeConnection() {
+    httpClient = null;
+  }
+
+  private HttpClientTransport createTransport() {
+    if (http2()) {
+      return new HttpClientTransportOverHTTP2(new HTTP2Client());
+    }
+    return new HttpClientTransportOverHTTP();
+  }
+
+  /**
+   * Return the underlying client; only valid once this connection has been initialised.
+   *
+   * @return the client.
+   */
+  public HttpClient retrieveHttpClient() {
+    return httpClient;
+  }
+
+  public Boolean getHttp2() {
+    return http2;
+  }
+
+  /**
+   * Whether or not to use HTTP/2.
+   *
+   * @param b true to use HTTP/2, default is false (HTTP/1.1 with persistent connections).
+   */
+  public void setHttp2(Boolean b) {
+    http2 = b;
+  }
+
+  public <T extends JettyHttpClientConnection> T withHttp2(Boolean b) {
+    setHttp2(b);
+    return (T) this;
+  }
+
+  boolean http2() {
+    return BooleanUtils.toBooleanDefaultIfNull(getHttp2(), false);
+  }
+
+  public Integer getMaxConnectionsPerDestination() {
+    return maxConnectionsPerDestination;
+  }
+
+  /**
+   * Set the maximum number of connections that will be pooled for each destination.
+   * <p>
+   * For HTTP/2 then each connection may have many concurrent requests, so a much smaller number is generally sufficient.
+   * </p>
+   *
+   * @param i the maximum number of connections, default is 64 if not specified.
+   */
+  public void setMaxConnectionsPerDestination(Integer i) {
+    maxConnectionsPerDestination = i;
+  }
+
+  public <T extends JettyHttpClientConnection> T withMaxConnectionsPerDestination(Integer i) {
+    setMaxConnectionsPerDestination(i);
+    return (T) this;
+  }
+
+  int maxConnectionsPerDestination() {
+    return NumberUtils.toIntDefaultIfNull(getMaxConnectionsPerDestination(), DEFAULT_MAX_CONNECTIONS);
+  }
+
+  public Integer getMaxRequestsQueuedPerDestination() {
+    return maxRequestsQueuedPerDestination;
+  }
+
+  /**
+   * Set the maximum number of requests that can be waiting for a connection to each destination.
+   *
+   * @param i the maximum number of requests, default is 1024 if not specified; after which requests are rejected.
+   */
+  public void setMaxRequestsQueuedPerDestination(Integer i) {
+    maxRequestsQueuedPerDestination = i;
+  }
+
+  public <T extends JettyHttpClientConnection> T withMaxRequestsQueuedPerDestination(Integer i) {
+    setMaxRequestsQueuedPerDestination(i);
+    return (T) this;
+  }
+
+  int maxRequestsQueuedPerDestination() {
+    return NumberUtils.toIntDefaultIfNull(getMaxRequestsQueuedPerDestination(), DEFAULT_MAX_QUEUED);
+  }
+
+  public TimeInterval getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * Set the timeout for establishing a connection.
+   *
+   * @param t the timeout, default is 15 seconds if not specified.
+   */
+  public void setConnectTimeout(TimeInterval t) {
+    connectTimeout = t;
+  }
+
+  public <T extends JettyHttpClientConnection> T withConnectTimeout(TimeInterval t) {
+    setConnectTimeout(t);
+    return (T) this;
+  }
+
+  long connectTimeoutMs() {
+    return TimeInterval.toMillisecondsDefaultIfNull(getConnectTimeout(), DEFAULT_CONNECT_TIMEOUT);
+  }
+
+  public TimeInterval getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Set how long a pooled connection can be idle before it is closed.
+   *
+   * @param t the timeout, default is 60 seconds if not specified.
+   */
+  public void setIdleTimeout(TimeInterval t) {
+    idleTimeout = t;
+  }
+
+  public <T extends JettyHttpClientConnection> T withIdleTimeout(TimeInterval t) {
+    setIdleTimeout(t);
+    return (T) this;
+  }
+
+  long idleTimeoutMs() {
+    return TimeInterval.toMillisecondsDefaultIfNull(getIdleTimeout(), DEFAULT_IDLE_TIMEOUT);
+  }
+}
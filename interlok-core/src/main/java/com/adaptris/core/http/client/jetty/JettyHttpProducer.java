@@ -0,0 +1,464 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.http.client.jetty;
+
+import static com.adaptris.core.AdaptrisMessageFactory.defaultIfNull;
+import static com.adaptris.core.http.HttpConstants.AUTHORIZATION;
+import static com.adaptris.core.http.HttpConstants.CONTENT_TYPE;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Authenticator.RequestorType;
+import java.net.HttpURLConnection;
+import java.net.PasswordAuthentication;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.mail.internet.ContentType;
+import javax.mail.internet.ParseException;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.BooleanUtils;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.util.InputStreamContentProvider;
+import org.eclipse.jetty.client.util.InputStreamResponseListener;
+
+import com.adaptris.annotation.AdapterComponent;
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.AutoPopulated;
+import com.adaptris.annotation.ComponentProfile;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.CoreConstants;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.MetadataElement;
+import com.adaptris.core.ProduceDestination;
+import com.adaptris.core.ProduceException;
+import com.adaptris.core.common.InputStreamWithEncoding;
+import com.adaptris.core.common.PayloadStreamInputParameter;
+import com.adaptris.core.common.PayloadStreamOutputParameter;
+import com.adaptris.core.http.ResourceAuthenticator;
+import com.adaptris.core.http.ResourceAuthenticator.ResourceTarget;
+import com.adaptris.core.http.auth.AdapterResourceAuthenticator;
+import com.adaptris.core.http.auth.HttpAuthenticator;
+import com.adaptris.core.http.auth.NoAuthentication;
+import com.adaptris.core.http.auth.UserPassAuthentication;
+import com.adaptris.core.http.client.RangeMatch;
+import com.adaptris.core.http.client.RequestMethodProvider.RequestMethod;
+import com.adaptris.core.http.client.StatusEvaluator;
+import com.adaptris.core.http.client.net.DiscardResponseHeaders;
+import com.adaptris.core.http.client.net.HttpProducer;
+import com.adaptris.core.http.client.net.HttpURLConnectionAuthenticator;
+import com.adaptris.core.http.client.net.NoRequestHeaders;
+import com.adaptris.core.util.Args;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.interlok.InterlokException;
+import com.adaptris.interlok.config.DataInputParameter;
+import com.adaptris.interlok.config.DataOutputParameter;
+import com.adaptris.util.TimeInterval;
+import com.adaptris.util.stream.Slf4jLoggingOutputStream;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * {@link HttpProducer} implementation that uses the pooled Jetty {@link HttpClient} managed by a
+ * {@link JettyHttpClientConnection}.
+ * <p>
+ * Unlike {@link com.adaptris.core.http.client.net.StandardHttpProducer}, connections are explicitly pooled and kept alive by
+ * the connection (which can be shared between many producers); and HTTP/2 can be enabled on the connection so that concurrent
+ * requests to the same server are multiplexed over a single connection. Request bodies are streamed from the configured
+ * {@link DataInputParameter} and response bodies are streamed to the configured {@link DataOutputParameter}; neither are
+ * buffered in memory.
+ * </p>
+ * <p>
+ * The existing {@link com.adaptris.core.http.client.RequestHeaderProvider} and
+ * {@link com.adaptris.core.http.client.ResponseHeaderHandler} implementations for {@link HttpURLConnection} may be used
+ * as normal. For authentication, {@link HttpURLConnectionAuthenticator} implementations are supported as is; credentials from
+ * {@link UserPassAuthentication} implementations are always sent pre-emptively as a {@code Basic} Authorization header since
+ * the client does not consult {@link java.net.Authenticator}.
+ * </p>
+ * <p>
+ * Configuring a {@link com.adaptris.core.AdaptrisMessageEncoder} is not supported.
+ * </p>
+ *
+ * @config jetty-http-producer
+ * @since 3.10
+ */
+@XStreamAlias("jetty-http-producer")
+@AdapterComponent
+@ComponentProfile(summary = "Make a HTTP request to a remote server using a pooled HTTP/HTTP2 client",
+    tag = "producer,http,https,http2", metadata = {"adphttpresponse"}, recommended = {JettyHttpClientConnection.class})
+@DisplayOrder(order = {"authenticator", "allowRedirect", "ignoreServerResponseCode", "alwaysSendPayload", "methodProvider",
+    "contentTypeProvider", "requestHeaderProvider", "requestBody", "responseHeaderHandler", "responseBody", "successStatus",
+    "requestTimeout"})
+public class JettyHttpProducer extends HttpProducer<HttpURLConnection, HttpURLConnection> {
+
+  private static final String PARAM_CHARSET = "charset";
+
+  private static final Collection<RequestMethod> METHOD_ALLOWS_OUTPUT =
+      Collections.unmodifiableCollection(Arrays.asList(RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH));
+
+  private static final Collection<RequestMethod> NEVER_OUTPUT =
+      Collections.unmodifiableCollection(Arrays.asList(RequestMethod.TRACE));
+
+  private transient DataInputParameter<InputStream> defaultRequest = new PayloadStreamInputParameter();
+  private transient DataOutputParameter<InputStreamWithEncoding> defaultResponse = new PayloadStreamOutputParameter();
+  private transient StatusEvaluator defaultSuccess = new RangeMatch(200, 299, null);
+
+  @Valid
+  @AdvancedConfig
+  private DataInputParameter<InputStream> requestBody;
+  @Valid
+  @AdvancedConfig
+  private DataOutputParameter<InputStreamWithEncoding> responseBody;
+
+  @Valid
+  @AdvancedConfig
+  @NotNull
+  @AutoPopulated
+  private HttpAuthenticator authenticator = new NoAuthentication();
+
+  @AdvancedConfig(rare = true)
+  @InputFieldDefault(value = "false")
+  private Boolean alwaysSendPayload;
+
+  @Valid
+  @AdvancedConfig
+  private StatusEvaluator successStatus;
+
+  @Valid
+  @AdvancedConfig
+  private TimeInterval requestTimeout;
+
+  public JettyHttpProducer() {
+    super();
+    setResponseHeaderHandler(new DiscardResponseHeaders());
+    setRequestHeaderProvider(new NoRequestHeaders());
+  }
+
+  public JettyHttpProducer(ProduceDestination d) {
+    this();
+    setDestination(d);
+  }
+
+  @Override
+  public void init() throws CoreException {
+    if (getEncoder() != null) {
+      throw new CoreException(getClass().getSimpleName() + " does not support message encoders");
+    }
+  }
+
+  @Override
+  public void prepare() throws CoreException {
+  }
+
+  @Override
+  public void produce(AdaptrisMessage msg, ProduceDestination dest) throws ProduceException {
+    doRequest(msg, dest, defaultTimeout(), defaultIfNull(getMessageFactory()).newMessage());
+  }
+
+  @Override
+  protected AdaptrisMessage doRequest(AdaptrisMessage msg, ProduceDestination destination, long timeout)
+      throws ProduceException {
+    return doRequest(msg, destination, timeout, msg);
+  }
+
+  private AdaptrisMessage doRequest(AdaptrisMessage msg, ProduceDestination destination, long timeout, AdaptrisMessage reply)
+      throws ProduceException {
+    try {
+      HttpClient client = retrieveConnection(JettyHttpClientConnection.class).retrieveHttpClient();
+      URL url = new URL(destination.getDestination(msg));
+      authenticator.setup(url.toString(), msg, null);
+      HttpURLConnectionAdapter headers = configure(new HttpURLConnectionAdapter(url), msg);
+      RequestMethod method = getMethod(msg);
+      log.trace("HTTP Request Method is : [{}]", method);
+      Request request = client.newRequest(url.toURI()).method(method.name())
+          .followRedirects(BooleanUtils.toBooleanDefaultIfNull(getAllowRedirect(), true));
+      for (Map.Entry<String, List<String>> e : headers.getRequestProperties().entrySet()) {
+        for (String value : e.getValue()) {
+          request.header(e.getKey(), value);
+        }
+      }
+      long requestTimeoutMs = requestTimeoutMs(timeout);
+      if (requestTimeoutMs > 0) {
+        request.timeout(requestTimeoutMs, TimeUnit.MILLISECONDS);
+      }
+      if (doOutput(method)) {
+        request.content(new InputStreamContentProvider(requestBody().extract(msg)));
+      }
+      InputStreamResponseListener listener = new InputStreamResponseListener();
+      request.send(listener);
+      Response response = waitForResponse(request, listener, requestTimeoutMs);
+      try (InputStream in = listener.getInputStream()) {
+        handleResponse(headers.withResponse(response), in, reply);
+      }
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapProduceException(e);
+    }
+    finally {
+      authenticator.close();
+    }
+    return reply;
+  }
+
+  private static Response waitForResponse(Request request, InputStreamResponseListener listener, long timeoutMs)
+      throws Exception {
+    try {
+      return listener.get(timeoutMs > 0 ? timeoutMs : Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+    catch (TimeoutException e) {
+      request.abort(e);
+      throw new ProduceException("Timed out waiting for a response from " + request.getURI(), e);
+    }
+  }
+
+  private HttpURLConnectionAdapter configure(HttpURLConnectionAdapter http, AdaptrisMessage msg) throws Exception {
+    getRequestHeaderProvider().addHeaders(msg, http);
+    String contentType = getContentTypeProvider().getContentType(msg);
+    if (!isEmpty(contentType)) {
+      http.setRequestProperty(CONTENT_TYPE, contentType);
+    }
+    if (authenticator instanceof HttpURLConnectionAuthenticator) {
+      ((HttpURLConnectionAuthenticator) authenticator).configureConnection(http);
+    }
+    else if (authenticator instanceof UserPassAuthentication) {
+      PasswordAuthentication pw = lookupCredentials(http.getURL());
+      if (pw != null) {
+        String userPass = pw.getUserName() + ":" + new String(pw.getPassword());
+        http.setRequestProperty(AUTHORIZATION,
+            "Basic " + Base64.getEncoder().encodeToString(userPass.getBytes(StandardCharsets.UTF_8)));
+      }
+    }
+    return http;
+  }
+
+  // UserPassAuthentication registers thread local credentials with AdapterResourceAuthenticator; ask for them directly.
+  private static PasswordAuthentication lookupCredentials(URL url) {
+    ResourceTarget target = new ResourceTarget().withRequestorType(RequestorType.SERVER).withRequestingHost(url.getHost())
+        .withRequestingPort(url.getPort() != -1 ? url.getPort() : url.getDefaultPort())
+        .withRequestingProtocol(url.getProtocol()).withRequestingScheme("basic").withRequestingURL(url);
+    for (ResourceAuthenticator a : AdapterResourceAuthenticator.getInstance().currentAuthenticators()) {
+      PasswordAuthentication pw = a.authenticate(target);
+      if (pw != null) {
+        return pw;
+      }
+    }
+    return null;
+  }
+
+  private boolean doOutput(RequestMethod m) {
+    if (NEVER_OUTPUT.contains(m)) {
+      return false;
+    }
+    if (alwaysSendPayload()) {
+      return true;
+    }
+    if (!METHOD_ALLOWS_OUTPUT.contains(m)) {
+      log.trace("Ignoring payload with use of {} method", m.name());
+      return false;
+    }
+    return true;
+  }
+
+  private void handleResponse(HttpURLConnectionAdapter http, InputStream in, AdaptrisMessage reply)
+      throws IOException, InterlokException {
+    int responseCode = http.getResponseCode();
+    logHeaders("Response Information", http.getResponseMessage(), http.getHeaderFields().entrySet());
+    InputStreamWithEncoding data = new InputStreamWithEncoding(in, getContentEncoding(http));
+    if (!successStatus().matches(responseCode)) {
+      if (ignoreServerResponseCode()) {
+        log.trace("Ignoring HTTP Reponse code {}", responseCode);
+        responseBody().insert(data, reply);
+      }
+      else {
+        fail(responseCode, data);
+      }
+    }
+    else {
+      responseBody().insert(data, reply);
+    }
+    getResponseHeaderHandler().handle(http, reply);
+    reply.addMetadata(new MetadataElement(CoreConstants.HTTP_PRODUCER_RESPONSE_CODE, String.valueOf(responseCode)));
+    reply.addObjectHeader(CoreConstants.HTTP_PRODUCER_RESPONSE_CODE, Integer.valueOf(responseCode));
+  }
+
+  private String getContentEncoding(HttpURLConnectionAdapter http) {
+    String type = http.getHeaderField(CONTENT_TYPE);
+    if (isEmpty(type)) {
+      return null;
+    }
+    try {
+      ContentType contentType = new ContentType(type);
+      if (!isEmpty(contentType.getParameter(PARAM_CHARSET))) {
+        return contentType.getParameter(PARAM_CHARSET);
+      }
+    }
+    catch (ParseException e) {
+      log.trace("Unable to parse Content-Type header \"{}\": {}", type, e.toString());
+    }
+    return null;
+  }
+
+  private void fail(int responseCode, InputStreamWithEncoding data) throws ProduceException {
+    if (log.isTraceEnabled()) {
+      try (OutputStream slf4j = new Slf4jLoggingOutputStream(log, Slf4jLoggingOutputStream.LogLevel.TRACE);
+          InputStream in = new BufferedInputStream(data.inputStream);
+          PrintStream out = data.encoding == null ? new PrintStream(slf4j) : new PrintStream(slf4j, false, data.encoding)) {
+        out.println("Error Data from remote server :");
+        IOUtils.copy(in, out);
+      }
+      catch (IOException e) {
+        log.trace("No Error Data available");
+      }
+    }
+    throw new ProduceException("Failed to send payload, got " + responseCode);
+  }
+
+  private boolean ignoreServerResponseCode() {
+    return BooleanUtils.toBooleanDefaultIfNull(getIgnoreServerResponseCode(), false);
+  }
+
+  public DataInputParameter<InputStream> getRequestBody() {
+    return requestBody;
+  }
+
+  /**
+   * Set where the HTTP Request body is going to come from.
+   *
+   * @param input the input; default is {@link PayloadStreamInputParameter}.
+   */
+  public void setRequestBody(DataInputParameter<InputStream> input) {
+    requestBody = Args.notNull(input, "data input");
+  }
+
+  private DataInputParameter<InputStream> requestBody() {
+    return getRequestBody() != null ? getRequestBody() : defaultRequest;
+  }
+
+  public DataOutputParameter<InputStreamWithEncoding> getResponseBody() {
+    return responseBody;
+  }
+
+  /**
+   * Set where the HTTP Response Body will be written to.
+   *
+   * @param output the output; default is {@link PayloadStreamOutputParameter}.
+   */
+  public void setResponseBody(DataOutputParameter<InputStreamWithEncoding> output) {
+    responseBody = Args.notNull(output, "data output");
+  }
+
+  private DataOutputParameter<InputStreamWithEncoding> responseBody() {
+    return getResponseBody() != null ? getResponseBody() : defaultResponse;
+  }
+
+  public HttpAuthenticator getAuthenticator() {
+    return authenticator;
+  }
+
+  /**
+   * Set the authentication method to use for the HTTP request
+   */
+  public void setAuthenticator(HttpAuthenticator authenticator) {
+    this.authenticator = authenticator;
+  }
+
+  public Boolean getAlwaysSendPayload() {
+    return alwaysSendPayload;
+  }
+
+  /**
+   * Specify whether or not to always attempt to send the payload as the entity body.
+   *
+   * @param b set this to true to always attempt to send a body (apart from TRACE), default false.
+   * @see com.adaptris.core.http.client.net.StandardHttpProducer#setAlwaysSendPayload(Boolean)
+   */
+  public void setAlwaysSendPayload(Boolean b) {
+    alwaysSendPayload = b;
+  }
+
+  boolean alwaysSendPayload() {
+    return BooleanUtils.toBooleanDefaultIfNull(getAlwaysSendPayload(), false);
+  }
+
+  public StatusEvaluator getSuccessStatus() {
+    return successStatus;
+  }
+
+  /**
+   * Specify which HTTP response codes are considered successful.
+   *
+   * @param s the evaluator; if not specified then a {@link RangeMatch} of 200-299 is used. The service id is ignored.
+   */
+  public void setSuccessStatus(StatusEvaluator s) {
+    successStatus = s;
+  }
+
+  public <T extends JettyHttpProducer> T withSuccessStatus(StatusEvaluator s) {
+    setSuccessStatus(s);
+    return (T) this;
+  }
+
+  private StatusEvaluator successStatus() {
+    return getSuccessStatus() != null ? getSuccessStatus() : defaultSuccess;
+  }
+
+  public TimeInterval getRequestTimeout() {
+    return requestTimeout;
+  }
+
+  /**
+   * Set the total time allowed for each request, including waiting for a pooled connection.
+   * <p>
+   * Note that this will be overridden by the timeout value passed in via the {@link #request(AdaptrisMessage, long)} method.
+   * </p>
+   *
+   * @param t the timeout, if not specified then there is no overall timeout; only the idle timeout of the connection applies.
+   */
+  public void setRequestTimeout(TimeInterval t) {
+    requestTimeout = t;
+  }
+
+  public <T extends JettyHttpProducer> T withRequestTimeout(TimeInterval t) {
+    setRequestTimeout(t);
+    return (T) this;
+  }
+
+  long requestTimeoutMs(long timeout) {
+    if (timeout != DEFAULT_TIMEOUT) {
+      return timeout;
+    }
+    return TimeInterval.toMillisecondsDefaultIfNull(getRequestTimeout(), DEFAULT_TIMEOUT);
+  }
+}
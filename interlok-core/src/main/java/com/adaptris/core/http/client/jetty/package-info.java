@@ -0,0 +1,5 @@
+/**
+ * Implementation of {@link com.adaptris.core.AdaptrisMessageProducer} based around a pooled Jetty
+ * {@link org.eclipse.jetty.client.HttpClient}, which supports HTTP/2.
+ */
+package com.adaptris.core.http.client.jetty;
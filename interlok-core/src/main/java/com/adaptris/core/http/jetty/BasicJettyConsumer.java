@@ -41,6 +41,9 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -62,7 +65,12 @@ import com.adaptris.util.TimeInterval;
 
 /**
  * This is the abstract class for all implementations that make use of Jetty to receive messages.
- * 
+ * <p>
+ * If the workflow has a {@link JettyWorkflowInterceptorImpl} (e.g. it is a {@link com.adaptris.core.PoolingWorkflow}) then the
+ * request is handled asynchronously; the Jetty thread is returned to the container as soon as the message has been submitted to
+ * the workflow, and the response is completed when the workflow finishes. This means that the number of concurrent requests is not
+ * limited by the size of the Jetty thread pool.
+ * </p>
  * 
  * @author lchan
  * @author $Author: lchan $
@@ -122,19 +130,16 @@ public abstract class BasicJettyConsumer extends AdaptrisMessageConsumerImp {
   public abstract AdaptrisMessage createMessage(HttpServletRequest request, HttpServletResponse response)
       throws IOException, ServletException;
 
-  private boolean submitToWorkflow(AdaptrisMessage msg) {
-    boolean waitForCompletion = false;
+  private boolean waitForCompletion() {
     if (retrieveAdaptrisMessageListener() instanceof WorkflowImp) {
       List<WorkflowInterceptor> interceptors = ((WorkflowImp) retrieveAdaptrisMessageListener()).getInterceptors();
       for (WorkflowInterceptor i : interceptors) {
         if (JettyWorkflowInterceptorImpl.class.isAssignableFrom(i.getClass())) {
-          waitForCompletion = true;
-          break;
+          return true;
         }
       }
     }
-    retrieveAdaptrisMessageListener().onAdaptrisMessage(msg);
-    return waitForCompletion;
+    return false;
   }
 
   protected void logHeaders(HttpServletRequest req) {
@@ -239,7 +244,8 @@ public abstract class BasicJettyConsumer extends AdaptrisMessageConsumerImp {
    * Set the behaviour that should occur when the workflow takes too long to finish.
    * <p>
    * This setting only has an impact if the consumer is the entry point for a {@link com.adaptris.core.PoolingWorkflow} instance. In
-   * the event that the wait time is exceeded, then the behaviour specified here is done.
+   * the event that the wait time is exceeded, then the behaviour specified here is done. The max wait time is used as the timeout
+   * for the asynchronous request, so no thread is held while waiting.
    * </p>
    * 
    * @param action the action; default is a 202 after 10 minutes.
@@ -395,8 +401,26 @@ public abstract class BasicJettyConsumer extends AdaptrisMessageConsumerImp {
       }
       JettyWrapper wrapper = new JettyWrapper().withMonitor(new JettyConsumerMonitor()).withRequest(request).withResponse(response);
       msg.addObjectHeader(JettyConstants.JETTY_WRAPPER, wrapper);
-      waitFor(submitToWorkflow(msg), wrapper.getMonitor(), response, msg.getUniqueId());
-      cancel(task);
+      boolean waitForCompletion = waitForCompletion();
+      if (waitForCompletion && request.isAsyncSupported()) {
+        startAsync(request, response, wrapper, msg.getUniqueId(), task);
+        retrieveAdaptrisMessageListener().onAdaptrisMessage(msg);
+      }
+      else {
+        retrieveAdaptrisMessageListener().onAdaptrisMessage(msg);
+        waitFor(waitForCompletion, wrapper.getMonitor(), response, msg.getUniqueId());
+        cancel(task);
+      }
+    }
+
+    // The container thread is released as soon as the message has been submitted; the JettyWorkflowInterceptorImpl completes the
+    // request when the workflow is finished and the async timeout enforces the TimeoutAction.
+    private void startAsync(HttpServletRequest request, HttpServletResponse response, JettyWrapper wrapper, String loggingId,
+                            TimerTask task) {
+      AsyncContext ctx = request.startAsync(request, response);
+      ctx.setTimeout(timeoutAction().maxWaitTime());
+      ctx.addListener(new AsyncCompletion(wrapper, loggingId, task));
+      wrapper.getMonitor().setAsyncContext(ctx);
     }
 
     private void waitFor(boolean waitFor, JettyConsumerMonitor monitor, HttpServletResponse response, String loggingId)
@@ -455,6 +479,68 @@ public abstract class BasicJettyConsumer extends AdaptrisMessageConsumerImp {
     }
   }
 
+  private class AsyncCompletion implements AsyncListener {
+    private final JettyWrapper wrapper;
+    private final String loggingId;
+    private final TimerTask task;
+
+    AsyncCompletion(JettyWrapper wrapper, String loggingId, TimerTask task) {
+      this.wrapper = wrapper;
+      this.loggingId = loggingId;
+      this.task = task;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) throws IOException {
+      if (task != null) {
+        task.cancel();
+      }
+      JettyConsumerMonitor monitor = wrapper.getMonitor();
+      if (monitor.getEndTime() - monitor.getStartTime() > warnAfter()) {
+        log.warn("Message ({}) took longer than expected; {}ms", loggingId, monitor.getEndTime() - monitor.getStartTime());
+      }
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+      log.debug("Message ({}) exceeded the max wait time of {}ms", loggingId, timeoutAction().maxWaitTime());
+      release(true);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) throws IOException {
+      log.trace("Message ({}) failed to complete : {}", loggingId, event.getThrowable());
+      release(false);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) throws IOException {
+    }
+
+    private void release(boolean sendTimeout) throws IOException {
+      try {
+        wrapper.lock();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        wrapper.getMonitor().completeAsync();
+        return;
+      }
+      try {
+        HttpServletResponse response = wrapper.getResponse();
+        // Stops the workflow from writing to a response that the container has recycled.
+        wrapper.setResponse(null);
+        if (sendTimeout && response != null) {
+          timeoutAction().handleTimeout(response);
+        }
+      }
+      finally {
+        wrapper.getMonitor().completeAsync();
+        wrapper.unlock();
+      }
+    }
+  }
+
   public interface HttpOperation {
     void handle(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException;
   }
@@ -16,6 +16,8 @@
 
 package com.adaptris.core.http.jetty;
 
+import javax.servlet.AsyncContext;
+
 public class JettyConsumerMonitor {
 
   private boolean messageComplete = false;
@@ -24,6 +26,8 @@ public class JettyConsumerMonitor {
   
   private long endTime;
 
+  private transient AsyncContext asyncContext;
+
   public JettyConsumerMonitor() {
     setStartTime(System.currentTimeMillis());
   }
@@ -51,5 +55,48 @@ public class JettyConsumerMonitor {
   public void setMessageComplete(boolean messageComplete) {
     this.messageComplete = messageComplete;
   }
+
+  /**
+   * Get the {@link AsyncContext} if the request is being handled asynchronously.
+   *
+   * @return the async context, or null if the request is not asynchronous or has already been completed.
+   * @since 3.10
+   */
+  public synchronized AsyncContext getAsyncContext() {
+    return asyncContext;
+  }
+
+  /**
+   * Set the {@link AsyncContext} if the request is being handled asynchronously.
+   *
+   * @since 3.10
+   */
+  public synchronized void setAsyncContext(AsyncContext ctx) {
+    this.asyncContext = ctx;
+  }
+
+  /**
+   * Complete the asynchronous request, returning the thread back to the container.
+   *
+   * @return true if the request was asynchronous and this call completed it.
+   * @since 3.10
+   */
+  public boolean completeAsync() {
+    AsyncContext ctx = null;
+    synchronized (this) {
+      ctx = asyncContext;
+      asyncContext = null;
+    }
+    if (ctx == null) {
+      return false;
+    }
+    try {
+      ctx.complete();
+    }
+    catch (IllegalStateException e) {
+      // The container has already completed it (e.g. the client went away).
+    }
+    return true;
+  }
   
 }
@@ -62,6 +62,10 @@ public abstract class JettyWorkflowInterceptorImpl extends WorkflowInterceptorIm
       synchronized (o) {
         o.notifyAll();
       }
+      if (o.completeAsync()) {
+        // Once the request is complete the container is free to recycle the response.
+        wrapper.setResponse(null);
+      }
     } catch (InterruptedException e) {
     } finally {
       wrapper.unlock();
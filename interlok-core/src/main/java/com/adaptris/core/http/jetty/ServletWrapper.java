@@ -36,6 +36,8 @@ public class ServletWrapper {
 
   public ServletWrapper(Servlet s, String urlMapping) {
     servletHolder = new ServletHolder(s);
+    // Allows BasicJettyConsumer to release the container thread while the workflow is running.
+    servletHolder.setAsyncSupported(true);
     url = urlMapping;
   }
 
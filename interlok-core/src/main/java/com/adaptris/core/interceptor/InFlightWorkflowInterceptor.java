@@ -56,6 +56,7 @@ public class InFlightWorkflowInterceptor extends WorkflowInterceptorImpl {
 
   private transient AtomicInteger messagesInFlight = new AtomicInteger(0);
   private transient int maxWorkers = 1;
+  private transient PoolingWorkflow poolingWorkflow;
 
   public InFlightWorkflowInterceptor() {
     super();
@@ -81,16 +82,24 @@ public class InFlightWorkflowInterceptor extends WorkflowInterceptorImpl {
   }
 
   int messagesPendingCount() {
+    if (poolingWorkflow != null && poolingWorkflow.getQueueHighWatermark() != null) {
+      return poolingWorkflow.currentQueueDepth();
+    }
     // Pending is the message in flight - the number of workers.
     int inFlight = messagesInFlight.get();
     return Math.max(inFlight - messagesInFlightCount(), 0);
   }
 
+  long backpressureWaitTimeMs() {
+    return poolingWorkflow != null ? poolingWorkflow.backpressureWaitTimeMs() : 0;
+  }
+
   @Override
   public void init() throws CoreException {
     Workflow w = parentWorkflow();
     if (PoolingWorkflow.class.isAssignableFrom(w.getClass())) {
-      maxWorkers = ((PoolingWorkflow) w).poolSize();
+      poolingWorkflow = (PoolingWorkflow) w;
+      maxWorkers = poolingWorkflow.poolSize();
     }
   }
 
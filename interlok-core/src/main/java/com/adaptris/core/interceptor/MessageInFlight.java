@@ -63,6 +63,11 @@ public class MessageInFlight extends ChildRuntimeInfoComponentImpl implements Me
     return wrappedComponent.messagesInFlightCount();
   }
 
+  @Override
+  public long backpressureWaitTimeMs() {
+    return wrappedComponent.backpressureWaitTimeMs();
+  }
+
 
   @Override
   public ParentRuntimeInfoComponent getParentRuntimeInfoComponent() {
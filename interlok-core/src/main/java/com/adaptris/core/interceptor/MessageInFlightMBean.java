@@ -50,7 +50,8 @@ public interface MessageInFlightMBean extends ChildRuntimeInfoComponentMBean {
    * <p>
    * This only makes sense for {@link PoolingWorkflow} as other workflows are single threaded; so will most likely return 0. In the
    * context of PoolingWorkflow, this is the number of messages that have been submitted to the workflow, but have not yet been
-   * processed.
+   * processed; if {@link PoolingWorkflow#setQueueHighWatermark(Integer)} is configured then this is the depth of the queue of
+   * messages waiting for a thread.
    * </p>
    * 
    * @see JettyNoBacklogInterceptor
@@ -58,4 +59,16 @@ public interface MessageInFlightMBean extends ChildRuntimeInfoComponentMBean {
    */
   int messagesPendingCount();
 
+  /**
+   * Return the total time that the consumer has been blocked because the workflow's queue was full.
+   * <p>
+   * This only makes sense for a {@link PoolingWorkflow} with {@link PoolingWorkflow#setQueueHighWatermark(Integer)} configured;
+   * otherwise it will return 0.
+   * </p>
+   *
+   * @return the time in milliseconds since the workflow was started.
+   * @since 3.10
+   */
+  long backpressureWaitTimeMs();
+
 }
@@ -63,10 +63,19 @@ public class AdvancedJdbcPooledConnection extends JdbcPooledConnectionImpl {
     pool.setAcquireRetryAttempts(connectionAttempts());
     pool.setTestConnectionOnCheckin(alwaysValidateConnection());
     pool.setTestConnectionOnCheckout(alwaysValidateConnection());
+    if (statementCacheSize() > 0) {
+      pool.setMaxStatementsPerConnection(statementCacheSize());
+    }
+    // Explicit pool properties take precedence.
     PooledConnectionProperties.apply(getConnectionPoolProperties(), pool);
     return new C3P0PooledDataSource(pool);
   }
 
+  @Override
+  protected boolean poolCachesStatements() {
+    return true;
+  }
+
   @Override
   public boolean equals(Object ajpc) {
     if (ajpc == null) 
@@ -16,6 +16,7 @@
 
 package com.adaptris.core.jdbc;
 
+import static org.apache.commons.lang3.StringUtils.isEmpty;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Properties;
@@ -34,6 +35,7 @@ import com.adaptris.interlok.resolver.ExternalResolver;
 import com.adaptris.security.exc.PasswordException;
 import com.adaptris.util.KeyValuePairBag;
 import com.adaptris.util.KeyValuePairSet;
+import com.adaptris.util.NumberUtils;
 
 /**
  * <p>
@@ -67,8 +69,12 @@ public abstract class DatabaseConnection extends AllowsRetriesConnection {
   @Valid
   @AdvancedConfig
   private KeyValuePairSet connectionProperties;
+  @AdvancedConfig
+  @InputFieldDefault(value = "0")
+  private Integer statementCacheSize;
 
   private transient DataSource wrapper;
+  private transient JdbcStatementCache statementCache;
 
   enum ConnectionState {
     Closed, Initialising, Initialised, Starting, Started, Stopping, Stopped, Closing
@@ -110,6 +116,7 @@ public abstract class DatabaseConnection extends AllowsRetriesConnection {
     catch (ClassNotFoundException e) {
       throw new CoreException("No available driver implementation " + getDriverImp(), e);
     }
+    statementCache = createStatementCache();
     initialiseDatabaseConnection();
     connectionState = ConnectionState.Initialised;
   }
@@ -137,6 +144,7 @@ public abstract class DatabaseConnection extends AllowsRetriesConnection {
   @Override
   protected final void stopConnection() {
     connectionState = ConnectionState.Stopping;
+    clearStatementCache();
     stopDatabaseConnection();
     connectionState = ConnectionState.Stopped;
   }
@@ -144,6 +152,7 @@ public abstract class DatabaseConnection extends AllowsRetriesConnection {
   @Override
   protected final void closeConnection() {
     connectionState = ConnectionState.Closing;
+    closeStatementCache();
     closeDatabaseConnection();
     connectionState = ConnectionState.Closed;
   }
@@ -505,4 +514,98 @@ public abstract class DatabaseConnection extends AllowsRetriesConnection {
         getUsername(), ExternalResolver.resolve(getPassword()));
   }
 
+  public Integer getStatementCacheSize() {
+    return statementCacheSize;
+  }
+
+  /**
+   * Set the maximum number of {@link java.sql.PreparedStatement} instances cached per physical connection.
+   * <p>
+   * If greater than 0, then statements prepared by {@link JdbcService} implementations are cached and reused for subsequent
+   * messages instead of being prepared again. Where the connection pool has its own statement cache (e.g. the C3P0 based
+   * {@link JdbcPooledConnection} and {@link AdvancedJdbcPooledConnection}), this is used as its
+   * {@code maxStatementsPerConnection} and the pool does the caching.
+   * </p>
+   * <p>
+   * Otherwise statements are cached against the physical connection and prepared directly on it, bypassing any pool proxy; so
+   * the pool doesn't know about them. For instance, HikariCP won't roll back uncommitted work done with those statements when
+   * the connection is returned to the pool, so don't use this with a pool that is {@code auto-commit=false} unless every service
+   * commits or rolls back explicitly; prefer your JDBC driver's own statement cache (e.g. via the connection properties) if it
+   * has one. The least recently used statement is closed when the limit is reached, and all cached statements are closed when
+   * this connection is stopped. If this connection has a unique-id then the cache statistics are available via JMX (see
+   * {@link JdbcStatementCacheMBean}).
+   * </p>
+   *
+   * @param i the maximum number of statements per connection; defaults to 0 which means statements are not cached.
+   * @since 3.10
+   */
+  public void setStatementCacheSize(Integer i) {
+    statementCacheSize = i;
+  }
+
+  int statementCacheSize() {
+    return NumberUtils.toIntDefaultIfNull(getStatementCacheSize(), 0);
+  }
+
+  /**
+   * Return the statement cache.
+   *
+   * @return the cache, or null if statements aren't cached.
+   */
+  JdbcStatementCache statementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Whether the connection pool caches statements itself.
+   * <p>
+   * If true, then {@link #setStatementCacheSize(Integer)} should be applied to the pool, and no {@link JdbcStatementCache} is
+   * created.
+   * </p>
+   *
+   * @return false by default.
+   */
+  protected boolean poolCachesStatements() {
+    return false;
+  }
+
+  private JdbcStatementCache createStatementCache() {
+    closeStatementCache();
+    if (statementCacheSize() <= 0 || poolCachesStatements()) {
+      return null;
+    }
+    JdbcStatementCache cache = new JdbcStatementCache(getUniqueId(), statementCacheSize());
+    if (!isEmpty(getUniqueId())) {
+      try {
+        cache.registerMBean();
+      }
+      catch (CoreException e) {
+        // Statistics only; not a reason to fail.
+        log.warn("Failed to register statement cache statistics for {}, they won't be available via JMX", getUniqueId());
+        log.trace(e.getMessage(), e);
+      }
+    }
+    return cache;
+  }
+
+  private void clearStatementCache() {
+    if (statementCache != null) {
+      statementCache.clear();
+    }
+  }
+
+  private void closeStatementCache() {
+    if (statementCache != null) {
+      statementCache.clear();
+      if (!isEmpty(getUniqueId())) {
+        try {
+          statementCache.unregisterMBean();
+        }
+        catch (CoreException e) {
+          log.trace("Failed to unregister statement cache for {}", getUniqueId(), e);
+        }
+      }
+      statementCache = null;
+    }
+  }
 }
@@ -101,6 +101,9 @@ public class JdbcPooledConnection extends JdbcPooledConnectionImpl {
       pool.setIdleConnectionTestPeriod(idleConnectionTestPeriodSeconds());
       // Seconds
       pool.setMaxIdleTime(maxIdleTimeSeconds());
+      if (statementCacheSize() > 0) {
+        pool.setMaxStatementsPerConnection(statementCacheSize());
+      }
 
       pool.setProperties(connectionProperties());
       pool.setDriverClass(this.getDriverImp());
@@ -114,6 +117,11 @@ public class JdbcPooledConnection extends JdbcPooledConnectionImpl {
     return new C3P0PooledDataSource(pool);
   }
 
+  @Override
+  protected boolean poolCachesStatements() {
+    return true;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o == null) {
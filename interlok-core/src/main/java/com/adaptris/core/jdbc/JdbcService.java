@@ -192,18 +192,37 @@ public abstract class JdbcService extends ServiceImp implements ConnectedService
     return s;
   }
 
+  /**
+   * Prepare a statement.
+   * <p>
+   * If the configured {@link DatabaseConnection} has a statement cache (see
+   * {@link DatabaseConnection#setStatementCacheSize(Integer)}) then the statement may come from the cache, and closing it
+   * returns it to the cache.
+   * </p>
+   */
   protected PreparedStatement prepareStatement(Connection c, String sql) throws SQLException {
-    PreparedStatement p = c.prepareStatement(sql);
+    JdbcStatementCache cache = statementCache();
+    PreparedStatement p = cache != null ? cache.prepareStatement(c, sql, null) : c.prepareStatement(sql);
     applyTimeout(p);
     return p;
   }
 
+  /**
+   * Prepare a statement that may return auto-generated keys.
+   *
+   * @see #prepareStatement(Connection, String)
+   */
   protected PreparedStatement prepareStatement(Connection c, String sql, int autoGenKeys) throws SQLException {
-    PreparedStatement p = c.prepareStatement(sql, autoGenKeys);
+    JdbcStatementCache cache = statementCache();
+    PreparedStatement p = cache != null ? cache.prepareStatement(c, sql, autoGenKeys) : c.prepareStatement(sql, autoGenKeys);
     applyTimeout(p);
     return p;
   }
 
+  private JdbcStatementCache statementCache() {
+    return getConnection() != null ? getConnection().retrieveConnection(DatabaseConnection.class).statementCache() : null;
+  }
+
   protected void applyTimeout(Statement stmt) throws SQLException {
     if (getStatementTimeout() != null) {
       int seconds =
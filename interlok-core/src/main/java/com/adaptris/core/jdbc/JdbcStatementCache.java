@@ -0,0 +1,377 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.jdbc;
+
+import static com.adaptris.core.runtime.AdapterComponentMBean.ID_PREFIX;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adaptris.core.CoreException;
+import com.adaptris.core.util.JdbcUtil;
+import com.adaptris.core.util.JmxHelper;
+
+/**
+ * Caches {@link PreparedStatement} instances for a {@link DatabaseConnection}.
+ * <p>
+ * Statements are cached against the physical connection (as returned by {@link Connection#unwrap(Class)}) that they were prepared
+ * on, keyed by the SQL and the auto-generated keys flag; each physical connection has its own cache of at most
+ * {@code maxStatementsPerConnection} statements, the least recently used statement being closed when that is exceeded.
+ * </p>
+ * <p>
+ * The statements handed out are wrappers; calling {@link PreparedStatement#close()} returns the statement to the cache rather than
+ * closing it. A statement is only ever used by one caller at a time, if it is already in use then another statement is prepared.
+ * Statements are discarded rather than cached if they have thrown an exception, or if their connection has been closed.
+ * </p>
+ *
+ * @see DatabaseConnection#setStatementCacheSize(Integer)
+ * @since 3.10
+ */
+public class JdbcStatementCache implements JdbcStatementCacheMBean {
+
+  private static final Logger log = LoggerFactory.getLogger(JdbcStatementCache.class);
+
+  private final String uniqueId;
+  private final int maxStatementsPerConnection;
+  // Physical connection -> idle statements in least recently used order.
+  private final Map<Connection, LinkedHashMap<Key, PreparedStatement>> cache = new IdentityHashMap<>();
+  // Incremented by clear(), so that statements which are in use at the time are closed rather than returned.
+  private long generation = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  JdbcStatementCache(String uniqueId, int maxStatementsPerConnection) {
+    this.uniqueId = uniqueId;
+    this.maxStatementsPerConnection = maxStatementsPerConnection;
+  }
+
+  /**
+   * Get a statement from the cache, or prepare it.
+   *
+   * @param c the connection.
+   * @param sql the SQL.
+   * @param autoGeneratedKeys the auto-generated keys flag, or null to use {@link Connection#prepareStatement(String)}.
+   * @return a statement that returns itself to the cache when closed.
+   */
+  PreparedStatement prepareStatement(Connection c, String sql, Integer autoGeneratedKeys) throws SQLException {
+    Connection physical = physicalConnection(c);
+    Key key = new Key(sql, autoGeneratedKeys);
+    long currentGeneration;
+    PreparedStatement stmt;
+    synchronized (this) {
+      currentGeneration = generation;
+      Map<Key, PreparedStatement> statements = cache.get(physical);
+      stmt = statements != null ? statements.remove(key) : null;
+    }
+    if (stmt != null && isClosed(stmt)) {
+      evictions.incrementAndGet();
+      JdbcUtil.closeQuietly(stmt);
+      stmt = null;
+    }
+    if (stmt != null) {
+      hits.incrementAndGet();
+    }
+    else {
+      misses.incrementAndGet();
+      stmt = autoGeneratedKeys != null ? physical.prepareStatement(sql, autoGeneratedKeys) : physical.prepareStatement(sql);
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(JdbcStatementCache.class.getClassLoader(),
+        new Class[] {PreparedStatement.class}, new CachedStatement(c, physical, key, stmt, currentGeneration));
+  }
+
+  private void checkin(CachedStatement s) {
+    List<PreparedStatement> discard = new ArrayList<>();
+    boolean newConnection = false;
+    if (s.broken || !reset(s)) {
+      discard.add(s.delegate);
+    }
+    else {
+      synchronized (this) {
+        LinkedHashMap<Key, PreparedStatement> statements = cache.get(s.physical);
+        if (s.generation != generation) {
+          discard.add(s.delegate);
+        }
+        else {
+          if (statements == null) {
+            statements = new LinkedHashMap<>(16, 0.75f, true);
+            cache.put(s.physical, statements);
+            newConnection = true;
+          }
+          // Another caller may have returned an identical statement while this one was in use.
+          if (statements.containsKey(s.key)) {
+            discard.add(s.delegate);
+          }
+          else {
+            statements.put(s.key, s.delegate);
+          }
+          for (Iterator<PreparedStatement> i = statements.values().iterator(); statements.size() > maxStatementsPerConnection;) {
+            discard.add(i.next());
+            i.remove();
+          }
+        }
+      }
+    }
+    evict(discard);
+    if (newConnection) {
+      evictClosedConnections();
+    }
+  }
+
+  // Physical connections are closed by the pool without us being told, so check whenever we see a new one.
+  private void evictClosedConnections() {
+    List<Connection> connections;
+    synchronized (this) {
+      connections = new ArrayList<>(cache.keySet());
+    }
+    for (Connection c : connections) {
+      if (isClosed(c)) {
+        List<PreparedStatement> discard;
+        synchronized (this) {
+          Map<Key, PreparedStatement> statements = cache.remove(c);
+          discard = statements != null ? new ArrayList<>(statements.values()) : new ArrayList<>();
+        }
+        evict(discard);
+      }
+    }
+  }
+
+  private void evict(List<PreparedStatement> statements) {
+    for (PreparedStatement stmt : statements) {
+      evictions.incrementAndGet();
+      JdbcUtil.closeQuietly(stmt);
+    }
+  }
+
+  private static boolean reset(CachedStatement s) {
+    try {
+      if (s.batched) {
+        s.delegate.clearBatch();
+      }
+      s.delegate.clearParameters();
+      s.delegate.clearWarnings();
+      return !s.delegate.isClosed();
+    }
+    catch (Exception e) {
+      return false;
+    }
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  @Override
+  public synchronized int getCachedStatementCount() {
+    int result = 0;
+    for (Map<Key, PreparedStatement> statements : cache.values()) {
+      result += statements.size();
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized int getConnectionCount() {
+    return cache.size();
+  }
+
+  @Override
+  public void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+    evictions.set(0);
+  }
+
+  @Override
+  public void clear() {
+    List<PreparedStatement> discard = new ArrayList<>();
+    synchronized (this) {
+      generation++;
+      for (Map<Key, PreparedStatement> statements : cache.values()) {
+        discard.addAll(statements.values());
+      }
+      cache.clear();
+    }
+    evict(discard);
+  }
+
+  @Override
+  public ObjectName createObjectName() throws MalformedObjectNameException {
+    return ObjectName.getInstance(JMX_STATEMENT_CACHE_TYPE + ID_PREFIX + uniqueId);
+  }
+
+  @Override
+  public void registerMBean() throws CoreException {
+    try {
+      JmxHelper.register(createObjectName(), this);
+    }
+    catch (Exception e) {
+      throw new CoreException(e);
+    }
+  }
+
+  @Override
+  public void unregisterMBean() throws CoreException {
+    try {
+      JmxHelper.unregister(createObjectName());
+    }
+    catch (Exception e) {
+      throw new CoreException(e);
+    }
+  }
+
+  static Connection physicalConnection(Connection c) {
+    try {
+      if (c.isWrapperFor(Connection.class)) {
+        Connection physical = c.unwrap(Connection.class);
+        if (physical != null) {
+          return physical;
+        }
+      }
+    }
+    catch (Exception | AbstractMethodError e) {
+      log.trace("Failed to unwrap {}, caching against it directly", c.getClass().getName());
+    }
+    return c;
+  }
+
+  private static boolean isClosed(AutoCloseable c) {
+    try {
+      return c instanceof Connection ? ((Connection) c).isClosed() : ((PreparedStatement) c).isClosed();
+    }
+    catch (Exception | AbstractMethodError e) {
+      return true;
+    }
+  }
+
+  private static class Key {
+    private final String sql;
+    private final Integer autoGeneratedKeys;
+
+    Key(String sql, Integer autoGeneratedKeys) {
+      this.sql = sql;
+      this.autoGeneratedKeys = autoGeneratedKeys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return sql.equals(other.sql) && Objects.equals(autoGeneratedKeys, other.autoGeneratedKeys);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sql, autoGeneratedKeys);
+    }
+  }
+
+  private class CachedStatement implements InvocationHandler {
+    private final Connection connection;
+    private final Connection physical;
+    private final Key key;
+    private final PreparedStatement delegate;
+    private final long generation;
+    private boolean closed;
+    private boolean broken;
+    private boolean batched;
+
+    CachedStatement(Connection connection, Connection physical, Key key, PreparedStatement delegate, long generation) {
+      this.connection = connection;
+      this.physical = physical;
+      this.key = key;
+      this.delegate = delegate;
+      this.generation = generation;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!closed) {
+            closed = true;
+            checkin(this);
+          }
+          return null;
+        case "isClosed":
+          return closed || delegate.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Cached:" + delegate;
+        default:
+      }
+      if (closed) {
+        throw new SQLException("Statement is closed");
+      }
+      switch (method.getName()) {
+        case "getConnection":
+          // The connection the caller asked for, not the physical connection.
+          return connection;
+        case "addBatch":
+          batched = true;
+          break;
+        default:
+      }
+      try {
+        return method.invoke(delegate, args);
+      }
+      catch (InvocationTargetException e) {
+        broken = true;
+        throw e.getCause();
+      }
+    }
+  }
+}
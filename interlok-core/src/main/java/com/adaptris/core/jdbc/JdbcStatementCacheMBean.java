@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.jdbc;
+
+import static com.adaptris.core.runtime.AdapterComponentMBean.JMX_DOMAIN_NAME;
+
+import com.adaptris.core.runtime.BaseComponentMBean;
+
+/**
+ * Management bean interface for the {@link java.sql.PreparedStatement} cache associated with a {@link DatabaseConnection}.
+ *
+ * @see DatabaseConnection#setStatementCacheSize(Integer)
+ * @since 3.10
+ */
+public interface JdbcStatementCacheMBean extends BaseComponentMBean {
+
+  /**
+   * The standard JMX Prefix for a statement cache which resolves to {@value}
+   *
+   */
+  String JMX_STATEMENT_CACHE_TYPE = JMX_DOMAIN_NAME + ":type=JdbcStatementCache";
+
+  /**
+   * Get the number of times a cached statement was reused.
+   *
+   * @return the number of cache hits since start (or the last reset).
+   */
+  long getHitCount();
+
+  /**
+   * Get the number of times a statement had to be prepared.
+   *
+   * @return the number of cache misses since start (or the last reset).
+   */
+  long getMissCount();
+
+  /**
+   * Get the number of statements that have been evicted from the cache.
+   * <p>
+   * This includes statements discarded because the cache for their connection was full, because their connection was closed or
+   * because they caused an error.
+   * </p>
+   *
+   * @return the number of evictions since start (or the last reset).
+   */
+  long getEvictionCount();
+
+  /**
+   * Get the number of statements currently cached (and not in use).
+   *
+   * @return the number of cached statements across all connections.
+   */
+  int getCachedStatementCount();
+
+  /**
+   * Get the number of physical connections that have cached statements.
+   *
+   * @return the number of connections.
+   */
+  int getConnectionCount();
+
+  /**
+   * Reset the hit, miss and eviction counts.
+   */
+  void resetStatistics();
+
+  /**
+   * Close and discard all cached statements.
+   */
+  void clear();
+}
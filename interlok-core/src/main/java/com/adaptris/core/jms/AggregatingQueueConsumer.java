@@ -16,7 +16,6 @@
 
 package com.adaptris.core.jms;
 
-import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -31,6 +30,7 @@ import com.adaptris.core.CoreException;
 import com.adaptris.core.ServiceException;
 import com.adaptris.core.services.aggregator.AggregatingConsumerImpl;
 import com.adaptris.core.services.aggregator.ConsumeDestinationGenerator;
+import com.adaptris.core.services.aggregator.MessageAggregation;
 import com.adaptris.util.TimeInterval;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
@@ -79,19 +79,18 @@ public class AggregatingQueueConsumer extends AggregatingConsumerImpl<Aggregatin
   public void aggregateMessages(AdaptrisMessage msg, AggregatingJmsConsumeService cfg) throws ServiceException {
     ConsumeDestination dest = getDestination().generate(msg);
     MessageConsumer consumer = null;
-    ArrayList<AdaptrisMessage> result = new ArrayList<>();
-    try {
+    try (MessageAggregation aggregation = getMessageAggregator().start(msg)) {
       startMessageTranslator(cfg, msg.getFactory());
       consumer = cfg.getConnection().retrieveConnection(JmsConnection.class).configuredVendorImplementation()
           .createQueueReceiver(dest, cfg);
       Message first = firstMessage(consumer);
-      result.add(getMessageTranslator().translate(first));
+      aggregation.append(getMessageTranslator().translate(first));
       Message next = nextMessage(consumer);
       while (next != null) {
-        result.add(getMessageTranslator().translate(next));
+        aggregation.append(getMessageTranslator().translate(next));
         next = nextMessage(consumer);
       }
-      getMessageAggregator().joinMessage(msg, result);
+      aggregation.finish();
     }
     catch (CoreException | JMSException e) {
       rethrowServiceException(e);
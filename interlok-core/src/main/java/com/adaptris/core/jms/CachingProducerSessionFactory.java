@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.jms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.apache.commons.lang3.BooleanUtils;
+
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.util.NumberUtils;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * Implementation of {@link ProducerSessionFactory} that reuses a single session, and caches a {@link MessageProducer} for each
+ * destination that is produced to.
+ * <p>
+ * {@link DefaultProducerSessionFactory} uses a single anonymous {@link MessageProducer} and specifies the destination on each
+ * send; some providers need to check or resolve the destination each time this happens. This implementation keeps a producer
+ * for each of the most recently used destinations (up to {@link #setMaxDestinations(Integer)}); destinations that
+ * don't implement {@code equals()} and {@code hashCode()} simply won't benefit from the cache.
+ * </p>
+ * <p>
+ * If {@link #setTransacted(Boolean)} is true, then the session is transacted and each message is committed after it is
+ * produced. When used with a {@link com.adaptris.core.BatchingWorkflow}, all the messages in a batch are sent and then
+ * committed together, which removes most of the round trips to the broker when producing lots of small messages.
+ * </p>
+ * <p>
+ * A session is not shared between producers. Each concurrent worker in a workflow has its own producer instance (and so its own
+ * session), which means that the number of sessions will always match the concurrency of the workflow.
+ * </p>
+ *
+ * @config jms-caching-producer-session
+ * @since 3.10
+ */
+@XStreamAlias("jms-caching-producer-session")
+@DisplayOrder(order = {"maxDestinations", "transacted"})
+public class CachingProducerSessionFactory extends ProducerSessionFactoryImpl {
+
+  private static final int DEFAULT_MAX_DESTINATIONS = 32;
+
+  @AdvancedConfig
+  @InputFieldDefault(value = "32")
+  private Integer maxDestinations;
+  @AdvancedConfig
+  @InputFieldDefault(value = "false")
+  private Boolean transacted;
+
+  public CachingProducerSessionFactory() {
+    super();
+  }
+
+  @Override
+  public ProducerSession createProducerSession(JmsProducerImpl producer, AdaptrisMessage msg)
+      throws JMSException {
+    if (session == null) {
+      Session s = createSession(producer, transacted() || producer.transactedSession());
+      session = new CachingProducerSession(producer, s);
+      log.trace("Created new JMS Session, transacted={}", s.getTransacted());
+    }
+    return session;
+  }
+
+  public Integer getMaxDestinations() {
+    return maxDestinations;
+  }
+
+  /**
+   * Set the maximum number of destinations to cache a {@link MessageProducer} for.
+   *
+   * @param i the max number of destinations, once reached the least recently used producer is closed; if not specified,
+   *          defaults to 32.
+   */
+  public void setMaxDestinations(Integer i) {
+    maxDestinations = i;
+  }
+
+  public CachingProducerSessionFactory withMaxDestinations(Integer i) {
+    setMaxDestinations(i);
+    return this;
+  }
+
+  int maxDestinations() {
+    return NumberUtils.toIntDefaultIfNull(getMaxDestinations(), DEFAULT_MAX_DESTINATIONS);
+  }
+
+  public Boolean getTransacted() {
+    return transacted;
+  }
+
+  /**
+   * Whether or not the session is transacted.
+   *
+   * @param b true to use a transacted session, default is false.
+   */
+  public void setTransacted(Boolean b) {
+    transacted = b;
+  }
+
+  public CachingProducerSessionFactory withTransacted(Boolean b) {
+    setTransacted(b);
+    return this;
+  }
+
+  boolean transacted() {
+    return BooleanUtils.toBooleanDefaultIfNull(getTransacted(), false);
+  }
+
+  // Like the session itself, this is only ever used by a single thread at a time.
+  private class CachingProducerSession extends ProducerSession {
+    private final JmsProducerImpl owner;
+    private final Session session;
+    private final MessageProducer anonymous;
+    private final Map<Destination, MessageProducer> producers;
+
+    private CachingProducerSession(JmsProducerImpl owner, Session s) throws JMSException {
+      this.owner = owner;
+      session = s;
+      anonymous = configureMessageProducer(owner, s.createProducer(null));
+      final int max = maxDestinations();
+      producers = new LinkedHashMap<Destination, MessageProducer>(16, 0.75f, true) {
+        private static final long serialVersionUID = 2020051301L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Destination, MessageProducer> eldest) {
+          if (size() > max) {
+            JmsUtils.closeQuietly(eldest.getValue());
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+
+    @Override
+    public Session getSession() {
+      return session;
+    }
+
+    @Override
+    public MessageProducer getProducer() {
+      return anonymous;
+    }
+
+    @Override
+    public MessageProducer getProducer(Destination destination) throws JMSException {
+      if (destination == null || maxDestinations() < 1) {
+        return anonymous;
+      }
+      MessageProducer producer = producers.get(destination);
+      if (producer == null) {
+        producer = configureMessageProducer(owner, session.createProducer(destination));
+        producers.put(destination, producer);
+      }
+      return producer;
+    }
+  }
+}
@@ -111,10 +111,10 @@ public abstract class DefinedJmsProducer extends JmsProducerImpl {
     setupSession(msg);
     Message jmsMsg = translate(msg, replyTo);
     if (!perMessageProperties()) {
-      producerSession.getProducer().send(destination, jmsMsg);
+      send(destination, jmsMsg);
     }
     else {
-      producerSession.getProducer().send(destination, jmsMsg, calculateDeliveryMode(msg, getDeliveryMode()),
+      send(destination, jmsMsg, calculateDeliveryMode(msg, getDeliveryMode()),
           calculatePriority(msg, getPriority()), calculateTimeToLive(msg, timeToLive()));
     }
     if (captureOutgoingMessageDetails()) {
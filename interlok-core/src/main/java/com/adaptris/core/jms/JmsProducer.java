@@ -104,8 +104,12 @@ public class JmsProducer extends JmsProducerImpl {
         target.setReplyTo(createReplyTo(msg, target, false));
       }
       produce(msg, target);
+      commit();
     } catch (Exception e) {
       logLinkedException("", e);
+      if (producerSession != null) {
+        rollback();
+      }
       throw ExceptionHelper.wrapProduceException(e);
     }
   }
@@ -115,9 +119,9 @@ public class JmsProducer extends JmsProducerImpl {
     setupSession(msg);
     Message jmsMsg = translate(msg, jmsDest.getReplyToDestination());
     if (!perMessageProperties()) {
-      producerSession.getProducer().send(jmsDest.getDestination(), jmsMsg);
+      send(jmsDest.getDestination(), jmsMsg);
     } else {
-      producerSession.getProducer().send(jmsDest.getDestination(), jmsMsg,
+      send(jmsDest.getDestination(), jmsMsg,
           calculateDeliveryMode(msg, jmsDest.deliveryMode()),
           calculatePriority(msg, jmsDest.priority()),
           calculateTimeToLive(msg, jmsDest.timeToLive()));
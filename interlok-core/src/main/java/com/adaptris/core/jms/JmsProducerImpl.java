@@ -25,10 +25,13 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
+import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.validation.Valid;
 import javax.validation.constraints.Max;
@@ -43,14 +46,17 @@ import com.adaptris.annotation.AutoPopulated;
 import com.adaptris.annotation.InputFieldDefault;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.AdaptrisMessageListener;
+import com.adaptris.core.BatchAwareProducer;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.ProduceDestination;
+import com.adaptris.core.ProduceException;
 import com.adaptris.core.RequestReplyProducerImp;
 import com.adaptris.core.util.Args;
+import com.adaptris.core.util.ExceptionHelper;
 import com.adaptris.core.util.LifecycleHelper;
 import com.adaptris.util.NumberUtils;
 
-public abstract class JmsProducerImpl extends RequestReplyProducerImp implements JmsActorConfig {
+public abstract class JmsProducerImpl extends RequestReplyProducerImp implements JmsActorConfig, BatchAwareProducer {
 
   // This is used to track the current message id, for the session factory.
   // There doesn't appear to be a good way of doing this, everything *depends* on currentSession()
@@ -109,6 +115,9 @@ public abstract class JmsProducerImpl extends RequestReplyProducerImp implements
 
   private transient Boolean transactedSession;
   private transient long rollbackTimeout = 30000;
+  // While true, every message uses the session the batch started with, and is only committed (or rolled back) at the end
+  // of the batch.
+  private transient boolean batchInProgress = false;
 
   private enum ExpirationConverter {
     Milliseconds {
@@ -199,6 +208,9 @@ public abstract class JmsProducerImpl extends RequestReplyProducerImp implements
 
 
   protected ProducerSession setupSession(AdaptrisMessage msg) throws JMSException {
+    if (batchInProgress && producerSession != null) {
+      return producerSession;
+    }
     if (!msg.getUniqueId().equals(CURRENT_MESSAGE_ID) || producerSession == null) {
       producerSession = getSessionFactory().createProducerSession(this, msg);
       configuredMessageTranslator().registerSession(producerSession.getSession());
@@ -207,6 +219,81 @@ public abstract class JmsProducerImpl extends RequestReplyProducerImp implements
     return producerSession;
   }
 
+  /**
+   * Produce a batch of messages to the default destination using a single session.
+   * <p>
+   * If the session is transacted (e.g. because {@link CachingProducerSessionFactory#setTransacted(Boolean)} is true) then the
+   * whole batch is committed once at the end, and any failure rolls back (and fails) the whole batch. Otherwise each message
+   * is sent as normal, and failures are reported individually.
+   * </p>
+   *
+   * @since 3.10
+   */
+  @Override
+  public void produce(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures)
+      throws ProduceException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      setupSession(batch.get(0));
+      boolean transacted = currentSession().getTransacted();
+      batchInProgress = true;
+      for (AdaptrisMessage msg : batch) {
+        try {
+          produce(msg, getDestination());
+        }
+        catch (ProduceException e) {
+          if (transacted) {
+            throw e;
+          }
+          failures.accept(msg, e);
+        }
+      }
+      batchInProgress = false;
+      commit();
+    }
+    catch (Exception e) {
+      batchInProgress = false;
+      logLinkedException("Batch", e);
+      if (producerSession != null) {
+        rollback();
+      }
+      throw ExceptionHelper.wrapProduceException(e);
+    }
+  }
+
+  /**
+   * Send a message using the {@link MessageProducer} that the current session has for the destination.
+   *
+   * @see ProducerSession#getProducer(Destination)
+   * @since 3.10
+   */
+  protected void send(Destination destination, Message jmsMsg) throws JMSException {
+    MessageProducer producer = producerSession.getProducer(destination);
+    if (producer.getDestination() == null) {
+      producer.send(destination, jmsMsg);
+    } else {
+      producer.send(jmsMsg);
+    }
+  }
+
+  /**
+   * Send a message using the {@link MessageProducer} that the current session has for the destination.
+   *
+   * @see ProducerSession#getProducer(Destination)
+   * @since 3.10
+   */
+  protected void send(Destination destination, Message jmsMsg, int deliveryMode, int priority, long timeToLive)
+      throws JMSException {
+    MessageProducer producer = producerSession.getProducer(destination);
+    if (producer.getDestination() == null) {
+      producer.send(destination, jmsMsg, deliveryMode, priority, timeToLive);
+    } else {
+      producer.send(jmsMsg, deliveryMode, priority, timeToLive);
+    }
+  }
+
   protected void logLinkedException(String prefix, Exception e) {
     if (!(e instanceof JMSException))
       return;
@@ -463,6 +550,9 @@ public abstract class JmsProducerImpl extends RequestReplyProducerImp implements
 
   // BUG#915
   protected void commit() throws JMSException {
+    if (batchInProgress) {
+      return;
+    }
     if (currentSession().getTransacted()) {
       currentLogger().trace("Committing transacted session");
       currentSession().commit();
@@ -471,6 +561,9 @@ public abstract class JmsProducerImpl extends RequestReplyProducerImp implements
 
   // BUG#915
   protected void rollback() {
+    if (batchInProgress) {
+      return;
+    }
     boolean tryRollback = false;
     try {
       tryRollback = currentSession().getTransacted();
@@ -16,6 +16,8 @@
 
 package com.adaptris.core.jms;
 
+import javax.jms.Destination;
+import javax.jms.JMSException;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
 
@@ -32,4 +34,20 @@ public abstract class ProducerSession {
 
   public abstract MessageProducer getProducer();
 
+  /**
+   * Get a {@link MessageProducer} for sending to the specified destination.
+   * <p>
+   * The default implementation just returns {@link #getProducer()}. Implementations that create a producer per destination
+   * return one where {@link MessageProducer#getDestination()} is not null, in which case the destination must not be
+   * specified again when sending.
+   * </p>
+   *
+   * @param destination the destination.
+   * @return a {@link MessageProducer}
+   * @throws JMSException if the producer could not be created.
+   * @since 3.10
+   */
+  public MessageProducer getProducer(Destination destination) throws JMSException {
+    return getProducer();
+  }
 }
@@ -55,19 +55,21 @@ public abstract class ProducerSessionFactoryImpl implements ProducerSessionFacto
   }
 
   protected ProducerSession createProducerSession(JmsProducerImpl producer) throws JMSException {
-    Connection conn = producer.retrieveConnection(JmsConnection.class).currentConnection();
-    JmsConnection jmsConnection = producer.retrieveConnection(JmsConnection.class);
-    VendorImplementation vendor = jmsConnection.configuredVendorImplementation();
-    Session s = vendor.createSession(conn, producer.transactedSession(), AcknowledgeMode.getMode(producer.getAcknowledgeMode()));
-    // Session s = producer.retrieveConnection(JmsConnection.class).configuredVendorImplementation()
-    // .createSession(conn, producer.getTransacted(), AcknowledgeMode.getMode(producer.getAcknowledgeMode()));
+    Session s = createSession(producer, producer.transactedSession());
     MessageProducer p = configureMessageProducer(producer, s.createProducer(null));
     ProducerSession ps = new ProducerSessionImpl(s, p);
     log.trace("Created new JMS MessageProducer / Session");
     return ps;
   }
 
-  private MessageProducer configureMessageProducer(JmsProducerImpl jmsP, MessageProducer producer)
+  protected Session createSession(JmsProducerImpl producer, boolean transacted) throws JMSException {
+    Connection conn = producer.retrieveConnection(JmsConnection.class).currentConnection();
+    JmsConnection jmsConnection = producer.retrieveConnection(JmsConnection.class);
+    VendorImplementation vendor = jmsConnection.configuredVendorImplementation();
+    return vendor.createSession(conn, transacted, AcknowledgeMode.getMode(producer.getAcknowledgeMode()));
+  }
+
+  protected MessageProducer configureMessageProducer(JmsProducerImpl jmsP, MessageProducer producer)
       throws JMSException {
     if (!jmsP.perMessageProperties()) {
       producer.setDeliveryMode(com.adaptris.core.jms.DeliveryMode.getMode(jmsP.getDeliveryMode()));
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.lms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable, reference counted chain of {@link ByteBuffer} segments from a {@link BufferPool}.
+ * <p>
+ * Once built, a chain is never modified, so it can be shared between a message and its clones; writing to a message always
+ * builds a new chain (which is what makes clones copy-on-write). The segments go back to the pool when the reference count
+ * drops to zero.
+ * </p>
+ */
+final class BufferChain {
+
+  static final BufferChain EMPTY = new BufferChain(null, Collections.emptyList(), 0);
+
+  private final BufferPool pool;
+  // Each segment is flipped; position=0, limit=bytes written.
+  private final List<ByteBuffer> segments;
+  private final long size;
+  private final AtomicInteger refs = new AtomicInteger(1);
+
+  private BufferChain(BufferPool pool, List<ByteBuffer> segments, long size) {
+    this.pool = pool;
+    this.segments = segments;
+    this.size = size;
+  }
+
+  long size() {
+    return size;
+  }
+
+  BufferChain retain() {
+    refs.incrementAndGet();
+    return this;
+  }
+
+  void release() {
+    if (refs.decrementAndGet() == 0 && pool != null) {
+      for (ByteBuffer b : segments) {
+        pool.release(b);
+      }
+    }
+  }
+
+  /**
+   * Copy the contents of the chain into a new byte array.
+   */
+  byte[] toByteArray() {
+    if (size > Integer.MAX_VALUE) {
+      throw new RuntimeException("Payload is > " + Integer.MAX_VALUE + " bytes, use getInputStream()");
+    }
+    byte[] result = new byte[(int) size];
+    int offset = 0;
+    for (ByteBuffer b : segments) {
+      ByteBuffer view = b.duplicate();
+      int len = view.remaining();
+      view.get(result, offset, len);
+      offset += len;
+    }
+    return result;
+  }
+
+  /**
+   * Open a stream over the chain; the caller should already have retained the chain, that reference is released when the
+   * stream is closed.
+   */
+  InputStream openInputStream() {
+    return new ChainInputStream(this);
+  }
+
+  /**
+   * Open a stream that writes into segments from the pool, the new chain replaces the payload of {@code target} when the stream
+   * is closed.
+   */
+  static OutputStream openOutputStream(BufferPool pool, BufferPool.PayloadHolder target) {
+    return target.register(new ChainOutputStream(pool, target));
+  }
+
+  private static class ChainInputStream extends InputStream {
+    private final BufferChain chain;
+    private int index = 0;
+    private ByteBuffer current;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    ChainInputStream(BufferChain c) {
+      chain = c;
+      current = next();
+    }
+
+    private ByteBuffer next() {
+      return index < chain.segments.size() ? chain.segments.get(index++).duplicate() : null;
+    }
+
+    private ByteBuffer readable() throws IOException {
+      if (closed.get()) {
+        throw new IOException("Stream closed");
+      }
+      while (current != null && !current.hasRemaining()) {
+        current = next();
+      }
+      return current;
+    }
+
+    @Override
+    public int read() throws IOException {
+      ByteBuffer b = readable();
+      return b == null ? -1 : b.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] dest, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      int total = 0;
+      ByteBuffer b;
+      while (total < len && (b = readable()) != null) {
+        int count = Math.min(len - total, b.remaining());
+        b.get(dest, off + total, count);
+        total += count;
+      }
+      return total == 0 ? -1 : total;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = 0;
+      ByteBuffer b;
+      while (skipped < n && (b = readable()) != null) {
+        int count = (int) Math.min(n - skipped, b.remaining());
+        ((Buffer) b).position(b.position() + count);
+        skipped += count;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      ByteBuffer b = readable();
+      return b == null ? 0 : b.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed.compareAndSet(false, true)) {
+        current = null;
+        chain.release();
+      }
+    }
+  }
+
+  static class ChainOutputStream extends OutputStream {
+    private final BufferPool pool;
+    private final BufferPool.PayloadHolder target;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private ByteBuffer current;
+    private long size = 0;
+    private boolean closed = false;
+
+    ChainOutputStream(BufferPool pool, BufferPool.PayloadHolder target) {
+      this.pool = pool;
+      this.target = target;
+    }
+
+    private ByteBuffer writable() throws IOException {
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      if (current == null || !current.hasRemaining()) {
+        current = pool.acquire();
+        segments.add(current);
+      }
+      return current;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+      writable().put((byte) b);
+      size++;
+    }
+
+    @Override
+    public synchronized void write(byte[] src, int off, int len) throws IOException {
+      int written = 0;
+      while (written < len) {
+        ByteBuffer b = writable();
+        int count = Math.min(len - written, b.remaining());
+        b.put(src, off + written, count);
+        written += count;
+      }
+      size += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+      BufferChain chain;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        for (ByteBuffer b : segments) {
+          // cast for Java 8 binary compatibility.
+          ((Buffer) b).flip();
+        }
+        chain = size == 0 ? BufferChain.EMPTY : new BufferChain(pool, Collections.unmodifiableList(segments), size);
+      }
+      target.written(this, chain);
+    }
+
+    /**
+     * Return any segments written so far to the pool without replacing the payload; further writes will fail.
+     */
+    synchronized void discard() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (ByteBuffer b : segments) {
+        pool.release(b);
+      }
+      segments.clear();
+      current = null;
+    }
+  }
+}
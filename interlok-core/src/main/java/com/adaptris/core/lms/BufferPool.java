@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.lms;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed size direct {@link ByteBuffer} segments used by {@link PooledBufferMessageFactory}.
+ * <p>
+ * Segments go back into the pool when the last {@link BufferChain} that refers to them is released. Messages are normally
+ * released explicitly (via {@link com.adaptris.core.ReferenceCountedMessage#release()}) once nothing refers to them. As a
+ * safety net, much like {@link org.apache.commons.io.FileCleaningTracker} each message is also tracked with a phantom reference
+ * so that its payload is released once the message itself has been garbage collected; the reference queue is drained whenever a
+ * segment is acquired or a message is released, so there is no reaper thread.
+ * </p>
+ */
+class BufferPool {
+
+  private final int segmentSize;
+  private final int maxPooledSegments;
+  private final Queue<ByteBuffer> available = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooled = new AtomicInteger();
+  private final ReferenceQueue<Object> reclaimQueue = new ReferenceQueue<>();
+  private final Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+
+  BufferPool(int segmentSize, long maxPoolSizeBytes) {
+    this.segmentSize = segmentSize;
+    this.maxPooledSegments = (int) Math.min(Integer.MAX_VALUE, Math.max(0, maxPoolSizeBytes / segmentSize));
+  }
+
+  int segmentSize() {
+    return segmentSize;
+  }
+
+  /**
+   * Get a cleared segment, either from the pool or freshly allocated.
+   */
+  ByteBuffer acquire() {
+    reclaim();
+    ByteBuffer buffer = available.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(segmentSize);
+    }
+    pooled.decrementAndGet();
+    ((Buffer) buffer).clear();
+    return buffer;
+  }
+
+  /**
+   * Return a segment to the pool; if the pool is full it is simply left for the garbage collector.
+   */
+  void release(ByteBuffer buffer) {
+    if (buffer.capacity() != segmentSize) {
+      return;
+    }
+    if (pooled.incrementAndGet() <= maxPooledSegments) {
+      available.offer(buffer);
+    }
+    else {
+      pooled.decrementAndGet();
+    }
+  }
+
+  /**
+   * Release the payload held by {@code holder} when {@code marker} is garbage collected.
+   */
+  void track(Object marker, PayloadHolder holder) {
+    trackers.add(new Tracker(marker, holder, reclaimQueue));
+  }
+
+  void reclaim() {
+    Reference<?> ref;
+    while ((ref = reclaimQueue.poll()) != null) {
+      Tracker t = (Tracker) ref;
+      trackers.remove(t);
+      t.holder.release();
+    }
+  }
+
+  int pooledSegments() {
+    return pooled.get();
+  }
+
+  /**
+   * The current payload of a message; the indirection means that the tracker doesn't need to know when the payload changes.
+   * <p>
+   * Any output streams that are still open are also tracked, so that their segments can be returned to the pool when the
+   * payload is released, even if they were never closed.
+   * </p>
+   */
+  static class PayloadHolder {
+    private BufferChain chain;
+    private final Set<BufferChain.ChainOutputStream> writers = ConcurrentHashMap.newKeySet();
+
+    PayloadHolder(BufferChain c) {
+      chain = c;
+    }
+
+    synchronized BufferChain current() {
+      return chain;
+    }
+
+    synchronized BufferChain retainCurrent() {
+      return chain.retain();
+    }
+
+    void replace(BufferChain c) {
+      BufferChain old;
+      synchronized (this) {
+        old = chain;
+        chain = c;
+      }
+      old.release();
+    }
+
+    BufferChain.ChainOutputStream register(BufferChain.ChainOutputStream out) {
+      writers.add(out);
+      return out;
+    }
+
+    void written(BufferChain.ChainOutputStream out, BufferChain c) {
+      writers.remove(out);
+      replace(c);
+    }
+
+    void release() {
+      for (BufferChain.ChainOutputStream out : writers) {
+        writers.remove(out);
+        out.discard();
+      }
+      replace(BufferChain.EMPTY);
+    }
+  }
+
+  private static class Tracker extends PhantomReference<Object> {
+    private final PayloadHolder holder;
+
+    Tracker(Object marker, PayloadHolder holder, ReferenceQueue<Object> queue) {
+      super(marker, queue);
+      this.holder = holder;
+    }
+  }
+}
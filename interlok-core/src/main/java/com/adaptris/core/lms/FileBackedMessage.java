@@ -46,4 +46,20 @@ public interface FileBackedMessage extends AdaptrisMessage {
    */
   File currentSource();
 
+  /**
+   * Map the payload into memory as a read-only {@link MappedPayload}.
+   * <p>
+   * Services that need to read the payload more than once (or need random access to it) can use this rather than repeatedly
+   * calling {@link #getInputStream()}.
+   * </p>
+   *
+   * @return the mapped payload, or null if this message doesn't support it (e.g. if the file is not the payload as is).
+   * @throws IOException if the payload could not be mapped.
+   * @implNote the default implementation returns null.
+   * @since 3.10
+   */
+  default MappedPayload mapPayload() throws IOException {
+    return null;
+  }
+
 }
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.AdaptrisMessageImp;
+import com.adaptris.fs.FileTransfer;
 import com.adaptris.util.IdGenerator;
 
 class FileBackedMessageImpl extends AdaptrisMessageImp implements FileBackedMessage {
@@ -44,9 +45,10 @@ class FileBackedMessageImpl extends AdaptrisMessageImp implements FileBackedMess
   private int bufferSize;
   private long maxSizeBeforeException;
   private transient StreamWrapper streamWrapper;
+  // Only valid while mappedFile is still the inputFile, since inputFile is replaced (not modified) on write.
+  private transient MappedPayload mappedPayload;
+  private transient File mappedFile;
   protected transient Logger log = LoggerFactory.getLogger(FileBackedMessage.class);
-  
-  private final int MEGABYTE = 1 << 10;
 
   FileBackedMessageImpl(IdGenerator guid, FileBackedMessageFactory fac) {
     super(guid, fac);
@@ -191,12 +193,12 @@ class FileBackedMessageImpl extends AdaptrisMessageImp implements FileBackedMess
       if (inputFile != null) {
         // Should we make this use StreamWrapper? -> but what about the FileLock?
         // probalby not a big deal because it only happens on CloneMessageServiceList...
-        result.inputFile = createTempFile();
-        try (InputStream in = new FileInputStream(inputFile);
+        // The temp file is tracked against the clone, so that it lives as long as the clone does.
+        result.inputFile = result.createTempFile();
+        try (FileInputStream in = new FileInputStream(inputFile);
             FileOutputStream out = new FileOutputStream(result.inputFile);
             FileLock lock = out.getChannel().lock()) {
-          byte[] buffer = new byte[10 * MEGABYTE]; // 10MB buffer
-          IOUtils.copyLarge(in, out, buffer);
+          FileTransfer.transfer(in.getChannel(), out.getChannel());
         }
       }
 
@@ -204,6 +206,16 @@ class FileBackedMessageImpl extends AdaptrisMessageImp implements FileBackedMess
     return result;
   }
 
+  @Override
+  public MappedPayload mapPayload() throws IOException {
+    File source = currentSource();
+    if (mappedPayload == null || mappedFile != source) {
+      mappedPayload = MappedPayload.map(source);
+      mappedFile = source;
+    }
+    return mappedPayload;
+  }
+
   /**
    *
    * @see com.adaptris.core.lms.FileBackedMessage#currentSource()
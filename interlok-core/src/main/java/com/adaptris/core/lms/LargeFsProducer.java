@@ -31,6 +31,7 @@ import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.NullConnection;
 import com.adaptris.core.ProduceDestination;
 import com.adaptris.core.fs.FsProducer;
+import com.adaptris.fs.FileTransfer;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
@@ -72,12 +73,15 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 {
     "producedname", "fsProduceDir"
 })
-@DisplayOrder(order = {"createDirs", "filenameCreator", "tempDirectory", "useRenameTo", "fsWorker"})
+@DisplayOrder(order = {"createDirs", "filenameCreator", "tempDirectory", "useRenameTo", "useHardLink", "fsWorker"})
 public class LargeFsProducer extends FsProducer {
 
   @AdvancedConfig
   @InputFieldDefault(value = "false")
   private Boolean useRenameTo;
+  @AdvancedConfig
+  @InputFieldDefault(value = "false")
+  private Boolean useHardLink;
 
   public LargeFsProducer() {
     super();
@@ -96,11 +100,22 @@ public class LargeFsProducer extends FsProducer {
         copy(msg, t);
       }
     }
+    else if (useHardLink()) {
+      link(msg, t);
+    }
     else {
       copy(msg,t);
     }
   }
 
+  private void link(FileBackedMessage msg, File t) throws Exception {
+    // A link appears fully formed, so there's no need for the temporary directory.
+    if (!FileTransfer.link(msg.currentSource(), t)) {
+      log.trace("Could not link {}, copying instead", t.getCanonicalPath());
+      copy(msg, t);
+    }
+  }
+
 
   private void copy(FileBackedMessage msg, File t) throws Exception {
     File fileToWriteTo = t;
@@ -166,4 +181,31 @@ public class LargeFsProducer extends FsProducer {
     return BooleanUtils.toBooleanDefaultIfNull(getUseRenameTo(), false);
   }
 
+  /**
+   * @return the useHardLink value.
+   */
+  public Boolean getUseHardLink() {
+    return useHardLink;
+  }
+
+  /**
+   * Set to true to create the destination as a hard link to the file backing the {@link FileBackedMessage}.
+   * <p>
+   * This avoids copying the data at all, but the file is shared with the message; so it should not be used if the produced file is
+   * subsequently modified in place while the message is still being processed. If the link can't be created (e.g. the
+   * destination is on a different filesystem to {@link FileBackedMessageFactory#getTempDirectory()}) then the file is copied.
+   * {@link #setUseRenameTo(Boolean)} takes precedence if both are true.
+   * </p>
+   *
+   * @param b true to use a hard link, default false.
+   * @since 3.10
+   */
+  public void setUseHardLink(Boolean b) {
+    useHardLink = b;
+  }
+
+  boolean useHardLink() {
+    return BooleanUtils.toBooleanDefaultIfNull(getUseHardLink(), false);
+  }
+
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.lms;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.adaptris.core.AdaptrisMessage;
+
+/**
+ * A read-only, memory mapped view of the payload of a {@link FileBackedMessage}.
+ * <p>
+ * The payload is mapped as one or more {@link MappedByteBuffer}s (a single buffer can't be larger than 2Gb), so repeated reads are
+ * served from the page cache rather than by repeatedly opening and reading the file. The mapping is released when this object is
+ * garbage collected; on some platforms (notably Windows) the underlying file can't be deleted until then.
+ * </p>
+ *
+ * @see FileBackedMessage#mapPayload()
+ * @since 3.10
+ */
+public class MappedPayload {
+
+  // The largest possible MappedByteBuffer, so payloads under 2Gb are a single buffer.
+  static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+  private final List<MappedByteBuffer> buffers;
+  private final long size;
+  private Boolean ascii;
+
+  private MappedPayload(List<MappedByteBuffer> buffers, long size) {
+    this.buffers = buffers;
+    this.size = size;
+  }
+
+  /**
+   * Map a file read-only.
+   *
+   * @param file the file.
+   * @return the mapped payload.
+   * @throws IOException if the file could not be mapped.
+   */
+  static MappedPayload map(File file) throws IOException {
+    return map(file, MAX_CHUNK_SIZE);
+  }
+
+  static MappedPayload map(File file, long chunkSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      List<MappedByteBuffer> result = new ArrayList<>();
+      for (long position = 0; position < size; position += chunkSize) {
+        result.add(channel.map(MapMode.READ_ONLY, position, Math.min(chunkSize, size - position)));
+      }
+      return new MappedPayload(Collections.unmodifiableList(result), size);
+    }
+  }
+
+  /**
+   * Return a {@link CharSequence} view of the payload of a message, if one is available without decoding the payload.
+   * <p>
+   * This is a convenience for services that can work against a {@link CharSequence} (e.g. {@link java.util.regex.Pattern}); the
+   * view is only available if the message is a {@link FileBackedMessage} that supports {@link FileBackedMessage#mapPayload()},
+   * and its content encoding (or the platform default) is supported by {@link #asCharSequence(Charset)}.
+   * </p>
+   *
+   * @param msg the message.
+   * @return the view, or null if one isn't available, in which case use {@link AdaptrisMessage#getContent()} or similar.
+   * @throws IOException if the payload could not be mapped.
+   */
+  public static CharSequence asCharSequence(AdaptrisMessage msg) throws IOException {
+    if (msg instanceof FileBackedMessage) {
+      MappedPayload payload = ((FileBackedMessage) msg).mapPayload();
+      if (payload != null) {
+        String encoding = msg.getContentEncoding();
+        return payload.asCharSequence(StringUtils.isEmpty(encoding) ? Charset.defaultCharset() : Charset.forName(encoding));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The size of the payload in bytes.
+   *
+   * @return the size.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Return the payload as read-only buffers.
+   * <p>
+   * Each buffer is a new, independent view (with its own position and limit), so the returned buffers can be used freely by the
+   * caller; the underlying mapping is shared.
+   * </p>
+   *
+   * @return the buffers, in order; empty if there is no payload.
+   */
+  public List<ByteBuffer> buffers() {
+    List<ByteBuffer> result = new ArrayList<>(buffers.size());
+    for (MappedByteBuffer b : buffers) {
+      result.add(b.asReadOnlyBuffer());
+    }
+    return result;
+  }
+
+  /**
+   * Return a {@link CharSequence} view of the payload, without decoding it into memory.
+   * <p>
+   * This is only possible where each byte of the payload is a single character: the view is available for {@code ISO-8859-1} and
+   * {@code US-ASCII}, and for {@code UTF-8} if the payload only contains ASCII characters (which is checked once, the first time
+   * it is requested). The payload must also be less than 2Gb. Converting the view (or any sub-sequence) to a {@link String} does
+   * copy the characters.
+   * </p>
+   *
+   * @param charset the charset.
+   * @return the view, or null if it isn't possible for this charset and payload.
+   */
+  public CharSequence asCharSequence(Charset charset) {
+    if (size > Integer.MAX_VALUE) {
+      return null;
+    }
+    ByteBuffer buffer = buffers.isEmpty() ? ByteBuffer.allocate(0) : buffers.get(0).asReadOnlyBuffer();
+    if (StandardCharsets.ISO_8859_1.equals(charset)) {
+      return new ByteCharSequence(buffer, 0, (int) size, false);
+    }
+    if (StandardCharsets.US_ASCII.equals(charset)) {
+      return new ByteCharSequence(buffer, 0, (int) size, true);
+    }
+    if (StandardCharsets.UTF_8.equals(charset) && isAscii()) {
+      return new ByteCharSequence(buffer, 0, (int) size, false);
+    }
+    return null;
+  }
+
+  private boolean isAscii() {
+    if (ascii == null) {
+      boolean result = true;
+      for (MappedByteBuffer b : buffers) {
+        ByteBuffer view = b.asReadOnlyBuffer();
+        while (result && view.hasRemaining()) {
+          result = view.get() >= 0;
+        }
+      }
+      ascii = Boolean.valueOf(result);
+    }
+    return ascii.booleanValue();
+  }
+
+  /**
+   * A {@link CharSequence} where each byte is one character.
+   */
+  private static class ByteCharSequence implements CharSequence {
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+    // US-ASCII decodes bytes outside 0-127 as the replacement character.
+    private final boolean replaceNonAscii;
+
+    ByteCharSequence(ByteBuffer buffer, int offset, int length, boolean replaceNonAscii) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+      this.replaceNonAscii = replaceNonAscii;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+      }
+      byte b = buffer.get(offset + index);
+      if (b < 0 && replaceNonAscii) {
+        return REPLACEMENT;
+      }
+      return (char) (b & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || end > length || start > end) {
+        throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+      }
+      return new ByteCharSequence(buffer, offset + start, end - start, replaceNonAscii);
+    }
+
+    @Override
+    public String toString() {
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = charAt(i);
+      }
+      return new String(chars);
+    }
+  }
+}
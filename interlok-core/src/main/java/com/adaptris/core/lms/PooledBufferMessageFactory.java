@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.lms;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.DefaultMessageFactory;
+import com.adaptris.util.NumberUtils;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * Message factory that stores the payload in a chain of pooled, direct (off-heap) {@link java.nio.ByteBuffer} segments.
+ * <p>
+ * Unlike {@link DefaultMessageFactory} writing to {@link AdaptrisMessage#getOutputStream()} does not make a final copy of the
+ * payload when the stream is closed, and {@link AdaptrisMessage#getInputStream()} reads directly from the segments. Cloning a
+ * message shares the segments until one of the messages is written to. The segments are returned to the pool when the payload
+ * is replaced, or when the last reference to the message is released (see {@link com.adaptris.core.ReferenceCountedMessage});
+ * any segments that would exceed {@link #getMaxPoolSizeBytes()} are left for the garbage collector. Messages that are never
+ * explicitly released give their segments back once they are garbage collected.
+ * </p>
+ * <p>
+ * The workflow releases its reference when it has finished with the message, so anything that holds on to a message (or its
+ * streams) after that needs to {@link com.adaptris.core.ReferenceCountedMessage#retain()} it first; messages that failed are not
+ * released, since the error handler may still need them.
+ * </p>
+ * <p>
+ * {@link AdaptrisMessage#getPayload()} and {@link AdaptrisMessage#getContent()} still have to copy the payload onto the heap,
+ * so you should prefer the stream based methods if you are using this factory. Remember that direct buffers are constrained
+ * by {@code -XX:MaxDirectMemorySize} rather than the heap size.
+ * </p>
+ *
+ * @config pooled-buffer-message-factory
+ * @since 3.10
+ */
+@XStreamAlias("pooled-buffer-message-factory")
+@DisplayOrder(order = {"defaultCharEncoding", "segmentSizeBytes", "maxPoolSizeBytes"})
+public class PooledBufferMessageFactory extends DefaultMessageFactory {
+
+  // 64k segments
+  private static final int DEFAULT_SEGMENT_SIZE = 1024 * 64;
+  // Keep up to 64Mb of segments in the pool.
+  private static final long DEFAULT_MAX_POOL_SIZE = 1024L * 1024 * 64;
+
+  @AdvancedConfig
+  @InputFieldDefault(value = "64Kb")
+  private Integer segmentSizeBytes;
+  @AdvancedConfig
+  @InputFieldDefault(value = "64Mb")
+  private Long maxPoolSizeBytes;
+
+  private transient BufferPool bufferPool;
+
+  public PooledBufferMessageFactory() {
+    super();
+  }
+
+  @Override
+  public AdaptrisMessage newMessage() {
+    AdaptrisMessage m = new PooledBufferMessageImpl(uniqueIdGenerator(), this);
+    if (!isEmpty(getDefaultCharEncoding())) {
+      m.setContentEncoding(getDefaultCharEncoding());
+    }
+    return m;
+  }
+
+  public Integer getSegmentSizeBytes() {
+    return segmentSizeBytes;
+  }
+
+  /**
+   * Set the size of each buffer segment.
+   *
+   * @param i the size of each segment; default is 64Kb if not specified.
+   */
+  public void setSegmentSizeBytes(Integer i) {
+    segmentSizeBytes = i;
+  }
+
+  int segmentSizeBytes() {
+    return NumberUtils.toIntDefaultIfNull(getSegmentSizeBytes(), DEFAULT_SEGMENT_SIZE);
+  }
+
+  public Long getMaxPoolSizeBytes() {
+    return maxPoolSizeBytes;
+  }
+
+  /**
+   * Set the maximum number of bytes worth of unused segments to keep in the pool.
+   *
+   * @param l the max pool size; default is 64Mb if not specified.
+   */
+  public void setMaxPoolSizeBytes(Long l) {
+    maxPoolSizeBytes = l;
+  }
+
+  long maxPoolSizeBytes() {
+    return NumberUtils.toLongDefaultIfNull(getMaxPoolSizeBytes(), DEFAULT_MAX_POOL_SIZE);
+  }
+
+  synchronized BufferPool bufferPool() {
+    if (bufferPool == null) {
+      bufferPool = new BufferPool(segmentSizeBytes(), maxPoolSizeBytes());
+    }
+    return bufferPool;
+  }
+}
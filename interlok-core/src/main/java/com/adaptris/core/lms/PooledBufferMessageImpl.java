@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.lms;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageImp;
+import com.adaptris.core.ReferenceCountedMessage;
+import com.adaptris.util.IdGenerator;
+
+/**
+ * {@link AdaptrisMessage} implementation created by {@link PooledBufferMessageFactory}.
+ * <p>
+ * The payload is a {@link BufferChain} of pooled direct buffers. Clones share the chain until either of them writes a new
+ * payload; each clone has its own reference count.
+ * </p>
+ */
+class PooledBufferMessageImpl extends AdaptrisMessageImp implements ReferenceCountedMessage {
+
+  private final transient BufferPool pool;
+  private transient BufferPool.PayloadHolder payload;
+  private transient AtomicInteger references = new AtomicInteger(1);
+
+  PooledBufferMessageImpl(IdGenerator guid, PooledBufferMessageFactory fac) {
+    super(guid, fac);
+    pool = fac.bufferPool();
+    payload = new BufferPool.PayloadHolder(BufferChain.EMPTY);
+    pool.track(this, payload);
+  }
+
+  /** @see AdaptrisMessage#setPayload(byte[]) */
+  @Override
+  public void setPayload(byte[] bytes) {
+    FileBackedMessageImpl.wrappedTry(() -> {
+      try (OutputStream out = getOutputStream()) {
+        out.write(bytes != null ? bytes : new byte[0]);
+      }
+    });
+  }
+
+  /** @see AdaptrisMessage#getPayload() */
+  @Override
+  public byte[] getPayload() {
+    BufferChain chain = payload.retainCurrent();
+    try {
+      return chain.toByteArray();
+    }
+    finally {
+      chain.release();
+    }
+  }
+
+  /** @see AdaptrisMessage#getSize() */
+  @Override
+  public long getSize() {
+    return payload.current().size();
+  }
+
+  /** @see AdaptrisMessage#setContent(String, String) */
+  @Override
+  public void setContent(String content, String charEncoding) {
+    Charset charset = Charset.forName(StringUtils.defaultIfBlank(charEncoding, Charset.defaultCharset().name()));
+    setPayload(content != null ? content.getBytes(charset) : new byte[0]);
+    setContentEncoding(charEncoding);
+  }
+
+  /** @see AdaptrisMessage#getContent() */
+  @Override
+  public String getContent() {
+    byte[] bytes = getPayload();
+    return isEmpty(getContentEncoding()) ? new String(bytes) : new String(bytes, Charset.forName(getContentEncoding()));
+  }
+
+  /** @see AdaptrisMessage#getInputStream() */
+  @Override
+  public InputStream getInputStream() throws IOException {
+    return payload.retainCurrent().openInputStream();
+  }
+
+  /**
+   * Write into new segments; they replace the current payload when the stream is closed.
+   *
+   * @see AdaptrisMessage#getOutputStream()
+   */
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    return BufferChain.openOutputStream(pool, payload);
+  }
+
+  @Override
+  public PooledBufferMessageImpl retain() {
+    references.updateAndGet(i -> {
+      if (i <= 0) {
+        throw new IllegalStateException("Message has already been released");
+      }
+      return i + 1;
+    });
+    return this;
+  }
+
+  /**
+   * Remove a reference; once the last one is removed the payload segments are returned to the pool, discarding any output
+   * streams that have not been closed.
+   * <p>
+   * The message is then left with an empty payload.
+   * </p>
+   */
+  @Override
+  public boolean release() {
+    if (references.getAndUpdate(i -> Math.max(0, i - 1)) != 1) {
+      return false;
+    }
+    payload.release();
+    pool.reclaim();
+    return true;
+  }
+
+  @Override
+  public int referenceCount() {
+    return references.get();
+  }
+
+  /** @see AdaptrisMessage#equivalentForTracking(AdaptrisMessage) */
+  @Override
+  public boolean equivalentForTracking(AdaptrisMessage other) {
+    boolean result = false;
+    if (StringUtils.equals(getUniqueId(), other.getUniqueId())) {
+      if (Arrays.equals(getPayload(), other.getPayload())) {
+        if (StringUtils.equals(getContentEncoding(), other.getContentEncoding())) {
+          if (this.getMetadata().equals(other.getMetadata())) {
+            result = true;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /** @see Object#clone() */
+  @Override
+  public Object clone() throws CloneNotSupportedException {
+    PooledBufferMessageImpl result = (PooledBufferMessageImpl) super.clone();
+    // Share the segments; the chain is immutable so it's only "copied" when one of us writes a new payload.
+    result.payload = new BufferPool.PayloadHolder(payload.retainCurrent());
+    result.references = new AtomicInteger(1);
+    pool.track(result, result.payload);
+    return result;
+  }
+}
@@ -118,6 +118,16 @@ class ZipFileBackedMessageImpl extends FileBackedMessageImpl {
     }
   }
 
+  /**
+   * The file may be compressed, so mapping it isn't supported.
+   *
+   * @return null always.
+   */
+  @Override
+  public MappedPayload mapPayload() throws IOException {
+    return null;
+  }
+
   @Override
   public void initialiseFrom(File sourceFile) throws IOException {
     try(ZipFile zipFile = new ZipFile(sourceFile)) {
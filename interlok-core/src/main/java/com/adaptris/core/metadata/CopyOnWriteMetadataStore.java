@@ -0,0 +1,324 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.metadata;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.adaptris.core.MetadataElement;
+import com.adaptris.core.util.Args;
+
+/**
+ * Copy-on-write metadata store backed by an open-addressing (linear probing) string keyed table.
+ * <p>
+ * The table is immutable once published; writers take a lock, copy the table, modify the copy and then publish it via a
+ * volatile write. Readers simply read the current table so they never lock, and {@link #elements()} / {@link #asMap()} return
+ * views over the current table without copying it. {@link #copy()} shares the table since it is never modified in place.
+ * </p>
+ */
+class CopyOnWriteMetadataStore implements MetadataStore {
+
+  private static final Table EMPTY = new Table(new String[8], new String[8], 0);
+
+  private transient volatile Table table;
+
+  CopyOnWriteMetadataStore() {
+    this(EMPTY);
+  }
+
+  private CopyOnWriteMetadataStore(Table t) {
+    table = t;
+  }
+
+  @Override
+  public String get(String key) {
+    return table.get(key);
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    return table.get(key) != null;
+  }
+
+  @Override
+  public synchronized void put(String key, String value) {
+    table = table.with(Args.notBlank(key, "key"), Args.notNull(value, "value"));
+  }
+
+  @Override
+  public synchronized void putAll(Collection<MetadataElement> elements) {
+    Table t = table.copy(elements.size());
+    for (MetadataElement e : elements) {
+      t.insert(e.getKey(), e.getValue());
+    }
+    table = t;
+  }
+
+  @Override
+  public synchronized void remove(String key) {
+    table = table.without(key);
+  }
+
+  @Override
+  public synchronized void clear() {
+    table = EMPTY;
+  }
+
+  @Override
+  public Set<MetadataElement> elements() {
+    return table.elements();
+  }
+
+  @Override
+  public Map<String, String> asMap() {
+    return table.map();
+  }
+
+  @Override
+  public MetadataStore copy() {
+    return new CopyOnWriteMetadataStore(table);
+  }
+
+  @Override
+  public String toString() {
+    return table.elements().toString();
+  }
+
+  private static int indexFor(String key, int mask) {
+    int h = key.hashCode();
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * The table; only ever modified by {@link #insert(String, String)} before it is published.
+   */
+  private static final class Table {
+    private final String[] keys;
+    private final String[] values;
+    private int size;
+
+    Table(String[] keys, String[] values, int size) {
+      this.keys = keys;
+      this.values = values;
+      this.size = size;
+    }
+
+    String get(String key) {
+      if (key == null || size == 0) {
+        return null;
+      }
+      int mask = keys.length - 1;
+      for (int i = indexFor(key, mask);; i = (i + 1) & mask) {
+        String k = keys[i];
+        if (k == null) {
+          return null;
+        }
+        if (k.equals(key)) {
+          return values[i];
+        }
+      }
+    }
+
+    Table with(String key, String value) {
+      String existing = get(key);
+      if (value.equals(existing)) {
+        return this;
+      }
+      Table result = copy(existing == null ? 1 : 0);
+      result.insert(key, value);
+      return result;
+    }
+
+    Table without(String key) {
+      if (get(key) == null) {
+        return this;
+      }
+      // Rebuilding is simpler than backward shift deletion, and we'd be copying the arrays anyway.
+      Table result = new Table(new String[keys.length], new String[keys.length], 0);
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != null && !keys[i].equals(key)) {
+          result.insert(keys[i], values[i]);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Copy the table making sure that there is room for {@code extra} more keys while keeping the load factor at or below 0.5.
+     */
+    Table copy(int extra) {
+      int capacity = keys.length;
+      while ((size + extra) * 2 > capacity) {
+        capacity <<= 1;
+      }
+      if (capacity == keys.length) {
+        return new Table(Arrays.copyOf(keys, capacity), Arrays.copyOf(values, capacity), size);
+      }
+      Table result = new Table(new String[capacity], new String[capacity], 0);
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != null) {
+          result.insert(keys[i], values[i]);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Insert into an unpublished table; capacity must already have been reserved via {@link #copy(int)}.
+     */
+    void insert(String key, String value) {
+      int mask = keys.length - 1;
+      for (int i = indexFor(key, mask);; i = (i + 1) & mask) {
+        if (keys[i] == null) {
+          keys[i] = key;
+          values[i] = value;
+          size++;
+          return;
+        }
+        if (keys[i].equals(key)) {
+          values[i] = value;
+          return;
+        }
+      }
+    }
+
+    Set<MetadataElement> elements() {
+      return new ElementView(this);
+    }
+
+    Map<String, String> map() {
+      return new MapView(this);
+    }
+  }
+
+  private abstract static class TableIterator<E> implements Iterator<E> {
+    private final Table table;
+    private int next = -1;
+
+    TableIterator(Table t) {
+      table = t;
+      advance();
+    }
+
+    private void advance() {
+      do {
+        next++;
+      } while (next < table.keys.length && table.keys[next] == null);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < table.keys.length;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      E result = create(table.keys[next], table.values[next]);
+      advance();
+      return result;
+    }
+
+    abstract E create(String key, String value);
+  }
+
+  /**
+   * Read-only {@code Set<MetadataElement>} view; equality is key based, just like {@link MetadataElement#equals(Object)}.
+   */
+  private static final class ElementView extends AbstractSet<MetadataElement> {
+    private final Table table;
+
+    ElementView(Table t) {
+      table = t;
+    }
+
+    @Override
+    public Iterator<MetadataElement> iterator() {
+      return new TableIterator<MetadataElement>(table) {
+        @Override
+        MetadataElement create(String key, String value) {
+          return new MetadataElement(key, value);
+        }
+      };
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof MetadataElement && table.get(((MetadataElement) o).getKey()) != null;
+    }
+
+    @Override
+    public int size() {
+      return table.size;
+    }
+  }
+
+  private static final class MapView extends AbstractMap<String, String> {
+    private final Table table;
+    private transient Set<Map.Entry<String, String>> entries;
+
+    MapView(Table t) {
+      table = t;
+    }
+
+    @Override
+    public String get(Object key) {
+      return key instanceof String ? table.get((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+      return table.size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+      if (entries == null) {
+        entries = new AbstractSet<Map.Entry<String, String>>() {
+          @Override
+          public Iterator<Map.Entry<String, String>> iterator() {
+            return new TableIterator<Map.Entry<String, String>>(table) {
+              @Override
+              Map.Entry<String, String> create(String key, String value) {
+                return new SimpleImmutableEntry<>(key, value);
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return table.size;
+          }
+        };
+      }
+      return entries;
+    }
+  }
+}
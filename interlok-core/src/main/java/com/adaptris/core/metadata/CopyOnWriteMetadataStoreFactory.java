@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.metadata;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * {@link MetadataStoreFactory} that uses an open-addressing copy-on-write map for each message's metadata.
+ * <p>
+ * Consider using this when your messages have a lot of metadata (dozens of keys, used for routing etc), or when metadata is
+ * read far more often than it is written. Reads never lock, and {@link com.adaptris.core.AdaptrisMessage#getMetadata()} /
+ * {@link com.adaptris.core.AdaptrisMessage#getMessageHeaders()} return a read-only snapshot of the metadata rather than
+ * copying it; cloning a message shares the snapshot until one of them is modified. The trade-off is that each individual
+ * write copies the underlying (small) arrays.
+ * </p>
+ * <p>
+ * The sets and maps that are returned are immutable; attempting to modify them will cause an
+ * {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @config copy-on-write-metadata-store-factory
+ * @since 3.10
+ */
+@XStreamAlias("copy-on-write-metadata-store-factory")
+public class CopyOnWriteMetadataStoreFactory implements MetadataStoreFactory {
+
+  public CopyOnWriteMetadataStoreFactory() {
+  }
+
+  @Override
+  public MetadataStore create() {
+    return new CopyOnWriteMetadataStore();
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.metadata;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * The default {@link MetadataStoreFactory} which stores metadata as a {@link java.util.HashSet} of
+ * {@link com.adaptris.core.MetadataElement}.
+ * <p>
+ * This is the behaviour that has always been in place; {@link com.adaptris.core.AdaptrisMessage#getMetadata()} and
+ * {@link com.adaptris.core.AdaptrisMessage#getMessageHeaders()} return a copy of the metadata each time they are called.
+ * </p>
+ *
+ * @config default-metadata-store-factory
+ * @since 3.10
+ */
+@XStreamAlias("default-metadata-store-factory")
+public class DefaultMetadataStoreFactory implements MetadataStoreFactory {
+
+  public DefaultMetadataStoreFactory() {
+  }
+
+  @Override
+  public MetadataStore create() {
+    return new HashSetMetadataStore();
+  }
+}
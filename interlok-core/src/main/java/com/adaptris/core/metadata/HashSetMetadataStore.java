@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.metadata;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.adaptris.core.MetadataElement;
+
+/**
+ * The historic metadata store; a {@link HashSet} of {@link MetadataElement} objects.
+ * <p>
+ * Writes are synchronized, reads are not; {@link #elements()} and {@link #asMap()} return copies.
+ * </p>
+ */
+class HashSetMetadataStore implements MetadataStore {
+
+  private Set<MetadataElement> metadata = new HashSet<>();
+
+  @Override
+  public String get(String key) {
+    for (MetadataElement e : metadata) {
+      if (e.getKey().equals(key)) {
+        return e.getValue();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    return metadata.contains(new MetadataElement(key, ""));
+  }
+
+  @Override
+  public void put(String key, String value) {
+    put(new MetadataElement(key, value));
+  }
+
+  @Override
+  public synchronized void put(MetadataElement e) {
+    if (metadata.contains(e)) {
+      metadata.remove(e);
+    }
+    metadata.add(e);
+  }
+
+  @Override
+  public synchronized void putAll(Collection<MetadataElement> elements) {
+    for (MetadataElement e : elements) {
+      put(e);
+    }
+  }
+
+  @Override
+  public synchronized void remove(String key) {
+    metadata.remove(new MetadataElement(key, ""));
+  }
+
+  @Override
+  public synchronized void clear() {
+    metadata = new HashSet<>();
+  }
+
+  @Override
+  public Set<MetadataElement> elements() {
+    return new HashSet<>(metadata);
+  }
+
+  @Override
+  public Map<String, String> asMap() {
+    Map<String, String> result = new HashMap<>();
+    for (MetadataElement e : metadata) {
+      result.put(e.getKey(), e.getValue());
+    }
+    return result;
+  }
+
+  @Override
+  public MetadataStore copy() {
+    HashSetMetadataStore result = new HashSetMetadataStore();
+    try {
+      for (MetadataElement e : metadata) {
+        result.metadata.add((MetadataElement) e.clone());
+      }
+    }
+    catch (CloneNotSupportedException e) {
+      throw new RuntimeException(e);
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return metadata.toString();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.metadata;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.adaptris.core.MetadataElement;
+
+/**
+ * The storage engine for the metadata associated with a single {@link com.adaptris.core.AdaptrisMessage}.
+ * <p>
+ * Keys passed into the store are expected to have already been resolved (i.e. any {@code $$} indirection has already been
+ * handled by the message), the store itself is just a case-sensitive string keyed map.
+ * </p>
+ *
+ * @see MetadataStoreFactory
+ * @since 3.10
+ */
+public interface MetadataStore {
+
+  /**
+   * Get the value associated with the key.
+   *
+   * @param key the key.
+   * @return the value or null if the key does not exist.
+   */
+  String get(String key);
+
+  /**
+   * Whether or not the store contains the key.
+   *
+   * @param key the key.
+   * @return true if the key exists.
+   */
+  boolean containsKey(String key);
+
+  /**
+   * Add or replace a metadata value.
+   *
+   * @param key the key, may not be blank.
+   * @param value the value, may not be null.
+   */
+  void put(String key, String value);
+
+  /**
+   * Add or replace a metadata value.
+   *
+   * @param element the element.
+   */
+  default void put(MetadataElement element) {
+    put(element.getKey(), element.getValue());
+  }
+
+  /**
+   * Add or replace all the metadata elements.
+   *
+   * @param elements the elements.
+   */
+  default void putAll(Collection<MetadataElement> elements) {
+    for (MetadataElement e : elements) {
+      put(e);
+    }
+  }
+
+  /**
+   * Remove the key from the store.
+   *
+   * @param key the key.
+   */
+  void remove(String key);
+
+  /**
+   * Remove everything from the store.
+   */
+  void clear();
+
+  /**
+   * Return the contents of the store as a set of {@link MetadataElement}.
+   * <p>
+   * Changes to the returned set are not guaranteed to be reflected in the underlying store, you should treat it as read-only.
+   * </p>
+   *
+   * @return the metadata.
+   */
+  Set<MetadataElement> elements();
+
+  /**
+   * Return the contents of the store as a map.
+   * <p>
+   * Changes to the returned map are not guaranteed to be reflected in the underlying store, you should treat it as read-only.
+   * </p>
+   *
+   * @return the metadata.
+   */
+  Map<String, String> asMap();
+
+  /**
+   * Make a copy of this store, which is then independent of this store.
+   *
+   * @return a new store containing the same metadata.
+   */
+  MetadataStore copy();
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.metadata;
+
+/**
+ * Creates the {@link MetadataStore} for each message created by an {@link com.adaptris.core.AdaptrisMessageFactory}.
+ *
+ * @see com.adaptris.core.AdaptrisMessageFactory#setMetadataStoreFactory(MetadataStoreFactory)
+ * @since 3.10
+ */
+@FunctionalInterface
+public interface MetadataStoreFactory {
+
+  /**
+   * Create a new empty metadata store.
+   *
+   * @return a new store.
+   */
+  MetadataStore create();
+}
@@ -44,6 +44,10 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * of org.slf4j.Logger is also bound to key "log". These can be used as a standard variable within the script.
  * </p>
  * <p>
+ * If the script engine supports compilation then the script is compiled when the service is initialised, and recompiled if the
+ * last modified time of the file changes.
+ * </p>
+ * <p>
  * Note that this class can be used as the selector as part of a {@link com.adaptris.core.BranchingServiceCollection}. If used as
  * such, then you need
  * to remember to invoke {@link com.adaptris.core.AdaptrisMessage#setNextServiceId(String)} as part of the script and {@link
@@ -105,6 +109,14 @@ public class ScriptingService extends ScriptingServiceImp {
     return new FileReader(getScriptFilename());
   }
 
+  /**
+   * Returns the last modified time of the script, so that it is recompiled if the file changes.
+   */
+  @Override
+  protected long scriptVersion() {
+    return new File(getScriptFilename()).lastModified();
+  }
+
   @Override
   public void prepare() throws CoreException {
   }
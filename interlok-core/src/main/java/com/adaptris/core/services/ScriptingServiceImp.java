@@ -19,10 +19,18 @@ package com.adaptris.core.services;
 import java.io.IOException;
 import java.io.Reader;
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 import javax.validation.constraints.NotBlank;
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import com.adaptris.annotation.AdvancedConfig;
 import com.adaptris.annotation.InputFieldDefault;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreException;
@@ -31,52 +39,85 @@ import com.adaptris.core.ServiceException;
 import com.adaptris.core.ServiceImp;
 import com.adaptris.core.util.Args;
 import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.util.NumberUtils;
 
 /**
  * Base class for enabling JSR223 enabled scripting languages.
- * 
+ * <p>
+ * If the {@link ScriptEngine} implements {@link Compilable} then the script is compiled once when the service is initialised
+ * and each message only requires the variables to be bound; the script is recompiled if {@link #scriptVersion()} changes.
+ * Engines that do not declare themselves thread-safe (the {@code THREADING} parameter of their factory is null) are not shared
+ * between threads; instead a pool of up to {@link #setMaxEngines(Integer)} engines is used, each with its own compiled copy of
+ * the script.
+ * </p>
  * 
  * @author lchan
  * 
  */
 public abstract class ScriptingServiceImp extends ServiceImp implements DynamicPollingTemplate.TemplateProvider {
 
+  private static final String THREADING = "THREADING";
+  private static final int DEFAULT_MAX_ENGINES = 10;
+
   @NotBlank
   private String language;
   private transient ScriptEngineManager fatController;
-  private transient ScriptEngine engine;
+  private transient ScriptRunner sharedRunner;
+  private transient GenericObjectPool<ScriptRunner> runnerPool;
 
   @InputFieldDefault(value = "false")
   private Boolean branchingEnabled;
 
+  @AdvancedConfig
+  @InputFieldDefault(value = "10")
+  private Integer maxEngines;
+
   public ScriptingServiceImp() {
     super();
   }
 
   @Override
   public final void doService(AdaptrisMessage msg) throws ServiceException {
+    ScriptRunner runner = null;
     try {
-      Bindings vars = engine.createBindings();
-      vars.put("message", msg);
-      vars.put("log", log);
-      try (Reader input = createReader()) {
-        engine.eval(input, vars);
-      }
+      runner = sharedRunner != null ? sharedRunner : runnerPool.borrowObject();
+      runner.eval(msg);
     }
     catch (Exception e) {
       throw ExceptionHelper.wrapServiceException(e);
     }
+    finally {
+      if (runner != null && runnerPool != null) {
+        runnerPool.returnObject(runner);
+      }
+    }
   }
 
   protected abstract Reader createReader() throws IOException;
 
+  /**
+   * Return a value that changes whenever the script changes, so that it can be recompiled.
+   * <p>
+   * The default implementation returns 0, so the script is only ever compiled once.
+   * </p>
+   */
+  protected long scriptVersion() {
+    return 0;
+  }
+
   @Override
   protected void initService() throws CoreException {
     try {
       Args.notBlank(language, "language");
-      String error = String.format("getEngineByName('%s')", getLanguage());
       fatController = new ScriptEngineManager(this.getClass().getClassLoader());
-      engine = Args.notNull(fatController.getEngineByName(getLanguage()), error);
+      ScriptEngine engine = createEngine();
+      if (engine.getFactory().getParameter(THREADING) != null) {
+        sharedRunner = new ScriptRunner(engine);
+      }
+      else {
+        log.trace("[{}] is not thread-safe, using up to {} engines", getLanguage(), maxEngines());
+        runnerPool = createPool();
+      }
     } catch (Exception e) {
       throw ExceptionHelper.wrapCoreException(e);
     }
@@ -84,6 +125,27 @@ public abstract class ScriptingServiceImp extends ServiceImp implements DynamicP
 
   @Override
   protected void closeService() {
+    if (runnerPool != null) {
+      runnerPool.close();
+    }
+    runnerPool = null;
+    sharedRunner = null;
+  }
+
+  private ScriptEngine createEngine() {
+    String error = String.format("getEngineByName('%s')", getLanguage());
+    return Args.notNull(fatController.getEngineByName(getLanguage()), error);
+  }
+
+  private GenericObjectPool<ScriptRunner> createPool() throws Exception {
+    GenericObjectPool<ScriptRunner> pool = new GenericObjectPool<>(new RunnerFactory());
+    pool.setMaxTotal(maxEngines());
+    pool.setMaxIdle(maxEngines());
+    pool.setMaxWaitMillis(-1L);
+    pool.setBlockWhenExhausted(true);
+    // So that the script is compiled now, rather than on the first message.
+    pool.addObject();
+    return pool;
   }
 
 
@@ -136,4 +198,97 @@ public abstract class ScriptingServiceImp extends ServiceImp implements DynamicP
     this.branchingEnabled = branching;
   }
 
+  public Integer getMaxEngines() {
+    return maxEngines;
+  }
+
+  /**
+   * Specify the maximum number of script engines if the engine is not thread-safe.
+   * <p>
+   * This has no effect if the script engine is thread-safe; in which case a single engine is shared by all threads.
+   * </p>
+   * 
+   * @param i the maximum number of engines, default is 10 if not specified.
+   * @since 3.10
+   */
+  public void setMaxEngines(Integer i) {
+    maxEngines = i;
+  }
+
+  int maxEngines() {
+    return NumberUtils.toIntDefaultIfNull(getMaxEngines(), DEFAULT_MAX_ENGINES);
+  }
+
+  // An engine and (if it supports it) its compiled copy of the script.
+  private class ScriptRunner {
+    private final ScriptEngine engine;
+    private volatile CompiledScript compiled;
+    private volatile long compiledVersion;
+
+    ScriptRunner(ScriptEngine engine) {
+      this.engine = engine;
+      if (engine instanceof Compilable) {
+        try {
+          compile(scriptVersion());
+        }
+        catch (Exception e) {
+          // Compilation is retried (and any error reported) when a message is processed.
+          log.warn("Failed to compile script : {}", e.getMessage());
+        }
+      }
+    }
+
+    void eval(AdaptrisMessage msg) throws IOException, ScriptException {
+      Bindings vars = engine.createBindings();
+      vars.put("message", msg);
+      vars.put("log", log);
+      CompiledScript script = compiledScript();
+      if (script != null) {
+        script.eval(vars);
+      }
+      else {
+        try (Reader input = createReader()) {
+          engine.eval(input, vars);
+        }
+      }
+    }
+
+    private CompiledScript compiledScript() throws IOException, ScriptException {
+      if (!(engine instanceof Compilable)) {
+        return null;
+      }
+      long version = scriptVersion();
+      CompiledScript script = compiled;
+      if (script == null || compiledVersion != version) {
+        script = compile(version);
+      }
+      return script;
+    }
+
+    private synchronized CompiledScript compile(long version) throws IOException, ScriptException {
+      if (compiled == null || compiledVersion != version) {
+        // Some engines (e.g. jruby) need to know about the variables when parsing, even though they are only bound later.
+        engine.put("message", null);
+        engine.put("log", log);
+        try (Reader input = createReader()) {
+          compiled = ((Compilable) engine).compile(input);
+          compiledVersion = version;
+        }
+      }
+      return compiled;
+    }
+  }
+
+  private class RunnerFactory extends BasePooledObjectFactory<ScriptRunner> {
+
+    @Override
+    public ScriptRunner create() throws Exception {
+      return new ScriptRunner(createEngine());
+    }
+
+    @Override
+    public PooledObject<ScriptRunner> wrap(ScriptRunner obj) {
+      return new DefaultPooledObject<>(obj);
+    }
+  }
 }
@@ -50,19 +50,58 @@ public class AppendingMessageAggregator extends MessageAggregatorImpl {
 
   @Override
   public void joinMessage(AdaptrisMessage orig, Collection<AdaptrisMessage> toAggregate) throws CoreException {
-    Collection<AdaptrisMessage> msgs = filter(toAggregate);
-    try (OutputStream out = orig.getOutputStream()) {
+    joinIncrementally(orig, toAggregate);
+  }
+
+  @Override
+  public MessageAggregation start(AdaptrisMessage orig) throws CoreException {
+    OutputStream out = null;
+    try {
+      out = orig.getOutputStream();
       try (InputStream in = orig.getInputStream()) {
         IOUtils.copy(in, out);
       }
-      for (AdaptrisMessage m : msgs) {
-        try (InputStream subIn = m.getInputStream()) {
-          IOUtils.copy(subIn, out);
-        }
-        overwriteMetadata(m, orig);
-      }
+      return new AppendingAggregation(orig, out);
     } catch (Exception e) {
+      IOUtils.closeQuietly(out);
       throw ExceptionHelper.wrapCoreException(e);
     }
   }
+
+  private class AppendingAggregation implements MessageAggregation {
+    private final AdaptrisMessage orig;
+    private final OutputStream out;
+
+    AppendingAggregation(AdaptrisMessage orig, OutputStream out) {
+      this.orig = orig;
+      this.out = out;
+    }
+
+    @Override
+    public void append(AdaptrisMessage m) throws CoreException {
+      if (!accept(m)) {
+        return;
+      }
+      try (InputStream subIn = m.getInputStream()) {
+        IOUtils.copy(subIn, out);
+      } catch (Exception e) {
+        throw ExceptionHelper.wrapCoreException(e);
+      }
+      overwriteMetadata(m, orig);
+    }
+
+    @Override
+    public void finish() throws CoreException {
+      try {
+        out.close();
+      } catch (Exception e) {
+        throw ExceptionHelper.wrapCoreException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(out);
+    }
+  }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.aggregator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageImp;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.lms.FileBackedMessage;
+import com.adaptris.core.lms.FileBackedMessageFactory;
+import com.adaptris.core.util.ExceptionHelper;
+
+/**
+ * {@link MessageAggregation} for aggregators that can only join a complete collection of messages.
+ * <p>
+ * Messages are held until {@link #finish()}; once the payloads that are held in memory exceed {@value #MAX_RETAINED_BYTES} bytes,
+ * subsequent messages are copied into file backed messages (using the original message's factory if that is a
+ * {@link FileBackedMessageFactory}) so that they are held on disk rather than in memory. The files for those copies are deleted
+ * when the aggregation is closed, rather than waiting for the copies to be garbage collected.
+ * </p>
+ *
+ * @since 3.10
+ */
+class CollectingAggregation implements MessageAggregation {
+
+  // The amount of payload to hold in memory before spilling messages to disk (10Mb)
+  static final long MAX_RETAINED_BYTES = 1024 * 1024 * 10;
+
+  private final MessageAggregator aggregator;
+  private final AdaptrisMessage original;
+  private final List<AdaptrisMessage> messages = new ArrayList<>();
+  // The copies that we made, as opposed to file backed messages that we were given.
+  private final List<FileBackedMessage> spilled = new ArrayList<>();
+  private FileBackedMessageFactory spillFactory;
+  private long retainedBytes = 0;
+
+  CollectingAggregation(MessageAggregator aggregator, AdaptrisMessage original) {
+    this.aggregator = aggregator;
+    this.original = original;
+  }
+
+  @Override
+  public void append(AdaptrisMessage msg) throws CoreException {
+    if (msg instanceof FileBackedMessage) {
+      messages.add(msg);
+    }
+    else if (retainedBytes + msg.getSize() <= MAX_RETAINED_BYTES) {
+      retainedBytes += msg.getSize();
+      messages.add(msg);
+    }
+    else {
+      messages.add(spill(msg));
+    }
+  }
+
+  @Override
+  public void finish() throws CoreException {
+    aggregator.joinMessage(original, messages);
+  }
+
+  @Override
+  public void close() {
+    messages.clear();
+    for (FileBackedMessage msg : spilled) {
+      FileUtils.deleteQuietly(msg.currentSource());
+    }
+    spilled.clear();
+  }
+
+  private AdaptrisMessage spill(AdaptrisMessage msg) throws CoreException {
+    try {
+      AdaptrisMessage copy = spillFactory().newMessage(msg, null);
+      copy.setContentEncoding(msg.getContentEncoding());
+      spilled.add((FileBackedMessage) copy);
+      AdaptrisMessageImp.copyPayload(msg, copy);
+      return copy;
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  private FileBackedMessageFactory spillFactory() {
+    if (spillFactory == null) {
+      spillFactory = original.getFactory() instanceof FileBackedMessageFactory
+          ? (FileBackedMessageFactory) original.getFactory()
+          : new FileBackedMessageFactory();
+    }
+    return spillFactory;
+  }
+
+  // For testing.
+  List<AdaptrisMessage> messages() {
+    return messages;
+  }
+}
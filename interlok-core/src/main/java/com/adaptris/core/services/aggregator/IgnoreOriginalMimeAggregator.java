@@ -16,14 +16,9 @@
 
 package com.adaptris.core.services.aggregator;
 
-import java.io.IOException;
-import javax.mail.MessagingException;
 import com.adaptris.annotation.ComponentProfile;
 import com.adaptris.annotation.DisplayOrder;
-import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreConstants;
-import com.adaptris.core.MetadataCollection;
-import com.adaptris.util.text.mime.MultiPartOutput;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
@@ -55,13 +50,7 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 public class IgnoreOriginalMimeAggregator extends MimeAggregator {
 
   @Override
-  protected MultiPartOutput createInitialPart(AdaptrisMessage original) throws MessagingException, IOException {
-    MultiPartOutput output =
-        new MultiPartOutput(original.getUniqueId(), mimeContentSubType(original));
-    MetadataCollection metadata = mimeHeaderFilter().filter(original);
-    metadata.forEach((e) -> {
-      output.setHeader(e.getKey(), e.getValue());
-    });
-    return output;
+  boolean ignoreOriginal() {
+    return true;
   }
 }
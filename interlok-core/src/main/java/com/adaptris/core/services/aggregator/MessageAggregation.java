@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.aggregator;
+
+import java.io.Closeable;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.CoreException;
+
+/**
+ * An aggregation in progress, as returned by {@link MessageAggregator#start(AdaptrisMessage)}.
+ * <p>
+ * Messages are appended one at a time, so that a caller does not need to hold every message that is to be aggregated in memory
+ * at once; once all the messages have been appended, {@link #finish()} completes the aggregation into the original message. It
+ * should always be closed; if it is closed without {@link #finish()} being called then the aggregation is abandoned, and the
+ * state of the original message is undefined.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * try (MessageAggregation aggregation = aggregator.start(msg)) {
+ *   for (AdaptrisMessage m : ...) {
+ *     aggregation.append(m);
+ *   }
+ *   aggregation.finish();
+ * }
+ * }
+ * </pre>
+ *
+ * @since 3.10
+ */
+public interface MessageAggregation extends Closeable {
+
+  /**
+   * Add a message to the aggregation.
+   * <p>
+   * Implementations should not assume that the message is still available once this method returns.
+   * </p>
+   *
+   * @param msg the message.
+   * @throws CoreException wrapping any other exception
+   */
+  void append(AdaptrisMessage msg) throws CoreException;
+
+  /**
+   * Complete the aggregation into the original message.
+   *
+   * @throws CoreException wrapping any other exception
+   */
+  void finish() throws CoreException;
+
+  /**
+   * Release any resources associated with this aggregation.
+   */
+  @Override
+  void close();
+}
@@ -41,4 +41,20 @@ public interface MessageAggregator {
    */
   void joinMessage(AdaptrisMessage msg, Collection<AdaptrisMessage> msgs) throws CoreException;
 
+  /**
+   * Start an incremental aggregation into the message.
+   * <p>
+   * The default implementation collects the appended messages, writing them to temporary files once they take up a significant
+   * amount of memory, and then calls {@link #joinMessage(AdaptrisMessage, Collection)} when the aggregation is finished.
+   * Implementations that can aggregate each message as it arrives should override this.
+   * </p>
+   *
+   * @param msg the msg to insert all the messages into
+   * @return an aggregation that messages can be appended to.
+   * @throws CoreException wrapping any other exception
+   * @since 3.10
+   */
+  default MessageAggregation start(AdaptrisMessage msg) throws CoreException {
+    return new CollectingAggregation(this, msg);
+  }
 }
@@ -60,6 +60,39 @@ public abstract class MessageAggregatorImpl implements MessageAggregator {
     return messages;
   }
 
+  /**
+   * Whether the message should be aggregated, based on the configured filter condition (if any).
+   *
+   * @param message the message.
+   * @return true if the message should be aggregated.
+   * @since 3.10
+   */
+  protected boolean accept(AdaptrisMessage message) {
+    return filterCondition == null || filter(message);
+  }
+
+  /**
+   * Join the messages by appending each of them in turn to a {@link MessageAggregation}.
+   * <p>
+   * This is intended for implementations that override {@link #start(AdaptrisMessage)} so that their
+   * {@link #joinMessage(AdaptrisMessage, Collection)} shares the same behaviour.
+   * </p>
+   *
+   * @param original the msg to insert all the messages into
+   * @param messages the list of messages to join.
+   * @throws CoreException wrapping any other exception
+   * @see #start(AdaptrisMessage)
+   * @since 3.10
+   */
+  protected void joinIncrementally(AdaptrisMessage original, Collection<AdaptrisMessage> messages) throws CoreException {
+    try (MessageAggregation aggregation = start(original)) {
+      for (AdaptrisMessage m : messages) {
+        aggregation.append(m);
+      }
+      aggregation.finish();
+    }
+  }
+
   protected boolean filter(AdaptrisMessage message) {
     try {
       return filterCondition.evaluate(message);
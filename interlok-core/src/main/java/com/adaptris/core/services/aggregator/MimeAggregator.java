@@ -21,7 +21,9 @@ import static com.adaptris.util.text.mime.MimeConstants.HEADER_CONTENT_TYPE;
 import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collection;
 import javax.mail.MessagingException;
@@ -30,6 +32,7 @@ import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeUtility;
 import javax.validation.Valid;
 import javax.validation.constraints.Pattern;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import com.adaptris.annotation.AdvancedConfig;
 import com.adaptris.annotation.ComponentProfile;
@@ -41,11 +44,14 @@ import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreConstants;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.MetadataCollection;
+import com.adaptris.core.MetadataElement;
+import com.adaptris.core.lms.FileBackedMessageFactory;
 import com.adaptris.core.metadata.MetadataFilter;
 import com.adaptris.core.metadata.RemoveAllMetadataFilter;
 import com.adaptris.core.util.ExceptionHelper;
 import com.adaptris.core.util.LoggingHelper;
 import com.adaptris.util.text.mime.MultiPartOutput;
+import com.adaptris.util.text.mime.StreamingMultiPartOutput;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
@@ -65,6 +71,16 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * multipart as the first part).
  * </p>
  * <p>
+ * Each message's payload is streamed into the multipart as it is aggregated; once the multipart becomes large it is written to a
+ * temporary file (in the temporary directory of the original message's factory if it is a
+ * {@link com.adaptris.core.lms.FileBackedMessageFactory}) until the aggregation is finished.
+ * </p>
+ * <p>
+ * Subclasses that still override the deprecated {@link #createBodyPart(AdaptrisMessage)} or
+ * {@link #createInitialPart(AdaptrisMessage)} must also override {@link #buildInMemory()} to return true for them to be called;
+ * in that case the parts are built in memory (as they were prior to 3.10) rather than being streamed.
+ * </p>
+ * <p>
  * As a result of this join operation, the message will be marked as MIME encoded using {@link com.adaptris.core.CoreConstants#MSG_MIME_ENCODED}
  * metadata.
  * </p>
@@ -118,22 +134,102 @@ public class MimeAggregator extends MessageAggregatorImpl {
 
   @Override
   public void joinMessage(AdaptrisMessage original, Collection<AdaptrisMessage> messages) throws CoreException {
+    if (buildInMemory()) {
+      joinInMemory(original, messages);
+    }
+    else {
+      joinIncrementally(original, messages);
+    }
+  }
+
+  @Override
+  public MessageAggregation start(AdaptrisMessage original) throws CoreException {
+    if (buildInMemory()) {
+      return new CollectingAggregation(this, original);
+    }
+    StreamingMultiPartOutput output = null;
     try {
-      MultiPartOutput output = createInitialPart(original);
-      for (AdaptrisMessage m : filter(messages)) {
-        output.addPart(createBodyPart(m), contentId(m));
-        overwriteMetadata(m, original);
-      }
-      try (OutputStream out = original.getOutputStream()) {
-        output.writeTo(out);
+      output = new StreamingMultiPartOutput(original.getUniqueId(), mimeContentSubType(original), tempFile(original));
+      MetadataCollection metadata = mimeHeaderFilter().filter(original);
+      for (MetadataElement e : metadata) {
+        output.setHeader(e.getKey(), e.getValue());
       }
-      original.addMetadata(CoreConstants.MSG_MIME_ENCODED, Boolean.TRUE.toString());
+      addInitialPart(original, output);
+      return new MimeAggregation(original, output);
     }
     catch (Exception e) {
+      IOUtils.closeQuietly(output);
       throw ExceptionHelper.wrapCoreException(e);
     }
   }
 
+  /**
+   * Add the original message as the first part of the multipart.
+   *
+   * @param original the original message.
+   * @param output the multipart.
+   * @since 3.10
+   */
+  protected void addInitialPart(AdaptrisMessage original, StreamingMultiPartOutput output)
+      throws MessagingException, IOException {
+    if (!ignoreOriginal()) {
+      addPart(original, output);
+    }
+  }
+
+  // Whether the original message is left out of the multipart.
+  boolean ignoreOriginal() {
+    return false;
+  }
+
+  /**
+   * Stream the message's payload into the multipart as a new part.
+   *
+   * @param msg the message.
+   * @param output the multipart.
+   * @since 3.10
+   */
+  protected void addPart(AdaptrisMessage msg, StreamingMultiPartOutput output) throws MessagingException, IOException {
+    InternetHeaders hdrs = new InternetHeaders();
+    hdrs.addHeader(HEADER_CONTENT_TYPE, contentType(msg));
+    MetadataCollection metadata = partHeaderFilter().filter(msg);
+    metadata.forEach((e) -> {
+      hdrs.addHeader(e.getKey(), e.getValue());
+    });
+    try (InputStream in = msg.getInputStream()) {
+      output.addPart(in, getEncoding(), hdrs, contentId(msg));
+    }
+  }
+
+  /**
+   * Whether to build the multipart in memory using {@link #createInitialPart(AdaptrisMessage)} and
+   * {@link #createBodyPart(AdaptrisMessage)} rather than streaming it.
+   * <p>
+   * Subclasses that override either of those deprecated methods need to override this to return true, otherwise their overrides
+   * are not called.
+   * </p>
+   *
+   * @return false by default.
+   * @deprecated since 3.10 only for subclasses that override the deprecated methods; override
+   *             {@link #addPart(AdaptrisMessage, StreamingMultiPartOutput)} instead.
+   */
+  @Deprecated
+  @Removal(version = "3.11.0", message = "override addPart(AdaptrisMessage, StreamingMultiPartOutput) instead")
+  protected boolean buildInMemory() {
+    return false;
+  }
+
+  /**
+   * Create the part for a message in memory.
+   * <p>
+   * This is only used if {@link #buildInMemory()} is true.
+   * </p>
+   *
+   * @deprecated since 3.10 parts are now streamed into the multipart; override {@link #addPart(AdaptrisMessage,
+   *             StreamingMultiPartOutput)} instead.
+   */
+  @Deprecated
+  @Removal(version = "3.11.0", message = "override addPart(AdaptrisMessage, StreamingMultiPartOutput) instead")
   protected MimeBodyPart createBodyPart(AdaptrisMessage msg) throws MessagingException, IOException {
     InternetHeaders hdrs = new InternetHeaders();
     byte[] encodedData = encodeData(msg.getPayload(), getEncoding(), hdrs);
@@ -145,6 +241,17 @@ public class MimeAggregator extends MessageAggregatorImpl {
     return new MimeBodyPart(hdrs, encodedData);
   }
 
+  /**
+   * Create the multipart in memory, with the original message as the first part.
+   * <p>
+   * This is only used if {@link #buildInMemory()} is true.
+   * </p>
+   *
+   * @deprecated since 3.10 parts are now streamed into the multipart; override
+   *             {@link #addInitialPart(AdaptrisMessage, StreamingMultiPartOutput)} instead.
+   */
+  @Deprecated
+  @Removal(version = "3.11.0", message = "override addInitialPart(AdaptrisMessage, StreamingMultiPartOutput) instead")
   protected MultiPartOutput createInitialPart(AdaptrisMessage original) throws MessagingException, IOException {
     MultiPartOutput output =
         new MultiPartOutput(original.getUniqueId(), mimeContentSubType(original));
@@ -152,10 +259,37 @@ public class MimeAggregator extends MessageAggregatorImpl {
     metadata.forEach((e) -> {
       output.setHeader(e.getKey(), e.getValue());
     });
-    output.addPart(createBodyPart(original), contentId(original));
+    if (!ignoreOriginal()) {
+      output.addPart(createBodyPart(original), contentId(original));
+    }
     return output;
   }
 
+  private void joinInMemory(AdaptrisMessage original, Collection<AdaptrisMessage> messages) throws CoreException {
+    try {
+      MultiPartOutput output = createInitialPart(original);
+      for (AdaptrisMessage m : filter(messages)) {
+        output.addPart(createBodyPart(m), contentId(m));
+        overwriteMetadata(m, original);
+      }
+      try (OutputStream out = original.getOutputStream()) {
+        output.writeTo(out);
+      }
+      original.addMetadata(CoreConstants.MSG_MIME_ENCODED, Boolean.TRUE.toString());
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  // If we are file backed, then lets assume we're large, and use the factory's temporary directory.
+  private static File tempFile(AdaptrisMessage msg) throws IOException {
+    if (msg.getFactory() instanceof FileBackedMessageFactory) {
+      return ((FileBackedMessageFactory) msg.getFactory()).createTempFile(msg);
+    }
+    return null;
+  }
+
   /**
    * @return the encoding
    */
@@ -344,6 +478,46 @@ public class MimeAggregator extends MessageAggregatorImpl {
     return defaultIfBlank(type, DEFAULT_CONTENT_TYPE);
   }
 
+  private class MimeAggregation implements MessageAggregation {
+    private final AdaptrisMessage original;
+    private final StreamingMultiPartOutput output;
+
+    MimeAggregation(AdaptrisMessage original, StreamingMultiPartOutput output) {
+      this.original = original;
+      this.output = output;
+    }
+
+    @Override
+    public void append(AdaptrisMessage m) throws CoreException {
+      if (!accept(m)) {
+        return;
+      }
+      try {
+        addPart(m, output);
+        overwriteMetadata(m, original);
+      }
+      catch (Exception e) {
+        throw ExceptionHelper.wrapCoreException(e);
+      }
+    }
+
+    @Override
+    public void finish() throws CoreException {
+      try (OutputStream out = original.getOutputStream()) {
+        output.writeTo(out);
+      }
+      catch (Exception e) {
+        throw ExceptionHelper.wrapCoreException(e);
+      }
+      original.addMetadata(CoreConstants.MSG_MIME_ENCODED, Boolean.TRUE.toString());
+    }
+
+    @Override
+    public void close() {
+      output.close();
+    }
+  }
+
   protected String contentId(AdaptrisMessage msg) {
     String id = null;
     if (!isBlank(getPartContentIdMetadataKey())) {
@@ -44,4 +44,24 @@ public class NullMessageAggregator implements MessageAggregator {
   public void joinMessage(AdaptrisMessage msg, Collection<AdaptrisMessage> msgs) throws CoreException {
     // Nothing to do.
   }
+
+  @Override
+  public MessageAggregation start(AdaptrisMessage msg) throws CoreException {
+    return new MessageAggregation() {
+      @Override
+      public void append(AdaptrisMessage m) {
+        // Nothing to do.
+      }
+
+      @Override
+      public void finish() {
+        // Nothing to do.
+      }
+
+      @Override
+      public void close() {
+        // Nothing to do.
+      }
+    };
+  }
 }
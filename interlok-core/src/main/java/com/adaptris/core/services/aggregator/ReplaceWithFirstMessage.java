@@ -21,7 +21,6 @@ import static org.apache.commons.io.IOUtils.copy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.Collection;
 
 import com.adaptris.core.AdaptrisMessage;
@@ -47,13 +46,37 @@ public class ReplaceWithFirstMessage extends MessageAggregatorImpl {
 
   @Override
   public void joinMessage(AdaptrisMessage msg, Collection<AdaptrisMessage> msgs) throws CoreException {
-    if (msgs.size() == 0) {
-      // Ha, nothing to do.
-      return;
-    }
-    AdaptrisMessage first = new ArrayList<AdaptrisMessage>(filter(msgs)).get(0);
-    overwrite(first, msg);
-    overwriteMetadata(first, msg);
+    joinIncrementally(msg, msgs);
+  }
+
+  @Override
+  public MessageAggregation start(AdaptrisMessage msg) throws CoreException {
+    return new MessageAggregation() {
+      // Only the first message is kept, everything else is ignored.
+      private AdaptrisMessage first;
+
+      @Override
+      public void append(AdaptrisMessage m) {
+        if (first == null && accept(m)) {
+          first = m;
+        }
+      }
+
+      @Override
+      public void finish() throws CoreException {
+        if (first == null) {
+          // Ha, nothing to do.
+          return;
+        }
+        overwrite(first, msg);
+        overwriteMetadata(first, msg);
+      }
+
+      @Override
+      public void close() {
+        first = null;
+      }
+    };
   }
 
   private void overwrite(AdaptrisMessage src, AdaptrisMessage target) throws CoreException {
@@ -36,7 +36,8 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * 
  * <p>
  * The original pre-split document forms the basis of the resulting document; each of the split documents is merged into the main
- * document using the configured {@link DocumentMerge} function.
+ * document using the configured {@link DocumentMerge} function. Each split document is merged as it is aggregated, so only the
+ * resulting document is held in memory.
  * </p>
  * <p>
  * Use {@link #setDocumentEncoding(String)} to force the encoding of the resulting XML document to the required value; if not set,
@@ -69,20 +70,30 @@ public class XmlDocumentAggregator extends MessageAggregatorImpl {
 
   @Override
   public void joinMessage(AdaptrisMessage original, Collection<AdaptrisMessage> messages) throws CoreException {
+    joinIncrementally(original, messages);
+  }
+
+  @Override
+  public MessageAggregation start(AdaptrisMessage original) throws CoreException {
     try {
-      Document resultDoc = XmlHelper.createDocument(original, documentFactoryBuilder());
-      for (AdaptrisMessage m : filter(messages)) {
-        Document mergeDoc = XmlHelper.createDocument(m, documentFactoryBuilder());
-        overwriteMetadata(m, original);
-        resultDoc = getMergeImplementation().merge(resultDoc, mergeDoc);
-      }
-      XmlHelper.writeXmlDocument(resultDoc, original, getDocumentEncoding());
+      return new XmlAggregation(original, initialDocument(original));
     }
     catch (Exception e) {
-      ExceptionHelper.rethrowCoreException(e);
+      throw ExceptionHelper.wrapCoreException(e);
     }
   }
 
+  /**
+   * Create the document that each of the split documents will be merged into.
+   *
+   * @param original the original message.
+   * @return the document, by default the original message's payload.
+   * @since 3.10
+   */
+  protected Document initialDocument(AdaptrisMessage original) throws Exception {
+    return XmlHelper.createDocument(original, documentFactoryBuilder());
+  }
+
   /**
    * @return the documentEncoding
    */
@@ -127,4 +138,44 @@ public class XmlDocumentAggregator extends MessageAggregatorImpl {
   DocumentBuilderFactoryBuilder documentFactoryBuilder() {
     return DocumentBuilderFactoryBuilder.newInstanceIfNull(getXmlDocumentFactoryConfig());
   }
+
+  private class XmlAggregation implements MessageAggregation {
+    private final AdaptrisMessage original;
+    private Document resultDoc;
+
+    XmlAggregation(AdaptrisMessage original, Document initial) {
+      this.original = original;
+      resultDoc = initial;
+    }
+
+    @Override
+    public void append(AdaptrisMessage m) throws CoreException {
+      if (!accept(m)) {
+        return;
+      }
+      try {
+        Document mergeDoc = XmlHelper.createDocument(m, documentFactoryBuilder());
+        overwriteMetadata(m, original);
+        resultDoc = getMergeImplementation().merge(resultDoc, mergeDoc);
+      }
+      catch (Exception e) {
+        ExceptionHelper.rethrowCoreException(e);
+      }
+    }
+
+    @Override
+    public void finish() throws CoreException {
+      try {
+        XmlHelper.writeXmlDocument(resultDoc, original, getDocumentEncoding());
+      }
+      catch (Exception e) {
+        ExceptionHelper.rethrowCoreException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      resultDoc = null;
+    }
+  }
 }
@@ -17,10 +17,14 @@
 package com.adaptris.core.services.aggregator;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.IOUtils;
+
 import com.adaptris.annotation.DisplayOrder;
 import com.adaptris.annotation.InputFieldDefault;
 import com.adaptris.core.AdaptrisMessage;
@@ -39,6 +43,8 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * <p>Each message returned by the split needs to set a value of key returned by {@link #getFilenameMetadata()}, if the
  * a value is not set the message will be ignored. If the filenames are not unique an exception will be thrown.</p>
  *
+ * <p>Each message's payload is streamed into the zip as it is aggregated, so the messages do not need to be held in memory.</p>
+ *
  * @config zip-aggregator
  * @author mwarman
  *
@@ -61,20 +67,18 @@ public class ZipAggregator extends MessageAggregatorImpl {
 
   @Override
   public void joinMessage(AdaptrisMessage msg, Collection<AdaptrisMessage> msgs) throws CoreException {
-    try (ZipOutputStream zipOutputStream = new ZipOutputStream(msg.getOutputStream())) {
-      for (AdaptrisMessage message : filter(msgs)){
-        if(message.getMessageHeaders().containsKey(filenameMetadata())) {
-          zipOutputStream.putNextEntry(new ZipEntry(message.getMetadataValue(filenameMetadata())));
-          zipOutputStream.write(message.getPayload());
-          zipOutputStream.closeEntry();
-        }
-      }
+    joinIncrementally(msg, msgs);
+  }
+
+  @Override
+  public MessageAggregation start(AdaptrisMessage msg) throws CoreException {
+    try {
+      return new ZipAggregation(msg.getOutputStream());
     } catch (IOException e) {
       throw ExceptionHelper.wrapCoreException(e);
     }
   }
 
-
   public void setFilenameMetadata(String filenameMetadata) {
     this.filenameMetadata = filenameMetadata;
   }
@@ -91,4 +95,40 @@ public class ZipAggregator extends MessageAggregatorImpl {
   String filenameMetadata(){
     return getFilenameMetadata() != null ? getFilenameMetadata() : DEFAULT_FILENAME_METADATA;
   }
+
+  private class ZipAggregation implements MessageAggregation {
+    private final ZipOutputStream zipOutputStream;
+
+    ZipAggregation(OutputStream out) {
+      zipOutputStream = new ZipOutputStream(out);
+    }
+
+    @Override
+    public void append(AdaptrisMessage message) throws CoreException {
+      if (!accept(message) || !message.getMessageHeaders().containsKey(filenameMetadata())) {
+        return;
+      }
+      try (InputStream in = message.getInputStream()) {
+        zipOutputStream.putNextEntry(new ZipEntry(message.getMetadataValue(filenameMetadata())));
+        IOUtils.copy(in, zipOutputStream);
+        zipOutputStream.closeEntry();
+      } catch (IOException e) {
+        throw ExceptionHelper.wrapCoreException(e);
+      }
+    }
+
+    @Override
+    public void finish() throws CoreException {
+      try {
+        zipOutputStream.close();
+      } catch (IOException e) {
+        throw ExceptionHelper.wrapCoreException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(zipOutputStream);
+    }
+  }
 }
@@ -12,14 +12,15 @@ import com.adaptris.core.ServiceException;
 import com.adaptris.core.ServiceImp;
 import com.adaptris.core.util.Args;
 import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.core.util.ManagedExecutors;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -124,7 +125,7 @@ public class ForEach extends ServiceImp
 	@Override
 	public void doService(AdaptrisMessage msg) throws ServiceException
 	{
-		ThreadPoolExecutor executor = null;
+		ExecutorService executor = null;
 
 		try
 		{
@@ -145,7 +146,7 @@ public class ForEach extends ServiceImp
 					threads = message.getPayloadCount();
 				}
 				log.trace("Using {} thread{}", threads, threads > 1 ? "s" : "");
-				executor = (ThreadPoolExecutor)Executors.newFixedThreadPool(threads);
+				executor = ManagedExecutors.newFixedThreadPool(threads, Executors.defaultThreadFactory(), getClass().getSimpleName());
 
 				for (String id : message.getPayloadIDs())
 				{
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.util.NumberUtils;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * {@link DuplicateStore} implementation that uses a scalable Bloom filter.
+ * <p>
+ * A Bloom filter uses a fixed number of bits per value regardless of the size of the value, and can never report a value that
+ * has been stored as unique; it may however report a value that has never been stored as a duplicate, at approximately the
+ * configured false positive rate. Values are stored in a series of filters: when the current filter has held
+ * {@link #setExpectedInsertions(Integer)} values, a new filter with twice the capacity and half the false positive rate is started
+ * so that the overall false positive rate stays within the configured rate however many values are stored.
+ * </p>
+ * <p>
+ * If a {@link #setTimeWindow(com.adaptris.util.TimeInterval)} is configured, then a new filter is also started at intervals of a
+ * quarter of the window, and each filter is discarded once the last value stored in it is older than the window. Values are
+ * remembered for at least the window, but possibly up to a quarter of the window longer.
+ * </p>
+ * <p>
+ * If a {@link #setStoreFileUrl(String)} is configured, then the filters are written to it when this store is closed, and read
+ * back when it is initialised; values stored since the last time it was closed are lost if the adapter is not shutdown cleanly.
+ * Use {@link ExactDuplicateStore} if that is not acceptable.
+ * </p>
+ *
+ * @config bloom-filter-duplicate-store
+ * @since 3.10
+ */
+@XStreamAlias("bloom-filter-duplicate-store")
+@DisplayOrder(order = {"expectedInsertions", "falsePositiveRate", "timeWindow", "storeFileUrl"})
+public class BloomFilterDuplicateStore extends DuplicateStoreImpl {
+
+  private static final int DEFAULT_EXPECTED_INSERTIONS = 100000;
+  private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001d;
+  private static final int TIME_SLICES = 4;
+  private static final int MAGIC = 0x49424644;
+  private static final int VERSION = 1;
+
+  @InputFieldDefault(value = "100000")
+  private Integer expectedInsertions;
+  @AdvancedConfig
+  @InputFieldDefault(value = "0.001")
+  private Double falsePositiveRate;
+
+  // Oldest first, the last filter is the one that is currently being written to.
+  private transient List<Filter> filters = new CopyOnWriteArrayList<>();
+
+  public BloomFilterDuplicateStore() {
+  }
+
+  @Override
+  public void init() throws CoreException {
+    filters = new CopyOnWriteArrayList<>();
+    try {
+      if (expectedInsertions() < 1) {
+        throw new IllegalArgumentException("expectedInsertions must be greater than 0");
+      }
+      if (falsePositiveRate() <= 0 || falsePositiveRate() >= 1) {
+        throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+      }
+      filters.addAll(read(storeFile()));
+      if (filters.isEmpty()) {
+        filters.add(new Filter(expectedInsertions(), initialFalsePositiveRate(), System.currentTimeMillis()));
+      }
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    // Nothing to write if we were never successfully initialised; don't overwrite whatever was there.
+    if (filters.isEmpty()) {
+      return;
+    }
+    try {
+      write(storeFile());
+    }
+    catch (Exception e) {
+      log.warn("Failed to write [{}], previously stored values will be lost upon restart", getStoreFileUrl(), e);
+    }
+  }
+
+  @Override
+  public boolean contains(String value) {
+    return contains(hash(value), System.currentTimeMillis());
+  }
+
+  @Override
+  public boolean add(String value) {
+    long[] hash = hash(value);
+    long now = System.currentTimeMillis();
+    if (contains(hash, now)) {
+      return false;
+    }
+    Filter target = current(now);
+    // Setting the bits is atomic, so if several threads add the same value only one of them changes any bits. The other filters
+    // are checked again afterwards in case another thread added it to a different filter while the current one was replaced.
+    return target.put(hash, now) && !contains(hash, now, target);
+  }
+
+  private boolean contains(long[] hash, long now) {
+    return contains(hash, now, null);
+  }
+
+  private boolean contains(long[] hash, long now, Filter exclude) {
+    for (Filter f : filters) {
+      if (f != exclude && !expired(f.lastWrite, now) && f.mightContain(hash)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Filter current(long now) {
+    Filter f = filters.get(filters.size() - 1);
+    return f.needsReplacing(now, timeWindowMs()) ? replace(now) : f;
+  }
+
+  // Rare, so a lock is fine; checking and adding is lock free.
+  private synchronized Filter replace(long now) {
+    Filter current = filters.get(filters.size() - 1);
+    if (!current.needsReplacing(now, timeWindowMs())) {
+      return current;
+    }
+    Filter next = current.isFull()
+        ? new Filter(current.capacity * 2, current.falsePositiveRate / 2, now)
+        : new Filter(expectedInsertions(), initialFalsePositiveRate(), now);
+    filters.add(next);
+    for (Filter f : filters) {
+      if (f != next && expired(f.lastWrite, now)) {
+        filters.remove(f);
+      }
+    }
+    return next;
+  }
+
+  // The rate for the first filter in a series, such that the sum of the rates of all the filters that could be in use at once
+  // (1 + 1/2 + 1/4 ... for each time slice, and the partially filled slice) is no more than the configured rate.
+  private double initialFalsePositiveRate() {
+    int concurrentSeries = timeWindowMs() > 0 ? TIME_SLICES + 1 : 1;
+    return falsePositiveRate() / (2 * concurrentSeries);
+  }
+
+  private List<Filter> read(File file) throws IOException {
+    List<Filter> result = new ArrayList<>();
+    if (file == null || !file.exists()) {
+      return result;
+    }
+    long now = System.currentTimeMillis();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("[" + file.getAbsolutePath() + "] is not a bloom filter store");
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        Filter f = Filter.read(in);
+        if (!expired(f.lastWrite, now)) {
+          result.add(f);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void write(File file) throws IOException {
+    if (file == null) {
+      return;
+    }
+    File tmp = new File(file.getAbsolutePath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      List<Filter> snapshot = new ArrayList<>(filters);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(snapshot.size());
+      for (Filter f : snapshot) {
+        f.write(out);
+      }
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public Integer getExpectedInsertions() {
+    return expectedInsertions;
+  }
+
+  /**
+   * Set the number of values the first filter is sized for.
+   * <p>
+   * If more values are stored, then additional filters are created as required; this is less efficient than sizing the initial
+   * filter correctly, but there is no upper limit. If {@link #setTimeWindow(com.adaptris.util.TimeInterval)} is configured then
+   * this should be roughly the number of values expected in a quarter of the window.
+   * </p>
+   *
+   * @param i the expected number of values, default is 100000.
+   */
+  public void setExpectedInsertions(Integer i) {
+    expectedInsertions = i;
+  }
+
+  public BloomFilterDuplicateStore withExpectedInsertions(Integer i) {
+    setExpectedInsertions(i);
+    return this;
+  }
+
+  int expectedInsertions() {
+    return NumberUtils.toIntDefaultIfNull(getExpectedInsertions(), DEFAULT_EXPECTED_INSERTIONS);
+  }
+
+  public Double getFalsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  /**
+   * Set the acceptable rate at which unique values are reported as duplicates.
+   *
+   * @param d the rate, which must be between 0 and 1; the default is 0.001 (i.e. 1 in 1000).
+   */
+  public void setFalsePositiveRate(Double d) {
+    falsePositiveRate = d;
+  }
+
+  public BloomFilterDuplicateStore withFalsePositiveRate(Double d) {
+    setFalsePositiveRate(d);
+    return this;
+  }
+
+  double falsePositiveRate() {
+    return getFalsePositiveRate() != null ? getFalsePositiveRate().doubleValue() : DEFAULT_FALSE_POSITIVE_RATE;
+  }
+
+  int filterCount() {
+    return filters.size();
+  }
+
+  /**
+   * Hash the value into 2 x 64 bit hashes (MurmurHash3 x64 128), from which the bit positions are derived.
+   */
+  static long[] hash(String value) {
+    byte[] data = value.getBytes(StandardCharsets.UTF_8);
+    final long c1 = 0x87c37b91114253d5L;
+    final long c2 = 0x4cf5ad432745937fL;
+    long h1 = 0;
+    long h2 = 0;
+    int blocks = data.length / 16;
+    for (int i = 0; i < blocks; i++) {
+      long k1 = getLong(data, i * 16);
+      long k2 = getLong(data, i * 16 + 8);
+      h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+      h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+      h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+      h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+    }
+    long k1 = 0;
+    long k2 = 0;
+    int tail = blocks * 16;
+    for (int i = data.length - 1; i >= tail; i--) {
+      long b = data[i] & 0xffL;
+      if (i - tail >= 8) {
+        k2 ^= b << ((i - tail - 8) * 8);
+      }
+      else {
+        k1 ^= b << ((i - tail) * 8);
+      }
+    }
+    h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+    h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+    h1 ^= data.length;
+    h2 ^= data.length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix(h1);
+    h2 = fmix(h2);
+    h1 += h2;
+    h2 += h1;
+    return new long[] {h1, h2};
+  }
+
+  private static long getLong(byte[] data, int offset) {
+    long result = 0;
+    for (int i = 7; i >= 0; i--) {
+      result = (result << 8) | (data[offset + i] & 0xffL);
+    }
+    return result;
+  }
+
+  private static long fmix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static class Filter {
+    private final long capacity;
+    private final double falsePositiveRate;
+    private final long created;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLongArray bits;
+    private final AtomicLong count = new AtomicLong();
+    private volatile long lastWrite;
+
+    Filter(long capacity, double falsePositiveRate, long created) {
+      this(capacity, falsePositiveRate, created,
+          Math.max(64, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)))));
+    }
+
+    private Filter(long capacity, double falsePositiveRate, long created, long bitCount) {
+      this.capacity = capacity;
+      this.falsePositiveRate = falsePositiveRate;
+      this.created = created;
+      this.lastWrite = created;
+      this.bitCount = bitCount;
+      hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+      bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+    boolean isFull() {
+      return count.get() >= capacity;
+    }
+
+    boolean needsReplacing(long now, long window) {
+      return isFull() || window > 0 && now - created > window / TIME_SLICES;
+    }
+
+    boolean mightContain(long[] hash) {
+      for (int i = 0; i < hashCount; i++) {
+        long index = index(hash, i);
+        if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Set the bits for the hash.
+     *
+     * @return true if any bits changed, i.e. the value was definitely not already in this filter.
+     */
+    boolean put(long[] hash, long now) {
+      boolean changed = false;
+      for (int i = 0; i < hashCount; i++) {
+        long index = index(hash, i);
+        long mask = 1L << index;
+        long old = bits.getAndUpdate((int) (index >>> 6), w -> w | mask);
+        changed |= (old & mask) == 0;
+      }
+      if (changed) {
+        count.incrementAndGet();
+      }
+      lastWrite = now;
+      return changed;
+    }
+
+    // Kirsch-Mitzenmacher; derive each bit position from the 2 hashes.
+    private long index(long[] hash, int i) {
+      return Math.floorMod(hash[0] + i * hash[1], bitCount);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeLong(capacity);
+      out.writeDouble(falsePositiveRate);
+      out.writeLong(created);
+      out.writeLong(lastWrite);
+      out.writeLong(count.get());
+      out.writeLong(bitCount);
+      for (int i = 0; i < bits.length(); i++) {
+        out.writeLong(bits.get(i));
+      }
+    }
+
+    static Filter read(DataInputStream in) throws IOException {
+      long capacity = in.readLong();
+      double falsePositiveRate = in.readDouble();
+      long created = in.readLong();
+      long lastWrite = in.readLong();
+      long count = in.readLong();
+      Filter f = new Filter(capacity, falsePositiveRate, created, in.readLong());
+      for (int i = 0; i < f.bits.length(); i++) {
+        f.bits.set(i, in.readLong());
+      }
+      f.count.set(count);
+      f.lastWrite = lastWrite;
+      return f;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import com.adaptris.core.ComponentLifecycle;
+import com.adaptris.core.CoreException;
+
+/**
+ * A store of previously seen values, used to detect duplicates.
+ * <p>
+ * Implementations are expected to be safe for use by multiple threads, and to be able to check a value in constant time
+ * regardless of how many values have been stored.
+ * </p>
+ *
+ * @see DuplicateValueBranchingService
+ * @since 3.10
+ */
+public interface DuplicateStore extends ComponentLifecycle {
+
+  /**
+   * Whether or not the value has previously been stored.
+   *
+   * @param value the value.
+   * @return true if the value has been stored (and not since expired).
+   */
+  boolean contains(String value);
+
+  /**
+   * Store the value.
+   *
+   * @param value the value.
+   * @return true if the value had not previously been stored, false if it is a duplicate.
+   * @throws CoreException if the value could not be stored.
+   */
+  boolean add(String value) throws CoreException;
+
+}
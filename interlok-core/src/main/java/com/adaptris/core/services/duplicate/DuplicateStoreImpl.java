@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import java.io.File;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.fs.FsHelper;
+import com.adaptris.util.TimeInterval;
+
+/**
+ * Base class for {@link DuplicateStore} implementations.
+ *
+ * @since 3.10
+ */
+public abstract class DuplicateStoreImpl implements DuplicateStore {
+
+  protected transient Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private String storeFileUrl;
+  @AdvancedConfig
+  private TimeInterval timeWindow;
+
+  @Override
+  public void start() throws CoreException {
+  }
+
+  @Override
+  public void stop() {
+  }
+
+  /**
+   * Return the file configured by {@link #setStoreFileUrl(String)}.
+   *
+   * @return the file, or null if no store is configured.
+   */
+  protected File storeFile() throws Exception {
+    return StringUtils.isBlank(getStoreFileUrl()) ? null : FsHelper.toFile(getStoreFileUrl());
+  }
+
+  /**
+   * Whether a value stored at the specified time has expired.
+   *
+   * @param stored the time the value was stored.
+   * @param now the current time.
+   * @return true if {@link #setTimeWindow(TimeInterval)} is configured and has elapsed.
+   */
+  protected boolean expired(long stored, long now) {
+    long window = timeWindowMs();
+    return window > 0 && now - stored > window;
+  }
+
+  protected long timeWindowMs() {
+    return getTimeWindow() != null ? getTimeWindow().toMilliseconds() : 0;
+  }
+
+  public String getStoreFileUrl() {
+    return storeFileUrl;
+  }
+
+  /**
+   * Set the file used to persist stored values in the form of a file URL, e.g. {@code file:////Users/adaptris/store.dat}.
+   *
+   * @param s the file URL; if not specified, then values are only held in memory and are lost on restart.
+   */
+  public void setStoreFileUrl(String s) {
+    storeFileUrl = s;
+  }
+
+  public <T extends DuplicateStoreImpl> T withStoreFileUrl(String s) {
+    setStoreFileUrl(s);
+    return (T) this;
+  }
+
+  public TimeInterval getTimeWindow() {
+    return timeWindow;
+  }
+
+  /**
+   * Set how long a value is remembered for.
+   *
+   * @param t the time window, if not specified then values are remembered indefinitely (subject to any other limits imposed by
+   *          the implementation).
+   */
+  public void setTimeWindow(TimeInterval t) {
+    timeWindow = t;
+  }
+
+  public <T extends DuplicateStoreImpl> T withTimeWindow(TimeInterval t) {
+    setTimeWindow(t);
+    return (T) this;
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.lang3.BooleanUtils;
+
+import com.adaptris.annotation.AdapterComponent;
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.ComponentProfile;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.BranchingServiceImp;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.ServiceException;
+import com.adaptris.core.util.Args;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.core.util.LifecycleHelper;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * Branching {@link com.adaptris.core.Service} implementation which checks the value stored against a configured metadata key
+ * against a {@link DuplicateStore} of previously received values.
+ * <p>
+ * The service obeys the following rules when checking the metadata key
+ * <ul>
+ * <li>If the looked-up value is null or empty, a {@link ServiceException} is thrown.</li>
+ * <li>If the value has previously been stored, the configured <code>nextServiceIdIfDuplicate</code> is set on the message.</li>
+ * <li>Otherwise <code>nextServiceIdIfUnique</code> is set and (unless {@link #setStoreUniqueValues(Boolean)} is false) the value
+ * is stored for future checking.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Unlike {@link CheckMetadataValueService} and {@link StoreMetadataValueService}, checking a value doesn't depend on how many
+ * values have been stored; use {@link ExactDuplicateStore} if no false positives can be tolerated, or
+ * {@link BloomFilterDuplicateStore} if memory use is more important.
+ * </p>
+ *
+ * @config duplicate-value-branching-service
+ * @since 3.10
+ */
+@XStreamAlias("duplicate-value-branching-service")
+@AdapterComponent
+@ComponentProfile(summary = "Perform a branch based on whether a metadata value has already been received",
+    tag = "service,duplicate,branching", branchSelector = true)
+@DisplayOrder(order = {"metadataKey", "nextServiceIdIfUnique", "nextServiceIdIfDuplicate", "duplicateStore",
+    "storeUniqueValues"})
+public class DuplicateValueBranchingService extends BranchingServiceImp {
+
+  @NotBlank
+  private String metadataKey;
+  @NotBlank
+  private String nextServiceIdIfDuplicate;
+  @NotBlank
+  private String nextServiceIdIfUnique;
+  @NotNull
+  @Valid
+  private DuplicateStore duplicateStore;
+  @AdvancedConfig
+  @InputFieldDefault(value = "true")
+  private Boolean storeUniqueValues;
+
+  public DuplicateValueBranchingService() {
+  }
+
+  @Override
+  protected void initService() throws CoreException {
+    try {
+      Args.notBlank(getMetadataKey(), "metadataKey");
+      Args.notBlank(getNextServiceIdIfDuplicate(), "nextServiceIdIfDuplicate");
+      Args.notBlank(getNextServiceIdIfUnique(), "nextServiceIdIfUnique");
+      Args.notNull(getDuplicateStore(), "duplicateStore");
+      LifecycleHelper.init(getDuplicateStore());
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  @Override
+  public void start() throws CoreException {
+    super.start();
+    LifecycleHelper.start(getDuplicateStore());
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    LifecycleHelper.stop(getDuplicateStore());
+  }
+
+  @Override
+  protected void closeService() {
+    LifecycleHelper.close(getDuplicateStore());
+  }
+
+  @Override
+  public void prepare() throws CoreException {
+  }
+
+  @Override
+  public void doService(AdaptrisMessage msg) throws ServiceException {
+    try {
+      String value = Args.notBlank(msg.getMetadataValue(getMetadataKey()), "metadataValue");
+      boolean unique = storeUniqueValues() ? getDuplicateStore().add(value) : !getDuplicateStore().contains(value);
+      if (unique) {
+        log.debug("unique value [{}] received", value);
+        msg.setNextServiceId(getNextServiceIdIfUnique());
+      }
+      else {
+        log.warn("Value [{}] stored against [{}] has previously been received", value, getMetadataKey());
+        msg.setNextServiceId(getNextServiceIdIfDuplicate());
+      }
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapServiceException(e);
+    }
+  }
+
+  public String getMetadataKey() {
+    return metadataKey;
+  }
+
+  /**
+   * Set the metadata key whose value should be checked.
+   *
+   * @param s the metadata key.
+   */
+  public void setMetadataKey(String s) {
+    metadataKey = Args.notBlank(s, "metadataKey");
+  }
+
+  public DuplicateValueBranchingService withMetadataKey(String s) {
+    setMetadataKey(s);
+    return this;
+  }
+
+  public String getNextServiceIdIfDuplicate() {
+    return nextServiceIdIfDuplicate;
+  }
+
+  /**
+   * Set the ID of the next service to apply if the value has previously been received.
+   *
+   * @param s the service id.
+   */
+  public void setNextServiceIdIfDuplicate(String s) {
+    nextServiceIdIfDuplicate = Args.notBlank(s, "nextServiceIdIfDuplicate");
+  }
+
+  public DuplicateValueBranchingService withNextServiceIdIfDuplicate(String s) {
+    setNextServiceIdIfDuplicate(s);
+    return this;
+  }
+
+  public String getNextServiceIdIfUnique() {
+    return nextServiceIdIfUnique;
+  }
+
+  /**
+   * Set the ID of the next service to apply if the value has not previously been received.
+   *
+   * @param s the service id.
+   */
+  public void setNextServiceIdIfUnique(String s) {
+    nextServiceIdIfUnique = Args.notBlank(s, "nextServiceIdIfUnique");
+  }
+
+  public DuplicateValueBranchingService withNextServiceIdIfUnique(String s) {
+    setNextServiceIdIfUnique(s);
+    return this;
+  }
+
+  public DuplicateStore getDuplicateStore() {
+    return duplicateStore;
+  }
+
+  /**
+   * Set the store of previously received values.
+   *
+   * @param store the store.
+   * @see ExactDuplicateStore
+   * @see BloomFilterDuplicateStore
+   */
+  public void setDuplicateStore(DuplicateStore store) {
+    duplicateStore = Args.notNull(store, "duplicateStore");
+  }
+
+  public DuplicateValueBranchingService withDuplicateStore(DuplicateStore store) {
+    setDuplicateStore(store);
+    return this;
+  }
+
+  public Boolean getStoreUniqueValues() {
+    return storeUniqueValues;
+  }
+
+  /**
+   * Whether or not to store values that have not previously been received.
+   * <p>
+   * If false, then this service only checks the store and never adds to it; the values that are treated as duplicates are only
+   * those that were read from {@link DuplicateStoreImpl#setStoreFileUrl(String)} when the store was initialised. Nothing else
+   * adds values to the store while it is running.
+   * </p>
+   *
+   * @param b true to store unique values as they are checked, default is true.
+   */
+  public void setStoreUniqueValues(Boolean b) {
+    storeUniqueValues = b;
+  }
+
+  public DuplicateValueBranchingService withStoreUniqueValues(Boolean b) {
+    setStoreUniqueValues(b);
+    return this;
+  }
+
+  boolean storeUniqueValues() {
+    return BooleanUtils.toBooleanDefaultIfNull(getStoreUniqueValues(), true);
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.fs.AppendOnlyLog;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.util.NumberUtils;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * {@link DuplicateStore} implementation that keeps every stored value in a hash index, so there are no false positives.
+ * <p>
+ * If a {@link #setStoreFileUrl(String)} is configured, then each new value is appended to it as it is stored, so nothing is lost
+ * if the adapter is not shutdown cleanly; it is replayed when this store is initialised. Once the file contains more expired
+ * values than current ones, it is rewritten with just the current values.
+ * </p>
+ * <p>
+ * Values are held in memory in the order in which they were stored, so that expiring values (either because of the configured
+ * {@link #setTimeWindow(com.adaptris.util.TimeInterval)} or {@link #setMaxEntries(Integer)}) only needs to visit the values that
+ * are actually removed. Checking for a value does not require a lock; storing a new value only locks to append it to the file.
+ * </p>
+ *
+ * @config exact-duplicate-store
+ * @since 3.10
+ */
+@XStreamAlias("exact-duplicate-store")
+@DisplayOrder(order = {"storeFileUrl", "timeWindow", "maxEntries"})
+public class ExactDuplicateStore extends DuplicateStoreImpl {
+
+  private static final int MAGIC = 0x49454453;
+  private static final int VERSION = 2;
+  private static final int MIN_RECORDS_BEFORE_COMPACTION = 1024;
+
+  @AdvancedConfig
+  private Integer maxEntries;
+
+  private transient Map<String, Long> index = new ConcurrentHashMap<>();
+  private transient Queue<Entry> order = new ConcurrentLinkedQueue<>();
+  private transient AppendOnlyLog<Entry> appendLog;
+
+  public ExactDuplicateStore() {
+  }
+
+  @Override
+  public void init() throws CoreException {
+    try {
+      index = new ConcurrentHashMap<>();
+      order = new ConcurrentLinkedQueue<>();
+      closeLog();
+      File store = storeFile();
+      if (store != null) {
+        appendLog = new AppendOnlyLog<>(store, MAGIC, VERSION, ExactDuplicateStore::read, ExactDuplicateStore::write);
+        long now = System.currentTimeMillis();
+        appendLog.open(e -> {
+          if (!expired(e.timestamp, now)) {
+            index.put(e.value, Long.valueOf(e.timestamp));
+            order.offer(e);
+          }
+        });
+        expire(now);
+        log.trace("Read {} values from {} records in [{}]", index.size(), appendLog.records(), store.getAbsolutePath());
+      }
+    }
+    catch (Exception e) {
+      closeLog();
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      if (appendLog != null) {
+        appendLog.sync();
+      }
+    }
+    catch (IOException e) {
+      log.warn("Failed to flush [{}]", getStoreFileUrl());
+    }
+    closeLog();
+  }
+
+  @Override
+  public boolean contains(String value) {
+    Long stored = index.get(value);
+    return stored != null && !expired(stored.longValue(), System.currentTimeMillis());
+  }
+
+  @Override
+  public boolean add(String value) throws CoreException {
+    long now = System.currentTimeMillis();
+    Long timestamp = Long.valueOf(now);
+    Long previous = index.putIfAbsent(value, timestamp);
+    if (previous != null && (!expired(previous.longValue(), now) || !index.replace(value, previous, timestamp))) {
+      return false;
+    }
+    Entry entry = new Entry(value, now);
+    order.offer(entry);
+    append(entry);
+    expire(now);
+    return true;
+  }
+
+  private void expire(long now) {
+    int max = maxEntries();
+    for (Entry head = order.peek(); head != null; head = order.peek()) {
+      if (!expired(head.timestamp, now) && index.size() <= max) {
+        break;
+      }
+      if (order.remove(head)) {
+        // Only if it hasn't been stored again since.
+        index.remove(head.value, Long.valueOf(head.timestamp));
+      }
+    }
+  }
+
+  private synchronized void append(Entry entry) throws CoreException {
+    if (appendLog == null) {
+      return;
+    }
+    try {
+      appendLog.append(entry);
+      appendLog.flush();
+      if (appendLog.records() > MIN_RECORDS_BEFORE_COMPACTION && appendLog.records() > index.size() * 2L) {
+        // Only the entries that haven't been superseded or expired.
+        appendLog.compact(() -> order.stream().filter(e -> Long.valueOf(e.timestamp).equals(index.get(e.value))).iterator());
+        log.trace("Compacted [{}] to {} values", getStoreFileUrl(), appendLog.records());
+      }
+    }
+    catch (IOException e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  private void closeLog() {
+    if (appendLog != null) {
+      appendLog.close();
+      appendLog = null;
+    }
+  }
+
+  private static Entry read(DataInput in) throws IOException {
+    return new Entry(AppendOnlyLog.readString(in), in.readLong());
+  }
+
+  private static void write(DataOutput out, Entry entry) throws IOException {
+    AppendOnlyLog.writeString(out, entry.value);
+    out.writeLong(entry.timestamp);
+  }
+
+  public Integer getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Set the maximum number of values to store.
+   *
+   * @param i the maximum number of values, once reached the oldest value is removed; default is unlimited.
+   */
+  public void setMaxEntries(Integer i) {
+    maxEntries = i;
+  }
+
+  public ExactDuplicateStore withMaxEntries(Integer i) {
+    setMaxEntries(i);
+    return this;
+  }
+
+  int maxEntries() {
+    return NumberUtils.toIntDefaultIfNull(getMaxEntries(), Integer.MAX_VALUE);
+  }
+
+  int size() {
+    return index.size();
+  }
+
+  long records() {
+    return appendLog != null ? appendLog.records() : 0;
+  }
+
+  private static class Entry {
+    private final String value;
+    private final long timestamp;
+
+    Entry(String value, long timestamp) {
+      this.value = value;
+      this.timestamp = timestamp;
+    }
+  }
+}
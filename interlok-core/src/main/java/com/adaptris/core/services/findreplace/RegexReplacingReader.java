@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.findreplace;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Reader} that replaces matches of a regular expression in the underlying reader, using a sliding window.
+ * <p>
+ * The output is the same as {@link String#replaceAll(String, String)} or {@link String#replaceFirst(String, String)} (including
+ * group references in the replacement) as long as no match is longer than {@code maxMatchLength} characters and any lookbehind
+ * doesn't need more than {@code maxMatchLength} characters of context. At most {@code 2 * maxMatchLength} plus a buffer's worth
+ * of characters are held in memory.
+ * </p>
+ */
+class RegexReplacingReader extends Reader {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final Reader in;
+  private final Replacement replacement;
+  private final boolean firstOnly;
+  private final int maxMatchLength;
+
+  private final StringBuilder window = new StringBuilder();
+  private final char[] readBuffer = new char[CHUNK_SIZE];
+  private final StringBuilder output = new StringBuilder();
+  private final Matcher matcher;
+  private int outputPos;
+  // Position in the window of the first character that hasn't been output.
+  private int from;
+  private boolean eof;
+  private boolean replaced;
+  private boolean finished;
+
+  RegexReplacingReader(Reader in, Pattern pattern, String replacement, boolean firstOnly, int maxMatchLength) {
+    this.in = in;
+    this.firstOnly = firstOnly;
+    this.maxMatchLength = Math.max(1, maxMatchLength);
+    matcher = pattern.matcher(window);
+    matcher.useTransparentBounds(true);
+    matcher.useAnchoringBounds(false);
+    this.replacement = new Replacement(replacement, matcher.groupCount());
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (outputPos >= output.length()) {
+      if (finished) {
+        return -1;
+      }
+      output.setLength(0);
+      outputPos = 0;
+      process();
+    }
+    int count = Math.min(len, output.length() - outputPos);
+    output.getChars(outputPos, outputPos + count, cbuf, off);
+    outputPos += count;
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void process() throws IOException {
+    if (!eof) {
+      int read = in.read(readBuffer);
+      if (read == -1) {
+        eof = true;
+      }
+      else {
+        window.append(readBuffer, 0, read);
+      }
+    }
+    findAndReplace();
+    if (eof && from >= window.length()) {
+      finished = true;
+    }
+    compact();
+  }
+
+  private void findAndReplace() {
+    int length = window.length();
+    while (from <= length) {
+      if (replaced && firstOnly) {
+        emit(length);
+        return;
+      }
+      matcher.reset(window);
+      matcher.region(from, length);
+      if (!matcher.find()) {
+        emit(eof ? length : Math.max(from, length - maxMatchLength));
+        return;
+      }
+      int start = matcher.start();
+      int end = matcher.end();
+      if (!eof && (start >= length || matcher.hitEnd() || matcher.requireEnd()) && length - start < maxMatchLength) {
+        // More input might change the match; only output what can't be part of a match.
+        emit(Math.min(start, Math.max(from, length - maxMatchLength)));
+        return;
+      }
+      emit(start);
+      replacement.appendTo(matcher, output);
+      replaced = true;
+      if (end == start) {
+        // Empty match; copy the next character so we don't match at the same place again.
+        if (end >= length) {
+          from = length + 1;
+          return;
+        }
+        from = end;
+        emit(end + 1);
+      }
+      else {
+        from = end;
+      }
+    }
+  }
+
+  private void emit(int to) {
+    if (to > from) {
+      output.append(window, from, Math.min(to, window.length()));
+      from = to;
+    }
+  }
+
+  // Keep maxMatchLength characters before 'from' as context for lookbehind and anchors.
+  private void compact() {
+    int discard = Math.min(from, window.length()) - maxMatchLength;
+    if (discard > 0) {
+      window.delete(0, discard);
+      from -= discard;
+    }
+  }
+
+  /**
+   * Parsed replacement string supporting {@code $n}, {@code ${name}} and {@code \} escapes like
+   * {@link Matcher#appendReplacement(StringBuffer, String)}.
+   */
+  private static class Replacement {
+    private final List<Object> parts = new ArrayList<>();
+
+    Replacement(String replacement, int groupCount) {
+      StringBuilder literal = new StringBuilder();
+      int i = 0;
+      while (i < replacement.length()) {
+        char c = replacement.charAt(i);
+        if (c == '\\') {
+          i++;
+          if (i == replacement.length()) {
+            throw new IllegalArgumentException("character to be escaped is missing");
+          }
+          literal.append(replacement.charAt(i++));
+        }
+        else if (c == '$') {
+          i++;
+          if (i == replacement.length()) {
+            throw new IllegalArgumentException("Illegal group reference: group index is missing");
+          }
+          addLiteral(literal);
+          if (replacement.charAt(i) == '{') {
+            int close = replacement.indexOf('}', i);
+            if (close == -1) {
+              throw new IllegalArgumentException("named capturing group is missing trailing '}'");
+            }
+            parts.add(replacement.substring(i + 1, close));
+            i = close + 1;
+          }
+          else {
+            int startDigits = i;
+            while (i < replacement.length() && Character.isDigit(replacement.charAt(i))) {
+              i++;
+            }
+            if (i == startDigits) {
+              throw new IllegalArgumentException("Illegal group reference");
+            }
+            parts.add(new GroupRef(replacement.substring(startDigits, i), groupCount));
+          }
+        }
+        else {
+          literal.append(c);
+          i++;
+        }
+      }
+      addLiteral(literal);
+    }
+
+    private void addLiteral(StringBuilder literal) {
+      if (literal.length() > 0) {
+        parts.add(new StringBuilder(literal));
+        literal.setLength(0);
+      }
+    }
+
+    void appendTo(Matcher m, StringBuilder out) {
+      for (Object part : parts) {
+        if (part instanceof GroupRef) {
+          append(out, m.group(((GroupRef) part).group));
+          out.append(((GroupRef) part).trailing);
+        }
+        else if (part instanceof String) {
+          append(out, m.group((String) part));
+        }
+        else {
+          out.append((CharSequence) part);
+        }
+      }
+    }
+
+    private static void append(StringBuilder out, String s) {
+      if (s != null) {
+        out.append(s);
+      }
+    }
+  }
+
+  // Like Matcher, take as many digits as make a valid group number; the rest are literal.
+  private static class GroupRef {
+    private final int group;
+    private final String trailing;
+
+    GroupRef(String digits, int groupCount) {
+      int g = digits.charAt(0) - '0';
+      if (g > groupCount) {
+        throw new IndexOutOfBoundsException("No group " + g);
+      }
+      int i = 1;
+      for (; i < digits.length(); i++) {
+        int next = g * 10 + (digits.charAt(i) - '0');
+        if (next > groupCount) {
+          break;
+        }
+        g = next;
+      }
+      group = g;
+      trailing = digits.substring(i);
+    }
+  }
+}
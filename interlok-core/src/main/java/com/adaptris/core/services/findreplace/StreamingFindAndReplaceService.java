@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.findreplace;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.adaptris.annotation.AdapterComponent;
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.ComponentProfile;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.ServiceException;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.util.NumberUtils;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * {@link FindAndReplaceService} that streams the message payload rather than creating a String for each
+ * {@link FindAndReplaceUnit}.
+ * <p>
+ * Each {@link FindAndReplaceUnit} is applied to the output of the previous one (as {@link FindAndReplaceService} does), but
+ * the units are chained together as readers so the payload is only read once (via {@link AdaptrisMessage#getReader()}) and
+ * written once (via {@link AdaptrisMessage#getWriter()}); this means that it never holds the whole payload in memory, which makes
+ * it suitable for use with {@link com.adaptris.core.lms.FileBackedMessageFactory}. Compiled patterns are cached.
+ * </p>
+ * <p>
+ * The payload is searched through a sliding window; so a match cannot be longer than {@link #setMaxMatchLength(Integer)}
+ * characters (if the find expression is a literal without any regular expression metacharacters then its length is used
+ * instead). Lookbehind and word boundaries have access to the same number of characters before the current position.
+ * </p>
+ *
+ * @config streaming-find-and-replace-service
+ * @since 3.10
+ */
+@XStreamAlias("streaming-find-and-replace-service")
+@AdapterComponent
+@ComponentProfile(summary = "Perform a find and replace on the message without reading it into memory", tag = "service")
+@DisplayOrder(order = {"findAndReplaceUnits", "replaceFirstOnly", "maxMatchLength"})
+public class StreamingFindAndReplaceService extends FindAndReplaceService {
+
+  private static final int DEFAULT_MAX_MATCH_LENGTH = 4096;
+  private static final int MAX_CACHED_PATTERNS = 256;
+  private static final String REGEX_METACHARS = "\\^$.|?*+()[]{}";
+
+  @AdvancedConfig
+  @InputFieldDefault(value = "4096")
+  private Integer maxMatchLength;
+
+  private transient Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+  public StreamingFindAndReplaceService() {
+    super();
+  }
+
+  @Override
+  public void doService(AdaptrisMessage msg) throws ServiceException {
+    Reader input = null;
+    try {
+      input = msg.getReader();
+      // Set up everything that could fail before we start overwriting the payload.
+      for (FindAndReplaceUnit unit : getFindAndReplaceUnits()) {
+        String find = unit.getFind().obtainValue(msg);
+        String replace = unit.getReplace().obtainValue(msg);
+        log.trace("replacing [{}] with [{}]", find, replace);
+        input = new RegexReplacingReader(input, compile(find), replace, replaceFirstOnly(), maxMatchLength(find));
+      }
+      try (Writer out = msg.getWriter()) {
+        IOUtils.copy(input, out);
+      }
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapServiceException(e);
+    }
+    finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private Pattern compile(String find) {
+    Pattern p = patterns.get(find);
+    if (p == null) {
+      if (patterns.size() >= MAX_CACHED_PATTERNS) {
+        patterns.clear();
+      }
+      p = Pattern.compile(find);
+      patterns.put(find, p);
+    }
+    return p;
+  }
+
+  private int maxMatchLength(String find) {
+    if (!StringUtils.containsAny(find, REGEX_METACHARS) && find.length() > 0) {
+      return find.length();
+    }
+    return maxMatchLength();
+  }
+
+  public Integer getMaxMatchLength() {
+    return maxMatchLength;
+  }
+
+  /**
+   * Set the maximum length of any match.
+   *
+   * @param i the maximum length in characters, default is 4096 if not specified.
+   */
+  public void setMaxMatchLength(Integer i) {
+    maxMatchLength = i;
+  }
+
+  public StreamingFindAndReplaceService withMaxMatchLength(Integer i) {
+    setMaxMatchLength(i);
+    return this;
+  }
+
+  int maxMatchLength() {
+    return NumberUtils.toIntDefaultIfNull(getMaxMatchLength(), DEFAULT_MAX_MATCH_LENGTH);
+  }
+}
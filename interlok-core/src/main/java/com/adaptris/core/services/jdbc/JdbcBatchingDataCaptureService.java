@@ -16,12 +16,15 @@
 
 package com.adaptris.core.services.jdbc;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import javax.xml.namespace.NamespaceContext;
 
@@ -31,8 +34,13 @@ import com.adaptris.annotation.AdapterComponent;
 import com.adaptris.annotation.ComponentProfile;
 import com.adaptris.annotation.DisplayOrder;
 import com.adaptris.annotation.InputFieldDefault;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.BatchAwareService;
+import com.adaptris.core.ServiceException;
 import com.adaptris.core.jdbc.DatabaseConnection;
+import com.adaptris.core.jdbc.JdbcConstants;
 import com.adaptris.core.util.DocumentBuilderFactoryBuilder;
+import com.adaptris.core.util.JdbcUtil;
 import com.adaptris.util.NumberUtils;
 import com.adaptris.util.text.xml.XPath;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
@@ -48,6 +56,18 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * With a {@link #setBatchWindow(Integer)} of 1, then it will be functionally equivalent to {@link JdbcDataCaptureService}.
  * </p>
  * <p>
+ * When used in a {@link com.adaptris.core.BatchingWorkflow} all the messages in the batch are added to the same JDBC batch and
+ * committed as a single transaction; any rows updated metadata contains the rows updated by that message. If the batch fails, it
+ * is rolled back and each message is retried individually so that only the messages that actually fail are reported as failures.
+ * If the connection is {@code auto-commit=true} or {@link #setSaveReturnedKeys(Boolean)} is true then each message is always
+ * processed individually, as are messages that are part of a {@link JdbcServiceList} transaction, and messages for which the
+ * statement resolves differently.
+ * </p>
+ * <p>
+ * To load very large documents, use {@link #setStreaming(Boolean)}; each record is added to the JDBC batch as it is read from the
+ * document, and the batch is executed every {@link #setBatchWindow(Integer)} records, so memory usage stays constant.
+ * </p>
+ * <p>
  * If the {@code DocumentBuilderFactoryBuilder} has been explicitly set to be not namespace aware and the document does in fact
  * contain namespaces, then Saxon can cause merry havoc in the sense that {@code //NonNamespaceXpath} doesn't work if the document
  * has namespaces in it. We have included a shim so that behaviour can be toggled based on what you have configured.
@@ -61,11 +81,11 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 @AdapterComponent
 @ComponentProfile(summary = "Capture data from the message and store it in a database", tag = "service,jdbc",
 recommended = {DatabaseConnection.class})
-@DisplayOrder(order = {"connection", "statement", "batchWindow", "iterationXpath", "iterates",
+@DisplayOrder(order = {"connection", "statement", "batchWindow", "iterationXpath", "iterates", "streaming",
     "rowsUpdatedMetadataKey", "statementParameters", "parameterApplicator",
     "xmlDocumentFactoryConfig", "namespaceContext", "saveReturnedKeys", "saveReturnedKeysColumn",
     "saveReturnedKeysTable"})
-public class JdbcBatchingDataCaptureService extends JdbcIteratingDataCaptureServiceImpl {
+public class JdbcBatchingDataCaptureService extends JdbcIteratingDataCaptureServiceImpl implements BatchAwareService {
 
   private static final InheritableThreadLocal<AtomicInteger> counter = new InheritableThreadLocal<AtomicInteger>() {
     @Override
@@ -74,6 +94,9 @@ public class JdbcBatchingDataCaptureService extends JdbcIteratingDataCaptureServ
     }
   };
 
+  // The results of each executeBatch() while processing a batch of messages, so each message can report its own rows updated.
+  private static final ThreadLocal<List<int[]>> batchResults = new ThreadLocal<>();
+
   public static final int DEFAULT_BATCH_WINDOW = 1024;
 
   @InputFieldDefault(value = "1024")
@@ -95,18 +118,96 @@ public class JdbcBatchingDataCaptureService extends JdbcIteratingDataCaptureServ
     long rowsUpdated = 0;
     if (count % batchWindow() == 0) {
       log.trace("BatchWindow reached, executeBatch()");
-      rowsUpdated = rowsUpdated(insert.executeBatch());
+      rowsUpdated = execute(insert);
     }
     return rowsUpdated;
   }
 
   @Override
   protected long finishUpdate(PreparedStatement insert) throws SQLException {
-    long rowsUpdated = rowsUpdated(insert.executeBatch());
+    long rowsUpdated = execute(insert);
     counter.set(new AtomicInteger());
     return rowsUpdated;
   }
 
+  private long execute(PreparedStatement insert) throws SQLException {
+    int[] rc = insert.executeBatch();
+    List<int[]> results = batchResults.get();
+    if (results != null) {
+      results.add(rc);
+    }
+    return rowsUpdated(rc);
+  }
+
+  @Override
+  public void doService(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures)
+      throws ServiceException {
+    if (saveReturnedKeys() || hasOwnConnection(batch) || !sameStatement(batch) || !executeBatch(batch)) {
+      for (AdaptrisMessage msg : batch) {
+        try {
+          doService(msg);
+        }
+        catch (ServiceException e) {
+          failures.accept(msg, e);
+        }
+      }
+    }
+  }
+
+  // The message carries a connection from a parent JdbcServiceList which is responsible for the transaction.
+  private static boolean hasOwnConnection(List<AdaptrisMessage> batch) {
+    return batch.stream()
+        .anyMatch(m -> m.getObjectHeaders().containsKey(JdbcConstants.OBJ_METADATA_DATABASE_CONNECTION_KEY));
+  }
+
+  // The statement can contain message expressions; they can only share a JDBC batch if they all resolve the same way.
+  private boolean sameStatement(List<AdaptrisMessage> batch) {
+    return batch.stream().map(this::resolveStatement).distinct().count() == 1;
+  }
+
+  // Returns false if the messages need to be processed individually.
+  private boolean executeBatch(List<AdaptrisMessage> batch) {
+    Connection conn = null;
+    int[] queued = new int[batch.size()];
+    batchResults.set(new ArrayList<>());
+    try {
+      // None of the messages have their own connection, so they all use one from the configured connection.
+      conn = configureActor(getConnection().retrieveConnection(DatabaseConnection.class).connect()).getSqlConnection();
+      if (conn.getAutoCommit()) {
+        return false;
+      }
+      PreparedStatement insert = actor.getInsertStatement(batch.get(0));
+      insert.clearParameters();
+      for (int i = 0; i < batch.size(); i++) {
+        int before = counter.get().get();
+        addUpdates(batch.get(i), insert);
+        queued[i] = counter.get().get() - before;
+      }
+      finishUpdate(insert);
+      JdbcUtil.commit(conn);
+      int[] results = batchResults.get().stream().flatMapToInt(Arrays::stream).toArray();
+      int offset = 0;
+      for (int i = 0; i < batch.size(); i++) {
+        int from = Math.min(offset, results.length);
+        int to = Math.min(offset + queued[i], results.length);
+        updateMetadata(batch.get(i), rowsUpdated(Arrays.copyOfRange(results, from, to)));
+        offset += queued[i];
+      }
+      return true;
+    }
+    catch (Exception e) {
+      log.warn("Batch of [{}] messages failed [{}], processing individually", batch.size(), e.getMessage());
+      JdbcUtil.rollback(conn);
+      actor.clearBatch();
+      counter.set(new AtomicInteger());
+      return false;
+    }
+    finally {
+      batchResults.remove();
+      JdbcUtil.closeQuietly(conn);
+    }
+  }
+
   /**
    * @return the batchWindow
    */
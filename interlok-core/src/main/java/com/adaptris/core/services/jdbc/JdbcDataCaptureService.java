@@ -51,7 +51,7 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 @ComponentProfile(summary = "Capture data from the message and store it in a database", tag = "service,jdbc",
 recommended = {DatabaseConnection.class})
 @DisplayOrder(
-    order = {"connection", "statement", "iterationXpath", "iterates", "rowsUpdatedMetadataKey",
+    order = {"connection", "statement", "iterationXpath", "iterates", "streaming", "rowsUpdatedMetadataKey",
         "statementParameters", "parameterApplicator", "xmlDocumentFactoryConfig",
         "namespaceContext", "saveReturnedKeys", "saveReturnedKeysColumn", "saveReturnedKeysTable"})
 public class JdbcDataCaptureService extends JdbcIteratingDataCaptureServiceImpl {
@@ -162,13 +162,20 @@ public abstract class JdbcDataCaptureServiceImpl extends JdbcServiceWithParamete
   }
 
   protected DatabaseActor configureActor(AdaptrisMessage msg) throws SQLException {
-    Connection c = getConnection(msg);
+    return configureActor(getConnection(msg));
+  }
+
+  protected DatabaseActor configureActor(Connection c) throws SQLException {
     if (!c.equals(actor.getSqlConnection())) {
       actor.reInitialise(c);
     }
     return actor;
   }
 
+  String resolveStatement(AdaptrisMessage msg) {
+    return getParameterApplicator().prepareParametersToStatement(msg.resolve(getStatement()));
+  }
+
   @Override
   protected void prepareService() throws CoreException {}
 
@@ -188,7 +195,7 @@ public abstract class JdbcDataCaptureServiceImpl extends JdbcServiceWithParamete
     }
 
     public PreparedStatement getInsertStatement(AdaptrisMessage msg) throws SQLException {
-      String currentStatement = getParameterApplicator().prepareParametersToStatement(msg.resolve(getStatement()));
+      String currentStatement = resolveStatement(msg);
       if (!lastInsertStatement.equals(currentStatement) || insertStatement == null) {
         JdbcUtil.closeQuietly(insertStatement);
         insertStatement = prepare(currentStatement);
@@ -214,6 +221,20 @@ public abstract class JdbcDataCaptureServiceImpl extends JdbcServiceWithParamete
       return result;
     }
 
+    // Discard anything that was added to the batch but not executed, so it isn't executed along with the next message.
+    void clearBatch() {
+      if (insertStatement == null) {
+        return;
+      }
+      try {
+        insertStatement.clearBatch();
+      }
+      catch (SQLException e) {
+        JdbcUtil.closeQuietly(insertStatement);
+        insertStatement = null;
+      }
+    }
+
     void destroy() {
       JdbcUtil.closeQuietly(insertStatement, sqlConnection);
       sqlConnection = null;
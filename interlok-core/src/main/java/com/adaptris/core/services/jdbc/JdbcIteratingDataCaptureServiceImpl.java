@@ -16,13 +16,19 @@
 
 package com.adaptris.core.services.jdbc;
 
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 import javax.validation.Valid;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPathExpressionException;
 import org.apache.commons.lang3.BooleanUtils;
 import org.w3c.dom.Document;
@@ -41,6 +47,8 @@ import com.adaptris.core.util.LoggingHelper;
 import com.adaptris.core.util.XmlHelper;
 import com.adaptris.util.KeyValuePairSet;
 import com.adaptris.util.text.xml.SimpleNamespaceContext;
+import com.adaptris.util.text.xml.StreamingPath;
+import com.adaptris.util.text.xml.StreamingRecord;
 import com.adaptris.util.text.xml.XPath;
 
 /**
@@ -52,6 +60,9 @@ public abstract class JdbcIteratingDataCaptureServiceImpl extends JdbcDataCaptur
   @AdvancedConfig
   @InputFieldDefault(value = "false")
   private Boolean iterates = null;
+  @AdvancedConfig
+  @InputFieldDefault(value = "false")
+  private Boolean streaming = null;
   @AdvancedConfig(rare = true)
   @Valid
   private DocumentBuilderFactoryBuilder xmlDocumentFactoryConfig;
@@ -73,25 +84,11 @@ public abstract class JdbcIteratingDataCaptureServiceImpl extends JdbcDataCaptur
   public void doService(AdaptrisMessage msg) throws ServiceException {
     log.trace("Beginning doService in {}", LoggingHelper.friendlyName(this));
     Connection conn = null;
-    NamespaceContext namespaceCtx = SimpleNamespaceContext.create(getNamespaceContext(), msg);
     try {
-      DocumentBuilderFactoryBuilder builder = documentFactoryBuilder();
-      XPath xpath = XPath.newXPathInstance(builder, namespaceCtx);
       conn = configureActor(msg).getSqlConnection();
-      Document doc = createDocument(namespaceCtx, msg);
-      NodeList nodes = nodesToProcess(doc, xpath);
-      log.debug("Iterating {} times for statement [{}]", nodes.getLength(), getStatement());
       PreparedStatement insert = actor.getInsertStatement(msg);
       insert.clearParameters();
-      long rowsUpdated = 0;
-      for (int i = 0; i < nodes.getLength(); i++) {
-        log.trace("---Start Iteration {}", i);
-        Node n = nodes.item(i);
-        getParameterApplicator().applyStatementParameters(msg, insert, createActualParams(xpath, n), getStatement());
-        rowsUpdated += executeUpdate(insert);
-        log.trace("---End Iteration {}", i);
-
-      }
+      long rowsUpdated = addUpdates(msg, insert);
       rowsUpdated += finishUpdate(insert);
       // Will only store the generated keys from the last query
       saveKeys(msg, insert);
@@ -100,6 +97,7 @@ public abstract class JdbcIteratingDataCaptureServiceImpl extends JdbcDataCaptur
     }
     catch (Exception e) {
       JdbcUtil.rollback(conn, msg);
+      actor.clearBatch();
       throw ExceptionHelper.wrapServiceException(e);
     }
     finally {
@@ -107,6 +105,106 @@ public abstract class JdbcIteratingDataCaptureServiceImpl extends JdbcDataCaptur
     }
   }
 
+  /**
+   * Apply the statement parameters for each iteration of the message and execute it.
+   *
+   * @return the number of rows updated.
+   */
+  protected long addUpdates(AdaptrisMessage msg, PreparedStatement insert) throws Exception {
+    if (iterates() && streaming()) {
+      return addStreamingUpdates(msg, insert);
+    }
+    NamespaceContext namespaceCtx = SimpleNamespaceContext.create(getNamespaceContext(), msg);
+    XPath xpath = XPath.newXPathInstance(documentFactoryBuilder(), namespaceCtx);
+    Document doc = createDocument(namespaceCtx, msg);
+    NodeList nodes = nodesToProcess(doc, xpath);
+    log.debug("Iterating {} times for statement [{}]", nodes.getLength(), getStatement());
+    long rowsUpdated = 0;
+    for (int i = 0; i < nodes.getLength(); i++) {
+      log.trace("---Start Iteration {}", i);
+      Node n = nodes.item(i);
+      getParameterApplicator().applyStatementParameters(msg, insert, createActualParams(query -> {
+        Node xpathNode = xpath.selectSingleNode(n, query);
+        return xpathNode != null ? xpathNode.getTextContent() : null;
+      }), getStatement());
+      rowsUpdated += executeUpdate(insert);
+      log.trace("---End Iteration {}", i);
+
+    }
+    return rowsUpdated;
+  }
+
+  // Each element matching the iteration xpath is read into a StreamingRecord in turn; so only one is ever held in memory.
+  private long addStreamingUpdates(AdaptrisMessage msg, PreparedStatement insert) throws Exception {
+    NamespaceContext namespaceCtx = SimpleNamespaceContext.create(getNamespaceContext(), msg);
+    StreamingPath path = StreamingPath.parse(getIterationXpath(), namespaceCtx);
+    Map<String, StreamingPath> paramPaths = relativePaths(namespaceCtx);
+    long rowsUpdated = 0;
+    long iterations = 0;
+    try (InputStream in = msg.getInputStream()) {
+      XMLStreamReader reader = createInputFactory().createXMLStreamReader(in);
+      try {
+        // depth of the current element, and how many steps of the path the current element matches.
+        int depth = 0;
+        int matched = 0;
+        while (reader.hasNext()) {
+          switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+              depth++;
+              if (matched == depth - 1 && depth <= path.length() && path.matches(depth - 1, reader)) {
+                matched = depth;
+              }
+              if (matched == path.length()) {
+                log.trace("---Start Iteration {}", iterations);
+                StreamingRecord record = StreamingRecord.read(reader);
+                getParameterApplicator().applyStatementParameters(msg, insert,
+                    createActualParams(query -> paramPaths.get(query).selectText(record)), getStatement());
+                rowsUpdated += executeUpdate(insert);
+                log.trace("---End Iteration {}", iterations);
+                iterations++;
+                // The reader is now positioned on the end element of the record.
+                matched--;
+                depth--;
+              }
+              break;
+            case XMLStreamConstants.END_ELEMENT:
+              if (matched == depth) {
+                matched--;
+              }
+              depth--;
+              break;
+            default:
+          }
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+    log.debug("Iterated {} times for statement [{}]", iterations, getStatement());
+    return rowsUpdated;
+  }
+
+  private Map<String, StreamingPath> relativePaths(NamespaceContext ctx) {
+    Map<String, StreamingPath> result = new HashMap<>();
+    for (JdbcStatementParameter param : getStatementParameters()) {
+      if (isXpathParam(param)) {
+        String query = ((StatementParameterImpl) param).getQueryString();
+        result.put(query, StreamingPath.parseRelative(query, ctx));
+      }
+    }
+    return result;
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
+  }
+
   protected abstract long executeUpdate(PreparedStatement insert) throws SQLException;
 
   protected abstract long finishUpdate(PreparedStatement insert) throws SQLException;
@@ -155,7 +253,7 @@ public abstract class JdbcIteratingDataCaptureServiceImpl extends JdbcDataCaptur
     return doc;
   }
 
-  private StatementParameterList createActualParams(XPath xpath, Node n) throws XPathExpressionException {
+  private StatementParameterList createActualParams(XpathResolver resolver) throws Exception {
     StatementParameterList result = new StatementParameterList();
     StatementParameterList original = getStatementParameters();
     for (int args = 1; args <= original.size(); args++) {
@@ -164,9 +262,7 @@ public abstract class JdbcIteratingDataCaptureServiceImpl extends JdbcDataCaptur
       // statementParameter.
       if (isXpathParam(param)) {
         StatementParameterImpl actualParam = (StatementParameterImpl) param.makeCopy();
-        Node xpathNode = xpath.selectSingleNode(n, actualParam.getQueryString());
-        // queryResult = xpath.selectSingleTextItem(n, actualParam.getQueryString());
-        actualParam.setQueryString(xpathNode != null ? xpathNode.getTextContent() : null);
+        actualParam.setQueryString(resolver.resolve(actualParam.getQueryString()));
         actualParam.setQueryType(QueryType.constant);
         result.add(actualParam);
       }
@@ -272,4 +368,34 @@ public abstract class JdbcIteratingDataCaptureServiceImpl extends JdbcDataCaptur
   private boolean iterates() {
     return BooleanUtils.toBooleanDefaultIfNull(getIterates(), false);
   }
+
+  public Boolean getStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Whether or not to stream the document when iterating.
+   * <p>
+   * If true (and {@link #setIterates(Boolean)} is true), then the document is read using StAX rather than being parsed into a
+   * DOM, and each element that matches the iteration xpath is read and then inserted before moving on to the next one; so
+   * memory usage is independent of the size of the document. The iteration xpath must then be an absolute path of child steps
+   * (e.g. {@code /orders/order[@type='new']}), and the xpaths for any statement parameters must be relative to it (e.g.
+   * {@code ./customer/@id} or {@code line/text()}); see {@link StreamingPath} for the supported subset. Unlike the non-streaming
+   * mode, a document that isn't well formed XML is an error.
+   * </p>
+   *
+   * @param b true to stream the document, default is false.
+   */
+  public void setStreaming(Boolean b) {
+    streaming = b;
+  }
+
+  private boolean streaming() {
+    return BooleanUtils.toBooleanDefaultIfNull(getStreaming(), false);
+  }
+
+  @FunctionalInterface
+  private interface XpathResolver {
+    String resolve(String xpath) throws Exception;
+  }
 }
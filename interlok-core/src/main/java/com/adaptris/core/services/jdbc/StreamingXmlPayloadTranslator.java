@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.jdbc;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.ServiceException;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.core.util.XmlHelper;
+import com.adaptris.jdbc.JdbcResult;
+import com.adaptris.jdbc.JdbcResultRow;
+import com.adaptris.jdbc.JdbcResultSet;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * Translate the ResultSet contents into an XML Payload, writing each row as it is read.
+ * <p>
+ * This produces the same document as {@link XmlPayloadTranslator} (without the original message), but each row is written
+ * directly to {@link AdaptrisMessage#getOutputStream()} using StAX rather than building a DOM; memory usage is independent of
+ * the number of rows, so this is suitable for large extracts, especially in combination with
+ * {@link com.adaptris.core.lms.FileBackedMessageFactory}. The format of the output message is :
+ *
+ * <pre>
+ * {@code
+ * <Results>
+ *   <Row>
+ *     <column1>...</column1>
+ *     <column2>...</column2>
+ *     ...
+ *   </Row>
+ *   <Row> ... </Row>
+ * </Results>
+ * }
+ * </pre>
+ * </p>
+ * <p>
+ * Element names, columns treated as XML (see {@link #setXmlColumnPrefix(String)} and {@link #setXmlColumnRegexp(String)}) and
+ * columns wrapped in CDATA (see {@link #setCdataColumnRegexp(String)}) follow the same rules as {@link XmlPayloadTranslator}.
+ * Since the message payload is written as the result set is read, it will contain a partial document if an error occurs.
+ * </p>
+ *
+ * @config jdbc-streaming-xml-payload-translator
+ * @since 3.10
+ */
+@XStreamAlias("jdbc-streaming-xml-payload-translator")
+@DisplayOrder(order = {"columnNameStyle", "columnTranslators", "outputMessageEncoding", "stripIllegalXmlChars",
+    "xmlColumnPrefix", "xmlColumnRegexp", "cdataColumnRegexp"})
+public class StreamingXmlPayloadTranslator extends XmlPayloadTranslatorImpl {
+
+  private static final String CDATA_END = Pattern.quote("]]>");
+
+  public StreamingXmlPayloadTranslator() {
+    super();
+  }
+
+  @Override
+  public long translateResult(JdbcResult source, AdaptrisMessage target) throws SQLException, ServiceException {
+    long resultSetCount = 0;
+    String encoding = XmlHelper.getXmlEncoding(target, getOutputMessageEncoding());
+    try (OutputStream out = new BufferedOutputStream(target.getOutputStream())) {
+      XMLStreamWriter writer = createOutputFactory().createXMLStreamWriter(out, encoding);
+      try {
+        XMLInputFactory inputFactory = createInputFactory();
+        writer.writeStartDocument(encoding, "1.0");
+        writer.writeStartElement(getColumnNameStyle().format(ELEMENT_NAME_RESULTS));
+        for (JdbcResultSet rs : source.getResultSets()) {
+          resultSetCount += writeResultSet(writer, inputFactory, rs);
+        }
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+      }
+      finally {
+        writer.close();
+      }
+    }
+    catch (SQLException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapServiceException(e);
+    }
+    target.setContentEncoding(encoding);
+    return resultSetCount;
+  }
+
+  private long writeResultSet(XMLStreamWriter writer, XMLInputFactory inputFactory, JdbcResultSet rs)
+      throws SQLException, XMLStreamException {
+    long count = 0;
+    List<String> elementNames = null;
+    String rowElement = getColumnNameStyle().format(ELEMENT_NAME_ROW);
+    for (JdbcResultRow row : rs.getRows()) {
+      if (elementNames == null) {
+        elementNames = createElementNames(row);
+      }
+      writer.writeStartElement(rowElement);
+      for (int i = 0; i < row.getFieldCount(); i++) {
+        String columnName = row.getFieldName(i);
+        String value = toString(row, i);
+        writer.writeStartElement(elementNames.get(i));
+        if (!isXmlColumn(columnName) || !writeXml(writer, inputFactory, columnName, value)) {
+          writeText(writer, value, isCdataColumn(columnName));
+        }
+        writer.writeEndElement();
+      }
+      writer.writeEndElement();
+      count++;
+    }
+    return count;
+  }
+
+  // Only the first node of the column is written (as XmlPayloadTranslator does), but the whole column has to be parsed before
+  // anything is written, so that a column that isn't well formed can still be written as text.
+  private boolean writeXml(XMLStreamWriter writer, XMLInputFactory inputFactory, String columnName, String value)
+      throws XMLStreamException {
+    List<XMLEvent> events = new ArrayList<>();
+    try {
+      XMLEventReader reader = inputFactory.createXMLEventReader(new StringReader(value));
+      try {
+        int depth = 0;
+        boolean finished = false;
+        while (reader.hasNext()) {
+          XMLEvent event = reader.nextEvent();
+          if (finished || event.isStartDocument() || event.isEndDocument() || depth == 0 && isIgnorable(event)) {
+            continue;
+          }
+          events.add(event);
+          if (event.isStartElement()) {
+            depth++;
+          }
+          else if (event.isEndElement()) {
+            depth--;
+          }
+          finished = depth == 0;
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (XMLStreamException e) {
+      if (isDisplayColumnErrors()) {
+        log.warn("Failed to parse column {} as an XML Document, treating as text.", columnName);
+        log.trace("Failed to parse column {} as an XML Document", columnName, e);
+      }
+      return false;
+    }
+    for (XMLEvent event : events) {
+      write(writer, event);
+    }
+    return true;
+  }
+
+  private void writeText(XMLStreamWriter writer, String value, boolean isCDATA) throws XMLStreamException {
+    String munged = stripIllegalXmlChars() ? XmlHelper.stripIllegalXmlCharacters(value) : value;
+    if (isCDATA) {
+      // A CDATA section can't contain "]]>", so split it across 2 sections.
+      String[] sections = munged.split(CDATA_END, -1);
+      for (int i = 0; i < sections.length; i++) {
+        writer.writeCData((i > 0 ? ">" : "") + sections[i] + (i < sections.length - 1 ? "]]" : ""));
+      }
+    }
+    else {
+      writer.writeCharacters(munged);
+    }
+  }
+
+  private static boolean isIgnorable(XMLEvent event) {
+    return event.getEventType() == XMLStreamConstants.DTD || event.isCharacters() && ((Characters) event).isWhiteSpace();
+  }
+
+  private static void write(XMLStreamWriter writer, XMLEvent event) throws XMLStreamException {
+    switch (event.getEventType()) {
+      case XMLStreamConstants.START_ELEMENT:
+        writeStartElement(writer, event.asStartElement());
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+        writer.writeEndElement();
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.SPACE:
+      case XMLStreamConstants.CDATA:
+        Characters chars = event.asCharacters();
+        if (chars.isCData()) {
+          writer.writeCData(chars.getData());
+        }
+        else {
+          writer.writeCharacters(chars.getData());
+        }
+        break;
+      case XMLStreamConstants.COMMENT:
+        writer.writeComment(((Comment) event).getText());
+        break;
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+        ProcessingInstruction pi = (ProcessingInstruction) event;
+        writer.writeProcessingInstruction(pi.getTarget(), StringUtils.defaultString(pi.getData()));
+        break;
+      default:
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void writeStartElement(XMLStreamWriter writer, StartElement element) throws XMLStreamException {
+    writer.writeStartElement(element.getName().getPrefix(), element.getName().getLocalPart(),
+        element.getName().getNamespaceURI());
+    for (Iterator<Namespace> i = element.getNamespaces(); i.hasNext();) {
+      Namespace ns = i.next();
+      if (ns.isDefaultNamespaceDeclaration()) {
+        writer.writeDefaultNamespace(ns.getNamespaceURI());
+      }
+      else {
+        writer.writeNamespace(ns.getPrefix(), ns.getNamespaceURI());
+      }
+    }
+    for (Iterator<Attribute> i = element.getAttributes(); i.hasNext();) {
+      Attribute attr = i.next();
+      if (StringUtils.isEmpty(attr.getName().getPrefix())) {
+        writer.writeAttribute(attr.getName().getLocalPart(), attr.getValue());
+      }
+      else {
+        writer.writeAttribute(attr.getName().getPrefix(), attr.getName().getNamespaceURI(), attr.getName().getLocalPart(),
+            attr.getValue());
+      }
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
+  }
+
+  private static XMLOutputFactory createOutputFactory() {
+    return XMLOutputFactory.newFactory();
+  }
+}
@@ -131,7 +131,7 @@ public abstract class XmlPayloadTranslatorImpl extends ResultSetTranslatorImp {
     return results;
   }
 
-  private List<String> createElementNames(JdbcResultRow row) throws SQLException {
+  protected List<String> createElementNames(JdbcResultRow row) throws SQLException {
     List<String> result = new ArrayList<>();
     for (int i = 0; i < row.getFieldCount(); i++) {
       String columnName = row.getFieldName(i);
@@ -170,13 +170,17 @@ public abstract class XmlPayloadTranslatorImpl extends ResultSetTranslatorImp {
   }
 
   protected boolean isCdataColumn(String name, DocumentWrapper wrapper) {
+    boolean result = isCdataColumn(name);
+    if (result) {
+      wrapper.hasCDATA = true;
+    }
+    return result;
+  }
+
+  protected boolean isCdataColumn(String name) {
     boolean result = false;
     if (cdataColumnRegexpPattern != null) {
       result = cdataColumnRegexpPattern.matcher(name).matches();
-
-    }
-    if (result) {
-      wrapper.hasCDATA = true;
     }
     return result;
   }
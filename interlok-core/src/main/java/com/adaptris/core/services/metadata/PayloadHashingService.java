@@ -16,6 +16,7 @@
 
 package com.adaptris.core.services.metadata;
 
+import java.nio.ByteBuffer;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import javax.validation.Valid;
@@ -29,6 +30,8 @@ import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.ServiceException;
 import com.adaptris.core.ServiceImp;
+import com.adaptris.core.lms.FileBackedMessage;
+import com.adaptris.core.lms.MappedPayload;
 import com.adaptris.core.util.Args;
 import com.adaptris.core.util.ExceptionHelper;
 import com.adaptris.security.util.SecurityUtil;
@@ -40,6 +43,10 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
  * Create a hash of the payload based on the configurable algorithm and stores it as metadata.
+ * <p>
+ * If the message is a {@link FileBackedMessage} that supports {@link FileBackedMessage#mapPayload()} then the hash is calculated
+ * directly from the mapped payload.
+ * </p>
  * 
  * @config payload-hashing-service
  * 
@@ -78,7 +85,15 @@ public class PayloadHashingService extends ServiceImp {
   public void doService(AdaptrisMessage msg) throws ServiceException {
     try {
       MessageDigest digest = MessageDigest.getInstance(getHashAlgorithm());
-      StreamUtil.copyAndClose(msg.getInputStream(), new DigestOutputStream(new DevNullOutputStream(), digest));
+      MappedPayload payload = msg instanceof FileBackedMessage ? ((FileBackedMessage) msg).mapPayload() : null;
+      if (payload != null) {
+        for (ByteBuffer buffer : payload.buffers()) {
+          digest.update(buffer);
+        }
+      }
+      else {
+        StreamUtil.copyAndClose(msg.getInputStream(), new DigestOutputStream(new DevNullOutputStream(), digest));
+      }
       byte[] hash = digest.digest();
       msg.addMetadata(getMetadataKey(), byteTranslator().translate(hash));
     }
@@ -92,6 +92,10 @@ public class XpathMetadataService extends MetadataServiceImpl {
     }
     queriesToExecute = new ArrayList<>();
     queriesToExecute.addAll(getXpathQueries());
+    XPath xpath = precompileXPath();
+    for (XpathQuery query : queriesToExecute) {
+      query.precompile(xpath);
+    }
   }
 
   @Override
@@ -162,6 +166,15 @@ public class XpathMetadataService extends MetadataServiceImpl {
     this.xmlDocumentFactoryConfig = xml;
   }
 
+  // Mirrors doService(), but without any namespace mappings derived from the message.
+  private XPath precompileXPath() {
+    NamespaceContext namespaceCtx = SimpleNamespaceContext.create(getNamespaceContext());
+    if (namespaceCtx != null) {
+      return new XPath(namespaceCtx);
+    }
+    return XPath.newXPathInstance(documentFactoryBuilder(), null);
+  }
+
   DocumentBuilderFactoryBuilder documentFactoryBuilder() {
     return DocumentBuilderFactoryBuilder.newInstanceIfNull(getXmlDocumentFactoryConfig());
   }
@@ -92,6 +92,10 @@ public class XpathObjectMetadataService extends ServiceImp {
     }
     queriesToExecute = new ArrayList<XpathObjectQuery>();
     queriesToExecute.addAll(getXpathQueries());
+    XPath xpath = precompileXPath();
+    for (XpathObjectQuery query : queriesToExecute) {
+      query.precompile(xpath);
+    }
   }
 
   @Override
@@ -169,6 +173,15 @@ public class XpathObjectMetadataService extends ServiceImp {
     this.xmlDocumentFactoryConfig = xml;
   }
 
+  // Mirrors doService(), but without any namespace mappings derived from the message.
+  private XPath precompileXPath() {
+    NamespaceContext namespaceCtx = SimpleNamespaceContext.create(getNamespaceContext());
+    if (namespaceCtx != null) {
+      return new XPath(namespaceCtx);
+    }
+    return XPath.newXPathInstance(documentFactoryBuilder(), null);
+  }
+
   DocumentBuilderFactoryBuilder documentFactoryBuilder() {
     return DocumentBuilderFactoryBuilder.newInstanceIfNull(getXmlDocumentFactoryConfig());
   }
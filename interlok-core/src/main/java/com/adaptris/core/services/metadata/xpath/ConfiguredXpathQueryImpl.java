@@ -21,6 +21,7 @@ import javax.validation.constraints.NotBlank;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.util.Args;
+import com.adaptris.util.text.xml.XPath;
 
 /**
  * Abstract base class for {@linkplain XpathQuery} implementations that are statically configured.
@@ -60,4 +61,14 @@ public abstract class ConfiguredXpathQueryImpl extends XpathQueryImpl {
       throw new CoreException("Configured Xpath is null.");
     }
   }
+
+  @Override
+  public void precompile(XPath xpath) {
+    try {
+      xpath.precompile(getXpathQuery());
+    }
+    catch (Exception e) {
+      // The namespace context may only be complete once there is a message, so any error is reported then.
+    }
+  }
 }
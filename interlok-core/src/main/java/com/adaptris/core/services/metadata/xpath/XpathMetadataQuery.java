@@ -18,6 +18,7 @@ package com.adaptris.core.services.metadata.xpath;
 
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreException;
+import com.adaptris.util.text.xml.XPath;
 
 /**
  * Base interface for generating metadata from an xpath.
@@ -46,4 +47,16 @@ public interface XpathMetadataQuery {
    * @return the xpath.
    */
   String createXpathQuery(AdaptrisMessage msg) throws Exception;
+
+  /**
+   * Compile any statically configured xpath ahead of time.
+   * <p>
+   * The default implementation does nothing, since the xpath is generally only known once there is a message.
+   * </p>
+   *
+   * @param xpath the {@link XPath} that will subsequently be used to execute the query.
+   * @since 3.10
+   */
+  default void precompile(XPath xpath) {
+  }
 }
@@ -16,13 +16,18 @@
 
 package com.adaptris.core.services.routing;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.CoreException;
 import com.adaptris.core.ServiceException;
+import com.adaptris.core.lms.MappedPayload;
 import com.adaptris.core.services.conditional.Condition;
+import com.adaptris.core.util.ExceptionHelper;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
@@ -62,6 +67,24 @@ public class RegexpSyntaxIdentifier extends SyntaxIdentifierImpl {
    */
   @Override
   public boolean isThisSyntax(String message) throws ServiceException {
+    return matches(message);
+  }
+
+  /**
+   * Evaluate the message, using {@link MappedPayload#asCharSequence(AdaptrisMessage)} rather than creating a String if possible.
+   */
+  @Override
+  public boolean evaluate(AdaptrisMessage msg) throws CoreException {
+    try {
+      CharSequence view = MappedPayload.asCharSequence(msg);
+      return view != null ? matches(view) : isThisSyntax(msg.getContent());
+    }
+    catch (IOException e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  private boolean matches(CharSequence message) throws ServiceException {
     initialise();
     for (Pattern p : patternList) {
       Matcher m = p.matcher(message);
@@ -33,12 +33,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreException;
-import com.adaptris.core.DefaultMarshaller;
 import com.adaptris.core.EventHandler;
 import com.adaptris.core.Service;
 import com.adaptris.core.util.Args;
+import com.adaptris.core.util.CloneHelper;
 import com.adaptris.core.util.ExceptionHelper;
 import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.core.util.ManagedExecutors;
 import com.adaptris.core.util.ManagedThreadFactory;
 import com.adaptris.util.TimeInterval;
 
@@ -61,7 +62,7 @@ public class ServiceWorkerPool {
   }
 
   private Service cloneService(Service original) throws Exception {
-    Service result = DefaultMarshaller.roundTrip(original);
+    Service result = CloneHelper.deepCopy(original);
     LifecycleHelper.registerEventHandler(result, eventHandler);
     return result;
   }
@@ -82,7 +83,7 @@ public class ServiceWorkerPool {
 
 
   public ExecutorService createExecutor(String prefix) {
-    return Executors.newFixedThreadPool(maxThreads, new ManagedThreadFactory(prefix));
+    return ManagedExecutors.newFixedThreadPool(maxThreads, new ManagedThreadFactory(prefix), prefix);
   }
 
 
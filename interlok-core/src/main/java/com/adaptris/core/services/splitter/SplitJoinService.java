@@ -23,7 +23,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import javax.validation.Valid;
@@ -36,7 +35,6 @@ import com.adaptris.annotation.DisplayOrder;
 import com.adaptris.annotation.InputFieldDefault;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.CoreException;
-import com.adaptris.core.DefaultMarshaller;
 import com.adaptris.core.EventHandler;
 import com.adaptris.core.EventHandlerAware;
 import com.adaptris.core.Service;
@@ -45,8 +43,10 @@ import com.adaptris.core.ServiceImp;
 import com.adaptris.core.ServiceWrapper;
 import com.adaptris.core.services.aggregator.MessageAggregator;
 import com.adaptris.core.util.Args;
+import com.adaptris.core.util.CloneHelper;
 import com.adaptris.core.util.ExceptionHelper;
 import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.core.util.ManagedExecutors;
 import com.adaptris.core.util.ManagedThreadFactory;
 import com.adaptris.util.TimeInterval;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
@@ -157,7 +157,8 @@ public class SplitJoinService extends ServiceImp implements EventHandlerAware, S
   }
 
   protected ExecutorService createExecutor() {
-    return Executors.newCachedThreadPool(new ManagedThreadFactory(this.getClass().getSimpleName()));
+    String name = this.getClass().getSimpleName();
+    return ManagedExecutors.newCachedThreadPool(new ManagedThreadFactory(name), name);
   }
 
   @Override
@@ -185,7 +186,7 @@ public class SplitJoinService extends ServiceImp implements EventHandlerAware, S
   }
 
   private Service cloneService(Service original) throws CoreException {
-    Service result = DefaultMarshaller.roundTrip(original);
+    Service result = CloneHelper.deepCopy(original);
     LifecycleHelper.registerEventHandler(result, eventHandler);
     return result;
   }
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.splitter;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotBlank;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.io.IOUtils;
+
+import com.adaptris.annotation.AdvancedConfig;
+import com.adaptris.annotation.DisplayOrder;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.util.CloseableIterable;
+import com.adaptris.core.util.ExceptionHelper;
+import com.adaptris.core.util.XmlHelper;
+import com.adaptris.util.KeyValuePairSet;
+import com.adaptris.util.text.xml.SimpleNamespaceContext;
+import com.adaptris.util.text.xml.StreamingPath;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * {@link MessageSplitter} implementation that splits an XML document using StAX rather than building a DOM.
+ * <p>
+ * This is an alternative to {@link XpathMessageSplitter} for very large documents; the document is read as a stream and each
+ * matching element is only written out as a new message when the iterator is advanced, so memory usage is independent of the
+ * size of the document. In exchange, only a subset of XPath is supported :
+ * </p>
+ * <ul>
+ * <li>The path must be absolute and only contain child steps e.g. {@code /envelope/document}; {@code //} and axes are not
+ * supported.</li>
+ * <li>A step may be {@code *}, or a name which can be prefixed using the configured namespace context; an unprefixed name
+ * matches the local name regardless of the namespace.</li>
+ * <li>A step may have attribute predicates: {@code [@type]}, {@code [@type='order']} or {@code [@type="order"]}; multiple
+ * predicates must all match.</li>
+ * </ul>
+ * <p>
+ * All the namespaces that are in scope for a matching element (i.e. declared on it or on any of its ancestors) are declared on
+ * the root element of each split message, so prefixes used in content (e.g. {@code xsi:type="ns:type"}) still resolve. DTDs and
+ * external entities are not supported.
+ * </p>
+ *
+ * @config streaming-xpath-splitter
+ * @since 3.10
+ */
+@XStreamAlias("streaming-xpath-splitter")
+@DisplayOrder(order = {"xpath", "encoding", "copyMetadata", "copyObjectMetadata", "namespaceContext"})
+public class StreamingXpathSplitter extends MessageSplitterImp {
+
+  @NotBlank
+  private String xpath;
+  @AdvancedConfig
+  private String encoding;
+  @AdvancedConfig(rare = true)
+  private KeyValuePairSet namespaceContext;
+
+  public StreamingXpathSplitter() {
+  }
+
+  public StreamingXpathSplitter(String xpath) {
+    this();
+    setXpath(xpath);
+  }
+
+  @Override
+  public CloseableIterable<AdaptrisMessage> splitMessage(AdaptrisMessage msg) throws CoreException {
+    try {
+      StreamingPath path = StreamingPath.parse(getXpath(), SimpleNamespaceContext.create(getNamespaceContext(), msg));
+      return new StaxSplitGenerator(msg, path);
+    }
+    catch (Exception e) {
+      throw ExceptionHelper.wrapCoreException(e);
+    }
+  }
+
+  /**
+   * Get the XPath to use to extract the individual messages.
+   *
+   * @return the XPath
+   */
+  public String getXpath() {
+    return xpath;
+  }
+
+  /**
+   * Set the XPath to use to extract the individual messages.
+   *
+   * @param xp the XPath, which must be in the supported subset.
+   */
+  public void setXpath(String xp) {
+    xpath = xp;
+  }
+
+  /**
+   * Get the encoding used for the split messages.
+   *
+   * @return the encoding.
+   */
+  public String getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * Set the encoding to use for the split messages.
+   *
+   * @param charSet the encoding; if not specified then the content encoding of the original message is used, or UTF-8 if that
+   *          isn't set.
+   */
+  public void setEncoding(String charSet) {
+    encoding = charSet;
+  }
+
+  public KeyValuePairSet getNamespaceContext() {
+    return namespaceContext;
+  }
+
+  /**
+   * Set the namespace context for resolving prefixes in the XPath.
+   * <ul>
+   * <li>The key is the namespace prefix</li>
+   * <li>The value is the namespace uri</li>
+   * </ul>
+   *
+   * @param kvps the namespace context
+   * @see SimpleNamespaceContext#create(KeyValuePairSet, AdaptrisMessage)
+   */
+  public void setNamespaceContext(KeyValuePairSet kvps) {
+    namespaceContext = kvps;
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
+  }
+
+  private static XMLOutputFactory createOutputFactory() {
+    XMLOutputFactory factory = XMLOutputFactory.newFactory();
+    // Any namespaces declared on ancestors of the split element need to be redeclared.
+    factory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+    return factory;
+  }
+
+  private class StaxSplitGenerator extends SplitMessageIterator {
+    private final StreamingPath path;
+    private final String outputEncoding;
+    private final InputStream input;
+    private final XMLStreamReader reader;
+    private final XMLOutputFactory outputFactory;
+    // depth of the current element, and how many steps of the path the current element matches.
+    private int depth;
+    private int matched;
+    private int numberOfMessages;
+    // The namespace declarations (prefix, uri) of the current element and its ancestors, outermost first.
+    private final Deque<List<String[]>> namespaces = new ArrayDeque<>();
+
+    StaxSplitGenerator(AdaptrisMessage msg, StreamingPath path) throws Exception {
+      super(msg, selectFactory(msg));
+      this.path = path;
+      outputEncoding = XmlHelper.getXmlEncoding(msg, getEncoding());
+      outputFactory = createOutputFactory();
+      input = msg.getInputStream();
+      try {
+        reader = createInputFactory().createXMLStreamReader(input);
+      }
+      catch (XMLStreamException e) {
+        IOUtils.closeQuietly(input);
+        throw e;
+      }
+    }
+
+    @Override
+    protected AdaptrisMessage constructAdaptrisMessage() throws Exception {
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            depth++;
+            namespaces.addLast(declaredNamespaces());
+            if (matched == depth - 1 && depth <= path.length() && path.matches(depth - 1, reader)) {
+              matched = depth;
+              if (matched == path.length()) {
+                return split();
+              }
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (matched == depth) {
+              matched--;
+            }
+            depth--;
+            namespaces.removeLast();
+            break;
+          default:
+        }
+      }
+      return null;
+    }
+
+    // Copy the element the reader is positioned on (and its children) into a new message.
+    private AdaptrisMessage split() throws Exception {
+      AdaptrisMessage splitMsg = factory.newMessage();
+      try (OutputStream out = splitMsg.getOutputStream()) {
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, outputEncoding);
+        try {
+          writer.writeStartDocument(outputEncoding, "1.0");
+          copyElement(writer);
+          writer.writeEndDocument();
+          writer.flush();
+        }
+        finally {
+          writer.close();
+        }
+      }
+      splitMsg.setContentEncoding(outputEncoding);
+      copyMetadata(msg, splitMsg);
+      numberOfMessages++;
+      return splitMsg;
+    }
+
+    private void copyElement(XMLStreamWriter writer) throws XMLStreamException {
+      int level = 0;
+      do {
+        switch (reader.getEventType()) {
+          case XMLStreamConstants.START_ELEMENT:
+            level++;
+            writeStartElement(writer, level == 1 ? inScopeNamespaces() : declaredNamespaces());
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            level--;
+            writer.writeEndElement();
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+            writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            break;
+          case XMLStreamConstants.CDATA:
+            writer.writeCData(reader.getText());
+            break;
+          case XMLStreamConstants.COMMENT:
+            writer.writeComment(reader.getText());
+            break;
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            writer.writeProcessingInstruction(reader.getPITarget(), defaultString(reader.getPIData()));
+            break;
+          case XMLStreamConstants.ENTITY_REFERENCE:
+            writer.writeEntityRef(reader.getLocalName());
+            break;
+          default:
+        }
+        if (level > 0) {
+          reader.next();
+        }
+      }
+      while (level > 0);
+      // We consumed the end element of the split element; the path is no longer matched at this depth.
+      matched--;
+      depth--;
+      namespaces.removeLast();
+    }
+
+    private List<String[]> declaredNamespaces() {
+      List<String[]> result = new ArrayList<>(reader.getNamespaceCount());
+      for (int i = 0; i < reader.getNamespaceCount(); i++) {
+        result.add(new String[] {defaultString(reader.getNamespacePrefix(i)), defaultString(reader.getNamespaceURI(i))});
+      }
+      return result;
+    }
+
+    // Everything declared on the element or its ancestors; the repairing writer would only declare the namespaces that are
+    // used in element and attribute names, not those referenced from content such as xsi:type="prefix:type".
+    private List<String[]> inScopeNamespaces() {
+      Map<String, String[]> result = new LinkedHashMap<>();
+      for (List<String[]> declared : namespaces) {
+        for (String[] ns : declared) {
+          result.put(ns[0], ns);
+        }
+      }
+      return new ArrayList<>(result.values());
+    }
+
+    private void writeStartElement(XMLStreamWriter writer, List<String[]> declarations) throws XMLStreamException {
+      String uri = reader.getNamespaceURI();
+      if (uri == null || uri.isEmpty()) {
+        writer.writeStartElement(reader.getLocalName());
+      }
+      else {
+        writer.writeStartElement(defaultString(reader.getPrefix()), reader.getLocalName(), uri);
+      }
+      for (String[] ns : declarations) {
+        if (ns[0].isEmpty()) {
+          writer.writeDefaultNamespace(ns[1]);
+        }
+        else {
+          writer.writeNamespace(ns[0], ns[1]);
+        }
+      }
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+        writer.writeAttribute(defaultString(reader.getAttributePrefix(i)), defaultString(reader.getAttributeNamespace(i)),
+            reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        reader.close();
+      }
+      catch (XMLStreamException e) {
+        // Nothing we can do about it.
+      }
+      finally {
+        IOUtils.closeQuietly(input);
+      }
+      logR.trace("Split gave {} messages", numberOfMessages);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.transform;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.Templates;
+
+import com.adaptris.core.fs.FsHelper;
+import com.adaptris.util.text.xml.XmlTransformerFactory;
+
+/**
+ * JVM wide, bounded (LRU) cache of compiled {@link Templates} keyed by URL and
+ * {@link XmlTransformerFactory#templatesCacheKey()}.
+ * <p>
+ * This means that clones of the same {@link XmlTransformService} (e.g. in a {@link com.adaptris.core.PoolingWorkflow}) only
+ * compile the stylesheet once. Factories that don't have a cache key only share {@link Templates} with themselves; these are
+ * held against the factory instance in a weak map, so they are discarded along with the factory. If the stylesheet is a local
+ * file, then it is recompiled when its last modified time changes; this is checked at most once every
+ * {@value #CHECK_INTERVAL_SECONDS} seconds.
+ * </p>
+ */
+final class TemplatesCache {
+
+  private static final int MAX_ENTRIES = 64;
+  private static final long CHECK_INTERVAL_SECONDS = 5;
+  private static final long CHECK_INTERVAL_MS = TimeUnit.SECONDS.toMillis(CHECK_INTERVAL_SECONDS);
+  // Not a file, so we can't tell if it's changed.
+  private static final long NOT_A_FILE = -1;
+
+  private static final TemplatesCache INSTANCE = new TemplatesCache(MAX_ENTRIES);
+
+  private final int maxEntries;
+  private final Map<String, CachedTemplates> cache;
+  private final Map<XmlTransformerFactory, Map<String, CachedTemplates>> instanceCache = new WeakHashMap<>();
+
+  TemplatesCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+    cache = newLruMap(maxEntries);
+  }
+
+  static TemplatesCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get the templates for the url compiling them if required.
+   *
+   * @return the templates, or null if the factory does not support {@link Templates}.
+   */
+  Templates get(String url, XmlTransformerFactory factory) throws Exception {
+    String cacheKey = factory.templatesCacheKey();
+    String key = cacheKey != null ? cacheKey + "|" + url : url;
+    CachedTemplates cached;
+    synchronized (this) {
+      cached = cacheFor(factory, cacheKey).get(key);
+    }
+    if (cached != null && cached.isCurrent(url)) {
+      return cached.templates;
+    }
+    long lastModified = lastModified(url);
+    // Compile outside the lock; if two threads race, then we compile twice which is harmless.
+    Templates templates = factory.createTemplates(url);
+    if (templates != null) {
+      synchronized (this) {
+        cacheFor(factory, cacheKey).put(key, new CachedTemplates(templates, lastModified));
+      }
+    }
+    return templates;
+  }
+
+  synchronized void clear() {
+    cache.clear();
+    instanceCache.clear();
+  }
+
+  synchronized int size() {
+    int result = cache.size();
+    for (Map<String, CachedTemplates> m : instanceCache.values()) {
+      result += m.size();
+    }
+    return result;
+  }
+
+  private Map<String, CachedTemplates> cacheFor(XmlTransformerFactory factory, String cacheKey) {
+    if (cacheKey != null) {
+      return cache;
+    }
+    return instanceCache.computeIfAbsent(factory, k -> newLruMap(maxEntries));
+  }
+
+  private static Map<String, CachedTemplates> newLruMap(int maxEntries) {
+    return new LinkedHashMap<String, CachedTemplates>(maxEntries, 0.75f, true) {
+      private static final long serialVersionUID = 2020051801L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedTemplates> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  private static long lastModified(String url) {
+    try {
+      if (url.startsWith("file:") || !url.contains(":/")) {
+        File f = FsHelper.toFile(url);
+        return f.exists() ? f.lastModified() : NOT_A_FILE;
+      }
+    }
+    catch (Exception e) {
+      // Treat it as something we can't check.
+    }
+    return NOT_A_FILE;
+  }
+
+  private static class CachedTemplates {
+    private final Templates templates;
+    private final long lastModified;
+    private volatile long lastChecked;
+
+    CachedTemplates(Templates t, long l) {
+      templates = t;
+      lastModified = l;
+      lastChecked = System.currentTimeMillis();
+    }
+
+    boolean isCurrent(String url) {
+      long now = System.currentTimeMillis();
+      if (now - lastChecked < CHECK_INTERVAL_MS) {
+        return true;
+      }
+      if (lastModified(url) == lastModified) {
+        lastChecked = now;
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -20,11 +20,15 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 
 import org.apache.commons.lang3.BooleanUtils;
@@ -57,6 +61,14 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  * <p>
  * Configuration including allow over-ride behaviour matches previous implementation.
  * </p>
+ * <p>
+ * If {@link #getCacheTransforms()} is true (the default) then the compiled stylesheet ({@link Templates}) is held in a JVM wide
+ * cache keyed by URL, and this service keeps a pool of {@link Transformer} instances created from it; each message borrows one
+ * for the duration of the transform. This means that the service can be used concurrently, and clones of the service (e.g. in
+ * a {@link com.adaptris.core.PoolingWorkflow}) do not recompile the stylesheet. Transformers aren't tied to a thread, so they
+ * are still reused if each message is processed on a new thread (e.g. when using virtual threads via
+ * {@link com.adaptris.core.util.ManagedExecutors}). Local stylesheets are recompiled if they are modified.
+ * </p>
  * 
  * @config xml-transform-service
  * 
@@ -89,7 +101,8 @@ public class XmlTransformService extends ServiceImp {
   @Valid
   private XmlTransformParameter transformParameter;
 
-  private transient HashMap<String, Transformer> transforms = null;
+  // Idle transformers keyed by URL, most recently used first.
+  private transient Map<String, Deque<CachedTransformer>> transforms = null;
   // This is the override value which is set to true if url is null
   private transient Boolean overrideAllowOverride;
 
@@ -102,7 +115,7 @@ public class XmlTransformService extends ServiceImp {
   public XmlTransformService() {
     setMetadataKey(CoreConstants.TRANSFORM_OVERRIDE);
     xmlTransformerFactory = new XsltTransformerFactory();
-    this.setTransforms(new HashMap<String, Transformer>());
+    transforms = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -117,6 +130,7 @@ public class XmlTransformService extends ServiceImp {
 
   @Override
   protected void closeService() {
+    transforms.clear();
   }
 
   /**
@@ -163,12 +177,14 @@ public class XmlTransformService extends ServiceImp {
 
   private void doTransform(AdaptrisMessage msg, String urlToUse) throws ServiceException {
     XmlTransformer xmlTransformerImpl = new XmlTransformer();
+    CachedTransformer cached = null;
     Transformer transformer = null;
 
     try {
 
       if (cacheTransforms()) {
-        transformer = this.cacheAndGetTransformer(urlToUse, this.getXmlTransformerFactory());
+        cached = borrowTransformer(urlToUse, this.getXmlTransformerFactory());
+        transformer = cached.transformer;
       }
       else {
         transformer = this.getXmlTransformerFactory().createTransformer(urlToUse);
@@ -185,18 +201,32 @@ public class XmlTransformService extends ServiceImp {
       if (!StringUtils.isBlank(getOutputMessageEncoding())) {
         msg.setContentEncoding(getOutputMessageEncoding());
       }
+      // Only reuse it if the transform succeeded, it may be in an unknown state otherwise.
+      releaseTransformer(urlToUse, cached);
     }
     catch (Exception e) {
       throw new ServiceException("failed to transform message", e);
     }
   }
 
-  private Transformer cacheAndGetTransformer(String urlToUse, XmlTransformerFactory xmlTransformerFactory) throws Exception {
-    if (this.getTransforms().containsKey(urlToUse)) return this.getTransforms().get(urlToUse);
-    else {
-      Transformer transformer = xmlTransformerFactory.createTransformer(urlToUse);
-      this.getTransforms().put(urlToUse, transformer);
-      return transformer;
+  private CachedTransformer borrowTransformer(String urlToUse, XmlTransformerFactory xmlTransformerFactory) throws Exception {
+    // null if the factory doesn't support templates.
+    Templates templates = TemplatesCache.getInstance().get(urlToUse, xmlTransformerFactory);
+    Deque<CachedTransformer> idle = transforms.computeIfAbsent(urlToUse, k -> new ConcurrentLinkedDeque<>());
+    for (CachedTransformer cached = idle.pollFirst(); cached != null; cached = idle.pollFirst()) {
+      // Discard any that were created from a stylesheet that has since been modified.
+      if (cached.templates == templates) {
+        return cached;
+      }
+    }
+    Transformer transformer = templates != null ? templates.newTransformer() : xmlTransformerFactory.createTransformer(urlToUse);
+    return new CachedTransformer(templates, transformer);
+  }
+
+  private void releaseTransformer(String urlToUse, CachedTransformer cached) {
+    Deque<CachedTransformer> idle = cached != null ? transforms.get(urlToUse) : null;
+    if (idle != null) {
+      idle.offerFirst(cached);
     }
   }
 
@@ -356,11 +386,25 @@ public class XmlTransformService extends ServiceImp {
     return getTransformParameter() != null ? getTransformParameter() : new IgnoreMetadataParameter();
   }
 
-  HashMap<String, Transformer> getTransforms() {
-    return transforms;
+  // The transformer that will be used next for each URL.
+  Map<String, Transformer> getTransforms() {
+    Map<String, Transformer> result = new HashMap<>();
+    transforms.forEach((k, v) -> {
+      CachedTransformer cached = v.peekFirst();
+      if (cached != null) {
+        result.put(k, cached.transformer);
+      }
+    });
+    return result;
   }
 
-  void setTransforms(HashMap<String, Transformer> transforms) {
-    this.transforms = transforms;
+  private static class CachedTransformer {
+    private final Templates templates;
+    private final Transformer transformer;
+
+    CachedTransformer(Templates templates, Transformer transformer) {
+      this.templates = templates;
+      this.transformer = transformer;
+    }
   }
 }
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.util;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adaptris.core.AdapterXStreamMarshallerFactory;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.DefaultMarshaller;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.reflection.ReflectionConverter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+/**
+ * Helper class that makes deep copies of configuration (e.g. services).
+ * <p>
+ * Configuration has traditionally been copied by marshalling it to XML and back again, which is expensive if it happens for every
+ * split message, or every worker in a pool. This copies the object graph directly instead, following the same rules as the XStream
+ * marshaller: each object is created with its no-arg constructor and then has its non-static, non-transient fields copied. A field
+ * that is null is left with whatever value the constructor assigned, and an object that is referenced more than once is only
+ * copied once. How each class is to be copied is worked out the first time it is seen and then reused.
+ * </p>
+ * <p>
+ * Only classes that XStream would marshal field by field, well known immutable types, arrays and the standard collections are
+ * copied directly. Anything else (e.g. something with a custom converter) is copied by marshalling just that object to XML and
+ * back. If the object graph can't be copied directly, then the whole thing is marshalled to XML and back.
+ * </p>
+ *
+ * @since 3.10
+ */
+public abstract class CloneHelper {
+
+  private static Logger log = LoggerFactory.getLogger(CloneHelper.class);
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class, Byte.class,
+      Short.class, Integer.class, Long.class, Float.class, Double.class, Character.class, BigInteger.class, BigDecimal.class,
+      Class.class, Locale.class, UUID.class, URI.class, URL.class, File.class, Pattern.class));
+
+  // The collections that XStream's CollectionConverter and MapConverter handle.
+  private static final Map<Class<?>, Supplier<Collection<Object>>> COLLECTION_TYPES = new HashMap<>();
+  private static final Map<Class<?>, Supplier<Map<Object, Object>>> MAP_TYPES = new HashMap<>();
+
+  static {
+    COLLECTION_TYPES.put(ArrayList.class, ArrayList::new);
+    COLLECTION_TYPES.put(LinkedList.class, LinkedList::new);
+    COLLECTION_TYPES.put(HashSet.class, HashSet::new);
+    COLLECTION_TYPES.put(LinkedHashSet.class, LinkedHashSet::new);
+    COLLECTION_TYPES.put(Vector.class, Vector::new);
+    MAP_TYPES.put(HashMap.class, HashMap::new);
+    MAP_TYPES.put(LinkedHashMap.class, LinkedHashMap::new);
+    MAP_TYPES.put(Hashtable.class, Hashtable::new);
+  }
+
+  private static final Copier SAME_INSTANCE = (o, copies) -> o;
+
+  private static final Copier MARSHALLED_COPY = (o, copies) -> {
+    Object result = DefaultMarshaller.roundTrip(o);
+    copies.put(o, result);
+    return result;
+  };
+
+  private static final Map<Class<?>, Copier> COPIERS = new ConcurrentHashMap<>();
+
+  /**
+   * Make a deep copy of the object.
+   *
+   * @param original the object to copy.
+   * @return a copy of the object, equivalent to {@link DefaultMarshaller#roundTrip(Object)}.
+   * @throws CoreException if the object could not be copied.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T deepCopy(T original) throws CoreException {
+    try {
+      return (T) copy(original, new IdentityHashMap<>());
+    }
+    catch (Exception e) {
+      log.trace("Failed to copy [{}] directly, marshalling it instead : {}", original.getClass().getName(), e.getMessage());
+      return DefaultMarshaller.roundTrip(original);
+    }
+  }
+
+  private static Object copy(Object o, Map<Object, Object> copies) throws Exception {
+    if (o == null) {
+      return null;
+    }
+    Object existing = copies.get(o);
+    if (existing != null) {
+      return existing;
+    }
+    return COPIERS.computeIfAbsent(o.getClass(), CloneHelper::createCopier).copy(o, copies);
+  }
+
+  private static Copier createCopier(Class<?> type) {
+    if (type.isPrimitive() || IMMUTABLE_TYPES.contains(type) || Enum.class.isAssignableFrom(type)) {
+      return SAME_INSTANCE;
+    }
+    if (type.isArray()) {
+      return type.getComponentType().isPrimitive() ? CloneHelper::copyPrimitiveArray : CloneHelper::copyArray;
+    }
+    if (COLLECTION_TYPES.containsKey(type)) {
+      return new CollectionCopier(COLLECTION_TYPES.get(type));
+    }
+    if (MAP_TYPES.containsKey(type)) {
+      return new MapCopier(MAP_TYPES.get(type));
+    }
+    try {
+      XStream xstream = XStreamHolder.INSTANCE;
+      if (xstream.getConverterLookup().lookupConverterForType(type).getClass() == ReflectionConverter.class) {
+        return new FieldCopier(type, xstream.getMapper());
+      }
+    }
+    catch (Exception e) {
+      log.trace("Can't copy [{}] directly : {}", type.getName(), e.getMessage());
+    }
+    return MARSHALLED_COPY;
+  }
+
+  private static Object copyPrimitiveArray(Object o, Map<Object, Object> copies) {
+    int length = Array.getLength(o);
+    Object result = Array.newInstance(o.getClass().getComponentType(), length);
+    System.arraycopy(o, 0, result, 0, length);
+    copies.put(o, result);
+    return result;
+  }
+
+  private static Object copyArray(Object o, Map<Object, Object> copies) throws Exception {
+    Object[] original = (Object[]) o;
+    Object[] result = (Object[]) Array.newInstance(o.getClass().getComponentType(), original.length);
+    copies.put(o, result);
+    for (int i = 0; i < original.length; i++) {
+      result[i] = copy(original[i], copies);
+    }
+    return result;
+  }
+
+  private static boolean isEmpty(Object o) {
+    if (o instanceof Collection) {
+      return ((Collection<?>) o).isEmpty();
+    }
+    if (o instanceof Map) {
+      return ((Map<?, ?>) o).isEmpty();
+    }
+    return o.getClass().isArray() && Array.getLength(o) == 0;
+  }
+
+  private static boolean hasMethod(Class<?> c, String name) {
+    try {
+      c.getDeclaredMethod(name);
+      return true;
+    }
+    catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Copier {
+    Object copy(Object o, Map<Object, Object> copies) throws Exception;
+  }
+
+  private static class CollectionCopier implements Copier {
+    private final Supplier<Collection<Object>> factory;
+
+    CollectionCopier(Supplier<Collection<Object>> factory) {
+      this.factory = factory;
+    }
+
+    @Override
+    public Object copy(Object o, Map<Object, Object> copies) throws Exception {
+      Collection<Object> result = factory.get();
+      copies.put(o, result);
+      for (Object item : (Collection<?>) o) {
+        result.add(CloneHelper.copy(item, copies));
+      }
+      return result;
+    }
+  }
+
+  private static class MapCopier implements Copier {
+    private final Supplier<Map<Object, Object>> factory;
+
+    MapCopier(Supplier<Map<Object, Object>> factory) {
+      this.factory = factory;
+    }
+
+    @Override
+    public Object copy(Object o, Map<Object, Object> copies) throws Exception {
+      Map<Object, Object> result = factory.get();
+      copies.put(o, result);
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+        result.put(CloneHelper.copy(entry.getKey(), copies), CloneHelper.copy(entry.getValue(), copies));
+      }
+      return result;
+    }
+  }
+
+  // Mirrors what ReflectionConverter + PureJavaReflectionProvider would do when unmarshalling.
+  private static class FieldCopier implements Copier {
+    private final Constructor<?> constructor;
+    private final Field[] fields;
+    private final boolean[] implicit;
+
+    FieldCopier(Class<?> type, Mapper mapper) throws NoSuchMethodException {
+      constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      List<Field> fieldList = new ArrayList<>();
+      List<Boolean> implicitList = new ArrayList<>();
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        if (hasMethod(c, "readResolve")) {
+          throw new UnsupportedOperationException(c.getName() + " has a readResolve() method");
+        }
+        for (Field f : c.getDeclaredFields()) {
+          int modifiers = f.getModifiers();
+          if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || f.isSynthetic()
+              || !mapper.shouldSerializeMember(c, f.getName())) {
+            continue;
+          }
+          if (mapper.getLocalConverter(c, f.getName()) != null) {
+            throw new UnsupportedOperationException(c.getName() + "#" + f.getName() + " has its own converter");
+          }
+          f.setAccessible(true);
+          fieldList.add(f);
+          implicitList.add(mapper.getImplicitCollectionDefForFieldName(c, f.getName()) != null);
+        }
+      }
+      fields = fieldList.toArray(new Field[0]);
+      implicit = new boolean[fields.length];
+      for (int i = 0; i < implicit.length; i++) {
+        implicit[i] = implicitList.get(i);
+      }
+    }
+
+    @Override
+    public Object copy(Object o, Map<Object, Object> copies) throws Exception {
+      Object result = constructor.newInstance();
+      copies.put(o, result);
+      for (int i = 0; i < fields.length; i++) {
+        Object value = fields[i].get(o);
+        // XStream doesn't write out nulls or empty implicit collections, so the constructor's value would be kept.
+        if (value == null || implicit[i] && isEmpty(value)) {
+          continue;
+        }
+        fields[i].set(result, CloneHelper.copy(value, copies));
+      }
+      return result;
+    }
+  }
+
+  private static class XStreamHolder {
+    private static final XStream INSTANCE = AdapterXStreamMarshallerFactory.getInstance().createXStream();
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.util;
+
+import static org.apache.commons.lang3.BooleanUtils.toBooleanDefaultIfNull;
+import static org.apache.commons.lang3.BooleanUtils.toBooleanObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adaptris.util.NumberUtils;
+
+/**
+ * Creates the {@link ExecutorService} instances used by workflows and services, optionally using virtual threads.
+ * <p>
+ * If {@value #SYSPROP_USE_VIRTUAL_THREADS} is set to true and the JVM supports virtual threads (Java 21+) then each task is
+ * executed on its own virtual thread; a {@link Semaphore} limits the number of tasks that execute concurrently so that
+ * downstream systems are still protected. The limit is the number of threads that would have been used for a fixed size pool,
+ * or {@value #SYSPROP_VIRTUAL_THREAD_CONCURRENCY} (default {@value #DEFAULT_VIRTUAL_THREAD_CONCURRENCY}) for pools that were
+ * previously unbounded. Tasks waiting for a permit are parked virtual threads rather than entries in a queue; they are still
+ * returned by {@link ExecutorService#shutdownNow()}.
+ * </p>
+ * <p>
+ * If virtual threads are not enabled, or not supported, then the behaviour is exactly the same as the equivalent
+ * {@link Executors} method.
+ * </p>
+ * <p>
+ * Since each task gets a new virtual thread, anything that is cached in a {@link ThreadLocal} is never reused; so components
+ * should pool or share such instances instead (as {@link com.adaptris.core.transform.XmlTransformService} does with its
+ * transformers).
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class ManagedExecutors {
+
+  /**
+   * {@value #SYSPROP_USE_VIRTUAL_THREADS} controls whether virtual threads are used when available (defaults to false).
+   */
+  public static final String SYSPROP_USE_VIRTUAL_THREADS = "interlok.useVirtualThreads";
+
+  /**
+   * {@value #SYSPROP_VIRTUAL_THREAD_CONCURRENCY} is the maximum number of concurrent tasks for executors that would otherwise be
+   * unbounded.
+   */
+  public static final String SYSPROP_VIRTUAL_THREAD_CONCURRENCY = "interlok.virtualThreads.maxConcurrency";
+
+  public static final int DEFAULT_VIRTUAL_THREAD_CONCURRENCY = 256;
+
+  private static final Logger log = LoggerFactory.getLogger(ManagedExecutors.class);
+
+  private static final boolean virtualThreadsSupported = checkVirtualThreads();
+
+  private ManagedExecutors() {
+  }
+
+  /**
+   * Whether virtual threads have been enabled via {@value #SYSPROP_USE_VIRTUAL_THREADS} and are supported by this JVM.
+   */
+  public static boolean useVirtualThreads() {
+    return virtualThreadsSupported
+        && toBooleanDefaultIfNull(toBooleanObject(System.getProperty(SYSPROP_USE_VIRTUAL_THREADS)), false);
+  }
+
+  /**
+   * Whether the thread is a virtual thread.
+   *
+   * @param t the thread.
+   * @return true if virtual threads are supported and this is one.
+   */
+  public static boolean isVirtual(Thread t) {
+    if (!virtualThreadsSupported) {
+      return false;
+    }
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual").invoke(t);
+    }
+    catch (Exception e) {
+      return false;
+    }
+  }
+
+  /**
+   * Equivalent to {@link Executors#newFixedThreadPool(int, ThreadFactory)}.
+   *
+   * @param threads the number of threads, or the number of tasks that can run concurrently if using virtual threads.
+   * @param factory the thread factory to use for platform threads.
+   * @param prefix the thread name prefix for virtual threads.
+   */
+  public static ExecutorService newFixedThreadPool(int threads, ThreadFactory factory, String prefix) {
+    if (useVirtualThreads()) {
+      return new LimitedExecutorService(newVirtualThreadPerTaskExecutor(prefix), threads);
+    }
+    return Executors.newFixedThreadPool(threads, factory);
+  }
+
+  /**
+   * Equivalent to {@link Executors#newCachedThreadPool(ThreadFactory)}.
+   *
+   * @param factory the thread factory to use for platform threads.
+   * @param prefix the thread name prefix for virtual threads.
+   */
+  public static ExecutorService newCachedThreadPool(ThreadFactory factory, String prefix) {
+    if (useVirtualThreads()) {
+      int limit = NumberUtils.toIntDefaultIfNull(toInteger(System.getProperty(SYSPROP_VIRTUAL_THREAD_CONCURRENCY)),
+          DEFAULT_VIRTUAL_THREAD_CONCURRENCY);
+      return new LimitedExecutorService(newVirtualThreadPerTaskExecutor(prefix), limit);
+    }
+    return Executors.newCachedThreadPool(factory);
+  }
+
+  /**
+   * Equivalent to {@link Executors#newSingleThreadExecutor()}.
+   * <p>
+   * Tasks are still executed in order; if using virtual threads then the single thread is a virtual thread.
+   * </p>
+   *
+   * @param prefix the thread name prefix for virtual threads.
+   */
+  public static ExecutorService newSingleThreadExecutor(String prefix) {
+    if (useVirtualThreads()) {
+      return Executors.newSingleThreadExecutor(virtualThreadFactory(prefix));
+    }
+    return Executors.newSingleThreadExecutor();
+  }
+
+  private static boolean checkVirtualThreads() {
+    try {
+      virtualThreadFactory(ManagedExecutors.class.getSimpleName());
+      return true;
+    }
+    catch (Exception | LinkageError e) {
+      return false;
+    }
+  }
+
+  // Thread.ofVirtual().name(prefix, 0).factory(); via reflection since we compile against Java 8.
+  private static ThreadFactory virtualThreadFactory(String prefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    }
+    catch (Exception e) {
+      throw new UnsupportedOperationException("Virtual threads are not supported", e);
+    }
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null,
+          virtualThreadFactory(prefix));
+    }
+    catch (Exception e) {
+      throw new UnsupportedOperationException("Virtual threads are not supported", e);
+    }
+  }
+
+  private static Integer toInteger(String s) {
+    try {
+      return s != null ? Integer.valueOf(s.trim()) : null;
+    }
+    catch (NumberFormatException e) {
+      log.warn("[{}] is not a valid value for {}", s, SYSPROP_VIRTUAL_THREAD_CONCURRENCY);
+      return null;
+    }
+  }
+
+  /**
+   * Wraps a thread-per-task executor with a limit on the number of tasks running at once.
+   */
+  static class LimitedExecutorService extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final Set<Task> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown;
+
+    LimitedExecutorService(ExecutorService delegate, int limit) {
+      this.delegate = delegate;
+      permits = new Semaphore(Math.max(1, limit), true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      if (shutdown) {
+        throw new RejectedExecutionException("Executor has been shutdown");
+      }
+      Task task = new Task(command);
+      pending.add(task);
+      delegate.execute(task);
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+      delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      shutdown = true;
+      List<Runnable> result = new ArrayList<>();
+      for (Task t : pending) {
+        if (pending.remove(t)) {
+          result.add(t.command);
+        }
+      }
+      delegate.shutdownNow();
+      return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
+    }
+
+    private class Task implements Runnable {
+      private final Runnable command;
+
+      Task(Runnable r) {
+        command = r;
+      }
+
+      @Override
+      public void run() {
+        try {
+          permits.acquire();
+        }
+        catch (InterruptedException e) {
+          // shutdownNow(); it's been returned as a task that never ran.
+          Thread.currentThread().interrupt();
+          return;
+        }
+        try {
+          // If it's no longer pending, then shutdownNow() has claimed it.
+          if (pending.remove(this)) {
+            command.run();
+          }
+        }
+        finally {
+          permits.release();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.fs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+/**
+ * Helper methods that move data between files using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * or a hard link, so that the contents never need to be copied into the Java heap.
+ *
+ * @since 3.10
+ */
+public abstract class FileTransfer {
+
+  private static final int FALLBACK_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Copy the contents of one file to another.
+   *
+   * @param src the source file.
+   * @param dest the destination file; created if it doesn't exist.
+   * @param append if true, then append to any existing content, otherwise any existing content is replaced.
+   * @return the number of bytes copied.
+   * @throws IOException wrapping any underlying exception.
+   */
+  public static long copy(File src, File dest, boolean append) throws IOException {
+    try (FileInputStream in = new FileInputStream(src); FileOutputStream out = new FileOutputStream(dest, append)) {
+      return transfer(in.getChannel(), out.getChannel());
+    }
+  }
+
+  /**
+   * Transfer the entire contents of one channel to the current position of another.
+   * <p>
+   * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} is allowed to transfer fewer bytes than
+   * requested (and some network filesystems have been known to return 0); if that happens then the remainder is copied via a
+   * direct buffer.
+   * </p>
+   *
+   * @param in the source channel, which is read from position 0.
+   * @param out the destination channel.
+   * @return the number of bytes transferred.
+   * @throws IOException wrapping any underlying exception.
+   */
+  public static long transfer(FileChannel in, FileChannel out) throws IOException {
+    long size = in.size();
+    long position = 0;
+    while (position < size) {
+      long count = in.transferTo(position, size - position, out);
+      if (count <= 0) {
+        return position + copyRemaining(in.position(position), out);
+      }
+      position += count;
+    }
+    return position;
+  }
+
+  /**
+   * Create {@code dest} as a hard link to {@code src}, so that it has the same contents without copying them.
+   * <p>
+   * The two files share storage; so this should only be used when neither file will be modified in place afterwards.
+   * </p>
+   *
+   * @param src the source file.
+   * @param dest the destination file, which must not exist.
+   * @return true if the link was created, false if it couldn't be (e.g. the files are on different filesystems, the filesystem
+   *         doesn't support hard links or the destination already exists); in which case the contents should be copied instead.
+   */
+  public static boolean link(File src, File dest) {
+    try {
+      Files.createLink(dest.toPath(), src.toPath());
+      return true;
+    }
+    catch (UnsupportedOperationException | IOException | SecurityException e) {
+      return false;
+    }
+  }
+
+  private static long copyRemaining(FileChannel in, FileChannel out) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(FALLBACK_BUFFER_SIZE);
+    long total = 0;
+    while (in.read(buffer) != -1) {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        total += out.write(buffer);
+      }
+      buffer.clear();
+    }
+    return total;
+  }
+}
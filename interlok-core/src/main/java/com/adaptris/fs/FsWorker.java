@@ -18,6 +18,7 @@ package com.adaptris.fs;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
 
 import com.adaptris.core.util.Args;
 
@@ -87,6 +88,53 @@ public interface FsWorker {
    */
   void put(byte[] data, File file) throws FsException;
 
+  /**
+   * <p>
+   * Gets the contents of the specified <code>File</code>, writing them to <code>destination</code> rather than returning them;
+   * any existing contents of <code>destination</code> are replaced. If the file doesn't exist or other I/O problems are
+   * encountered a <code>FsException</code> will be thrown.
+   * </p>
+   * <p>
+   * The default implementation uses {@link FileTransfer} so that the contents are never read into memory.
+   * </p>
+   *
+   * @param file the <code>File</code> to get
+   * @param destination the file to write the contents to.
+   * @throws FsException wrapping any underlying Exception that may occur
+   * @since 3.10
+   */
+  default void get(File file, File destination) throws FsException {
+    try {
+      FileTransfer.copy(checkWriteable(file), destination, false);
+    }
+    catch (IOException e) {
+      throw new FsException(e);
+    }
+  }
+
+  /**
+   * <p>
+   * Writes the contents of <code>source</code> to the specified <code>file</code>, with the same semantics as
+   * {@link #put(byte[], File)}.
+   * </p>
+   * <p>
+   * The default implementation uses {@link FileTransfer} so that the contents are never read into memory.
+   * </p>
+   *
+   * @param source the file containing the data to write
+   * @param file the file to write to
+   * @throws FsException wrapping any underlying Exception that may occur
+   * @since 3.10
+   */
+  default void put(File source, File file) throws FsException {
+    try {
+      FileTransfer.copy(checkReadable(source), checkNonExistent(file), false);
+    }
+    catch (IOException e) {
+      throw new FsException(e);
+    }
+  }
+
   /**
    * <p>
    * Renames <code>oldfile</code> to <code>newName</code>. If <code>oldFile</code> does not exist or is a directory, or if
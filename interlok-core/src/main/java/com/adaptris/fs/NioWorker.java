@@ -17,9 +17,11 @@
 package com.adaptris.fs;
 
 import static com.adaptris.fs.FsWorker.checkNonExistent;
+import static com.adaptris.fs.FsWorker.checkReadable;
 import static com.adaptris.fs.FsWorker.checkWriteable;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
@@ -29,6 +31,10 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 /**
  * Implementation of {@link FsWorker} that uses java.nio to perform put and get operations.
+ * <p>
+ * Files are locked with a {@link FileLock} while they are being read or written; {@link #put(File, File)} and
+ * {@link #get(File, File)} transfer data directly between the files' channels.
+ * </p>
  * 
  * @config fs-nio-worker
  */
@@ -54,6 +60,23 @@ public class NioWorker extends StandardWorker {
     }
   }
 
+  @Override
+  public void put(File source, File file) throws FsException {
+    write(source, checkNonExistent(file));
+  }
+
+  protected void write(File source, File file) throws FsException {
+    try (FileInputStream in = new FileInputStream(checkReadable(source));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        FileChannel channel = raf.getChannel();
+        FileLock lock = channel.lock()) {
+      FileTransfer.transfer(in.getChannel(), channel);
+    }
+    catch (Exception e) {
+      throw wrapException(e);
+    }
+  }
+
   @Override
   public byte[] get(File file) throws FsException {
     ByteBuffer buffer = null;
@@ -72,4 +95,19 @@ public class NioWorker extends StandardWorker {
     return buffer.array();
   }
 
+  @Override
+  public void get(File file, File destination) throws FsException {
+    try (RandomAccessFile raf = new RandomAccessFile(checkWriteable(file), "rw");
+        FileChannel channel = raf.getChannel();
+        FileLock lock = channel.lock();
+        RandomAccessFile out = new RandomAccessFile(destination, "rw");
+        FileChannel outChannel = out.getChannel()) {
+      outChannel.truncate(0);
+      FileTransfer.transfer(channel, outChannel);
+    }
+    catch (Exception e) {
+      throw wrapException(e);
+    }
+  }
+
 }
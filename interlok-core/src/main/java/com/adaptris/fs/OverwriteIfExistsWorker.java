@@ -37,4 +37,13 @@ public class OverwriteIfExistsWorker extends NioWorker {
     }
     super.put(data, file);
   }
+
+  @Override
+  public void put(File source, File file) throws FsException {
+    Args.notNull(file, "file");
+    if (file.exists() && !file.delete()) {
+      throw new FsException("Could not delete [" + file + "]");
+    }
+    super.put(source, file);
+  }
 }
@@ -356,7 +356,7 @@ public class MultiPartOutput implements MimeConstants {
   /**
    * Write the internet headers out to the supplied outputstream
    */
-  private static void writeHeaders(InternetHeaders header, OutputStream out) throws IOException, MessagingException {
+  static void writeHeaders(InternetHeaders header, OutputStream out) throws IOException, MessagingException {
 
     Enumeration e = header.getAllHeaderLines();
     PrintStream p = new PrintStream(out);
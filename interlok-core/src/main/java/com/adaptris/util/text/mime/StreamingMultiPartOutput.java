@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.util.text.mime;
+
+import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.internet.MimeUtility;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+
+/**
+ * Handle creation of multipart mime output where the parts are written as they are added.
+ * <p>
+ * This produces the same output as {@link MultiPartOutput}, but each part is encoded and written out as soon as it is added, rather
+ * than being held until the multipart is written. Parts are held in memory until they exceed 10Mb, after which they are written to
+ * a temporary file; this is deleted when this instance is closed.
+ * </p>
+ * <p>
+ * Since the headers can only be written once the size of the multipart is known, they may be modified at any point until
+ * {@link #writeTo(OutputStream)} is called; however parts cannot be removed once added.
+ * </p>
+ *
+ * @since 3.10
+ */
+public class StreamingMultiPartOutput implements MimeConstants, Closeable {
+  private static final String DEFAULT_SUB_TYPE = "mixed";
+  // The size at which the parts are written to a temporary file (10Mb)
+  private static final int DEFAULT_THRESHOLD = 1024 * 1024 * 10;
+  private static final String TMP_FILE_PREFIX = "mime";
+  private static final String TMP_FILE_SUFFIX = ".tmp";
+
+  private InternetHeaders mimeHeader;
+  private String contentType;
+  private String boundary;
+  private DeferredFileOutputStream parts;
+  private int partCount = 0;
+  private boolean written = false;
+
+  /**
+   * Constructor.
+   *
+   * @param mimeId the Message-ID header to assign to this multi-part
+   * @param subtype the multi-part subtype, defaults to mixed if blank.
+   * @throws MessagingException if there was a failure to create the underlying Mime Multipart
+   */
+  public StreamingMultiPartOutput(String mimeId, String subtype) throws MessagingException {
+    this(mimeId, subtype, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param mimeId the Message-ID header to assign to this multi-part
+   * @param subtype the multi-part subtype, defaults to mixed if blank.
+   * @param tempFile the file to write the parts to once they exceed the in memory threshold; if null, then a temporary file will
+   *          be created in the default temporary-file directory as required.
+   * @throws MessagingException if there was a failure to create the underlying Mime Multipart
+   */
+  public StreamingMultiPartOutput(String mimeId, String subtype, File tempFile) throws MessagingException {
+    if (isBlank(mimeId)) {
+      throw new MessagingException("Message Id cannot be null");
+    }
+    mimeHeader = new InternetHeaders();
+    mimeHeader.setHeader(HEADER_MIME_VERSION, "1.0");
+    mimeHeader.setHeader(HEADER_MESSAGE_ID, mimeId);
+    contentType = new MimeMultipart(defaultIfBlank(subtype, DEFAULT_SUB_TYPE)).getContentType();
+    boundary = "--" + new ContentType(contentType).getParameter("boundary");
+    parts = tempFile != null ? new DeferredFileOutputStream(DEFAULT_THRESHOLD, tempFile)
+        : new DeferredFileOutputStream(DEFAULT_THRESHOLD, TMP_FILE_PREFIX, TMP_FILE_SUFFIX, null);
+  }
+
+  /**
+   * Add a new part to the mime multipart.
+   *
+   * @param payload the data, which is not closed by this method.
+   * @param encoding the encoding to apply, if null then no encoding is applied.
+   * @param header the headers for the part.
+   * @param contentId the id to set the content with.
+   * @throws MessagingException if the encoding is not supported
+   * @throws IOException if there was an IOException
+   */
+  public void addPart(InputStream payload, String encoding, InternetHeaders header, String contentId)
+      throws MessagingException, IOException {
+    if (written) {
+      throw new IOException("Multipart has already been written");
+    }
+    if (!isBlank(encoding)) {
+      header.setHeader(HEADER_CONTENT_ENCODING, encoding);
+    }
+    header.setHeader(HEADER_CONTENT_ID, contentId);
+    writeLine(boundary);
+    for (Enumeration<String> e = header.getAllHeaderLines(); e.hasMoreElements();) {
+      writeLine(e.nextElement());
+    }
+    writeLine("");
+    try (OutputStream out = wrap(new CloseShieldOutputStream(parts), encoding)) {
+      IOUtils.copy(payload, out);
+    }
+    writeLine("");
+    partCount++;
+  }
+
+  /**
+   * Write the multipart to the given output stream.
+   * <p>
+   * This can only be done once, as the parts are not retained afterwards.
+   * </p>
+   *
+   * @param out the output stream.
+   * @throws MessagingException if there are no parts.
+   * @throws IOException if there was an IOException
+   */
+  public void writeTo(OutputStream out) throws MessagingException, IOException {
+    if (written) {
+      throw new IOException("Multipart has already been written");
+    }
+    if (partCount == 0) {
+      throw new MessagingException("Empty multipart: " + contentType);
+    }
+    written = true;
+    writeLine(boundary + "--");
+    parts.close();
+    mimeHeader.setHeader(HEADER_CONTENT_TYPE, contentType);
+    mimeHeader.setHeader(HEADER_CONTENT_LENGTH, String.valueOf(parts.getByteCount()));
+    MultiPartOutput.writeHeaders(mimeHeader, out);
+    parts.writeTo(out);
+  }
+
+  /**
+   * Set an arbitary header to the headers prefixed to the start of the multipart.
+   * <p>
+   * The Content-Type and Content-Length will always be overridden with the content-type and length of the mime multipart
+   * </p>
+   *
+   * @param key the key
+   * @param value the value.
+   * @see javax.mail.internet.InternetHeaders
+   */
+  public void setHeader(String key, String value) {
+    mimeHeader.setHeader(key, value);
+  }
+
+  /**
+   * Return the underlying mime header that will be used to write the headers.
+   *
+   * @return the internet header.
+   */
+  public InternetHeaders getMimeHeader() {
+    return mimeHeader;
+  }
+
+  /**
+   * Discard the parts, deleting any temporary file.
+   */
+  @Override
+  public void close() {
+    IOUtils.closeQuietly(parts);
+    FileUtils.deleteQuietly(parts.getFile());
+  }
+
+  private void writeLine(String s) throws IOException {
+    parts.write(s.getBytes(StandardCharsets.ISO_8859_1));
+    parts.write('\r');
+    parts.write('\n');
+  }
+
+  private static OutputStream wrap(OutputStream original, String encoding) throws MessagingException {
+    return isBlank(encoding) ? original : MimeUtility.encode(original, encoding);
+  }
+}
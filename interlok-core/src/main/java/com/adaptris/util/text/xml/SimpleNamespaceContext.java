@@ -155,5 +155,22 @@ public abstract class SimpleNamespaceContext {
     private boolean isNull(Object value) {
       return null == value;
     }
+
+    // Equal mappings mean that compiled expressions can be shared; see XPathExpressionCache.
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof NamespaceContextMap) {
+        return prefixMap.equals(((NamespaceContextMap) o).prefixMap);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return prefixMap.hashCode();
+    }
   }
 }
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.util.text.xml;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A restricted XPath subset that can be evaluated while streaming a document with StAX.
+ * <p>
+ * An absolute path (see {@link #parse(String, NamespaceContext)}) consists only of child steps; each step is either an element
+ * name (optionally prefixed) or {@code *}, followed by any number of attribute predicates: {@code [@attr]},
+ * {@code [@attr='value']} or {@code [@attr="value"]}; {@code and}, {@code or} and {@code !=} are not supported within a
+ * predicate, but multiple predicates must all match. An unprefixed name matches on local name only, regardless of namespace; a
+ * prefixed name must also match the namespace URI mapped to that prefix.
+ * </p>
+ * <p>
+ * A relative path (see {@link #parseRelative(String, NamespaceContext)}) is evaluated against a {@link StreamingRecord}; as well
+ * as child steps it may contain {@code .} and may end with {@code @attr} or {@code text()}.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class StreamingPath {
+
+  private static final String WILDCARD = "*";
+  private static final String SELF = ".";
+  private static final String TEXT = "text()";
+  private static final Pattern ATTRIBUTE_NAME = Pattern.compile("\\*|([\\p{L}_][\\w.\\-]*:)?[\\p{L}_][\\w.\\-]*");
+
+  private final Step[] steps;
+  // For relative paths, the attribute or text() that is selected from the last element.
+  private Name attribute;
+  private boolean textOnly;
+
+  private StreamingPath(List<Step> list) {
+    steps = list.toArray(new Step[list.size()]);
+  }
+
+  /**
+   * Parse an absolute path.
+   *
+   * @param path the path
+   * @param ctx the namespace context used to resolve prefixes, may be null.
+   * @throws IllegalArgumentException if the path is not in the supported subset.
+   */
+  public static StreamingPath parse(String path, NamespaceContext ctx) {
+    if (isBlank(path) || !path.startsWith("/") || path.startsWith("//")) {
+      throw new IllegalArgumentException("[" + path + "] is not an absolute path of child steps");
+    }
+    List<Step> result = new ArrayList<>();
+    int pos = 1;
+    while (pos <= path.length()) {
+      int end = endOfStep(path, pos);
+      result.add(parseStep(path, path.substring(pos, end), ctx));
+      pos = end + 1;
+    }
+    return new StreamingPath(result);
+  }
+
+  /**
+   * Parse a path that is relative to a {@link StreamingRecord}.
+   *
+   * @param path the path e.g. {@code ./customer/name}, {@code @id} or {@code line[@type='billing']/text()}
+   * @param ctx the namespace context used to resolve prefixes, may be null.
+   * @throws IllegalArgumentException if the path is not in the supported subset.
+   */
+  public static StreamingPath parseRelative(String path, NamespaceContext ctx) {
+    if (isBlank(path) || path.startsWith("/")) {
+      throw new IllegalArgumentException("[" + path + "] is not a relative path of child steps");
+    }
+    List<Step> result = new ArrayList<>();
+    Name attribute = null;
+    boolean textOnly = false;
+    int pos = 0;
+    while (pos <= path.length()) {
+      int end = endOfStep(path, pos);
+      String step = path.substring(pos, end).trim();
+      boolean last = end == path.length();
+      if (step.startsWith("@") && last) {
+        attribute = new Name(step.substring(1), ctx, path);
+      }
+      else if (TEXT.equals(step) && last) {
+        textOnly = true;
+      }
+      else if (!SELF.equals(step)) {
+        result.add(parseStep(path, step, ctx));
+      }
+      pos = end + 1;
+    }
+    StreamingPath relative = new StreamingPath(result);
+    relative.attribute = attribute;
+    relative.textOnly = textOnly;
+    return relative;
+  }
+
+  public int length() {
+    return steps.length;
+  }
+
+  /**
+   * Whether the element that the reader is positioned on matches the step at {@code index}.
+   */
+  public boolean matches(int index, XMLStreamReader reader) {
+    return steps[index].matches(reader.getLocalName(), reader.getNamespaceURI(), new ReaderAttributes(reader));
+  }
+
+  /**
+   * Evaluate this (relative) path against the record.
+   *
+   * @param context the record.
+   * @return the value of the first attribute or element (in document order) that the path selects, or null if nothing matches.
+   */
+  public String selectText(StreamingRecord context) {
+    return select(context, 0);
+  }
+
+  private String select(StreamingRecord node, int index) {
+    if (index == steps.length) {
+      if (attribute != null) {
+        return attributeValue(node, attribute);
+      }
+      return textOnly ? node.getText() : node.getTextContent();
+    }
+    for (StreamingRecord child : node.getChildren()) {
+      if (steps[index].matches(child.getLocalName(), child.getNamespaceURI(), child)) {
+        String result = select(child, index + 1);
+        if (result != null) {
+          return result;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static String attributeValue(Attributes attrs, Name name) {
+    for (int i = 0; i < attrs.getAttributeCount(); i++) {
+      if (name.matches(attrs.getAttributeLocalName(i), attrs.getAttributeNamespace(i))) {
+        return attrs.getAttributeValue(i);
+      }
+    }
+    return null;
+  }
+
+  // The index of the next '/' that isn't inside a predicate.
+  private static int endOfStep(String path, int start) {
+    char quote = 0;
+    int brackets = 0;
+    for (int i = start; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (quote != 0) {
+        quote = c == quote ? 0 : quote;
+      }
+      else if (c == '\'' || c == '"') {
+        quote = c;
+      }
+      else if (c == '[') {
+        brackets++;
+      }
+      else if (c == ']') {
+        brackets--;
+      }
+      else if (c == '/' && brackets == 0) {
+        return i;
+      }
+    }
+    return path.length();
+  }
+
+  private static Step parseStep(String path, String step, NamespaceContext ctx) {
+    int predicateStart = step.indexOf('[');
+    String name = (predicateStart < 0 ? step : step.substring(0, predicateStart)).trim();
+    if (isBlank(name)) {
+      throw new IllegalArgumentException("Empty step in [" + path + "]");
+    }
+    Step result = new Step(new Name(name, ctx, path));
+    String predicates = predicateStart < 0 ? "" : step.substring(predicateStart).trim();
+    while (!predicates.isEmpty()) {
+      int close = closingBracket(predicates);
+      String predicate = close < 0 ? "" : predicates.substring(1, close).trim();
+      if (!predicates.startsWith("[") || !predicate.startsWith("@")) {
+        throw new IllegalArgumentException("Unsupported predicate [" + predicates + "] in [" + path + "]");
+      }
+      result.predicates.add(parsePredicate(predicate.substring(1).trim(), ctx, path));
+      predicates = predicates.substring(close + 1).trim();
+    }
+    return result;
+  }
+
+  private static int closingBracket(String s) {
+    char quote = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (quote != 0) {
+        quote = c == quote ? 0 : quote;
+      }
+      else if (c == '\'' || c == '"') {
+        quote = c;
+      }
+      else if (c == ']') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // Only a single attribute, optionally compared for equality with a single quoted literal; "and", "or", "!=" are unsupported.
+  private static Predicate parsePredicate(String expr, NamespaceContext ctx, String path) {
+    int eq = expr.indexOf('=');
+    String attr = (eq < 0 ? expr : expr.substring(0, eq)).trim();
+    if (attr.endsWith("!")) {
+      throw new IllegalArgumentException("Unsupported operator [!=] in [" + path + "]");
+    }
+    if (!ATTRIBUTE_NAME.matcher(attr).matches()) {
+      throw new IllegalArgumentException("Unsupported predicate [@" + expr + "] in [" + path + "]");
+    }
+    if (eq < 0) {
+      return new Predicate(new Name(attr, ctx, path), null);
+    }
+    String value = expr.substring(eq + 1).trim();
+    char quote = value.isEmpty() ? 0 : value.charAt(0);
+    if (quote != '\'' && quote != '"' || value.length() < 2 || value.indexOf(quote, 1) != value.length() - 1) {
+      throw new IllegalArgumentException("Unsupported predicate value [" + value + "] in [" + path + "]");
+    }
+    return new Predicate(new Name(attr, ctx, path), value.substring(1, value.length() - 1));
+  }
+
+  /**
+   * The attributes of an element, named as per {@link XMLStreamReader}.
+   */
+  interface Attributes {
+    int getAttributeCount();
+
+    String getAttributeLocalName(int index);
+
+    String getAttributeNamespace(int index);
+
+    String getAttributeValue(int index);
+  }
+
+  private static class ReaderAttributes implements Attributes {
+    private final XMLStreamReader reader;
+
+    ReaderAttributes(XMLStreamReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public int getAttributeCount() {
+      return reader.getAttributeCount();
+    }
+
+    @Override
+    public String getAttributeLocalName(int index) {
+      return reader.getAttributeLocalName(index);
+    }
+
+    @Override
+    public String getAttributeNamespace(int index) {
+      return reader.getAttributeNamespace(index);
+    }
+
+    @Override
+    public String getAttributeValue(int index) {
+      return reader.getAttributeValue(index);
+    }
+  }
+
+  private static class Name {
+    private final String localName;
+    // null means match on local name only.
+    private final String namespaceURI;
+
+    Name(String qname, NamespaceContext ctx, String path) {
+      int colon = qname.indexOf(':');
+      if (colon < 0) {
+        localName = qname;
+        namespaceURI = null;
+      }
+      else {
+        String prefix = qname.substring(0, colon);
+        String uri = ctx != null ? ctx.getNamespaceURI(prefix) : null;
+        if (isBlank(uri) || XMLConstants.NULL_NS_URI.equals(uri)) {
+          throw new IllegalArgumentException("No namespace mapping for prefix [" + prefix + "] in [" + path + "]");
+        }
+        localName = qname.substring(colon + 1);
+        namespaceURI = uri;
+      }
+      if (isBlank(localName) || localName.startsWith(".") || localName.startsWith("@") || localName.indexOf('(') >= 0) {
+        throw new IllegalArgumentException("Invalid name [" + qname + "] in [" + path + "]");
+      }
+    }
+
+    boolean matches(String local, String uri) {
+      if (!WILDCARD.equals(localName) && !localName.equals(local)) {
+        return false;
+      }
+      return namespaceURI == null || namespaceURI.equals(uri);
+    }
+  }
+
+  private static class Predicate {
+    private final Name attribute;
+    private final String value;
+
+    Predicate(Name attr, String value) {
+      attribute = attr;
+      this.value = value;
+    }
+
+    boolean matches(Attributes attrs) {
+      for (int i = 0; i < attrs.getAttributeCount(); i++) {
+        if (attribute.matches(attrs.getAttributeLocalName(i), attrs.getAttributeNamespace(i))) {
+          if (value == null || value.equals(attrs.getAttributeValue(i))) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class Step {
+    private final Name name;
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    Step(Name name) {
+      this.name = name;
+    }
+
+    boolean matches(String localName, String namespaceURI, Attributes attrs) {
+      if (!name.matches(localName, namespaceURI)) {
+        return false;
+      }
+      for (Predicate p : predicates) {
+        if (!p.matches(attrs)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
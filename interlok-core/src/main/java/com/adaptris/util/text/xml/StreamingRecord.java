@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.util.text.xml;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A lightweight, read-only copy of an element (and its descendants) read from a {@link XMLStreamReader}.
+ * <p>
+ * Only element names, attributes and text are kept (comments and processing instructions are discarded) so that a record from a
+ * very large document can be examined using a {@link StreamingPath} without building a DOM for the whole document.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class StreamingRecord implements StreamingPath.Attributes {
+
+  private static final String[] EMPTY = new String[0];
+
+  private final String localName;
+  private final String namespaceURI;
+  private final String[] attributes;
+  // Either a String or a StreamingRecord, in document order.
+  private final List<Object> content = new ArrayList<>(2);
+
+  private StreamingRecord(XMLStreamReader reader) {
+    localName = reader.getLocalName();
+    namespaceURI = defaultString(reader.getNamespaceURI());
+    int count = reader.getAttributeCount();
+    attributes = count == 0 ? EMPTY : new String[count * 3];
+    for (int i = 0; i < count; i++) {
+      attributes[i * 3] = reader.getAttributeLocalName(i);
+      attributes[i * 3 + 1] = defaultString(reader.getAttributeNamespace(i));
+      attributes[i * 3 + 2] = reader.getAttributeValue(i);
+    }
+  }
+
+  /**
+   * Read the element that the reader is positioned on.
+   *
+   * @param reader the reader, which must be positioned on a {@code START_ELEMENT}; it will be positioned on the corresponding
+   *          {@code END_ELEMENT} afterwards.
+   * @return the record.
+   * @throws XMLStreamException on parsing errors.
+   */
+  public static StreamingRecord read(XMLStreamReader reader) throws XMLStreamException {
+    reader.require(XMLStreamConstants.START_ELEMENT, null, null);
+    StreamingRecord root = new StreamingRecord(reader);
+    Deque<StreamingRecord> open = new ArrayDeque<>();
+    open.push(root);
+    while (!open.isEmpty()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          StreamingRecord child = new StreamingRecord(reader);
+          open.peek().content.add(child);
+          open.push(child);
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          open.pop();
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          open.peek().content.add(reader.getText());
+          break;
+        default:
+      }
+    }
+    return root;
+  }
+
+  public String getLocalName() {
+    return localName;
+  }
+
+  /**
+   * @return the namespace URI, or the empty string if the element has no namespace.
+   */
+  public String getNamespaceURI() {
+    return namespaceURI;
+  }
+
+  @Override
+  public int getAttributeCount() {
+    return attributes.length / 3;
+  }
+
+  @Override
+  public String getAttributeLocalName(int index) {
+    return attributes[index * 3];
+  }
+
+  @Override
+  public String getAttributeNamespace(int index) {
+    return attributes[index * 3 + 1];
+  }
+
+  @Override
+  public String getAttributeValue(int index) {
+    return attributes[index * 3 + 2];
+  }
+
+  /**
+   * @return the child elements in document order.
+   */
+  public List<StreamingRecord> getChildren() {
+    List<StreamingRecord> result = new ArrayList<>(content.size());
+    for (Object o : content) {
+      if (o instanceof StreamingRecord) {
+        result.add((StreamingRecord) o);
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return the text that is directly contained by this element, excluding any child elements.
+   */
+  public String getText() {
+    StringBuilder result = new StringBuilder();
+    for (Object o : content) {
+      if (o instanceof String) {
+        result.append((String) o);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * @return the text of this element and all its descendants, equivalent to {@link org.w3c.dom.Node#getTextContent()}.
+   */
+  public String getTextContent() {
+    StringBuilder result = new StringBuilder();
+    appendTextContent(result);
+    return result.toString();
+  }
+
+  private void appendTextContent(StringBuilder result) {
+    for (Object o : content) {
+      if (o instanceof String) {
+        result.append((String) o);
+      }
+      else {
+        ((StreamingRecord) o).appendTextContent(result);
+      }
+    }
+  }
+}
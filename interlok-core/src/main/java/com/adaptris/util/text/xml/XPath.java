@@ -21,6 +21,7 @@ import static org.apache.commons.lang3.BooleanUtils.toBooleanObject;
 
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.namespace.QName;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
@@ -34,6 +35,11 @@ import com.adaptris.core.util.DocumentBuilderFactoryBuilder;
 
 /**
  * Wrapper around {@link javax.xml.xpath.XPath}/
+ * <p>
+ * Expressions are compiled once and shared via {@link XPathExpressionCache}, so creating a new instance per document does not
+ * mean that each expression is recompiled. Instances that are not given an explicit {@link XPathFactory} share a default
+ * factory (and hence its cache).
+ * </p>
  * 
  * @author Stuart Ellidge
  * 
@@ -70,27 +76,34 @@ public class XPath {
       "net.sf.saxon.xpath.XPathFactoryImpl"
   };
 
+  // Shared by instances that aren't given a factory, so that they share compiled expressions.
+  private static final XPathFactory DEFAULT_FACTORY = newXPathFactory();
+  private static final XPathFactory DEFAULT_JAXP_FACTORY = XPathFactory.newInstance();
+
   private transient XPathFactory xpathFactory;
   private transient javax.xml.xpath.XPath xpathToUse;
+  private transient XPathExpressionCache expressionCache;
   
   public XPath() {
-    xpathFactory = newXPathFactory();
+    this(null, DEFAULT_FACTORY);
   }
 
   public XPath(NamespaceContext ctx) {
-    this();
-    context = ctx;
+    this(ctx, DEFAULT_FACTORY);
   }
 
   public XPath(NamespaceContext ctx, XPathFactory factory) {
-    this();
     context = ctx;
     xpathFactory = Args.notNull(factory, "xpathFactory");
+    expressionCache = XPathExpressionCache.forFactory(xpathFactory);
   }
 
   private javax.xml.xpath.XPath createXpath() {
     if (xpathToUse == null) {
-      xpathToUse = xpathFactory.newXPath();
+      // XPathFactory isn't re-entrant, and the default factories are shared.
+      synchronized (xpathFactory) {
+        xpathToUse = xpathFactory.newXPath();
+      }
       if (context != null) {
         xpathToUse.setNamespaceContext(context);
       }
@@ -98,6 +111,20 @@ public class XPath {
     return xpathToUse;
   }
 
+  /**
+   * Compile the expression ahead of time, so that it is already in the {@link XPathExpressionCache} when it is used.
+   *
+   * @param xpath the xpath
+   * @throws XPathExpressionException on error
+   */
+  public void precompile(String xpath) throws XPathExpressionException {
+    expressionCache.precompile(createXpath(), context, xpath);
+  }
+
+  private Object evaluate(String xpath, Node node, QName returnType) throws XPathExpressionException {
+    return expressionCache.evaluate(createXpath(), context, xpath, node, returnType);
+  }
+
   /**
    * returns the string value contained in an element returned by an XPath
    *
@@ -108,7 +135,7 @@ public class XPath {
    */
   public String selectSingleTextItem(Node context, String xpath)
       throws XPathExpressionException {
-    return (String) createXpath().evaluate(xpath, context, XPathConstants.STRING);
+    return (String) evaluate(xpath, context, XPathConstants.STRING);
   }
 
   /**
@@ -156,7 +183,7 @@ public class XPath {
    */
   public NodeList selectNodeList(Node context, String xpath)
       throws XPathExpressionException {
-    return (NodeList) createXpath().evaluate(xpath, context, XPathConstants.NODESET);
+    return (NodeList) evaluate(xpath, context, XPathConstants.NODESET);
   }
 
   /**
@@ -169,7 +196,7 @@ public class XPath {
    */
   public Node selectSingleNode(Node context, String xpath)
       throws XPathExpressionException {
-    return (Node) createXpath().evaluate(xpath, context, XPathConstants.NODE);
+    return (Node) evaluate(xpath, context, XPathConstants.NODE);
   }
 
   /**
@@ -264,11 +291,10 @@ public class XPath {
    */
   public static XPath newXPathInstance(DocumentBuilderFactoryBuilder builder, NamespaceContext namespaceCtx) {
     // INTERLOK-2255
-    XPath xpathToUse = new XPath(namespaceCtx);
     if (builder != null && BooleanUtils.isFalse(builder.getNamespaceAware())) {
-      xpathToUse = new XPath(namespaceCtx, XPathFactory.newInstance());
+      return new XPath(namespaceCtx, DEFAULT_JAXP_FACTORY);
     }
-    return xpathToUse;
+    return new XPath(namespaceCtx);
   }
 
   /**
@@ -276,11 +302,10 @@ public class XPath {
    */
   public static XPath newXPathInstance(DocumentBuilderFactory builder, NamespaceContext namespaceCtx) {
     // INTERLOK-2255
-    XPath xpathToUse = new XPath(namespaceCtx);
     if (builder != null && !builder.isNamespaceAware()) {
-      xpathToUse = new XPath(namespaceCtx, XPathFactory.newInstance());
+      return new XPath(namespaceCtx, DEFAULT_JAXP_FACTORY);
     }
-    return xpathToUse;
+    return new XPath(namespaceCtx);
   }
 
   static XPathFactory build(boolean useSaxon) {
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.util.text.xml;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Cache of compiled {@link XPathExpression} instances; there is one cache per {@link XPathFactory} instance.
+ * <p>
+ * Entries are keyed by the expression and the {@link NamespaceContext} that was used to compile it. Only contexts that define
+ * their own {@code equals()} can be compared, for instance contexts created by
+ * {@link SimpleNamespaceContext#create(com.adaptris.util.KeyValuePairSet)} are equal if they have the same mappings; expressions
+ * compiled with any other context are not cached. The cache is bounded; once it is full, the least recently used expression is
+ * removed to make room for a new one.
+ * </p>
+ * <p>
+ * The JAXP specification does not require {@link XPathExpression} to be thread-safe; Saxon's implementation is, so expressions
+ * compiled by a Saxon {@link XPathFactory} are shared between threads. For all other factories each entry holds a small pool of
+ * compiled expressions; one is borrowed for the duration of {@link #evaluate(javax.xml.xpath.XPath, NamespaceContext, String,
+ * Object, QName)}, so that threads never have to wait for each other. Since nothing is held per thread, expressions are still
+ * reused if each message is processed on a new thread (e.g. with virtual threads).
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class XPathExpressionCache {
+
+  static final int MAX_ENTRIES = 1024;
+  // The maximum number of idle compiled expressions per entry, if they aren't thread-safe.
+  private static final int MAX_IDLE = 32;
+  // Held weakly, so the cache goes away with the factory.
+  private static final Map<XPathFactory, XPathExpressionCache> CACHES = new WeakHashMap<>();
+  private static final ClassValue<Boolean> COMPARABLE_CONTEXT = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      try {
+        return type.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+      }
+      catch (NoSuchMethodException e) {
+        return Boolean.FALSE;
+      }
+    }
+  };
+
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+  // Orders entries by when they were last used.
+  private final AtomicLong clock = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final boolean threadSafe;
+
+  private XPathExpressionCache(XPathFactory factory) {
+    String factoryClass = factory.getClass().getName();
+    threadSafe = factoryClass.startsWith("net.sf.saxon.") || factoryClass.startsWith("com.saxonica.");
+  }
+
+  /**
+   * Get the cache associated with this {@link XPathFactory}.
+   *
+   * @param factory the factory
+   * @return the cache.
+   */
+  public static XPathExpressionCache forFactory(XPathFactory factory) {
+    synchronized (CACHES) {
+      return CACHES.computeIfAbsent(factory, XPathExpressionCache::new);
+    }
+  }
+
+  /**
+   * Compile the expression and add it to the cache, if it isn't already cached.
+   *
+   * @param xpath the {@link javax.xml.xpath.XPath} to compile the expression with; it must have been created by the factory
+   *          associated with this cache, and have {@code ctx} as its namespace context.
+   * @param ctx the namespace context (may be null).
+   * @param expr the expression.
+   * @throws XPathExpressionException if the expression could not be compiled.
+   */
+  public void precompile(javax.xml.xpath.XPath xpath, NamespaceContext ctx, String expr) throws XPathExpressionException {
+    Entry entry = entry(ctx, expr);
+    if (entry != null && entry.idle.isEmpty()) {
+      misses.increment();
+      entry.release(xpath.compile(expr));
+    }
+  }
+
+  /**
+   * Evaluate the expression, compiling it if it isn't cached.
+   *
+   * @param xpath the {@link javax.xml.xpath.XPath} to compile the expression with if it isn't cached; it must have been created
+   *          by the factory associated with this cache, and have {@code ctx} as its namespace context.
+   * @param ctx the namespace context (may be null).
+   * @param expr the expression.
+   * @param item the item to evaluate the expression against.
+   * @param returnType the expected return type, one of the {@link javax.xml.xpath.XPathConstants}.
+   * @return the result of the evaluation.
+   * @throws XPathExpressionException if the expression could not be compiled or evaluated.
+   * @see XPathExpression#evaluate(Object, QName)
+   */
+  public Object evaluate(javax.xml.xpath.XPath xpath, NamespaceContext ctx, String expr, Object item, QName returnType)
+      throws XPathExpressionException {
+    Entry entry = entry(ctx, expr);
+    XPathExpression compiled = entry != null ? entry.borrow() : null;
+    if (compiled != null) {
+      hits.increment();
+    }
+    else {
+      misses.increment();
+      compiled = xpath.compile(expr);
+    }
+    try {
+      return compiled.evaluate(item, returnType);
+    }
+    finally {
+      if (entry != null) {
+        entry.release(compiled);
+      }
+    }
+  }
+
+  /**
+   * Whether or not expressions from this cache can be evaluated concurrently.
+   *
+   */
+  public boolean isThreadSafe() {
+    return threadSafe;
+  }
+
+  /**
+   * The number of times that a cached expression was used.
+   *
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * The number of times that an expression had to be compiled.
+   *
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * The number of cached expressions.
+   *
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Clear the cache.
+   *
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  private Entry entry(NamespaceContext ctx, String expr) {
+    if (ctx != null && !COMPARABLE_CONTEXT.get(ctx.getClass())) {
+      return null;
+    }
+    Key key = new Key(expr, ctx);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      evictIfFull();
+      entry = entries.computeIfAbsent(key, k -> new Entry());
+    }
+    return entry;
+  }
+
+  // Only when adding a new expression, so it doesn't matter that it visits every entry.
+  private void evictIfFull() {
+    if (entries.size() < MAX_ENTRIES) {
+      return;
+    }
+    Key eldest = null;
+    long oldest = Long.MAX_VALUE;
+    for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+      if (e.getValue().lastUsed < oldest) {
+        oldest = e.getValue().lastUsed;
+        eldest = e.getKey();
+      }
+    }
+    if (eldest != null) {
+      entries.remove(eldest);
+    }
+  }
+
+  private final class Entry {
+    // If the expressions are thread-safe then they are shared, so borrowing one doesn't remove it.
+    private final Deque<XPathExpression> idle = new ConcurrentLinkedDeque<>();
+    private volatile long lastUsed = clock.incrementAndGet();
+
+    XPathExpression borrow() {
+      lastUsed = clock.incrementAndGet();
+      return threadSafe ? idle.peekFirst() : idle.pollFirst();
+    }
+
+    void release(XPathExpression compiled) {
+      // Racing threads may each have compiled it; so there can be more than one, which doesn't matter.
+      if (threadSafe ? idle.isEmpty() : idle.size() < MAX_IDLE) {
+        idle.offerFirst(compiled);
+      }
+    }
+  }
+
+  private static final class Key {
+    private final String expression;
+    private final NamespaceContext context;
+    private final int hashCode;
+
+    Key(String expr, NamespaceContext ctx) {
+      expression = expr;
+      context = ctx;
+      hashCode = Objects.hash(expr, ctx);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return expression.equals(other.expression) && Objects.equals(context, other.context);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.adaptris.util.text.xml;
 
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 
 import org.xml.sax.EntityResolver;
@@ -27,4 +28,30 @@ public interface XmlTransformerFactory {
   Transformer createTransformer(String transformUrl, EntityResolver entityResolver) throws Exception;
   
   XmlTransformer configure(XmlTransformer xmlTransformer) throws Exception;
+
+  /**
+   * Create the compiled (and thread-safe) representation of the transform.
+   *
+   * @param transformUrl the url of the transform.
+   * @return the {@link Templates}, or null if this factory does not support them; in which case
+   *         {@link #createTransformer(String)} will be used.
+   * @since 3.10
+   */
+  default Templates createTemplates(String transformUrl) throws Exception {
+    return null;
+  }
+
+  /**
+   * Identifies the configuration of this factory for the purposes of caching {@link Templates}.
+   * <p>
+   * Factories that return the same key must produce equivalent {@link Templates} for the same URL; the default is null, which
+   * means that {@link Templates} are only shared with this instance.
+   * </p>
+   *
+   * @return the key, or null if this configuration cannot be compared with other factories.
+   * @since 3.10
+   */
+  default String templatesCacheKey() {
+    return null;
+  }
 }
@@ -88,6 +88,21 @@ public abstract class XmlTransformerFactoryImpl implements XmlTransformerFactory
   }
 
 
+  /**
+   * Factories of the same type with the same attributes and features produce the same {@link javax.xml.transform.Templates}.
+   * <p>
+   * If {@link #getXmlDocumentFactoryConfig()} is configured then there is no key, so {@link javax.xml.transform.Templates} are
+   * only shared with this instance.
+   * </p>
+   */
+  @Override
+  public String templatesCacheKey() {
+    if (getXmlDocumentFactoryConfig() != null) {
+      return null;
+    }
+    return getClass().getName() + getTransformerFactoryAttributes() + getTransformerFactoryFeatures() + failOnRecoverableError();
+  }
+
   public KeyValuePairSet getTransformerFactoryAttributes() {
     return transformerFactoryAttributes;
   }
@@ -18,6 +18,7 @@ package com.adaptris.util.text.xml;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -65,12 +66,26 @@ public class XsltTransformerFactory extends XmlTransformerFactoryImpl {
   }
 
   public Transformer createTransformer(String url, EntityResolver entityResolver) throws Exception {
+    return configure(newInstance()).newTransformer(new DOMSource(parse(url, entityResolver), url));
+  }
+
+  @Override
+  public Templates createTemplates(String url) throws Exception {
+    return configure(newInstance()).newTemplates(new DOMSource(parse(url, null), url));
+  }
+
+  @Override
+  public String templatesCacheKey() {
+    String key = super.templatesCacheKey();
+    return key != null ? key + StringUtils.defaultString(getTransformerFactoryImpl()) : null;
+  }
+
+  private Document parse(String url, EntityResolver entityResolver) throws Exception {
     DocumentBuilder docBuilder = documentFactoryBuilder().newDocumentBuilder(DocumentBuilderFactory.newInstance());
     if (entityResolver != null) {
       docBuilder.setEntityResolver(entityResolver);
     }
-    Document xmlDoc = docBuilder.parse(new InputSource(url));
-    return configure(newInstance()).newTransformer(new DOMSource(xmlDoc, url));
+    return docBuilder.parse(new InputSource(url));
   }
 
   /**
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.junit.Test;
+
+import com.adaptris.core.services.exception.ConfiguredException;
+import com.adaptris.core.services.exception.ThrowExceptionService;
+import com.adaptris.core.services.metadata.AddMetadataService;
+import com.adaptris.core.stubs.MockChannel;
+import com.adaptris.core.stubs.MockMessageProducer;
+import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.util.TimeInterval;
+
+public class BatchingWorkflowTest extends ExampleWorkflowCase {
+
+  private static final String FAIL = "fail";
+
+  @Override
+  public boolean isAnnotatedForJunit4() {
+    return true;
+  }
+
+  @Test
+  public void testSetters() throws Exception {
+    BatchingWorkflow wf = new BatchingWorkflow();
+    assertNull(wf.getBatchSize());
+    assertNull(wf.getBatchWindow());
+    assertEquals(BatchingWorkflow.DEFAULT_BATCH_SIZE, wf.batchSize());
+    assertEquals(TimeUnit.SECONDS.toMillis(1), wf.batchWindowMs());
+    wf.withBatchSize(10).withBatchWindow(new TimeInterval(10L, TimeUnit.MILLISECONDS));
+    assertEquals(10, wf.batchSize());
+    assertEquals(10, wf.batchWindowMs());
+  }
+
+  @Test
+  public void testOnMessage_BatchSize() throws Exception {
+    MockBatchProducer producer = new MockBatchProducer();
+    MockBatchService service = new MockBatchService();
+    MockChannel channel = createChannel(producer, service);
+    BatchingWorkflow workflow = (BatchingWorkflow) channel.getWorkflowList().get(0);
+    workflow.withBatchSize(3).withBatchWindow(new TimeInterval(1L, TimeUnit.MINUTES));
+    try {
+      start(channel);
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      assertEquals(0, producer.getMessages().size());
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      assertEquals(3, producer.getMessages().size());
+      assertEquals(Arrays.asList(3), service.batches);
+      assertEquals(Arrays.asList(3), producer.batches);
+      assertEquals("value", producer.getMessages().get(0).getMetadataValue("key"));
+    }
+    finally {
+      stop(channel);
+    }
+  }
+
+  @Test
+  public void testOnMessage_BatchWindow() throws Exception {
+    MockMessageProducer producer = new MockMessageProducer();
+    MockChannel channel = createChannel(producer, new MockBatchService());
+    BatchingWorkflow workflow = (BatchingWorkflow) channel.getWorkflowList().get(0);
+    workflow.withBatchSize(100).withBatchWindow(new TimeInterval(100L, TimeUnit.MILLISECONDS));
+    try {
+      start(channel);
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      waitForMessages(producer, 2);
+      assertEquals(2, producer.getMessages().size());
+    }
+    finally {
+      stop(channel);
+    }
+  }
+
+  @Test
+  public void testStop_ProcessesPending() throws Exception {
+    MockMessageProducer producer = new MockMessageProducer();
+    MockChannel channel = createChannel(producer, new MockBatchService());
+    BatchingWorkflow workflow = (BatchingWorkflow) channel.getWorkflowList().get(0);
+    workflow.withBatchSize(100).withBatchWindow(new TimeInterval(1L, TimeUnit.MINUTES));
+    try {
+      start(channel);
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      assertEquals(0, producer.getMessages().size());
+    }
+    finally {
+      stop(channel);
+    }
+    assertEquals(1, producer.getMessages().size());
+  }
+
+  @Test
+  public void testOnMessage_IndividualFailures() throws Exception {
+    MockBatchProducer producer = new MockBatchProducer();
+    MockMessageProducer meh = new MockMessageProducer();
+    MockChannel channel = createChannel(producer, new MockBatchService());
+    channel.setMessageErrorHandler(new StandardProcessingExceptionHandler(new StandaloneProducer(meh)));
+    BatchingWorkflow workflow = (BatchingWorkflow) channel.getWorkflowList().get(0);
+    workflow.withBatchSize(4);
+    try {
+      start(channel);
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(FAIL));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_2));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      assertEquals(3, producer.getMessages().size());
+      assertEquals(1, meh.getMessages().size());
+      AdaptrisMessage failed = meh.getMessages().get(0);
+      assertEquals(FAIL, failed.getContent());
+      assertNotNull(failed.getObjectHeaders().get(CoreConstants.OBJ_METADATA_EXCEPTION));
+      assertEquals(MockBatchService.class.getSimpleName(),
+          failed.getObjectHeaders().get(CoreConstants.OBJ_METADATA_EXCEPTION_CAUSE));
+      // The failed message was not part of the batch that got produced.
+      assertEquals(Arrays.asList(3), producer.batches);
+    }
+    finally {
+      stop(channel);
+    }
+  }
+
+  @Test
+  public void testOnMessage_ServiceException() throws Exception {
+    MockMessageProducer producer = new MockMessageProducer();
+    MockMessageProducer meh = new MockMessageProducer();
+    MockChannel channel = createChannel(producer, new ThrowExceptionService(new ConfiguredException(FAIL)));
+    channel.setMessageErrorHandler(new StandardProcessingExceptionHandler(new StandaloneProducer(meh)));
+    BatchingWorkflow workflow = (BatchingWorkflow) channel.getWorkflowList().get(0);
+    workflow.withBatchSize(2);
+    try {
+      start(channel);
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_2));
+      assertEquals(0, producer.getMessages().size());
+      assertEquals(2, meh.getMessages().size());
+    }
+    finally {
+      stop(channel);
+    }
+  }
+
+  @Test
+  public void testOnMessage_ServiceOutOfState() throws Exception {
+    MockBatchProducer producer = new MockBatchProducer();
+    MockMessageProducer meh = new MockMessageProducer();
+    MockBatchService service = new MockBatchService();
+    MockChannel channel = createChannel(producer, service);
+    channel.setMessageErrorHandler(new StandardProcessingExceptionHandler(new StandaloneProducer(meh)));
+    BatchingWorkflow workflow = (BatchingWorkflow) channel.getWorkflowList().get(0);
+    workflow.withBatchSize(2);
+    try {
+      start(channel);
+      LifecycleHelper.stop(service);
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_2));
+      assertEquals(0, producer.getMessages().size());
+      assertEquals(2, meh.getMessages().size());
+      assertEquals(0, service.batches.size());
+    }
+    finally {
+      stop(channel);
+    }
+  }
+
+  @Test
+  public void testOnMessage_ProduceException() throws Exception {
+    MockBatchProducer producer = new MockBatchProducer() {
+      @Override
+      public void produce(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures)
+          throws ProduceException {
+        throw new ProduceException(FAIL);
+      }
+    };
+    MockMessageProducer meh = new MockMessageProducer();
+    MockChannel channel = createChannel(producer, new MockBatchService());
+    channel.setMessageErrorHandler(new StandardProcessingExceptionHandler(new StandaloneProducer(meh)));
+    BatchingWorkflow workflow = (BatchingWorkflow) channel.getWorkflowList().get(0);
+    workflow.withBatchSize(2);
+    try {
+      start(channel);
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_1));
+      workflow.onAdaptrisMessage(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD_2));
+      assertEquals(2, meh.getMessages().size());
+    }
+    finally {
+      stop(channel);
+    }
+  }
+
+  @Override
+  protected Object retrieveObjectForSampleConfig() {
+    Channel c = new Channel();
+    c.setUniqueId(UUID.randomUUID().toString());
+    BatchingWorkflow wf = new BatchingWorkflow(new NullMessageConsumer(), new NullMessageProducer());
+    wf.getConsumer().setDestination(new ConfiguredConsumeDestination("dummy-consume-destination"));
+    wf.setUniqueId(UUID.randomUUID().toString());
+    wf.withBatchSize(100).withBatchWindow(new TimeInterval(1L, TimeUnit.SECONDS));
+    c.getWorkflowList().add(wf);
+    return c;
+  }
+
+  @Override
+  protected String createBaseFileName(Object object) {
+    return BatchingWorkflow.class.getName();
+  }
+
+  @Override
+  protected BatchingWorkflow createWorkflowForGenericTests() {
+    return new BatchingWorkflow();
+  }
+
+  private MockChannel createChannel(AdaptrisMessageProducer producer, Service... services) throws Exception {
+    MockChannel channel = new MockChannel();
+    BatchingWorkflow workflow = createWorkflowForGenericTests();
+    workflow.getConsumer().setDestination(new ConfiguredConsumeDestination("dummy"));
+    workflow.setProducer(producer);
+    workflow.getServiceCollection().add(new AddMetadataService(new MetadataElement("key", "value")));
+    workflow.getServiceCollection().addAll(Arrays.asList(services));
+    channel.getWorkflowList().add(workflow);
+    return channel;
+  }
+
+  // Fails any message whose payload is "fail", records the size of each batch.
+  private static class MockBatchService extends ServiceImp implements BatchAwareService {
+    private final List<Integer> batches = new ArrayList<>();
+
+    @Override
+    public void doService(AdaptrisMessage msg) throws ServiceException {
+      if (FAIL.equals(msg.getContent())) {
+        throw new ServiceException(FAIL);
+      }
+    }
+
+    @Override
+    public void doService(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures) {
+      batches.add(batch.size());
+      for (AdaptrisMessage msg : batch) {
+        try {
+          doService(msg);
+        }
+        catch (ServiceException e) {
+          failures.accept(msg, e);
+        }
+      }
+    }
+
+    @Override
+    public void prepare() throws CoreException {
+    }
+
+    @Override
+    protected void initService() throws CoreException {
+    }
+
+    @Override
+    protected void closeService() {
+    }
+  }
+
+  private static class MockBatchProducer extends MockMessageProducer implements BatchAwareProducer {
+    private final List<Integer> batches = new ArrayList<>();
+
+    @Override
+    public void produce(List<AdaptrisMessage> batch, BiConsumer<AdaptrisMessage, Exception> failures)
+        throws ProduceException {
+      batches.add(batch.size());
+      for (AdaptrisMessage msg : batch) {
+        produce(msg);
+      }
+    }
+  }
+}
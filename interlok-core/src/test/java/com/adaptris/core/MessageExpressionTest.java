@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MessageExpressionTest {
+
+  @Test
+  public void testCompile_Cached() throws Exception {
+    String expr = "SELECT * FROM TABLE where key1=%message{key1} and key2=%message{key2}";
+    assertSame(MessageExpression.compile(expr, false), MessageExpression.compile(new String(expr), false));
+    assertNull(MessageExpression.compile("Hello World", false));
+    assertNull(MessageExpression.compile("%message{}", false));
+  }
+
+  @Test
+  public void testCompile_Full() throws Exception {
+    for (int i = 0; i < 2048; i++) {
+      assertNotNull(MessageExpression.compile("%message{key" + i + "}", true));
+      assertTrue(MessageExpression.cacheSize(true) <= 1024);
+    }
+  }
+
+  @Test
+  public void testResolve() throws Exception {
+    Map<String, String> metadata = new HashMap<>();
+    metadata.put("key1", "val1");
+    metadata.put("key2", "val2");
+    metadata.put("nested", "%message{key1}");
+    assertEquals("val1_val2", MessageExpression.resolve("%message{key1}_%message{key2}", false, metadata::get));
+    assertEquals("val1", MessageExpression.resolve("%message{nested}", false, metadata::get));
+    assertEquals("%message{val1", MessageExpression.resolve("%message{%message{key1}", false, metadata::get));
+    assertEquals("x%message{}y%message{key1", MessageExpression.resolve("x%message{}y%message{key1", false, metadata::get));
+    assertEquals("val1}", MessageExpression.resolve("%message{key1}}", false, metadata::get));
+  }
+
+  @Test
+  public void testResolve_DotAll() throws Exception {
+    Map<String, String> metadata = new HashMap<>();
+    metadata.put("key1", "val1");
+    assertEquals("line1\n%message{key1}", MessageExpression.resolve("line1\n%message{key1}", false, metadata::get));
+    assertEquals("line1\nval1", MessageExpression.resolve("line1\n%message{key1}", true, metadata::get));
+  }
+
+  @Test(expected = UnresolvedMetadataException.class)
+  public void testResolve_Unresolved() throws Exception {
+    MessageExpression.resolve("%message{does_not_exist}", false, (key) -> null);
+  }
+}
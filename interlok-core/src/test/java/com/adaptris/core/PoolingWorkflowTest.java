@@ -259,6 +259,54 @@ public class PoolingWorkflowTest extends ExampleWorkflowCase {
     }
   }
 
+  @Test
+  public void testBoundedQueue() throws Exception {
+    MockChannel channel = createChannel();
+    PoolingWorkflow wf = (PoolingWorkflow) channel.getWorkflowList().get(0);
+    wf.withQueueHighWatermark(2).withQueueLowWatermark(1);
+    int count = wf.poolSize() * 3;
+    MockMessageProducer prod = (MockMessageProducer) wf.getProducer();
+    try {
+      start(channel);
+      submitMessages(wf, count);
+      waitForMessages(prod, count);
+      assertTrue("ObjectPool >= 1", wf.currentObjectPoolCount() >= 1);
+      assertTrue("ObjectPool <= poolSize", wf.currentObjectPoolCount() <= wf.poolSize());
+      assertTrue(wf.backpressureWaitTimeMs() >= 0);
+      assertMessages(prod, count);
+    }
+    finally {
+      stop(channel);
+    }
+    assertEquals(0, wf.currentQueueDepth());
+  }
+
+  @Test
+  public void testWatermarkBackpressure() throws Exception {
+    WatermarkBackpressure gate = new WatermarkBackpressure(2, 0);
+    assertTrue(gate.acquire());
+    assertTrue(gate.acquire());
+    assertEquals(2, gate.depth());
+    Thread blocked = new Thread(() -> {
+      try {
+        gate.acquire();
+      }
+      catch (InterruptedException e) {
+      }
+    });
+    blocked.start();
+    gate.release();
+    Thread.sleep(100);
+    // Still above the low watermark
+    assertTrue(blocked.isAlive());
+    gate.release();
+    blocked.join(5000);
+    assertFalse(blocked.isAlive());
+    assertEquals(1, gate.depth());
+    gate.close();
+    assertFalse(gate.acquire());
+  }
+
   @Test
   public void testMaxIdle_CannotExceed_Poolsize() throws Exception {
     MockChannel channel = createChannel();
@@ -24,7 +24,9 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,8 +39,11 @@ import com.adaptris.core.CoreConstants;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.FixedIntervalPoller;
 import com.adaptris.core.StandaloneConsumer;
+import com.adaptris.core.stubs.ConcurrentMessageListener;
 import com.adaptris.core.fs.enhanced.AlphabeticAscending;
 import com.adaptris.core.fs.enhanced.LastModifiedAscending;
+import com.adaptris.core.lms.FileBackedMessage;
+import com.adaptris.core.lms.FileBackedMessageFactory;
 import com.adaptris.core.stubs.MockMessageListener;
 import com.adaptris.core.util.LifecycleHelper;
 import com.adaptris.util.GuidGenerator;
@@ -113,6 +118,102 @@ public class FsMessageConsumerTest extends FsConsumerCase {
     }
   }
 
+  @Test
+  public void testConsume_FileBackedMessageFactory() throws Exception {
+    String subDir = new GuidGenerator().safeUUID();
+    MockMessageListener stub = new MockMessageListener(10);
+    FsConsumer fs = createConsumer(subDir);
+    fs.setMessageFactory(new FileBackedMessageFactory());
+    fs.setPoller(new FixedIntervalPoller(new TimeInterval(300L, TimeUnit.MILLISECONDS)));
+    StandaloneConsumer sc = new StandaloneConsumer(fs);
+    sc.registerAdaptrisMessageListener(stub);
+    File parentDir = FsHelper.createFileReference(FsHelper.createUrlFromString(PROPERTIES.getProperty(BASE_KEY), true));
+    try {
+      File baseDir = new File(parentDir, subDir);
+      LifecycleHelper.init(sc);
+      FileUtils.write(new File(baseDir, "payload.xml"), "Hello World", Charset.defaultCharset());
+      LifecycleHelper.start(sc);
+      waitForMessages(stub, 1);
+      AdaptrisMessage msg = stub.getMessages().get(0);
+      assertTrue(msg instanceof FileBackedMessage);
+      assertEquals("Hello World", msg.getContent());
+      assertEquals(0, baseDir.listFiles().length);
+    }
+    finally {
+      stop(sc);
+      FileUtils.deleteQuietly(new File(parentDir, subDir));
+    }
+  }
+
+  @Test
+  public void testConsume_ProcessingThreads() throws Exception {
+    String subDir = new GuidGenerator().safeUUID();
+    MockMessageListener stub = new ConcurrentMessageListener();
+    FsConsumer fs = createConsumer(subDir).withProcessingThreads(4);
+    fs.setPoller(new FixedIntervalPoller(new TimeInterval(300L, TimeUnit.MILLISECONDS)));
+    StandaloneConsumer sc = new StandaloneConsumer(fs);
+    sc.registerAdaptrisMessageListener(stub);
+    int count = 20;
+    File parentDir = FsHelper.createFileReference(FsHelper.createUrlFromString(PROPERTIES.getProperty(BASE_KEY), true));
+    try {
+      File baseDir = new File(parentDir, subDir);
+      LifecycleHelper.init(sc);
+      createFiles(baseDir, ".xml", count);
+      LifecycleHelper.start(sc);
+      waitForMessages(stub, count);
+      assertMessages(stub.getMessages(), count, baseDir.listFiles((FilenameFilter) new Perl5FilenameFilter(".*\\.xml")));
+    }
+    finally {
+      stop(sc);
+      FileUtils.deleteQuietly(new File(parentDir, subDir));
+    }
+  }
+
+  @Test
+  public void testConsume_ProcessingThreads_OrderingKey() throws Exception {
+    String subDir = new GuidGenerator().safeUUID();
+    MockMessageListener stub = new ConcurrentMessageListener();
+    FsConsumer fs = createConsumer(subDir).withProcessingThreads(4).withOrderingKey("^([^_]+)_");
+    fs.setFileSorter(new AlphabeticAscending());
+    fs.setPoller(new FixedIntervalPoller(new TimeInterval(300L, TimeUnit.MILLISECONDS)));
+    StandaloneConsumer sc = new StandaloneConsumer(fs);
+    sc.registerAdaptrisMessageListener(stub);
+    String[] keys = {"alpha", "beta", "gamma"};
+    int perKey = 10;
+    File parentDir = FsHelper.createFileReference(FsHelper.createUrlFromString(PROPERTIES.getProperty(BASE_KEY), true));
+    try {
+      File baseDir = new File(parentDir, subDir);
+      baseDir.mkdirs();
+      for (String key : keys) {
+        for (int i = 0; i < perKey; i++) {
+          FileUtils.touch(new File(baseDir, String.format("%s_%03d.xml", key, i)));
+        }
+      }
+      LifecycleHelper.init(sc);
+      LifecycleHelper.start(sc);
+      waitForMessages(stub, keys.length * perKey);
+      assertMessages(stub.getMessages(), keys.length * perKey,
+          baseDir.listFiles((FilenameFilter) new Perl5FilenameFilter(".*\\.xml")));
+      for (String key : keys) {
+        List<String> names = new ArrayList<>();
+        for (AdaptrisMessage msg : stub.getMessages()) {
+          String name = msg.getMetadataValue(CoreConstants.ORIGINAL_NAME_KEY);
+          if (name.startsWith(key + "_")) {
+            names.add(name);
+          }
+        }
+        List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+        assertEquals(perKey, names.size());
+        assertEquals(sorted, names);
+      }
+    }
+    finally {
+      stop(sc);
+      FileUtils.deleteQuietly(new File(parentDir, subDir));
+    }
+  }
+
   @Test
   public void testConsumeImmediateEventPoller() throws Exception {
     String subDir = new GuidGenerator().safeUUID();
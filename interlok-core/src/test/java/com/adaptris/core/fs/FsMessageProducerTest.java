@@ -23,6 +23,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
@@ -39,6 +40,7 @@ import com.adaptris.core.ProduceDestination;
 import com.adaptris.core.ProduceException;
 import com.adaptris.core.ServiceCase;
 import com.adaptris.core.StandaloneProducer;
+import com.adaptris.core.lms.FileBackedMessageFactory;
 import com.adaptris.fs.AppendingFsWorker;
 import com.adaptris.fs.FsWorker;
 import com.adaptris.fs.NioWorker;
@@ -262,6 +264,23 @@ public class FsMessageProducerTest extends FsProducerExample {
     }
   }
 
+  @Test
+  public void testProduce_FileBackedMessage() throws Exception {
+    String subdir = new GuidGenerator().safeUUID();
+    File parentDir = FsHelper.createFileReference(FsHelper.createUrlFromString(PROPERTIES.getProperty(BASE_KEY), true));
+    try {
+      File dir = new File(parentDir, subdir);
+      StandaloneProducer sp = new StandaloneProducer(createProducer(subdir));
+      AdaptrisMessage msg = new FileBackedMessageFactory().newMessage(TEXT);
+      ServiceCase.execute(sp, msg);
+      File produced = new File(dir, msg.getMetadataValue(CoreConstants.PRODUCED_NAME_KEY));
+      assertEquals(TEXT, FileUtils.readFileToString(produced, Charset.defaultCharset()));
+    }
+    finally {
+      FileUtils.deleteQuietly(new File(parentDir, subdir));
+    }
+  }
+
   @Test
   public void testProduceWithNoCreateDir() throws Exception {
     String subdir = new GuidGenerator().safeUUID();
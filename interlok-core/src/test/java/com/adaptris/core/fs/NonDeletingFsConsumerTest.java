@@ -38,6 +38,7 @@ import com.adaptris.core.CoreConstants;
 import com.adaptris.core.FixedIntervalPoller;
 import com.adaptris.core.PollerImp;
 import com.adaptris.core.StandaloneConsumer;
+import com.adaptris.core.stubs.ConcurrentMessageListener;
 import com.adaptris.core.stubs.MockMessageListener;
 import com.adaptris.core.stubs.TempFileUtils;
 import com.adaptris.core.util.LifecycleHelper;
@@ -156,6 +157,36 @@ public class NonDeletingFsConsumerTest extends FsConsumerCase {
     }
   }
 
+  @Test
+  public void testConsumeNotReprocessed_ProcessingThreads() throws Exception {
+    String subDir = new GuidGenerator().safeUUID();
+    MockMessageListener stub = new ConcurrentMessageListener();
+    NonDeletingFsConsumer fs = createConsumer(subDir, "testConsume").withProcessingThreads(4);
+    AtomicBoolean pollFired = new AtomicBoolean(false);
+    fs.setPoller(new FixedIntervalPoller(new TimeInterval(500L, TimeUnit.MILLISECONDS)).withPollerCallback(e -> {
+      if (e == 0) {
+        pollFired.set(true);
+      }
+    }));
+    StandaloneConsumer sc = new StandaloneConsumer(fs);
+    sc.registerAdaptrisMessageListener(stub);
+    int count = 20;
+    File parentDir = FsHelper.createFileReference(FsHelper.createUrlFromString(PROPERTIES.getProperty(BASE_KEY), true));
+    try {
+      File baseDir = new File(parentDir, subDir);
+      LifecycleHelper.init(sc);
+      createFiles(baseDir, ".xml", count);
+      LifecycleHelper.start(sc);
+      waitForMessages(stub, count);
+      waitForPollCallback(pollFired);
+      assertMessages(stub.getMessages(), count, baseDir.listFiles((FilenameFilter) new Perl5FilenameFilter(".*\\.xml")));
+    }
+    finally {
+      stop(sc);
+      FileUtils.deleteQuietly(new File(parentDir, subDir));
+    }
+  }
+
   @Test
   public void testConsumeWithQuietPeriod() throws Exception {
     String subDir = new GuidGenerator().safeUUID();
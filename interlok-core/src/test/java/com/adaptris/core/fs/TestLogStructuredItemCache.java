@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.adaptris.core.CoreException;
+
+public class TestLogStructuredItemCache extends ExpiringCacheCase {
+
+  private File persistentStore;
+
+  @Before
+  public void setUp() throws Exception {
+    persistentStore = File.createTempFile(this.getClass().getSimpleName(), "");
+    persistentStore.delete();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteQuietly(persistentStore);
+  }
+
+  @Override
+  protected LogStructuredItemCache createCache() throws Exception {
+    return new LogStructuredItemCache(persistentStore.getCanonicalPath());
+  }
+
+  @Test
+  public void testPersistence() throws Exception {
+    LogStructuredItemCache cache = createCache();
+    try {
+      start(cache);
+      int count = 100;
+      ProcessedItemList items = createCacheEntries(count);
+      cache.update(items);
+      stop(cache);
+      start(cache);
+      assertEquals(count, cache.size());
+      for (ProcessedItem item : items.getProcessedItems()) {
+        ProcessedItem cachedItem = cache.get(item.getAbsolutePath());
+        assertNotNull(cachedItem);
+        assertEquals(item.getFilesize(), cachedItem.getFilesize());
+        assertEquals(item.getLastModified(), cachedItem.getLastModified());
+        assertEquals(item.getLastProcessed(), cachedItem.getLastProcessed());
+      }
+    }
+    finally {
+      stop(cache);
+    }
+  }
+
+  @Test
+  public void testPersistence_NoPersistentStore() throws Exception {
+    LogStructuredItemCache cache = new LogStructuredItemCache();
+    try {
+      cache.init();
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    finally {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testPersistence_NotALog() throws Exception {
+    FileUtils.write(persistentStore, "<processed-item-list></processed-item-list>", Charset.defaultCharset());
+    LogStructuredItemCache cache = createCache();
+    try {
+      cache.init();
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    finally {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testPersistence_PartialRecord() throws Exception {
+    LogStructuredItemCache cache = createCache();
+    try {
+      start(cache);
+      cache.update(createCacheEntries(10));
+      stop(cache);
+      // Simulate a crash part way through writing a record.
+      try (RandomAccessFile file = new RandomAccessFile(persistentStore, "rw")) {
+        file.setLength(file.length() - 5);
+      }
+      start(cache);
+      assertEquals(9, cache.size());
+      cache.update(new ProcessedItem(CACHE_PREFIX + 9, 1, 1));
+      stop(cache);
+      start(cache);
+      assertEquals(10, cache.size());
+    }
+    finally {
+      stop(cache);
+    }
+  }
+
+  @Test
+  public void testPersistence_LongPath() throws Exception {
+    // Larger than the 64k limit of DataOutput#writeUTF()
+    String path = CACHE_PREFIX + StringUtils.repeat("\u00e9", 70000);
+    LogStructuredItemCache cache = createCache();
+    try {
+      start(cache);
+      cache.update(new ProcessedItem(path, 1, 1));
+      stop(cache);
+      start(cache);
+      assertEquals(1, cache.size());
+      assertNotNull(cache.get(path));
+    }
+    finally {
+      stop(cache);
+    }
+  }
+
+  @Test
+  public void testUpdate_Unchanged() throws Exception {
+    LogStructuredItemCache cache = createCache();
+    try {
+      start(cache);
+      cache.update(new ProcessedItem(CACHE_PREFIX, 1, 1));
+      cache.update(new ProcessedItem(CACHE_PREFIX, 1, 1));
+      assertEquals(1, cache.records());
+      cache.update(new ProcessedItem(CACHE_PREFIX, 2, 1));
+      assertEquals(2, cache.records());
+      assertEquals(1, cache.size());
+    }
+    finally {
+      stop(cache);
+    }
+  }
+
+  @Test
+  public void testSave_Compacts() throws Exception {
+    LogStructuredItemCache cache = createCache().withCompactionThreshold(10);
+    try {
+      start(cache);
+      int count = 20;
+      for (int i = 0; i < count; i++) {
+        cache.update(createCacheEntries(count));
+      }
+      assertEquals(count * count, cache.records());
+      cache.save();
+      assertEquals(count, cache.records());
+      cache.update(createCacheEntries(count));
+      cache.save();
+      // not yet enough obsolete records to compact.
+      assertEquals(count * 2, cache.records());
+      stop(cache);
+      start(cache);
+      assertCache(cache, count);
+    }
+    finally {
+      stop(cache);
+    }
+  }
+
+  @Test
+  public void testClear_Persisted() throws Exception {
+    LogStructuredItemCache cache = createCache();
+    try {
+      start(cache);
+      cache.update(createCacheEntries(10));
+      cache.clear();
+      stop(cache);
+      start(cache);
+      assertEquals(0, cache.size());
+    }
+    finally {
+      stop(cache);
+    }
+  }
+}
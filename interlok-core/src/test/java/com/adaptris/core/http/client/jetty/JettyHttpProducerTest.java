@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.http.client.jetty;
+
+import static com.adaptris.core.http.jetty.JettyHelper.createChannel;
+import static com.adaptris.core.http.jetty.JettyHelper.createConsumer;
+import static com.adaptris.core.http.jetty.JettyHelper.createWorkflow;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.Channel;
+import com.adaptris.core.ConfiguredProduceDestination;
+import com.adaptris.core.CoreConstants;
+import com.adaptris.core.DefaultMessageFactory;
+import com.adaptris.core.ServiceException;
+import com.adaptris.core.ServiceList;
+import com.adaptris.core.StandaloneProducer;
+import com.adaptris.core.StandaloneRequestor;
+import com.adaptris.core.http.HttpProducerExample;
+import com.adaptris.core.http.MetadataContentTypeProvider;
+import com.adaptris.core.http.auth.ConfiguredUsernamePassword;
+import com.adaptris.core.http.client.ConfiguredRequestMethodProvider;
+import com.adaptris.core.http.client.RangeMatch;
+import com.adaptris.core.http.client.RequestMethodProvider;
+import com.adaptris.core.http.client.net.HttpHelper;
+import com.adaptris.core.http.client.net.ResponseHeadersAsMetadata;
+import com.adaptris.core.http.jetty.ConfigurableSecurityHandler;
+import com.adaptris.core.http.jetty.HashLoginServiceFactory;
+import com.adaptris.core.http.jetty.HttpConnection;
+import com.adaptris.core.http.jetty.HttpConsumerTest;
+import com.adaptris.core.http.jetty.JettyHelper;
+import com.adaptris.core.http.jetty.JettyMessageConsumer;
+import com.adaptris.core.http.jetty.SecurityConstraint;
+import com.adaptris.core.http.jetty.StandardResponseProducer;
+import com.adaptris.core.http.server.HttpStatusProvider.HttpStatus;
+import com.adaptris.core.services.metadata.PayloadFromTemplateService;
+import com.adaptris.core.stubs.MockMessageProducer;
+import com.adaptris.util.TimeInterval;
+
+public class JettyHttpProducerTest extends HttpProducerExample {
+  private static final String TEXT = "ABCDEFG";
+  private static final String ALT_TEXT = "HIJKLMNOP";
+
+  @Override
+  public boolean isAnnotatedForJunit4() {
+    return true;
+  }
+
+  @Test
+  public void testConnection_Defaults() throws Exception {
+    JettyHttpClientConnection conn = new JettyHttpClientConnection();
+    assertFalse(conn.http2());
+    assertEquals(64, conn.maxConnectionsPerDestination());
+    assertEquals(1024, conn.maxRequestsQueuedPerDestination());
+    assertEquals(TimeUnit.SECONDS.toMillis(15), conn.connectTimeoutMs());
+    assertEquals(TimeUnit.SECONDS.toMillis(60), conn.idleTimeoutMs());
+    conn.withHttp2(true).withMaxConnectionsPerDestination(2).withMaxRequestsQueuedPerDestination(10)
+        .withConnectTimeout(new TimeInterval(1L, TimeUnit.SECONDS)).withIdleTimeout(new TimeInterval(2L, TimeUnit.SECONDS));
+    assertTrue(conn.http2());
+    assertEquals(2, conn.maxConnectionsPerDestination());
+    assertEquals(10, conn.maxRequestsQueuedPerDestination());
+    assertEquals(1000, conn.connectTimeoutMs());
+    assertEquals(2000, conn.idleTimeoutMs());
+  }
+
+  @Test
+  public void testRequestTimeout() throws Exception {
+    JettyHttpProducer producer = new JettyHttpProducer();
+    assertEquals(-1, producer.requestTimeoutMs(-1));
+    assertEquals(10, producer.requestTimeoutMs(10));
+    producer.withRequestTimeout(new TimeInterval(1L, TimeUnit.SECONDS));
+    assertEquals(1000, producer.requestTimeoutMs(-1));
+    assertEquals(10, producer.requestTimeoutMs(10));
+  }
+
+  @Test
+  public void testProduce() throws Exception {
+    MockMessageProducer mock = new MockMessageProducer();
+    Channel c = HttpHelper.createAndStartChannel(mock);
+    JettyHttpProducer http = new JettyHttpProducer();
+    http.setContentTypeProvider(new MetadataContentTypeProvider(HttpHelper.CONTENT_TYPE));
+    StandaloneProducer producer = new StandaloneProducer(new JettyHttpClientConnection(), http);
+    AdaptrisMessage msg = new DefaultMessageFactory().newMessage(TEXT);
+    msg.addMetadata(HttpHelper.CONTENT_TYPE, "text/complicated");
+    try {
+      start(producer);
+      producer.produce(msg, HttpHelper.createProduceDestination(c));
+      waitForMessages(mock, 1);
+    }
+    finally {
+      HttpHelper.stopChannelAndRelease(c);
+      stop(producer);
+    }
+    assertEquals(1, mock.messageCount());
+    AdaptrisMessage m2 = mock.getMessages().get(0);
+    assertEquals(TEXT, m2.getContent());
+    assertEquals("text/complicated", m2.getMetadataValue("Content-Type"));
+  }
+
+  @Test
+  public void testRequest_PooledConnection() throws Exception {
+    MockMessageProducer mock = new MockMessageProducer();
+    Channel c = HttpHelper.createAndStartChannel(mock, ALT_TEXT);
+    JettyHttpProducer http = new JettyHttpProducer(HttpHelper.createProduceDestination(c));
+    http.setResponseHeaderHandler(new ResponseHeadersAsMetadata("HTTP_"));
+    StandaloneRequestor producer = new StandaloneRequestor(new JettyHttpClientConnection(), http);
+    try {
+      start(producer);
+      for (int i = 0; i < 5; i++) {
+        AdaptrisMessage msg = new DefaultMessageFactory().newMessage(TEXT);
+        producer.doService(msg);
+        assertEquals(ALT_TEXT, msg.getContent());
+        assertEquals("200", msg.getMetadataValue(CoreConstants.HTTP_PRODUCER_RESPONSE_CODE));
+        assertNotNull(msg.getMetadata("HTTP_Server"));
+      }
+      waitForMessages(mock, 5);
+    }
+    finally {
+      HttpHelper.stopChannelAndRelease(c);
+      stop(producer);
+    }
+    assertEquals(5, mock.messageCount());
+  }
+
+  @Test
+  public void testRequest_GetMethod_ErrorResponse() throws Exception {
+    MockMessageProducer mock = new MockMessageProducer();
+    Channel c = createErrorChannel(mock);
+    JettyHttpProducer http = new JettyHttpProducer(HttpHelper.createProduceDestination(c));
+    http.setMethodProvider(new ConfiguredRequestMethodProvider(RequestMethodProvider.RequestMethod.GET));
+    StandaloneRequestor producer = new StandaloneRequestor(new JettyHttpClientConnection(), http);
+    AdaptrisMessage msg = new DefaultMessageFactory().newMessage(ALT_TEXT);
+    try {
+      start(c);
+      start(producer);
+      producer.doService(msg);
+      fail();
+    }
+    catch (ServiceException expected) {
+
+    }
+    finally {
+      HttpHelper.stopChannelAndRelease(c);
+      stop(producer);
+    }
+  }
+
+  @Test
+  public void testRequest_ErrorResponse_Ignored() throws Exception {
+    MockMessageProducer mock = new MockMessageProducer();
+    Channel c = createErrorChannel(mock);
+    JettyHttpProducer http = new JettyHttpProducer(HttpHelper.createProduceDestination(c));
+    http.setMethodProvider(new ConfiguredRequestMethodProvider(RequestMethodProvider.RequestMethod.GET));
+    http.setIgnoreServerResponseCode(true);
+    StandaloneRequestor producer = new StandaloneRequestor(new JettyHttpClientConnection(), http);
+    AdaptrisMessage msg = new DefaultMessageFactory().newMessage(ALT_TEXT);
+    try {
+      start(c);
+      start(producer);
+      producer.doService(msg);
+      waitForMessages(mock, 1);
+    }
+    finally {
+      HttpHelper.stopChannelAndRelease(c);
+      stop(producer);
+    }
+    assertEquals("GET", mock.getMessages().get(0).getMetadataValue(CoreConstants.HTTP_METHOD));
+    assertEquals(TEXT, msg.getContent());
+    assertEquals("401", msg.getMetadataValue(CoreConstants.HTTP_PRODUCER_RESPONSE_CODE));
+  }
+
+  @Test
+  public void testRequest_SuccessStatus() throws Exception {
+    MockMessageProducer mock = new MockMessageProducer();
+    Channel c = createErrorChannel(mock);
+    JettyHttpProducer http = new JettyHttpProducer(HttpHelper.createProduceDestination(c))
+        .withSuccessStatus(new RangeMatch(200, 401, null));
+    StandaloneRequestor producer = new StandaloneRequestor(new JettyHttpClientConnection(), http);
+    AdaptrisMessage msg = new DefaultMessageFactory().newMessage(ALT_TEXT);
+    try {
+      start(c);
+      start(producer);
+      producer.doService(msg);
+    }
+    finally {
+      HttpHelper.stopChannelAndRelease(c);
+      stop(producer);
+    }
+    assertEquals(TEXT, msg.getContent());
+    assertEquals("401", msg.getMetadataValue(CoreConstants.HTTP_PRODUCER_RESPONSE_CODE));
+  }
+
+  @Test
+  public void testProduce_WithUsernamePassword() throws Exception {
+    String threadName = Thread.currentThread().getName();
+    Thread.currentThread().setName(getName());
+    ConfigurableSecurityHandler csh = new ConfigurableSecurityHandler();
+    HashLoginServiceFactory hsl = new HashLoginServiceFactory("InterlokJetty",
+        PROPERTIES.getProperty(HttpConsumerTest.JETTY_USER_REALM));
+    csh.setLoginService(hsl);
+    SecurityConstraint securityConstraint = new SecurityConstraint();
+    securityConstraint.setMustAuthenticate(true);
+    securityConstraint.setRoles("user");
+    csh.setSecurityConstraints(Arrays.asList(securityConstraint));
+
+    HttpConnection jc = HttpHelper.createConnection();
+    jc.setSecurityHandler(csh);
+    MockMessageProducer mockProducer = new MockMessageProducer();
+    JettyMessageConsumer consumer = JettyHelper.createConsumer(HttpHelper.URL_TO_POST_TO);
+    Channel channel = JettyHelper.createChannel(jc, consumer, mockProducer);
+
+    JettyHttpProducer http = new JettyHttpProducer();
+    http.setAuthenticator(new ConfiguredUsernamePassword(getName(), getName()));
+    StandaloneRequestor producer = new StandaloneRequestor(new JettyHttpClientConnection(), http);
+    try {
+      start(channel);
+      start(producer);
+      AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(TEXT);
+      http.request(msg, HttpHelper.createProduceDestination(channel));
+      waitForMessages(mockProducer, 1);
+      assertEquals(TEXT, mockProducer.getMessages().get(0).getContent());
+    }
+    finally {
+      stop(producer);
+      HttpHelper.stopChannelAndRelease(channel);
+      Thread.currentThread().setName(threadName);
+    }
+  }
+
+  @Override
+  protected Object retrieveObjectForSampleConfig() {
+    JettyHttpProducer producer = new JettyHttpProducer(new ConfiguredProduceDestination("http://myhost.com/url/to/post/to"));
+    producer.setResponseHeaderHandler(new ResponseHeadersAsMetadata("resp_hdr_"));
+    producer.setRequestTimeout(new TimeInterval(30L, TimeUnit.SECONDS));
+    return new StandaloneProducer(new JettyHttpClientConnection().withHttp2(true).withMaxConnectionsPerDestination(4),
+        producer);
+  }
+
+  private static Channel createErrorChannel(MockMessageProducer mock) throws Exception {
+    HttpConnection jc = HttpHelper.createConnection();
+    JettyMessageConsumer mc = createConsumer(HttpHelper.URL_TO_POST_TO);
+    ServiceList services = new ServiceList();
+    services.add(new PayloadFromTemplateService().withTemplate(TEXT));
+    services.add(new StandaloneProducer(new StandardResponseProducer(HttpStatus.UNAUTHORIZED_401)));
+    return createChannel(jc, createWorkflow(mc, mock, services));
+  }
+}
@@ -19,10 +19,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -77,6 +82,29 @@ public class JettyWrapperTest {
   }
 
 
+  @Test
+  public void testMonitor_CompleteAsync() {
+    JettyConsumerMonitor monitor = new JettyConsumerMonitor();
+    assertFalse(monitor.completeAsync());
+    AtomicInteger completed = new AtomicInteger();
+    AsyncContext ctx = (AsyncContext) Proxy.newProxyInstance(AsyncContext.class.getClassLoader(), new java.lang.Class[]
+    {
+        AsyncContext.class
+    }, (proxy, method, args) -> {
+      if (method.getName().equals("complete")) {
+        completed.incrementAndGet();
+      }
+      return null;
+    });
+    monitor.setAsyncContext(ctx);
+    assertNotNull(monitor.getAsyncContext());
+    assertTrue(monitor.completeAsync());
+    assertNull(monitor.getAsyncContext());
+    // Only ever completed once.
+    assertFalse(monitor.completeAsync());
+    assertEquals(1, completed.get());
+  }
+
   // cos you know, reflection is awesome.
   private HttpServletResponse createDummyResponse() {
     HttpServletResponse dummy = (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
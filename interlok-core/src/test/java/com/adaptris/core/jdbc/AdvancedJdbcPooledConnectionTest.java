@@ -1,6 +1,7 @@
 package com.adaptris.core.jdbc;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.sql.Connection;
@@ -48,6 +49,37 @@ public class AdvancedJdbcPooledConnectionTest extends DatabaseConnectionCase<Adv
     return conn1;
   }
 
+  @Test
+  public void testStatementCache_Pool() throws Exception {
+    AdvancedJdbcPooledConnection con = configure(createConnection());
+    con.setStatementCacheSize(5);
+    try {
+      LifecycleHelper.initAndStart(con);
+      assertNull(con.statementCache());
+      ComboPooledDataSource poolDs = ((C3P0PooledDataSource) con.asDataSource()).wrapped();
+      assertEquals(5, poolDs.getMaxStatementsPerConnection());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(con);
+    }
+  }
+
+  @Test
+  public void testStatementCache_PoolPropertiesTakePrecedence() throws Exception {
+    AdvancedJdbcPooledConnection con = configure(createConnection());
+    con.setStatementCacheSize(5);
+    con.getConnectionPoolProperties()
+        .add(new KeyValuePair(PooledConnectionProperties.maxStatementsPerConnection.name(), "10"));
+    try {
+      LifecycleHelper.initAndStart(con);
+      ComboPooledDataSource poolDs = ((C3P0PooledDataSource) con.asDataSource()).wrapped();
+      assertEquals(10, poolDs.getMaxStatementsPerConnection());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(con);
+    }
+  }
+
   @Test
   public void testBrokenPool() throws Exception {
     JdbcPooledConnectionImpl con = configure(createConnection());
@@ -15,19 +15,27 @@
 */
 
 package com.adaptris.core.jdbc;
+import static com.adaptris.core.runtime.AdapterComponentMBean.ID_PREFIX;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
 import org.junit.Test;
 import com.adaptris.core.AdaptrisMarshaller;
 import com.adaptris.core.BaseCase;
 import com.adaptris.core.DefaultMarshaller;
 import com.adaptris.core.util.JdbcUtil;
+import com.adaptris.core.util.JmxHelper;
 import com.adaptris.core.util.LifecycleHelper;
 import com.adaptris.util.GuidGenerator;
 import com.adaptris.util.KeyValuePairSet;
@@ -236,6 +244,81 @@ public abstract class DatabaseConnectionCase<T extends DatabaseConnection> exten
     }
   }
 
+  @Test
+  public void testStatementCache() throws Exception {
+    DatabaseConnection con = configure(createConnection());
+    // Pooled connections use the pool's own statement cache.
+    assumeFalse(con.poolCachesStatements());
+    con.setUniqueId(nameGen.safeUUID());
+    con.setStatementCacheSize(5);
+    Connection c = null;
+    try {
+      LifecycleHelper.initAndStart(con);
+      JdbcStatementCache cache = con.statementCache();
+      assertNotNull(cache);
+      c = con.connect();
+      for (int i = 0; i < 3; i++) {
+        PreparedStatement p = cache.prepareStatement(c, DEFAULT_TEST_STATEMENT, null);
+        ResultSet rs = p.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        JdbcUtil.closeQuietly(rs, p);
+      }
+      assertEquals(1, cache.getMissCount());
+      assertEquals(2, cache.getHitCount());
+      assertEquals(1, cache.getCachedStatementCount());
+      assertEquals(2L, JmxHelper.findMBeanServer().getAttribute(cache.createObjectName(), "HitCount"));
+      // In use, so a second statement is prepared.
+      PreparedStatement p1 = cache.prepareStatement(c, DEFAULT_TEST_STATEMENT, null);
+      PreparedStatement p2 = cache.prepareStatement(c, DEFAULT_TEST_STATEMENT, null);
+      assertEquals(2, cache.getMissCount());
+      JdbcUtil.closeQuietly(p1, p2);
+      assertEquals(1, cache.getCachedStatementCount());
+      assertEquals(1, cache.getEvictionCount());
+    }
+    finally {
+      JdbcUtil.closeQuietly(c);
+      LifecycleHelper.stopAndClose(con);
+    }
+    assertNull(con.statementCache());
+    assertFalse(JmxHelper.findMBeanServer().isRegistered(
+        ObjectName.getInstance(JdbcStatementCacheMBean.JMX_STATEMENT_CACHE_TYPE + ID_PREFIX + con.getUniqueId())));
+  }
+
+  @Test
+  public void testStatementCache_AlreadyRegistered() throws Exception {
+    String uniqueId = nameGen.safeUUID();
+    DatabaseConnection con1 = configure(createConnection());
+    DatabaseConnection con2 = configure(createConnection());
+    assumeFalse(con1.poolCachesStatements());
+    con1.setUniqueId(uniqueId);
+    con2.setUniqueId(uniqueId);
+    con1.setStatementCacheSize(5);
+    con2.setStatementCacheSize(5);
+    try {
+      LifecycleHelper.initAndStart(con1);
+      // The statistics are already registered, but that shouldn't stop it from starting.
+      LifecycleHelper.initAndStart(con2);
+      assertNotNull(con2.statementCache());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(con2);
+      LifecycleHelper.stopAndClose(con1);
+    }
+  }
+
+  @Test
+  public void testStatementCache_Disabled() throws Exception {
+    DatabaseConnection con = configure(createConnection());
+    try {
+      LifecycleHelper.initAndStart(con);
+      assertNull(con.statementCache());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(con);
+    }
+  }
+
   // @Test
 //  public void testConnectionDataSource_NotYetInitialised() throws Exception {
 //    DatabaseConnection con = configure(createConnection());
@@ -109,6 +109,21 @@ public class JdbcPooledConnectionTest extends DatabaseConnectionCase<JdbcPooledC
     assertEquals(10, con.minPoolSize());
   }
 
+  @Test
+  public void testStatementCache_Pool() throws Exception {
+    JdbcPooledConnection con = configure(createConnection());
+    con.setStatementCacheSize(5);
+    try {
+      LifecycleHelper.initAndStart(con);
+      assertNull(con.statementCache());
+      ComboPooledDataSource poolDs = ((C3P0PooledDataSource) con.asDataSource()).wrapped();
+      assertEquals(5, poolDs.getMaxStatementsPerConnection());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(con);
+    }
+  }
+
   @Test
   public void testClose() throws Exception {
     JdbcPooledConnection con = configure(createConnection());
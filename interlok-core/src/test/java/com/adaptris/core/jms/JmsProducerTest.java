@@ -47,6 +47,7 @@ import com.adaptris.core.AdaptrisMessageFactory;
 import com.adaptris.core.ConfiguredConsumeDestination;
 import com.adaptris.core.ConfiguredProduceDestination;
 import com.adaptris.core.ProduceDestination;
+import com.adaptris.core.ProduceException;
 import com.adaptris.core.Service;
 import com.adaptris.core.ServiceCase;
 import com.adaptris.core.ServiceList;
@@ -530,6 +531,97 @@ public class JmsProducerTest extends JmsProducerCase {
     }
   }
 
+  @Test
+  public void testCachingSession_Transacted() throws Exception {
+    if (!JmsConfig.jmsTestsEnabled()) {
+      return;
+    }
+    String rfc6167 = "jms:queue:" + getName() + "";
+    EmbeddedActiveMq activeMqBroker = new EmbeddedActiveMq();
+    JmsConsumerImpl consumer = createConsumer(new ConfiguredConsumeDestination(getName()));
+    consumer.setAcknowledgeMode("AUTO_ACKNOWLEDGE");
+    StandaloneConsumer standaloneConsumer =
+        new StandaloneConsumer(activeMqBroker.getJmsConnection(), consumer);
+    MockMessageListener jms = new MockMessageListener();
+    standaloneConsumer.registerAdaptrisMessageListener(jms);
+    JmsProducer producer = createProducer(new ConfiguredProduceDestination(rfc6167));
+    producer.setSessionFactory(new CachingProducerSessionFactory().withTransacted(true));
+    StandaloneProducer standaloneProducer =
+        new StandaloneProducer(activeMqBroker.getJmsConnection(), producer);
+    try {
+      activeMqBroker.start();
+      start(standaloneConsumer, standaloneProducer);
+      standaloneProducer.doService(createMessage());
+      standaloneProducer.doService(createMessage());
+      assertTrue(producer.currentSession().getTransacted());
+      // Nothing would be delivered if the messages weren't committed.
+      waitForMessages(jms, 2);
+      assertMessages(jms, 2);
+    } finally {
+      stop(standaloneProducer, standaloneConsumer);
+      activeMqBroker.destroy();
+    }
+  }
+
+  @Test
+  public void testCachingSession_Batch() throws Exception {
+    if (!JmsConfig.jmsTestsEnabled()) {
+      return;
+    }
+    String rfc6167 = "jms:queue:" + getName() + "";
+    EmbeddedActiveMq activeMqBroker = new EmbeddedActiveMq();
+    JmsConsumerImpl consumer = createConsumer(new ConfiguredConsumeDestination(getName()));
+    consumer.setAcknowledgeMode("AUTO_ACKNOWLEDGE");
+    StandaloneConsumer standaloneConsumer =
+        new StandaloneConsumer(activeMqBroker.getJmsConnection(), consumer);
+    MockMessageListener jms = new MockMessageListener();
+    standaloneConsumer.registerAdaptrisMessageListener(jms);
+    JmsProducer producer = createProducer(new ConfiguredProduceDestination(rfc6167));
+    producer.setSessionFactory(new CachingProducerSessionFactory().withTransacted(true).withMaxDestinations(1));
+    StandaloneProducer standaloneProducer =
+        new StandaloneProducer(activeMqBroker.getJmsConnection(), producer);
+    try {
+      activeMqBroker.start();
+      start(standaloneConsumer, standaloneProducer);
+      List<AdaptrisMessage> batch = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        batch.add(createMessage());
+      }
+      List<AdaptrisMessage> failures = new ArrayList<>();
+      producer.produce(batch, (msg, e) -> failures.add(msg));
+      assertEquals(0, failures.size());
+      waitForMessages(jms, 10);
+      assertMessages(jms, 10);
+    } finally {
+      stop(standaloneProducer, standaloneConsumer);
+      activeMqBroker.destroy();
+    }
+  }
+
+  @Test
+  public void testProduceBatch_TransactedRollback() throws Exception {
+    when(mockSessionFactory.createProducerSession(any(), any()))
+      .thenReturn(mockProducerSession);
+    when(mockProducerSession.getSession())
+      .thenReturn(mockSession);
+    when(mockSession.getTransacted())
+      .thenReturn(true);
+
+    JmsProducer producer = this.createProducer(new ConfiguredProduceDestination("myDestination"));
+    producer.setSessionFactory(mockSessionFactory);
+    List<AdaptrisMessage> batch = new ArrayList<>();
+    batch.add(AdaptrisMessageFactory.getDefaultInstance().newMessage("xxx"));
+    try {
+      // No connection, so creating the destination fails.
+      producer.produce(batch, (msg, e) -> fail());
+      fail();
+    } catch (ProduceException expected) {
+
+    }
+    verify(mockSession, times(0)).commit();
+    verify(mockSession).rollback();
+  }
+
   @Test
   public void testTimedInactivitySession() throws Exception {
     // This would be best, but we can't mix Junit3 with Junit4 assumptions.
@@ -24,12 +24,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.io.File;
+import java.nio.charset.Charset;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.ConfiguredProduceDestination;
+import com.adaptris.core.CoreConstants;
 import com.adaptris.core.DefaultMessageFactory;
 import com.adaptris.core.MimeEncoder;
 import com.adaptris.core.ProduceDestination;
@@ -88,6 +90,24 @@ public class LargeFsMessageProducerTest extends FsProducerExample {
     stop(producer);
   }
 
+  @Test
+  public void testProduceWithHardLink() throws Exception {
+    LargeFsProducer producer = create();
+    producer.setUseHardLink(true);
+    try {
+      start(producer);
+      AdaptrisMessage msg = new FileBackedMessageFactory().newMessage("dummy");
+      producer.produce(msg);
+      File produced = new File(destDir, msg.getMetadataValue(CoreConstants.PRODUCED_NAME_KEY));
+      assertEquals("dummy", FileUtils.readFileToString(produced, Charset.defaultCharset()));
+      // The message is still intact, whether it was linked or copied.
+      assertEquals("dummy", msg.getContent());
+    }
+    finally {
+      stop(producer);
+    }
+  }
+
   @Test
   public void testProduce_WithEncoder() throws Exception {
     LargeFsProducer producer = create();
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.lms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+
+public class MappedPayloadTest {
+
+  private static final String PAYLOAD = "The quick brown fox jumps over the lazy dog";
+
+  @Test
+  public void testMapPayload() throws Exception {
+    FileBackedMessage msg = (FileBackedMessage) new FileBackedMessageFactory().newMessage(PAYLOAD);
+    MappedPayload payload = msg.mapPayload();
+    assertNotNull(payload);
+    assertEquals(PAYLOAD.length(), payload.size());
+    assertEquals(1, payload.buffers().size());
+    assertEquals(PAYLOAD, toString(payload.buffers()));
+    assertTrue(payload.buffers().get(0).isReadOnly());
+    // Cached until the payload changes.
+    assertSame(payload, msg.mapPayload());
+    msg.setContent("Hello World", "UTF-8");
+    assertNotSame(payload, msg.mapPayload());
+    assertEquals("Hello World", toString(msg.mapPayload().buffers()));
+  }
+
+  @Test
+  public void testMapPayload_Empty() throws Exception {
+    FileBackedMessage msg = (FileBackedMessage) new FileBackedMessageFactory().newMessage();
+    MappedPayload payload = msg.mapPayload();
+    assertEquals(0, payload.size());
+    assertEquals(0, payload.buffers().size());
+    assertEquals("", payload.asCharSequence(StandardCharsets.UTF_8).toString());
+  }
+
+  @Test
+  public void testMapPayload_ZipFileBacked() throws Exception {
+    FileBackedMessage msg = (FileBackedMessage) new ZipFileBackedMessageFactory().newMessage(PAYLOAD);
+    assertNull(msg.mapPayload());
+    assertNull(MappedPayload.asCharSequence(msg));
+  }
+
+  @Test
+  public void testMap_Chunked() throws Exception {
+    FileBackedMessage msg = (FileBackedMessage) new FileBackedMessageFactory().newMessage(PAYLOAD);
+    MappedPayload payload = MappedPayload.map(msg.currentSource(), 10);
+    assertEquals(5, payload.buffers().size());
+    assertEquals(PAYLOAD, toString(payload.buffers()));
+  }
+
+  @Test
+  public void testAsCharSequence() throws Exception {
+    AdaptrisMessage msg = new FileBackedMessageFactory().newMessage(PAYLOAD, "UTF-8");
+    CharSequence view = MappedPayload.asCharSequence(msg);
+    assertNotNull(view);
+    assertEquals(PAYLOAD, view.toString());
+    assertEquals("quick", view.subSequence(4, 9).toString());
+    assertEquals('q', view.subSequence(4, 9).charAt(0));
+    assertTrue(Pattern.compile(".+lazy.+", Pattern.DOTALL).matcher(view).matches());
+  }
+
+  @Test
+  public void testAsCharSequence_NotAscii() throws Exception {
+    String payload = "Caf\u00e9";
+    MappedPayload utf8 = ((FileBackedMessage) new FileBackedMessageFactory().newMessage(payload, "UTF-8")).mapPayload();
+    assertNull(utf8.asCharSequence(StandardCharsets.UTF_8));
+    assertNull(utf8.asCharSequence(StandardCharsets.UTF_16));
+    MappedPayload latin1 = ((FileBackedMessage) new FileBackedMessageFactory().newMessage(payload, "ISO-8859-1")).mapPayload();
+    assertEquals(payload, latin1.asCharSequence(StandardCharsets.ISO_8859_1).toString());
+    assertEquals(new String(payload.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.US_ASCII),
+        latin1.asCharSequence(StandardCharsets.US_ASCII).toString());
+  }
+
+  @Test
+  public void testAsCharSequence_NotFileBacked() throws Exception {
+    assertNull(MappedPayload.asCharSequence(AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD)));
+  }
+
+  private static String toString(List<ByteBuffer> buffers) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (ByteBuffer b : buffers) {
+      byte[] bytes = new byte[b.remaining()];
+      b.get(bytes);
+      out.write(bytes, 0, bytes.length);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
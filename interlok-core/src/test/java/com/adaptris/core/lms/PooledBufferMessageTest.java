@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.lms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageCase;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.ReferenceCountedMessage;
+
+public class PooledBufferMessageTest extends AdaptrisMessageCase {
+
+  private PooledBufferMessageFactory mf;
+
+  @Before
+  public void setup() {
+    mf = new PooledBufferMessageFactory();
+    // Small segments so that payloads span multiple segments.
+    mf.setSegmentSizeBytes(16);
+  }
+
+  @Override
+  protected PooledBufferMessageFactory getMessageFactory() {
+    return mf;
+  }
+
+  @Test
+  public void testStreams_MultipleSegments() throws Exception {
+    byte[] bytes = new byte[1000];
+    new Random().nextBytes(bytes);
+    AdaptrisMessage msg = getMessageFactory().newMessage();
+    try (OutputStream out = msg.getOutputStream()) {
+      out.write(bytes, 0, 10);
+      out.write(bytes[10]);
+      out.write(bytes, 11, bytes.length - 11);
+    }
+    assertEquals(bytes.length, msg.getSize());
+    try (InputStream in = msg.getInputStream()) {
+      assertArrayEquals(bytes, IOUtils.toByteArray(in));
+    }
+    assertArrayEquals(bytes, msg.getPayload());
+  }
+
+  @Test
+  public void testClone_CopyOnWrite() throws Exception {
+    AdaptrisMessage msg = getMessageFactory().newMessage(PAYLOAD);
+    AdaptrisMessage clone = (AdaptrisMessage) msg.clone();
+    assertEquals(PAYLOAD, clone.getContent());
+    clone.setContent(PAYLOAD2, null);
+    assertEquals(PAYLOAD, msg.getContent());
+    assertEquals(PAYLOAD2, clone.getContent());
+  }
+
+  @Test
+  public void testSegments_ReturnedToPool() throws Exception {
+    AdaptrisMessage msg = getMessageFactory().newMessage(PAYLOAD);
+    BufferPool pool = getMessageFactory().bufferPool();
+    int before = pool.pooledSegments();
+    AdaptrisMessage clone = (AdaptrisMessage) msg.clone();
+    msg.setContent(PAYLOAD2, null);
+    // Still in use by the clone.
+    assertEquals(before, pool.pooledSegments());
+    InputStream in = clone.getInputStream();
+    clone.setContent(PAYLOAD2, null);
+    // Still in use by the input stream
+    assertEquals(before, pool.pooledSegments());
+    in.close();
+    assertTrue(pool.pooledSegments() > before);
+  }
+
+  @Test
+  public void testSetNullPayload() throws Exception {
+    AdaptrisMessage msg = getMessageFactory().newMessage(PAYLOAD);
+    msg.setPayload(null);
+    assertEquals(0, msg.getSize());
+    msg.setContent(null, null);
+    assertEquals(0, msg.getSize());
+    assertEquals("", msg.getContent());
+  }
+
+  @Test
+  public void testRelease() throws Exception {
+    AdaptrisMessage msg = getMessageFactory().newMessage(PAYLOAD);
+    BufferPool pool = getMessageFactory().bufferPool();
+    int before = pool.pooledSegments();
+    assertTrue(((ReferenceCountedMessage) msg).release());
+    assertTrue(pool.pooledSegments() > before);
+    assertEquals(0, msg.getSize());
+    assertEquals(0, ((ReferenceCountedMessage) msg).referenceCount());
+    assertFalse(((ReferenceCountedMessage) msg).release());
+    try {
+      ((ReferenceCountedMessage) msg).retain();
+      fail();
+    }
+    catch (IllegalStateException expected) {
+
+    }
+    // Other messages are left alone.
+    AdaptrisMessage other = AdaptrisMessageFactory.getDefaultInstance().newMessage(PAYLOAD);
+    ReferenceCountedMessage.release(other);
+    assertEquals(PAYLOAD, other.getContent());
+  }
+
+  @Test
+  public void testRelease_Retained() throws Exception {
+    AdaptrisMessage msg = getMessageFactory().newMessage(PAYLOAD);
+    ReferenceCountedMessage counted = (ReferenceCountedMessage) msg;
+    counted.retain();
+    assertEquals(2, counted.referenceCount());
+    assertFalse(counted.release());
+    assertEquals(PAYLOAD, msg.getContent());
+    assertTrue(counted.release());
+    assertEquals(0, msg.getSize());
+  }
+
+  @Test
+  public void testRelease_Clone() throws Exception {
+    AdaptrisMessage msg = getMessageFactory().newMessage(PAYLOAD);
+    ((ReferenceCountedMessage) msg).retain();
+    AdaptrisMessage clone = (AdaptrisMessage) msg.clone();
+    assertEquals(1, ((ReferenceCountedMessage) clone).referenceCount());
+    assertTrue(((ReferenceCountedMessage) clone).release());
+    assertEquals(0, clone.getSize());
+    assertEquals(PAYLOAD, msg.getContent());
+  }
+
+  @Test
+  public void testRelease_UnclosedOutputStream() throws Exception {
+    AdaptrisMessage msg = getMessageFactory().newMessage();
+    BufferPool pool = getMessageFactory().bufferPool();
+    int before = pool.pooledSegments();
+    OutputStream out = msg.getOutputStream();
+    out.write(new byte[100]);
+    ((ReferenceCountedMessage) msg).release();
+    assertTrue(pool.pooledSegments() > before);
+    try {
+      out.write(1);
+      fail();
+    }
+    catch (IOException expected) {
+
+    }
+    // Closing a discarded stream doesn't replace the payload.
+    out.close();
+    assertEquals(0, msg.getSize());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.DefaultMessageFactory;
+import com.adaptris.core.MetadataElement;
+
+public class CopyOnWriteMetadataStoreTest {
+
+  @Test
+  public void testFactory() throws Exception {
+    AdaptrisMessage msg =
+        new DefaultMessageFactory().withMetadataStoreFactory(new CopyOnWriteMetadataStoreFactory()).newMessage();
+    msg.addMetadata("key", "value");
+    assertEquals("value", msg.getMetadataValue("key"));
+    try {
+      msg.getMetadata().add(new MetadataElement("key2", "value2"));
+      fail();
+    } catch (UnsupportedOperationException expected) {
+
+    }
+  }
+
+  @Test
+  public void testPutGet_Resize() throws Exception {
+    MetadataStore store = new CopyOnWriteMetadataStoreFactory().create();
+    for (int i = 0; i < 100; i++) {
+      store.put("key" + i, "value" + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals("value" + i, store.get("key" + i));
+      assertTrue(store.containsKey("key" + i));
+    }
+    assertNull(store.get("key100"));
+    assertNull(store.get(null));
+    assertFalse(store.containsKey("key100"));
+    assertEquals(100, store.elements().size());
+    assertEquals(100, store.asMap().size());
+  }
+
+  @Test
+  public void testPut_Replace() throws Exception {
+    MetadataStore store = new CopyOnWriteMetadataStoreFactory().create();
+    store.put("key", "value");
+    store.put("key", "value2");
+    assertEquals("value2", store.get("key"));
+    assertEquals(1, store.elements().size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPut_BlankKey() throws Exception {
+    new CopyOnWriteMetadataStoreFactory().create().put("", "value");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPut_NullValue() throws Exception {
+    new CopyOnWriteMetadataStoreFactory().create().put("key", null);
+  }
+
+  @Test
+  public void testPutAll() throws Exception {
+    MetadataStore store = new CopyOnWriteMetadataStoreFactory().create();
+    store.put("key1", "value");
+    store.putAll(Arrays.asList(new MetadataElement("key1", "value1"), new MetadataElement("key2", "value2")));
+    assertEquals(2, store.elements().size());
+    assertEquals("value1", store.get("key1"));
+    assertEquals("value2", store.get("key2"));
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    MetadataStore store = new CopyOnWriteMetadataStoreFactory().create();
+    for (int i = 0; i < 20; i++) {
+      store.put("key" + i, "value" + i);
+    }
+    store.remove("key5");
+    store.remove("does-not-exist");
+    assertNull(store.get("key5"));
+    assertEquals(19, store.elements().size());
+    for (int i = 0; i < 20; i++) {
+      if (i != 5) {
+        assertEquals("value" + i, store.get("key" + i));
+      }
+    }
+    store.clear();
+    assertEquals(0, store.elements().size());
+    assertNull(store.get("key1"));
+  }
+
+  @Test
+  public void testViews_AreSnapshots() throws Exception {
+    MetadataStore store = new CopyOnWriteMetadataStoreFactory().create();
+    store.put("key1", "value1");
+    Set<MetadataElement> elements = store.elements();
+    Map<String, String> map = store.asMap();
+    store.put("key2", "value2");
+    assertEquals(1, elements.size());
+    assertEquals(1, map.size());
+    assertEquals("value1", map.get("key1"));
+    assertFalse(map.containsKey("key2"));
+    assertTrue(elements.contains(new MetadataElement("key1", "")));
+    Set<MetadataElement> expected = new HashSet<>(Arrays.asList(new MetadataElement("key1", "value1")));
+    assertEquals(expected, elements);
+    assertEquals(elements, expected);
+    assertNotNull(store.toString());
+  }
+
+  @Test
+  public void testCopy_IsIndependent() throws Exception {
+    MetadataStore store = new CopyOnWriteMetadataStoreFactory().create();
+    store.put("key1", "value1");
+    MetadataStore copy = store.copy();
+    copy.put("key1", "changed");
+    copy.put("key2", "value2");
+    assertEquals("value1", store.get("key1"));
+    assertNull(store.get("key2"));
+    assertEquals("changed", copy.get("key1"));
+  }
+}
@@ -18,6 +18,7 @@ package com.adaptris.core.services;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.io.File;
@@ -128,6 +129,40 @@ public class ScriptingServiceTest extends GeneralServiceExample {
     delete(script);
   }
 
+  @Test
+  public void testService_RecompilesModifiedScript() throws Exception {
+    ScriptingService service = createService();
+    File script = writeScript(true);
+    service.setScriptFilename(script.getCanonicalPath());
+    try {
+      LifecycleHelper.initAndStart(service);
+      AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage();
+      msg.addMetadata(MY_METADATA_KEY, MY_METADATA_VALUE);
+      service.doService(msg);
+      assertEquals(new StringBuffer(MY_METADATA_VALUE).reverse().toString(), msg.getMetadataValue(MY_METADATA_KEY));
+      try (FileWriter fw = new FileWriter(script)) {
+        fw.write("\nmessage.addMetadata('MyMetadataKey', 'changed');");
+      }
+      script.setLastModified(script.lastModified() + 2000);
+      service.doService(msg);
+      assertEquals("changed", msg.getMetadataValue(MY_METADATA_KEY));
+    }
+    finally {
+      LifecycleHelper.stopAndClose(service);
+      delete(script);
+    }
+  }
+
+  @Test
+  public void testMaxEngines() throws Exception {
+    ScriptingService service = createService();
+    assertNull(service.getMaxEngines());
+    assertEquals(10, service.maxEngines());
+    service.setMaxEngines(2);
+    assertEquals(Integer.valueOf(2), service.getMaxEngines());
+    assertEquals(2, service.maxEngines());
+  }
+
   @Override
   protected Object retrieveObjectForSampleConfig() {
     ScriptingService service = createService();
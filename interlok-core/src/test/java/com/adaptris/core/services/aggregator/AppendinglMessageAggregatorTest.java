@@ -17,6 +17,7 @@
 package com.adaptris.core.services.aggregator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -63,6 +64,39 @@ public class AppendinglMessageAggregatorTest extends AggregatingServiceExample {
     }
   }
 
+  @Test
+  public void testStart_Append() throws Exception {
+    AppendingMessageAggregator aggr = createAggregatorForTests().withOverwriteMetadata(true);
+    AdaptrisMessage original = AdaptrisMessageFactory.getDefaultInstance().newMessage("Goodbye");
+    original.addMetadata("originalKey", "originalValue");
+    AdaptrisMessage splitMsg1 = AdaptrisMessageFactory.getDefaultInstance().newMessage(" Cruel ");
+    AdaptrisMessage splitMsg2 = AdaptrisMessageFactory.getDefaultInstance().newMessage("World");
+    splitMsg2.addMetadata("originalKey", "newValue");
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(splitMsg1);
+      assertEquals("originalValue", original.getMetadataValue("originalKey"));
+      aggregation.append(splitMsg2);
+      assertEquals("newValue", original.getMetadataValue("originalKey"));
+      aggregation.finish();
+    }
+    assertEquals("Goodbye Cruel World", original.getContent());
+  }
+
+  @Test
+  public void testStart_AppendFails() throws Exception {
+    AppendingMessageAggregator aggr = createAggregatorForTests();
+    AdaptrisMessage original = AdaptrisMessageFactory.getDefaultInstance().newMessage("Goodbye");
+    AdaptrisMessage splitMsg = new DefectiveMessageFactory(EnumSet.of(WhenToBreak.INPUT)).newMessage("World");
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(splitMsg);
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    assertTrue(original.getContent().startsWith("Goodbye"));
+  }
+
   @Override
   protected Object retrieveObjectForSampleConfig() {
     return null;
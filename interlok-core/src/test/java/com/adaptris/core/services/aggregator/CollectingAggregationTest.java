@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.aggregator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.lms.FileBackedMessage;
+import com.adaptris.core.lms.FileBackedMessageFactory;
+
+public class CollectingAggregationTest {
+
+  @Test
+  public void testFinish() throws Exception {
+    List<AdaptrisMessage> joined = new ArrayList<>();
+    MessageAggregator aggr = (msg, msgs) -> joined.addAll(msgs);
+    AdaptrisMessage original = AdaptrisMessageFactory.getDefaultInstance().newMessage();
+    AdaptrisMessage m1 = AdaptrisMessageFactory.getDefaultInstance().newMessage("hello");
+    AdaptrisMessage m2 = AdaptrisMessageFactory.getDefaultInstance().newMessage("world");
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(m1);
+      aggregation.append(m2);
+      assertEquals(0, joined.size());
+      aggregation.finish();
+    }
+    assertEquals(2, joined.size());
+    assertSame(m1, joined.get(0));
+    assertSame(m2, joined.get(1));
+  }
+
+  @Test
+  public void testAppend_Spills() throws Exception {
+    AdaptrisMessage original = AdaptrisMessageFactory.getDefaultInstance().newMessage();
+    CollectingAggregation aggregation = new CollectingAggregation(new NullMessageAggregator(), original);
+    AdaptrisMessage small = AdaptrisMessageFactory.getDefaultInstance().newMessage("hello");
+    byte[] payload = new byte[(int) CollectingAggregation.MAX_RETAINED_BYTES];
+    AdaptrisMessage large = AdaptrisMessageFactory.getDefaultInstance().newMessage(payload);
+    large.addMetadata("key", "value");
+    aggregation.append(small);
+    aggregation.append(large);
+    assertSame(small, aggregation.messages().get(0));
+    AdaptrisMessage spilled = aggregation.messages().get(1);
+    assertTrue(spilled instanceof FileBackedMessage);
+    assertEquals(large.getUniqueId(), spilled.getUniqueId());
+    assertEquals("value", spilled.getMetadataValue("key"));
+    assertArrayEquals(payload, spilled.getPayload());
+    File spilledFile = ((FileBackedMessage) spilled).currentSource();
+    assertTrue(spilledFile.exists());
+    aggregation.close();
+    assertEquals(0, aggregation.messages().size());
+    assertFalse(spilledFile.exists());
+  }
+
+  @Test
+  public void testAppend_FileBacked() throws Exception {
+    AdaptrisMessageFactory factory = new FileBackedMessageFactory();
+    AdaptrisMessage original = factory.newMessage();
+    CollectingAggregation aggregation = new CollectingAggregation(new NullMessageAggregator(), original);
+    AdaptrisMessage small = AdaptrisMessageFactory.getDefaultInstance().newMessage("hello");
+    AdaptrisMessage large = factory.newMessage(new byte[(int) CollectingAggregation.MAX_RETAINED_BYTES + 1]);
+    aggregation.append(large);
+    aggregation.append(small);
+    // The file backed message doesn't count towards the memory that's used.
+    assertSame(large, aggregation.messages().get(0));
+    assertSame(small, aggregation.messages().get(1));
+    aggregation.close();
+    // Not ours to delete.
+    assertTrue(((FileBackedMessage) large).currentSource().exists());
+  }
+}
@@ -17,10 +17,14 @@
 package com.adaptris.core.services.aggregator;
 
 import static org.junit.Assert.assertEquals;
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeBodyPart;
 import org.junit.Test;
 import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
 import com.adaptris.core.NullService;
 import com.adaptris.core.Service;
 import com.adaptris.core.services.mime.MimeJunitHelper;
@@ -91,6 +95,33 @@ public class IgnoreOriginalMimeAggregatorTest extends MimeAggregatorCase {
     assertEquals(3, input.size());
   }
 
+  @Test
+  public void testStart_OverridesCreateBodyPart() throws Exception {
+    AdaptrisMessageFactory factory = AdaptrisMessageFactory.getDefaultInstance();
+    AdaptrisMessage original = factory.newMessage("<envelope/>");
+    MimeAggregator aggr = new IgnoreOriginalMimeAggregator() {
+      @Override
+      protected boolean buildInMemory() {
+        return true;
+      }
+
+      @Override
+      protected MimeBodyPart createBodyPart(AdaptrisMessage msg) throws MessagingException, IOException {
+        MimeBodyPart part = super.createBodyPart(msg);
+        part.setHeader("X-Legacy", "true");
+        return part;
+      }
+    };
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(factory.newMessage("<document>hello</document>"));
+      aggregation.append(factory.newMessage("<document>world</document>"));
+      aggregation.finish();
+    }
+    BodyPartIterator input = MimeHelper.createBodyPartIterator(original);
+    assertEquals(2, input.size());
+    assertEquals("true", input.getBodyPart(0).getHeader("X-Legacy", null));
+  }
+
   @Override
   protected List<Service> retrieveObjectsForSampleConfig() {
     return createExamples(new MimePartSplitter(), new IgnoreOriginalMimeAggregator());
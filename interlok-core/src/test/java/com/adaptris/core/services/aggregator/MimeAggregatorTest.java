@@ -17,13 +17,24 @@
 package com.adaptris.core.services.aggregator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeBodyPart;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.CoreConstants;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.NullService;
 import com.adaptris.core.Service;
+import com.adaptris.core.lms.FileBackedMessageFactory;
 import com.adaptris.core.services.conditional.conditions.ConditionImpl;
 import com.adaptris.core.services.mime.MimeJunitHelper;
 import com.adaptris.core.services.splitter.LineCountSplitter;
@@ -109,6 +120,73 @@ public class MimeAggregatorTest extends MimeAggregatorCase {
     assertEquals(6, input.size());
   }
 
+  @Test
+  public void testStart_FileBacked() throws Exception {
+    AdaptrisMessageFactory factory = new FileBackedMessageFactory();
+    AdaptrisMessage original = factory.newMessage("<envelope/>");
+    MimeAggregator aggr = createAggregatorForTests().withEncoding("base64");
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(factory.newMessage("<document>hello</document>"));
+      aggregation.append(factory.newMessage("<document>world</document>"));
+      aggregation.finish();
+    }
+    assertTrue(original.headersContainsKey(CoreConstants.MSG_MIME_ENCODED));
+    BodyPartIterator input = MimeHelper.createBodyPartIterator(original);
+    assertEquals(3, input.size());
+    try (InputStream in = input.getBodyPart(2).getInputStream()) {
+      assertEquals("<document>world</document>", IOUtils.toString(in, StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testStart_OverridesCreateBodyPart() throws Exception {
+    AdaptrisMessageFactory factory = AdaptrisMessageFactory.getDefaultInstance();
+    AdaptrisMessage original = factory.newMessage("<envelope/>");
+    MimeAggregator aggr = new MimeAggregator() {
+      @Override
+      protected boolean buildInMemory() {
+        return true;
+      }
+
+      @Override
+      protected MimeBodyPart createBodyPart(AdaptrisMessage msg) throws MessagingException, IOException {
+        MimeBodyPart part = super.createBodyPart(msg);
+        part.setHeader("X-Legacy", "true");
+        return part;
+      }
+    };
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(factory.newMessage("<document>hello</document>"));
+      aggregation.finish();
+    }
+    BodyPartIterator input = MimeHelper.createBodyPartIterator(original);
+    assertEquals(2, input.size());
+    assertEquals("true", input.getBodyPart(0).getHeader("X-Legacy", null));
+    assertEquals("true", input.getBodyPart(1).getHeader("X-Legacy", null));
+  }
+
+  @Test
+  public void testStart_OverridesCreateBodyPart_Streamed() throws Exception {
+    AdaptrisMessageFactory factory = AdaptrisMessageFactory.getDefaultInstance();
+    AdaptrisMessage original = factory.newMessage("<envelope/>");
+    MimeAggregator aggr = new MimeAggregator() {
+      @Override
+      protected MimeBodyPart createBodyPart(AdaptrisMessage msg) throws MessagingException, IOException {
+        MimeBodyPart part = super.createBodyPart(msg);
+        part.setHeader("X-Legacy", "true");
+        return part;
+      }
+    };
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(factory.newMessage("<document>hello</document>"));
+      aggregation.finish();
+    }
+    BodyPartIterator input = MimeHelper.createBodyPartIterator(original);
+    assertEquals(2, input.size());
+    // Not called unless buildInMemory() is true.
+    assertNull(input.getBodyPart(1).getHeader("X-Legacy", null));
+  }
+
   @Override
   protected List<Service> retrieveObjectsForSampleConfig() {
     return createExamples(new MimePartSplitter(), new MimeAggregator());
@@ -19,17 +19,20 @@ package com.adaptris.core.services.aggregator;
 import static com.adaptris.core.services.splitter.XpathSplitterTest.ENCODING_UTF8;
 import static com.adaptris.core.services.splitter.XpathSplitterTest.ENVELOPE_DOCUMENT;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.CoreException;
 import com.adaptris.core.NullService;
 import com.adaptris.core.Service;
 import com.adaptris.core.services.splitter.SplitJoinService;
 import com.adaptris.core.services.splitter.SplitJoinServiceTest;
 import com.adaptris.core.services.splitter.SplitterCase;
 import com.adaptris.core.services.splitter.XpathMessageSplitter;
+import com.adaptris.core.stubs.DefectiveMessageFactory;
 import com.adaptris.core.util.XmlHelper;
 import com.adaptris.util.TimeInterval;
 import com.adaptris.util.text.xml.InsertNode;
@@ -81,6 +84,36 @@ public class XmlAggregatorTest extends XmlAggregatorCase {
     assertEquals("ISO-8859-1", msg.getContentEncoding());
   }
 
+  @Test
+  public void testStart_Append() throws Exception {
+    XmlDocumentAggregator aggr = new XmlDocumentAggregator(new InsertNode(SplitJoinServiceTest.XPATH_ENVELOPE));
+    AdaptrisMessage original = AdaptrisMessageFactory.getDefaultInstance().newMessage("<envelope/>");
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>hello</document>"));
+      aggregation.append(AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>world</document>"));
+      // Nothing is written until the aggregation is finished.
+      assertEquals("<envelope/>", original.getContent());
+      aggregation.finish();
+    }
+    XPath xpath = new XPath();
+    assertEquals(2, xpath.selectNodeList(XmlHelper.createDocument(original, true), ENVELOPE_DOCUMENT).getLength());
+    assertEquals("world", xpath.selectSingleTextItem(XmlHelper.createDocument(original, true), ENVELOPE_DOCUMENT + "[2]"));
+  }
+
+  @Test
+  public void testStart_AppendFails() throws Exception {
+    XmlDocumentAggregator aggr = new XmlDocumentAggregator(new InsertNode(SplitJoinServiceTest.XPATH_ENVELOPE));
+    AdaptrisMessage original = AdaptrisMessageFactory.getDefaultInstance().newMessage("<envelope/>");
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      aggregation.append(new DefectiveMessageFactory().newMessage("<document>hello</document>"));
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    assertEquals("<envelope/>", original.getContent());
+  }
+
   @Override
   protected String getExampleCommentHeader(Object o) {
     return super.getExampleCommentHeader(o) + "\n<!-- \n The example document for this split/join process is\n"
@@ -16,10 +16,10 @@ import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.AdaptrisMessageFactory;
 import com.adaptris.core.CoreException;
 import com.adaptris.core.Service;
+import com.adaptris.core.lms.FileBackedMessageFactory;
 import com.adaptris.core.services.conditional.conditions.ConditionImpl;
 import com.adaptris.core.services.metadata.AddFormattedMetadataService;
 import com.adaptris.core.services.splitter.SplitByMetadata;
-import com.adaptris.core.stubs.DefectiveMessageFactory;
 
 public class ZipAggregatorTest extends AggregatingServiceExample {
 
@@ -35,9 +35,9 @@ public class ZipAggregatorTest extends AggregatingServiceExample {
     AdaptrisMessage original = AdaptrisMessageFactory.getDefaultInstance().newMessage();
     AdaptrisMessage splitMsg1 = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>hello</document>");
     splitMsg1.addMetadata(DEFAULT_FILENAME_METADATA, "file1.xml");
-    AdaptrisMessage splitMsg2 = new DefectiveMessageFactory().newMessage("<document>world</document>");
+    AdaptrisMessage splitMsg2 = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>world</document>");
     splitMsg2.addMetadata(DEFAULT_FILENAME_METADATA, "file2.xml");
-    AdaptrisMessage willBeIgnoredMsg = new DefectiveMessageFactory().newMessage("<document>world</document>");
+    AdaptrisMessage willBeIgnoredMsg = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>world</document>");
     aggr.joinMessage(original, Arrays.asList(splitMsg1, splitMsg2, willBeIgnoredMsg));
 
     boolean isZipped = new ZipInputStream(new ByteArrayInputStream(original.getPayload())).getNextEntry() != null;
@@ -61,13 +61,13 @@ public class ZipAggregatorTest extends AggregatingServiceExample {
 
     AdaptrisMessage splitMsg1 = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>hello</document>");
     splitMsg1.addMetadata(DEFAULT_FILENAME_METADATA, "xfile1.xml");
-    AdaptrisMessage splitMsg2 = new DefectiveMessageFactory().newMessage("<document>world2</document>");
+    AdaptrisMessage splitMsg2 = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>world2</document>");
     splitMsg2.addMetadata(DEFAULT_FILENAME_METADATA, "file2.xml");
-    AdaptrisMessage splitMsg3 = new DefectiveMessageFactory().newMessage("<document>world3</document>");
+    AdaptrisMessage splitMsg3 = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>world3</document>");
     splitMsg3.addMetadata(DEFAULT_FILENAME_METADATA, "xfile3.xml");
-    AdaptrisMessage splitMsg4 = new DefectiveMessageFactory().newMessage("<document>world4</document>");
+    AdaptrisMessage splitMsg4 = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>world4</document>");
     splitMsg4.addMetadata(DEFAULT_FILENAME_METADATA, "file4.xml");
-    AdaptrisMessage willBeIgnoredMsg = new DefectiveMessageFactory().newMessage("<document>world4</document>");
+    AdaptrisMessage willBeIgnoredMsg = AdaptrisMessageFactory.getDefaultInstance().newMessage("<document>world4</document>");
     aggr.joinMessage(original, Arrays.asList(splitMsg1, splitMsg2, splitMsg3, splitMsg4, willBeIgnoredMsg));
 
     boolean isZipped = new ZipInputStream(new ByteArrayInputStream(original.getPayload())).getNextEntry() != null;
@@ -84,6 +84,26 @@ public class ZipAggregatorTest extends AggregatingServiceExample {
 
   }
 
+  @Test
+  public void testStart_FileBacked() throws Exception {
+    ZipAggregator aggr = new ZipAggregator();
+    AdaptrisMessageFactory factory = new FileBackedMessageFactory();
+    AdaptrisMessage original = factory.newMessage();
+    try (MessageAggregation aggregation = aggr.start(original)) {
+      for (int i = 0; i < 10; i++) {
+        AdaptrisMessage splitMsg = factory.newMessage("<document>" + i + "</document>");
+        splitMsg.addMetadata(DEFAULT_FILENAME_METADATA, "file" + i + ".xml");
+        aggregation.append(splitMsg);
+      }
+      aggregation.append(factory.newMessage("<document>ignored</document>"));
+      aggregation.finish();
+    }
+    Map<String, String> results = zipBytesToResultsMap(original.getPayload());
+    assertEquals(10, results.size());
+    assertEquals("<document>0</document>", results.get("file0.xml"));
+    assertEquals("<document>9</document>", results.get("file9.xml"));
+  }
+
   @Test
   public void testGetFilenameMetadata() throws Exception {
     ZipAggregator z = new ZipAggregator();
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.util.TimeInterval;
+
+public class BloomFilterDuplicateStoreTest {
+
+  private File storeFile;
+
+  @Before
+  public void setUp() throws Exception {
+    storeFile = File.createTempFile(this.getClass().getSimpleName(), "");
+    storeFile.delete();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteQuietly(storeFile);
+  }
+
+  @Test
+  public void testInit_InvalidConfig() throws Exception {
+    try {
+      LifecycleHelper.init(new BloomFilterDuplicateStore().withExpectedInsertions(0));
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    try {
+      LifecycleHelper.init(new BloomFilterDuplicateStore().withFalsePositiveRate(1.5d));
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+  }
+
+  @Test
+  public void testAdd() throws Exception {
+    BloomFilterDuplicateStore store = new BloomFilterDuplicateStore();
+    try {
+      LifecycleHelper.initAndStart(store);
+      assertFalse(store.contains("123"));
+      assertTrue(store.add("123"));
+      assertTrue(store.contains("123"));
+      assertFalse(store.add("123"));
+      assertTrue(store.add("456"));
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testAdd_Concurrent() throws Exception {
+    BloomFilterDuplicateStore store = new BloomFilterDuplicateStore();
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      LifecycleHelper.initAndStart(store);
+      for (int attempt = 0; attempt < 100; attempt++) {
+        String value = "value-" + attempt;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+          results.add(executor.submit(() -> {
+            barrier.await();
+            return store.add(value);
+          }));
+        }
+        int unique = 0;
+        for (Future<Boolean> f : results) {
+          unique += f.get() ? 1 : 0;
+        }
+        assertEquals(1, unique);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testScaling() throws Exception {
+    BloomFilterDuplicateStore store = new BloomFilterDuplicateStore().withExpectedInsertions(100)
+        .withFalsePositiveRate(0.01d);
+    try {
+      LifecycleHelper.initAndStart(store);
+      int falsePositives = 0;
+      for (int i = 0; i < 10000; i++) {
+        if (!store.add("value-" + i)) {
+          falsePositives++;
+        }
+      }
+      assertTrue(store.filterCount() > 1);
+      assertTrue("false positives : " + falsePositives, falsePositives < 200);
+      for (int i = 0; i < 10000; i++) {
+        assertTrue(store.contains("value-" + i));
+      }
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testTimeWindow() throws Exception {
+    BloomFilterDuplicateStore store = new BloomFilterDuplicateStore()
+        .withTimeWindow(new TimeInterval(100L, TimeUnit.MILLISECONDS));
+    try {
+      LifecycleHelper.initAndStart(store);
+      assertTrue(store.add("123"));
+      assertFalse(store.add("123"));
+      Thread.sleep(200);
+      assertFalse(store.contains("123"));
+      assertTrue(store.add("123"));
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testPersistence() throws Exception {
+    BloomFilterDuplicateStore store = new BloomFilterDuplicateStore().withExpectedInsertions(100)
+        .withStoreFileUrl(storeFile.toURI().toString());
+    try {
+      LifecycleHelper.initAndStart(store);
+      for (int i = 0; i < 1000; i++) {
+        store.add(String.valueOf(i));
+      }
+      LifecycleHelper.stopAndClose(store);
+      LifecycleHelper.initAndStart(store);
+      for (int i = 0; i < 1000; i++) {
+        assertTrue(store.contains(String.valueOf(i)));
+      }
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testPersistence_NotAStore() throws Exception {
+    FileUtils.write(storeFile, "Hello World, this is not a duplicate store", "UTF-8");
+    BloomFilterDuplicateStore store = new BloomFilterDuplicateStore().withStoreFileUrl(storeFile.toURI().toString());
+    try {
+      LifecycleHelper.initAndStart(store);
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+    assertEquals("Hello World, this is not a duplicate store", FileUtils.readFileToString(storeFile, "UTF-8"));
+  }
+}
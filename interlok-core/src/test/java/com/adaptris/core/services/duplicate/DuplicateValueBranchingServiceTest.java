@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.BranchingServiceCollection;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.ServiceException;
+import com.adaptris.core.services.BranchingServiceExample;
+import com.adaptris.core.services.LogMessageService;
+import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.util.TimeInterval;
+
+public class DuplicateValueBranchingServiceTest extends BranchingServiceExample {
+
+  private static final String METADATA_KEY = "key";
+  private static final String SERVICE_ID_UNIQUE = "001";
+  private static final String SERVICE_ID_DUPLICATE = "002";
+
+  @Override
+  public boolean isAnnotatedForJunit4() {
+    return true;
+  }
+
+  @Test
+  public void testInit() throws Exception {
+    DuplicateValueBranchingService service = new DuplicateValueBranchingService();
+    assertTrue(service.isBranching());
+    try {
+      LifecycleHelper.initAndStart(service);
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    finally {
+      LifecycleHelper.stopAndClose(service);
+    }
+    service = createService(new ExactDuplicateStore());
+    try {
+      LifecycleHelper.initAndStart(service);
+    }
+    finally {
+      LifecycleHelper.stopAndClose(service);
+    }
+  }
+
+  @Test
+  public void testService_ExactStore() throws Exception {
+    assertBranching(createService(new ExactDuplicateStore()));
+  }
+
+  @Test
+  public void testService_BloomFilterStore() throws Exception {
+    assertBranching(createService(new BloomFilterDuplicateStore()));
+  }
+
+  @Test
+  public void testService_NoMetadata() throws Exception {
+    DuplicateValueBranchingService service = createService(new ExactDuplicateStore());
+    try {
+      start(service);
+      service.doService(AdaptrisMessageFactory.getDefaultInstance().newMessage());
+      fail();
+    }
+    catch (ServiceException expected) {
+
+    }
+    finally {
+      stop(service);
+    }
+  }
+
+  @Test
+  public void testService_DoNotStoreUniqueValues() throws Exception {
+    ExactDuplicateStore store = new ExactDuplicateStore();
+    DuplicateValueBranchingService service = createService(store).withStoreUniqueValues(false);
+    try {
+      start(service);
+      assertEquals(SERVICE_ID_UNIQUE, execute(service, "123").getNextServiceId());
+      assertEquals(SERVICE_ID_UNIQUE, execute(service, "123").getNextServiceId());
+      store.add("123");
+      assertEquals(SERVICE_ID_DUPLICATE, execute(service, "123").getNextServiceId());
+    }
+    finally {
+      stop(service);
+    }
+  }
+
+  private void assertBranching(DuplicateValueBranchingService service) throws Exception {
+    try {
+      start(service);
+      assertEquals(SERVICE_ID_UNIQUE, execute(service, "123").getNextServiceId());
+      assertEquals(SERVICE_ID_DUPLICATE, execute(service, "123").getNextServiceId());
+      assertEquals(SERVICE_ID_UNIQUE, execute(service, "456").getNextServiceId());
+    }
+    finally {
+      stop(service);
+    }
+  }
+
+  private AdaptrisMessage execute(DuplicateValueBranchingService service, String value) throws Exception {
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage();
+    msg.addMetadata(METADATA_KEY, value);
+    service.doService(msg);
+    return msg;
+  }
+
+  private DuplicateValueBranchingService createService(DuplicateStore store) {
+    return new DuplicateValueBranchingService().withMetadataKey(METADATA_KEY)
+        .withNextServiceIdIfUnique(SERVICE_ID_UNIQUE).withNextServiceIdIfDuplicate(SERVICE_ID_DUPLICATE)
+        .withDuplicateStore(store);
+  }
+
+  @Override
+  protected Object retrieveObjectForSampleConfig() {
+    DuplicateValueBranchingService s = createService(
+        new ExactDuplicateStore().withStoreFileUrl("file:///./path/to/duplicate-store.dat")
+            .withTimeWindow(new TimeInterval(1L, TimeUnit.DAYS)));
+    s.setNextServiceIdIfDuplicate("duplicate");
+    s.setNextServiceIdIfUnique("unique");
+    s.setUniqueId("CheckForDuplicateValues");
+    BranchingServiceCollection sl = new BranchingServiceCollection();
+    sl.addService(s);
+    sl.setFirstServiceId(s.getUniqueId());
+    sl.addService(new LogMessageService("duplicate"));
+    sl.addService(new LogMessageService("unique"));
+    return sl;
+  }
+
+  @Override
+  protected String createBaseFileName(Object object) {
+    return DuplicateValueBranchingService.class.getName();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.duplicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.util.TimeInterval;
+
+public class ExactDuplicateStoreTest {
+
+  private File storeFile;
+
+  @Before
+  public void setUp() throws Exception {
+    storeFile = File.createTempFile(this.getClass().getSimpleName(), "");
+    storeFile.delete();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteQuietly(storeFile);
+  }
+
+  @Test
+  public void testAdd() throws Exception {
+    ExactDuplicateStore store = new ExactDuplicateStore();
+    try {
+      LifecycleHelper.initAndStart(store);
+      assertFalse(store.contains("123"));
+      assertTrue(store.add("123"));
+      assertTrue(store.contains("123"));
+      assertFalse(store.add("123"));
+      assertTrue(store.add("456"));
+      assertEquals(2, store.size());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testMaxEntries() throws Exception {
+    ExactDuplicateStore store = new ExactDuplicateStore().withMaxEntries(10);
+    try {
+      LifecycleHelper.initAndStart(store);
+      for (int i = 0; i < 20; i++) {
+        assertTrue(store.add(String.valueOf(i)));
+      }
+      assertEquals(10, store.size());
+      assertFalse(store.contains("0"));
+      assertTrue(store.contains("19"));
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testTimeWindow() throws Exception {
+    ExactDuplicateStore store = new ExactDuplicateStore().withTimeWindow(new TimeInterval(100L, TimeUnit.MILLISECONDS));
+    try {
+      LifecycleHelper.initAndStart(store);
+      assertTrue(store.add("123"));
+      assertFalse(store.add("123"));
+      Thread.sleep(200);
+      assertFalse(store.contains("123"));
+      assertTrue(store.add("123"));
+      assertEquals(1, store.size());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testPersistence() throws Exception {
+    ExactDuplicateStore store = new ExactDuplicateStore().withStoreFileUrl(storeFile.toURI().toString());
+    try {
+      LifecycleHelper.initAndStart(store);
+      for (int i = 0; i < 100; i++) {
+        store.add(String.valueOf(i));
+      }
+      LifecycleHelper.stopAndClose(store);
+      LifecycleHelper.initAndStart(store);
+      assertEquals(100, store.size());
+      assertTrue(store.contains("0"));
+      assertTrue(store.contains("99"));
+      assertFalse(store.add("99"));
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testPersistence_LargeValue() throws Exception {
+    // Larger than the 64k limit of DataOutput#writeUTF()
+    String value = StringUtils.repeat("\u00e9", 70000);
+    ExactDuplicateStore store = new ExactDuplicateStore().withStoreFileUrl(storeFile.toURI().toString());
+    try {
+      LifecycleHelper.initAndStart(store);
+      assertTrue(store.add(value));
+      LifecycleHelper.stopAndClose(store);
+      LifecycleHelper.initAndStart(store);
+      assertEquals(1, store.size());
+      assertTrue(store.contains(value));
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testPersistence_PartialRecord() throws Exception {
+    ExactDuplicateStore store = new ExactDuplicateStore().withStoreFileUrl(storeFile.toURI().toString());
+    try {
+      LifecycleHelper.initAndStart(store);
+      store.add("123");
+      store.add("456");
+      LifecycleHelper.stopAndClose(store);
+      try (RandomAccessFile file = new RandomAccessFile(storeFile, "rw")) {
+        file.setLength(file.length() - 4);
+      }
+      LifecycleHelper.initAndStart(store);
+      assertEquals(1, store.size());
+      assertTrue(store.contains("123"));
+      assertTrue(store.add("456"));
+      LifecycleHelper.stopAndClose(store);
+      LifecycleHelper.initAndStart(store);
+      assertEquals(2, store.size());
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testPersistence_NotAStore() throws Exception {
+    FileUtils.write(storeFile, "Hello World, this is not a duplicate store", "UTF-8");
+    ExactDuplicateStore store = new ExactDuplicateStore().withStoreFileUrl(storeFile.toURI().toString());
+    try {
+      LifecycleHelper.initAndStart(store);
+      fail();
+    }
+    catch (CoreException expected) {
+
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+
+  @Test
+  public void testCompaction() throws Exception {
+    ExactDuplicateStore store = new ExactDuplicateStore().withMaxEntries(10)
+        .withStoreFileUrl(storeFile.toURI().toString());
+    try {
+      LifecycleHelper.initAndStart(store);
+      for (int i = 0; i < 5000; i++) {
+        store.add(String.valueOf(i));
+      }
+      assertTrue(store.records() < 2000);
+      LifecycleHelper.stopAndClose(store);
+      LifecycleHelper.initAndStart(store);
+      assertEquals(10, store.size());
+      assertTrue(store.contains("4999"));
+      assertFalse(store.contains("0"));
+    }
+    finally {
+      LifecycleHelper.stopAndClose(store);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.findreplace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.GeneralServiceExample;
+import com.adaptris.core.ServiceException;
+import com.adaptris.core.lms.FileBackedMessageFactory;
+
+public class StreamingFindAndReplaceServiceTest extends GeneralServiceExample {
+
+  private static final String STANDARD_PAYLOAD = "This is a test! A test!";
+
+  @Override
+  public boolean isAnnotatedForJunit4() {
+    return true;
+  }
+
+  @Test
+  public void testMaxMatchLength() throws Exception {
+    StreamingFindAndReplaceService service = new StreamingFindAndReplaceService();
+    assertNull(service.getMaxMatchLength());
+    assertEquals(4096, service.maxMatchLength());
+    assertEquals(10, service.withMaxMatchLength(10).maxMatchLength());
+  }
+
+  @Test
+  public void testReplaceAll() throws Exception {
+    StreamingFindAndReplaceService service = createService("test", "joke");
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(STANDARD_PAYLOAD);
+    execute(service, msg);
+    assertEquals("This is a joke! A joke!", msg.getContent());
+  }
+
+  @Test
+  public void testReplaceFirst() throws Exception {
+    StreamingFindAndReplaceService service = createService("test", "joke");
+    service.setReplaceFirstOnly(true);
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(STANDARD_PAYLOAD);
+    execute(service, msg);
+    assertEquals("This is a joke! A test!", msg.getContent());
+  }
+
+  @Test
+  public void testReplace_UnitsAppliedInOrder() throws Exception {
+    StreamingFindAndReplaceService service = createService("test", "joke");
+    service.getFindAndReplaceUnits()
+        .add(new FindAndReplaceUnit(new ConfiguredReplacementSource("jo(ke)"), new ConfiguredReplacementSource("$1$1")));
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(STANDARD_PAYLOAD);
+    execute(service, msg);
+    assertEquals("This is a keke! A keke!", msg.getContent());
+  }
+
+  @Test
+  public void testReplace_LargeFileBackedMessage() throws Exception {
+    StringBuilder payload = new StringBuilder();
+    Random r = new Random();
+    while (payload.length() < 1024 * 1024) {
+      payload.append(StringUtils.repeat('x', r.nextInt(100))).append("test ");
+      payload.append(r.nextInt(1000)).append("\n");
+    }
+    String find = "test ([0-9]+)$";
+    String replace = "$1 tested";
+    StreamingFindAndReplaceService service = createService("(?m)" + find, replace);
+    AdaptrisMessage msg = new FileBackedMessageFactory().newMessage(payload.toString(), "UTF-8");
+    execute(service, msg);
+    assertEquals(payload.toString().replaceAll("(?m)" + find, replace), msg.getContent());
+  }
+
+  @Test
+  public void testReplace_InvalidGroup() throws Exception {
+    StreamingFindAndReplaceService service = createService("test", "$1");
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(STANDARD_PAYLOAD);
+    try {
+      execute(service, msg);
+      fail();
+    }
+    catch (ServiceException expected) {
+
+    }
+    // Payload is untouched.
+    assertEquals(STANDARD_PAYLOAD, msg.getContent());
+  }
+
+  private StreamingFindAndReplaceService createService(String find, String replace) {
+    StreamingFindAndReplaceService service = new StreamingFindAndReplaceService();
+    service.getFindAndReplaceUnits()
+        .add(new FindAndReplaceUnit(new ConfiguredReplacementSource(find), new ConfiguredReplacementSource(replace)));
+    return service;
+  }
+
+  @Override
+  protected StreamingFindAndReplaceService retrieveObjectForSampleConfig() {
+    StreamingFindAndReplaceService service = createService("test", "joke");
+    service.getFindAndReplaceUnits()
+        .add(new FindAndReplaceUnit(new MetadataReplacementSource("findKey"), new MetadataReplacementSource("replaceKey")));
+    return service;
+  }
+}
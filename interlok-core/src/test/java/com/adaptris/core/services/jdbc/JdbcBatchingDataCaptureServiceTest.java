@@ -18,16 +18,26 @@ package com.adaptris.core.services.jdbc;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.ServiceException;
 import com.adaptris.core.jdbc.AdvancedJdbcPooledConnection;
 import com.adaptris.core.jdbc.JdbcConnection;
 import com.adaptris.core.jdbc.JdbcPooledConnection;
 import com.adaptris.core.jdbc.PooledConnectionHelper;
+import com.adaptris.core.services.jdbc.StatementParameterImpl.QueryType;
+import com.adaptris.core.util.JdbcUtil;
 
 public class JdbcBatchingDataCaptureServiceTest extends JdbcDataCaptureServiceCase {
 
@@ -76,6 +86,98 @@ public class JdbcBatchingDataCaptureServiceTest extends JdbcDataCaptureServiceCa
     doBasicCaptureAsserts(2);
   }
 
+  @Test
+  public void testService_Streaming() throws Exception {
+    createDatabase();
+    JdbcBatchingDataCaptureService service = createStreamingService();
+    service.setRowsUpdatedMetadataKey("rowsUpdatedKey");
+    StringBuilder doc = new StringBuilder("<document><subject>" + SUBJECT + "</subject>");
+    for (int i = 0; i < 25; i++) {
+      doc.append("<attachment type=\"a\"><data>" + ATTACHMENT_DATA + i + "</data></attachment>");
+    }
+    doc.append("<attachment type=\"b\"><data>" + ATTACHMENT_DATA_2 + "</data></attachment></document>");
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(doc.toString());
+    execute(service, msg);
+    assertEquals("25", msg.getMetadataValue("rowsUpdatedKey"));
+    Connection c = null;
+    PreparedStatement p = null;
+    try {
+      c = createConnection();
+      p = c.prepareStatement("SELECT * FROM jdbc_data_capture_iteration");
+      ResultSet rs = p.executeQuery();
+      int count = 0;
+      while (rs.next()) {
+        assertEquals(SUBJECT, rs.getString("payload_value"));
+        assertEquals(ATTACHMENT_DATA + count, rs.getString("xpath_value"));
+        count++;
+      }
+      assertEquals(25, count);
+    }
+    finally {
+      JdbcUtil.closeQuietly(p);
+      JdbcUtil.closeQuietly(c);
+    }
+  }
+
+  @Test
+  public void testService_Streaming_NotXml() throws Exception {
+    createDatabase();
+    JdbcBatchingDataCaptureService service = createStreamingService();
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(CONTENT);
+    try {
+      execute(service, msg);
+      fail();
+    }
+    catch (ServiceException expected) {
+
+    }
+  }
+
+  @Test
+  public void testService_Batch() throws Exception {
+    createDatabase();
+    JdbcBatchingDataCaptureService service = createStreamingService();
+    service.setRowsUpdatedMetadataKey("rowsUpdatedKey");
+    // The first message is larger than the batch window, so the results come from more than one executeBatch()
+    List<AdaptrisMessage> batch = Arrays.asList(createIterationMessage(12), createIterationMessage(3));
+    List<AdaptrisMessage> failures = new ArrayList<>();
+    try {
+      start(service);
+      service.doService(batch, (msg, e) -> failures.add(msg));
+    }
+    finally {
+      stop(service);
+    }
+    assertEquals(0, failures.size());
+    assertEquals("12", batch.get(0).getMetadataValue("rowsUpdatedKey"));
+    assertEquals("3", batch.get(1).getMetadataValue("rowsUpdatedKey"));
+    assertEquals(15, countRows("jdbc_data_capture_iteration"));
+  }
+
+  @Test
+  public void testService_Batch_FailsPartway() throws Exception {
+    createDatabase();
+    JdbcBatchingDataCaptureService service = (JdbcBatchingDataCaptureService) createBasicService();
+    service.setRowsUpdatedMetadataKey("rowsUpdatedKey");
+    service.setBatchWindow(10);
+    // The 2nd message isn't XML, so the batch fails after the 1st message has been added to it.
+    List<AdaptrisMessage> batch = Arrays.asList(createBasicMessage(XML_DOCUMENT), createBasicMessage(CONTENT),
+        createBasicMessage(XML_DOCUMENT));
+    List<AdaptrisMessage> failures = new ArrayList<>();
+    try {
+      start(service);
+      service.doService(batch, (msg, e) -> failures.add(msg));
+    }
+    finally {
+      stop(service);
+    }
+    assertEquals(1, failures.size());
+    assertSame(batch.get(1), failures.get(0));
+    assertEquals("1", batch.get(0).getMetadataValue("rowsUpdatedKey"));
+    assertEquals("1", batch.get(2).getMetadataValue("rowsUpdatedKey"));
+    doBasicCaptureAsserts(2);
+  }
+
   @Test
   public void testRowsUpdated() throws Exception {
     try {
@@ -90,6 +192,50 @@ public class JdbcBatchingDataCaptureServiceTest extends JdbcDataCaptureServiceCa
   }
 
 
+  private static AdaptrisMessage createBasicMessage(String payload) {
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(payload);
+    msg.addMetadata(METADATA_KEY, METADATA_VALUE);
+    return msg;
+  }
+
+  private static AdaptrisMessage createIterationMessage(int attachments) {
+    StringBuilder doc = new StringBuilder("<document><subject>" + SUBJECT + "</subject>");
+    for (int i = 0; i < attachments; i++) {
+      doc.append("<attachment type=\"a\"><data>" + ATTACHMENT_DATA + i + "</data></attachment>");
+    }
+    doc.append("</document>");
+    return AdaptrisMessageFactory.getDefaultInstance().newMessage(doc.toString());
+  }
+
+  private int countRows(String table) throws Exception {
+    Connection c = null;
+    PreparedStatement p = null;
+    try {
+      c = createConnection();
+      p = c.prepareStatement("SELECT COUNT(*) FROM " + table);
+      ResultSet rs = p.executeQuery();
+      rs.next();
+      return rs.getInt(1);
+    }
+    finally {
+      JdbcUtil.closeQuietly(p);
+      JdbcUtil.closeQuietly(c);
+    }
+  }
+
+  private JdbcBatchingDataCaptureService createStreamingService() {
+    JdbcBatchingDataCaptureService service = new JdbcBatchingDataCaptureService();
+    service.setConnection(createJdbcConnection());
+    service.setBatchWindow(10);
+    service.setIterates(true);
+    service.setStreaming(true);
+    service.setIterationXpath("/document/attachment[@type='a']");
+    service.addStatementParameter(new StatementParameter(SUBJECT, String.class, QueryType.constant));
+    service.addStatementParameter(new StatementParameter(XPATH_ITERATE_RELATIVE, String.class, QueryType.xpath));
+    service.setStatement("insert into jdbc_data_capture_iteration (payload_value, xpath_value) values (?, ?)");
+    return service;
+  }
+
   @Override
   protected JdbcConnection createJdbcConnection() {
     JdbcConnection connection = super.createJdbcConnection();
@@ -16,6 +16,7 @@
 
 package com.adaptris.core.services.jdbc;
 
+import static com.adaptris.core.runtime.AdapterComponentMBean.ID_PREFIX;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -29,6 +30,8 @@ import java.sql.Statement;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.junit.Test;
 import com.adaptris.core.AdaptrisMessage;
 import com.adaptris.core.AdaptrisMessageFactory;
@@ -39,9 +42,11 @@ import com.adaptris.core.jdbc.AdvancedJdbcPooledConnection;
 import com.adaptris.core.jdbc.JdbcConnection;
 import com.adaptris.core.jdbc.JdbcPooledConnection;
 import com.adaptris.core.jdbc.JdbcService;
+import com.adaptris.core.jdbc.JdbcStatementCacheMBean;
 import com.adaptris.core.jdbc.PooledConnectionHelper;
 import com.adaptris.core.services.jdbc.StatementParameterImpl.QueryType;
 import com.adaptris.core.util.JdbcUtil;
+import com.adaptris.core.util.JmxHelper;
 import com.adaptris.util.KeyValuePair;
 import com.adaptris.util.KeyValuePairSet;
 import com.adaptris.util.TimeInterval;
@@ -338,6 +343,32 @@ public abstract class JdbcDataCaptureServiceCase extends JdbcServiceExample {
     }
   }
 
+  @Test
+  public void testService_StatementCache() throws Exception {
+    createDatabase();
+    JdbcConnection conn = createJdbcConnection();
+    conn.setUniqueId(getName());
+    conn.setStatementCacheSize(5);
+    JdbcIteratingDataCaptureServiceImpl service = createBasicService(false);
+    service.setConnection(conn);
+    try {
+      start(service);
+      for (int i = 0; i < 3; i++) {
+        AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(XML_DOCUMENT);
+        msg.addMetadata(METADATA_KEY, METADATA_VALUE);
+        service.doService(msg);
+      }
+      ObjectName cacheName = ObjectName.getInstance(JdbcStatementCacheMBean.JMX_STATEMENT_CACHE_TYPE + ID_PREFIX + getName());
+      MBeanServer mbeanServer = JmxHelper.findMBeanServer();
+      assertEquals(1L, mbeanServer.getAttribute(cacheName, "MissCount"));
+      assertEquals(2L, mbeanServer.getAttribute(cacheName, "HitCount"));
+      doBasicCaptureAsserts(3);
+    }
+    finally {
+      stop(service);
+    }
+  }
+
   @Test
   public void testService_AdvancedPooledConnection() throws Exception {
     int maxServices = 5;
@@ -602,7 +633,7 @@ public abstract class JdbcDataCaptureServiceCase extends JdbcServiceExample {
         PROPERTIES.getProperty(JDBC_CAPTURE_SERVICE_URL), poolsize);
   }
 
-  private Connection createConnection() throws Exception {
+  protected Connection createConnection() throws Exception {
     Connection c = null;
     Class.forName(PROPERTIES.getProperty(JDBC_CAPTURE_SERVICE_DRIVER));
     c = DriverManager.getConnection(PROPERTIES.getProperty(JDBC_CAPTURE_SERVICE_URL));
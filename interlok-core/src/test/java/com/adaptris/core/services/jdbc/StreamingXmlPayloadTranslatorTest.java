@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adaptris.core.services.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.sql.Timestamp;
+import java.util.List;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.lms.FileBackedMessageFactory;
+import com.adaptris.core.util.DocumentBuilderFactoryBuilder;
+import com.adaptris.core.util.XmlHelper;
+import com.adaptris.util.XmlUtils;
+import com.adaptris.util.text.xml.XPath;
+
+public class StreamingXmlPayloadTranslatorTest extends JdbcQueryServiceCaseXmlResults {
+
+  @Override
+  public boolean isAnnotatedForJunit4() {
+    return true;
+  }
+
+  @Test
+  public void testXpathStatementParam() throws Exception {
+    createDatabase();
+    List<AdapterTypeVersion> dbItems = generate(10);
+    AdapterTypeVersion entry = dbItems.get(0);
+    populateDatabase(dbItems, false);
+    JdbcDataQueryService s = createXmlService();
+    s.setResultSetTranslator(new StreamingXmlPayloadTranslator());
+    AdaptrisMessage msg = createMessage(entry);
+    execute(s, msg);
+    assertTrue(ADAPTER_ID_KEY + " exists", msg.headersContainsKey(ADAPTER_ID_KEY));
+    XPath xp = new XPath();
+    Document xmlDoc = XmlHelper.createDocument(msg, DocumentBuilderFactoryBuilder.newInstance());
+    assertNull(xp.selectSingleNode(xmlDoc, "/Results/OriginalMessage"));
+    assertEquals(entry.getVersion(), xp.selectSingleTextItem(xmlDoc, "/Results/Row/ADAPTER_VERSION"));
+    assertEquals(String.valueOf(entry.getCounter()), xp.selectSingleTextItem(xmlDoc, "/Results/Row/COUNTER"));
+    assertEquals(entry.getTranslatorType(), xp.selectSingleTextItem(xmlDoc, "/Results/Row/MESSAGE_TRANSLATOR_TYPE"));
+    assertEquals(new Timestamp(entry.getDate().getTime()).toString(),
+        xp.selectSingleTextItem(xmlDoc, "/Results/Row/INSERTED_ON"));
+  }
+
+  @Test
+  public void testMultipleRows_FileBackedMessage() throws Exception {
+    createDatabase();
+    List<AdapterTypeVersion> dbItems = generate(50);
+    AdapterTypeVersion entry = dbItems.get(0);
+    populateDatabase(dbItems, false);
+    JdbcDataQueryService s = createMultiService();
+    StreamingXmlPayloadTranslator translator = new StreamingXmlPayloadTranslator();
+    translator.setResultCountMetadataItem(getName());
+    s.setResultSetTranslator(translator);
+    AdaptrisMessage msg = createMessage(new FileBackedMessageFactory(), entry);
+    execute(s, msg);
+    assertEquals("50", msg.getMetadataValue(getName()));
+    assertEquals("ISO-8859-1", msg.getContentEncoding());
+    XmlUtils xu = XmlHelper.createXmlUtils(msg);
+    assertEquals(50, xu.getNodeList("/Results/Row").getLength());
+  }
+
+  @Test
+  public void testXmlColumn() throws Exception {
+    createDatabase();
+    List<AdapterTypeVersion> dbItems = generateWithXmlColumn(10);
+    AdapterTypeVersion entry = dbItems.get(0);
+    populateDatabase(dbItems, false);
+    JdbcDataQueryService s = createXmlService();
+    StreamingXmlPayloadTranslator translator = new StreamingXmlPayloadTranslator();
+    translator.setXmlColumnRegexp("ADAPTER.*");
+    s.setResultSetTranslator(translator);
+    AdaptrisMessage msg = createMessage(entry);
+    execute(s, msg);
+    XmlUtils xu = XmlHelper.createXmlUtils(msg);
+    assertNotNull(xu.getSingleNode("/Results/Row/ADAPTER_VERSION/xml-tag"));
+    assertEquals(entry.getVersion(), "<xml-tag>" + xu.getSingleTextItem("/Results/Row/ADAPTER_VERSION/xml-tag") + "</xml-tag>");
+  }
+
+  @Test
+  public void testCdataColumn_ContainsCdataEnd() throws Exception {
+    createDatabase();
+    List<AdapterTypeVersion> dbItems = generate(10);
+    AdapterTypeVersion entry = dbItems.get(0);
+    entry.setVersion("<data>]]></data>");
+    populateDatabase(dbItems, false);
+    JdbcDataQueryService s = createXmlService();
+    StreamingXmlPayloadTranslator translator = new StreamingXmlPayloadTranslator();
+    translator.setCdataColumnRegexp(".*VERSION.*");
+    s.setResultSetTranslator(translator);
+    AdaptrisMessage msg = createMessage(entry);
+    execute(s, msg);
+    assertTrue(msg.getContent().contains("<![CDATA["));
+    XmlUtils xu = XmlHelper.createXmlUtils(msg);
+    assertEquals("<data>]]></data>", xu.getSingleTextItem("/Results/Row/ADAPTER_VERSION"));
+  }
+
+  @Override
+  protected StreamingXmlPayloadTranslator createTranslatorForConfig() {
+    StreamingXmlPayloadTranslator t = new StreamingXmlPayloadTranslator();
+    t.setStripIllegalXmlChars(true);
+    t.setXmlColumnRegexp("Data_in_columns_that_match_this_regular_expression_will_be_turned_into_a_Document_Object_Before_Processing");
+    return t;
+  }
+
+  @Override
+  protected StreamingXmlPayloadTranslator createPayloadTranslator() {
+    return new StreamingXmlPayloadTranslator();
+  }
+}
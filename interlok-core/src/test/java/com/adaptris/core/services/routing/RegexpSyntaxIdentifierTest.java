@@ -15,12 +15,14 @@
 */
 
 package com.adaptris.core.services.routing;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.junit.Test;
 import com.adaptris.core.ServiceException;
+import com.adaptris.core.lms.FileBackedMessageFactory;
 
 public class RegexpSyntaxIdentifierTest extends SyntaxIdentifierCase {
 
@@ -75,6 +77,18 @@ public class RegexpSyntaxIdentifierTest extends SyntaxIdentifierCase {
     assertTrue("Does not match regexp", !ident.isThisSyntax(LINE));
   }
 
+  @Test
+  public void testEvaluate_FileBackedMessage() throws Exception {
+    RegexpSyntaxIdentifier ident = createIdentifier();
+    ident.addPattern(MATCHING_1);
+    ident.addPattern(MATCHING_2);
+    assertTrue(ident.evaluate(new FileBackedMessageFactory().newMessage(LINE, "UTF-8")));
+    // Not ASCII, so uses the content.
+    assertTrue(ident.evaluate(new FileBackedMessageFactory().newMessage(LINE + "\u00e9", "UTF-8")));
+    ident.addPattern(UNMATCHED_1);
+    assertFalse(ident.evaluate(new FileBackedMessageFactory().newMessage(LINE, "UTF-8")));
+  }
+
   @Test
   public void testSingleUnMatchingRegexp() throws Exception {
     RegexpSyntaxIdentifier ident = createIdentifier();
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.services.splitter;
+
+import static com.adaptris.core.services.splitter.XpathSplitterTest.ENVELOPE_DOCUMENT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.adaptris.core.AdaptrisMessage;
+import com.adaptris.core.AdaptrisMessageFactory;
+import com.adaptris.core.CoreConstants;
+import com.adaptris.core.CoreException;
+import com.adaptris.core.services.metadata.XpathMetadataServiceTest;
+import com.adaptris.core.stubs.MockMessageProducer;
+import com.adaptris.core.util.CloseableIterable;
+import com.adaptris.core.util.DocumentBuilderFactoryBuilder;
+import com.adaptris.core.util.XmlHelper;
+import com.adaptris.util.text.xml.SimpleNamespaceContext;
+import com.adaptris.util.text.xml.XPath;
+
+public class StreamingXpathSplitterTest extends SplitterCase {
+
+  private static final String XML_WITH_ATTRIBUTES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<envelope><document type=\"order\">one</document>"
+      + "<document type=\"invoice\">two</document>"
+      + "<nested><document type=\"order\">not-a-child</document></nested>"
+      + "<document type='order' id=\"3\"><line>three</line></document></envelope>";
+
+  @Override
+  public boolean isAnnotatedForJunit4() {
+    return true;
+  }
+
+  @Override
+  protected String createBaseFileName(Object object) {
+    return super.createBaseFileName(object) + "-StreamingXpathSplitter";
+  }
+
+  @Override
+  protected Object retrieveObjectForSampleConfig() {
+    return null; // over-rides retrieveServices below instead
+  }
+
+  @Override
+  protected List retrieveObjectsForSampleConfig() {
+    return createExamples(new StreamingXpathSplitter(ENVELOPE_DOCUMENT));
+  }
+
+  @Override
+  protected String getExampleCommentHeader(Object o) {
+    return super.getExampleCommentHeader(o) + "\n<!-- \n The example document for this split process is\n"
+        + SplitterCase.XML_MESSAGE + "\n which would create 3 new messages\n-->\n";
+  }
+
+  @Override
+  protected StreamingXpathSplitter createSplitterForTests() {
+    return new StreamingXpathSplitter();
+  }
+
+  @Test
+  public void testSplit() throws Exception {
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(XML_MESSAGE);
+    msg.addMetadata("key", "value");
+    List<AdaptrisMessage> result = split(new StreamingXpathSplitter(ENVELOPE_DOCUMENT), msg);
+    assertEquals(3, result.size());
+    XPath xpath = new XPath();
+    assertEquals("one", xpath.selectSingleTextItem(XmlHelper.createDocument(result.get(0), DocumentBuilderFactoryBuilder.newInstance()), "/document"));
+    assertEquals("three", xpath.selectSingleTextItem(XmlHelper.createDocument(result.get(2), DocumentBuilderFactoryBuilder.newInstance()), "/document"));
+    assertEquals("value", result.get(0).getMetadataValue("key"));
+    assertEquals(msg.getUniqueId(), result.get(0).getMetadataValue(CoreConstants.PARENT_UNIQUE_ID_KEY));
+    assertEquals("UTF-8", result.get(0).getContentEncoding());
+  }
+
+  @Test
+  public void testSplit_AttributePredicates() throws Exception {
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(XML_WITH_ATTRIBUTES);
+    assertEquals(2, split(new StreamingXpathSplitter("/envelope/document[@type='order']"), msg).size());
+    assertEquals(1, split(new StreamingXpathSplitter("/envelope/document[@type=\"order\"][@id]"), msg).size());
+    assertEquals(3, split(new StreamingXpathSplitter("/*/*[@type]"), msg).size());
+    assertEquals(0, split(new StreamingXpathSplitter("/envelope/document[@type='none']"), msg).size());
+  }
+
+  @Test
+  public void testSplit_Namespace() throws Exception {
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(XpathMetadataServiceTest.XML_WITH_NAMESPACE);
+    StreamingXpathSplitter splitter = new StreamingXpathSplitter("/svrl:schematron-output/svrl:failed-assert");
+    splitter.setNamespaceContext(XpathMetadataServiceTest.createContextEntries());
+    NamespaceContext namespaceCtx = SimpleNamespaceContext.create(XpathMetadataServiceTest.createContextEntries());
+    DocumentBuilderFactoryBuilder builder = DocumentBuilderFactoryBuilder.newInstance().withNamespaceAware(namespaceCtx);
+    XPath xpath = XPath.newXPathInstance(builder, namespaceCtx);
+    List<AdaptrisMessage> result = split(splitter, msg);
+    assertEquals(2, result.size());
+    for (AdaptrisMessage m : result) {
+      assertNotNull(xpath.selectSingleNode(XmlHelper.createDocument(m, builder), "/svrl:failed-assert/svrl:text"));
+    }
+  }
+
+  @Test
+  public void testSplit_NamespaceInContent() throws Exception {
+    String xml = "<envelope xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns:t=\"urn:types\">"
+        + "<document xsi:type=\"t:Order\">one</document></envelope>";
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(xml);
+    List<AdaptrisMessage> result = split(new StreamingXpathSplitter(ENVELOPE_DOCUMENT), msg);
+    assertEquals(1, result.size());
+    Document doc = XmlHelper.createDocument(result.get(0), DocumentBuilderFactoryBuilder.newInstance().withNamespaceAware(true));
+    assertEquals("urn:types", doc.getDocumentElement().lookupNamespaceURI("t"));
+    assertEquals("t:Order", doc.getDocumentElement().getAttributeNS("http://www.w3.org/2001/XMLSchema-instance", "type"));
+  }
+
+  @Test
+  public void testSplit_InvalidPath() throws Exception {
+    AdaptrisMessage msg = AdaptrisMessageFactory.getDefaultInstance().newMessage(XML_MESSAGE);
+    String[] invalid = {null, "", "envelope/document", "//document", "/envelope/", "/envelope/document[1]",
+        "/svrl:envelope", "/envelope/document[@type='order' and @id='3']", "/envelope/document[@type!='order']"};
+    for (String path : invalid) {
+      try {
+        new StreamingXpathSplitter(path).splitMessage(msg);
+        fail("[" + path + "] should be invalid");
+      }
+      catch (CoreException expected) {
+
+      }
+    }
+  }
+
+  @Test
+  public void testDoService() throws Exception {
+    MockMessageProducer producer = new MockMessageProducer();
+    BasicMessageSplitterService service = createBasic(new StreamingXpathSplitter(ENVELOPE_DOCUMENT));
+    service.setProducer(producer);
+    execute(service, AdaptrisMessageFactory.getDefaultInstance().newMessage(XML_MESSAGE));
+    assertEquals(3, producer.getMessages().size());
+  }
+
+  @Test
+  public void testSetters() throws Exception {
+    StreamingXpathSplitter splitter = new StreamingXpathSplitter();
+    assertNull(splitter.getXpath());
+    assertNull(splitter.getEncoding());
+    assertNull(splitter.getNamespaceContext());
+    splitter.setXpath(ENVELOPE_DOCUMENT);
+    splitter.setEncoding("ISO-8859-1");
+    assertEquals(ENVELOPE_DOCUMENT, splitter.getXpath());
+    assertEquals("ISO-8859-1", splitter.getEncoding());
+  }
+
+  private static List<AdaptrisMessage> split(StreamingXpathSplitter splitter, AdaptrisMessage msg) throws Exception {
+    List<AdaptrisMessage> result = new ArrayList<>();
+    try (CloseableIterable<AdaptrisMessage> closeable = splitter.splitMessage(msg)) {
+      for (AdaptrisMessage m : closeable) {
+        result.add(m);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.stubs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import com.adaptris.core.AdaptrisMessage;
+
+/**
+ * {@link MockMessageListener} that can safely be called by multiple threads.
+ *
+ */
+public class ConcurrentMessageListener extends MockMessageListener {
+
+  public ConcurrentMessageListener() {
+    super();
+  }
+
+  @Override
+  public synchronized void onAdaptrisMessage(AdaptrisMessage msg, Consumer<AdaptrisMessage> success) {
+    super.onAdaptrisMessage(msg, success);
+  }
+
+  @Override
+  public synchronized List<AdaptrisMessage> getMessages() {
+    return new ArrayList<>(super.getMessages());
+  }
+
+  @Override
+  public synchronized int messageCount() {
+    return super.messageCount();
+  }
+}
@@ -18,17 +18,21 @@ package com.adaptris.core.transform;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import org.junit.Test;
 import org.w3c.dom.Document;
@@ -42,6 +46,8 @@ import com.adaptris.core.ServiceException;
 import com.adaptris.core.stubs.MessageHelper;
 import com.adaptris.core.util.DocumentBuilderFactoryBuilder;
 import com.adaptris.core.util.LifecycleHelper;
+import com.adaptris.core.util.ManagedExecutors;
+import com.adaptris.core.util.ManagedThreadFactory;
 import com.adaptris.core.util.XmlHelper;
 import com.adaptris.util.KeyValuePair;
 import com.adaptris.util.text.xml.StxTransformerFactory;
@@ -440,6 +446,76 @@ public class XmlTransformServiceTest extends TransformServiceExample {
     }
   }
 
+  @Test
+  public void testCachedTemplates_SharedBetweenInstances() throws Exception {
+    AdaptrisMessage m1 = MessageHelper.createMessage(PROPERTIES.getProperty(KEY_XML_TEST_INPUT));
+    AdaptrisMessage m2 = MessageHelper.createMessage(PROPERTIES.getProperty(KEY_XML_TEST_INPUT));
+    String url = PROPERTIES.getProperty(KEY_XML_TEST_TRANSFORM_URL);
+    XmlTransformService s1 = new XmlTransformService();
+    s1.setUrl(url);
+    XmlTransformService s2 = new XmlTransformService();
+    s2.setUrl(url);
+    try {
+      start(s1, s2);
+      s1.doService(m1);
+      s2.doService(m2);
+      assertEquals(m1.getContent(), m2.getContent());
+      assertSame(TemplatesCache.getInstance().get(url, s1.getXmlTransformerFactory()),
+          TemplatesCache.getInstance().get(url, s2.getXmlTransformerFactory()));
+      assertNotSame(s1.getTransforms().get(url), s2.getTransforms().get(url));
+    }
+    finally {
+      stop(s1, s2);
+    }
+  }
+
+  @Test
+  public void testCachedTransformer_NewThreadPerMessage() throws Exception {
+    String url = PROPERTIES.getProperty(KEY_XML_TEST_TRANSFORM_URL);
+    XmlTransformService service = new XmlTransformService();
+    service.setUrl(url);
+    // Virtual threads if the JVM supports them, so each message is on a new thread either way.
+    System.setProperty(ManagedExecutors.SYSPROP_USE_VIRTUAL_THREADS, "true");
+    try {
+      start(service);
+      Transformer first = null;
+      for (int i = 0; i < 3; i++) {
+        AdaptrisMessage msg = MessageHelper.createMessage(PROPERTIES.getProperty(KEY_XML_TEST_INPUT));
+        ExecutorService executor = ManagedExecutors.newSingleThreadExecutor(getName());
+        try {
+          executor.submit(() -> {
+            service.doService(msg);
+            return null;
+          }).get();
+        }
+        finally {
+          ManagedThreadFactory.shutdownQuietly(executor, 1000L);
+        }
+        assertEquals(PROPERTIES.getProperty(KEY_XML_TEST_OUTPUT), msg.getContent());
+        if (first == null) {
+          first = service.getTransforms().get(url);
+        }
+        assertSame(first, service.getTransforms().get(url));
+      }
+    }
+    finally {
+      System.clearProperty(ManagedExecutors.SYSPROP_USE_VIRTUAL_THREADS);
+      stop(service);
+    }
+  }
+
+  @Test
+  public void testCachedTemplates_DocumentFactoryConfig_NotShared() throws Exception {
+    String url = PROPERTIES.getProperty(KEY_XML_TEST_TRANSFORM_URL);
+    XsltTransformerFactory f1 = new XsltTransformerFactory();
+    f1.setXmlDocumentFactoryConfig(new DocumentBuilderFactoryBuilder());
+    XsltTransformerFactory f2 = new XsltTransformerFactory();
+    f2.setXmlDocumentFactoryConfig(new DocumentBuilderFactoryBuilder());
+    assertNull(f1.templatesCacheKey());
+    assertSame(TemplatesCache.getInstance().get(url, f1), TemplatesCache.getInstance().get(url, f1));
+    assertNotSame(TemplatesCache.getInstance().get(url, f1), TemplatesCache.getInstance().get(url, f2));
+  }
+
   @Test
   public void testOutputWithNoCache() throws Exception {
     AdaptrisMessage m1 = MessageHelper.createMessage(PROPERTIES.getProperty(KEY_XML_TEST_INPUT));
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import com.adaptris.core.AdaptrisMarshaller;
+import com.adaptris.core.DefaultMarshaller;
+import com.adaptris.core.MetadataElement;
+import com.adaptris.core.Service;
+import com.adaptris.core.ServiceList;
+import com.adaptris.core.services.LogMessageService;
+import com.adaptris.core.services.metadata.AddMetadataService;
+import com.adaptris.core.services.splitter.SplitJoinService;
+import com.adaptris.util.TimeInterval;
+
+public class CloneHelperTest {
+
+  @Test
+  public void testDeepCopy_Null() throws Exception {
+    assertNull(CloneHelper.deepCopy(null));
+  }
+
+  @Test
+  public void testDeepCopy_Services() throws Exception {
+    SplitJoinService original = new SplitJoinService();
+    original.setService(new ServiceList(new Service[] {
+        new AddMetadataService(new MetadataElement("key", "value")), new LogMessageService()
+    }));
+    original.setTimeout(new TimeInterval(10L, TimeUnit.SECONDS));
+    SplitJoinService copy = CloneHelper.deepCopy(original);
+    assertNotSame(original, copy);
+    assertNotSame(original.getService(), copy.getService());
+    assertNotSame(((ServiceList) original.getService()).get(0), ((ServiceList) copy.getService()).get(0));
+    assertEquals(original.getUniqueId(), copy.getUniqueId());
+    AdaptrisMarshaller m = DefaultMarshaller.getDefaultMarshaller();
+    assertEquals(m.marshal(original), m.marshal(copy));
+  }
+
+  @Test
+  public void testDeepCopy_SharedReferences() throws Exception {
+    LogMessageService shared = new LogMessageService();
+    ServiceList original = new ServiceList(new Service[] {shared, shared});
+    ServiceList copy = CloneHelper.deepCopy(original);
+    assertNotSame(shared, copy.get(0));
+    assertSame(copy.get(0), copy.get(1));
+  }
+
+  @Test
+  public void testDeepCopy_FieldHandling() throws Exception {
+    Stub original = new Stub();
+    original.name = null;
+    original.self = original;
+    original.list.add("hello");
+    original.map.put("key", original.list);
+    original.numbers = new int[] {1, 2, 3};
+    original.date = new Date();
+    original.ignored = "changed";
+    Stub copy = CloneHelper.deepCopy(original);
+    assertNotSame(original, copy);
+    // null isn't marshalled, so the constructor value stays.
+    assertEquals("default", copy.name);
+    assertSame(copy, copy.self);
+    assertNotSame(original.list, copy.list);
+    assertEquals(original.list, copy.list);
+    assertSame(copy.list, copy.map.get("key"));
+    assertNotSame(original.numbers, copy.numbers);
+    assertEquals(3, copy.numbers[2]);
+    assertNotSame(original.date, copy.date);
+    assertEquals(original.date, copy.date);
+    assertEquals("constructed", copy.ignored);
+  }
+
+  public static class Stub {
+    private String name = "default";
+    private Stub self;
+    private List<String> list = new ArrayList<>();
+    private Map<String, Object> map = new HashMap<>();
+    private int[] numbers;
+    private Date date;
+    private transient String ignored = "constructed";
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ManagedExecutorsTest {
+
+  @After
+  public void tearDown() {
+    System.clearProperty(ManagedExecutors.SYSPROP_USE_VIRTUAL_THREADS);
+  }
+
+  @Test
+  public void testDefault_PlatformThreads() throws Exception {
+    assertFalse(ManagedExecutors.useVirtualThreads());
+    ExecutorService es = ManagedExecutors.newFixedThreadPool(2, new ManagedThreadFactory(), getClass().getSimpleName());
+    try {
+      assertEquals("hello", es.submit(() -> "hello").get());
+    }
+    finally {
+      ManagedThreadFactory.shutdownQuietly(es, 1000L);
+    }
+  }
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    System.setProperty(ManagedExecutors.SYSPROP_USE_VIRTUAL_THREADS, "true");
+    ExecutorService es = ManagedExecutors.newCachedThreadPool(new ManagedThreadFactory(), getClass().getSimpleName());
+    try {
+      // Falls back to platform threads if the JVM doesn't support them.
+      assertEquals("hello", es.submit(() -> "hello").get());
+    }
+    finally {
+      ManagedThreadFactory.shutdownQuietly(es, 1000L);
+    }
+  }
+
+  @Test
+  public void testVirtualThreads_Supported() throws Exception {
+    System.setProperty(ManagedExecutors.SYSPROP_USE_VIRTUAL_THREADS, "true");
+    // Only if the JVM supports them.
+    assumeTrue(ManagedExecutors.useVirtualThreads());
+    ExecutorService es = ManagedExecutors.newFixedThreadPool(2, new ManagedThreadFactory(), getClass().getSimpleName());
+    try {
+      assertTrue(es.submit(() -> ManagedExecutors.isVirtual(Thread.currentThread())).get());
+      assertFalse(ManagedExecutors.isVirtual(Thread.currentThread()));
+    }
+    finally {
+      ManagedThreadFactory.shutdownQuietly(es, 1000L);
+    }
+  }
+
+  @Test
+  public void testLimitedExecutor_Concurrency() throws Exception {
+    ManagedExecutors.LimitedExecutorService es =
+        new ManagedExecutors.LimitedExecutorService(Executors.newCachedThreadPool(), 2);
+    AtomicInteger current = new AtomicInteger();
+    AtomicInteger max = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+    for (int i = 0; i < 10; i++) {
+      es.execute(() -> {
+        max.accumulateAndGet(current.incrementAndGet(), Math::max);
+        try {
+          latch.await();
+        }
+        catch (InterruptedException e) {
+        }
+        current.decrementAndGet();
+      });
+    }
+    Thread.sleep(200);
+    List<Runnable> notRun = es.shutdownNow();
+    latch.countDown();
+    assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(2, max.get());
+    assertEquals(8, notRun.size());
+    assertTrue(es.isShutdown());
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void testLimitedExecutor_Shutdown() throws Exception {
+    ManagedExecutors.LimitedExecutorService es =
+        new ManagedExecutors.LimitedExecutorService(Executors.newCachedThreadPool(), 2);
+    es.shutdown();
+    es.execute(() -> {
+    });
+  }
+}
@@ -44,4 +44,13 @@ public class AppendingFsWorkerTest extends StandardWorkerTest {
 
     assertEquals(DATA + DATA, new String(readBytes));
   }
+
+  @Override
+  @Test
+  public void testPutFile_FromFile_FileExists() throws Exception {
+    FsWorker worker = createWorker();
+    String[] testFiles = createTestFiles();
+    worker.put(new File(baseDir, testFiles[1]), new File(baseDir, testFiles[0]));
+    assertEquals(DATA + DATA, new String(worker.get(new File(baseDir, testFiles[0]))));
+  }
 }
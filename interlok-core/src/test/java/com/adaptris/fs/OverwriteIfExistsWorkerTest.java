@@ -45,6 +45,15 @@ public class OverwriteIfExistsWorkerTest extends StandardWorkerTest {
     assertEquals(DATA, new String(readBytes));
   }
 
+  @Override
+  @Test
+  public void testPutFile_FromFile_FileExists() throws Exception {
+    FsWorker worker = createWorker();
+    String[] testFiles = createTestFiles();
+    worker.put(new File(baseDir, testFiles[1]), new File(baseDir, testFiles[0]));
+    assertEquals(DATA, new String(worker.get(new File(baseDir, testFiles[0]))));
+  }
+
   @Test
   public void testPutFile_Does_Not_Exist() throws Exception {
     OverwriteIfExistsWorker worker = createWorker();
@@ -28,6 +28,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -197,6 +198,54 @@ public class StandardWorkerTest extends FsCase {
     }
   }
 
+  @Test
+  public void testGetFile_ToFile() throws Exception {
+    FsWorker worker = createWorker();
+    String[] testFiles = createTestFiles();
+    File destination = new File(baseDir, new GuidGenerator().safeUUID());
+    worker.get(new File(baseDir, testFiles[0]), destination);
+    assertEquals(DATA, FileUtils.readFileToString(destination, Charset.defaultCharset()));
+    // Existing contents are replaced.
+    worker.get(new File(baseDir, testFiles[1]), destination);
+    assertEquals(DATA, FileUtils.readFileToString(destination, Charset.defaultCharset()));
+    try {
+      worker.get(new File(baseDir, "whatever.txt"), destination);
+      fail();
+    }
+    catch (FsException expected) {
+
+    }
+  }
+
+  @Test
+  public void testPutFile_FromFile() throws Exception {
+    FsWorker worker = createWorker();
+    String[] testFiles = createTestFiles();
+    File newFile = new File(baseDir, new GuidGenerator().safeUUID());
+    worker.put(new File(baseDir, testFiles[0]), newFile);
+    assertEquals(DATA, new String(worker.get(newFile)));
+    try {
+      worker.put(new File(baseDir, "whatever.txt"), new File(baseDir, new GuidGenerator().safeUUID()));
+      fail();
+    }
+    catch (FsException expected) {
+
+    }
+  }
+
+  @Test
+  public void testPutFile_FromFile_FileExists() throws Exception {
+    FsWorker worker = createWorker();
+    String[] testFiles = createTestFiles();
+    try {
+      worker.put(new File(baseDir, testFiles[1]), new File(baseDir, testFiles[0]));
+      fail();
+    }
+    catch (FsException expected) {
+
+    }
+  }
+
   @Test
   public void testRenameFile() throws Exception {
     FsWorker worker = createWorker();
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.adaptris.util.text.mime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetHeaders;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.NullInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingMultiPartOutputTest {
+
+  private static final String PAYLOAD_1 = "The quick brown fox jumps over the lazy dog";
+  private static final String PAYLOAD_2 = "Pack my box with five dozen liquor jugs";
+  private static final String PAYLOAD_3 = "The five boxing wizards jump quickly";
+  // Larger than the amount held in memory.
+  private static final long LARGE_PAYLOAD_SIZE = 1024 * 1024 * 11;
+
+  private static final Pattern BOUNDARY = Pattern.compile("boundary=\"([^\"]+)\"");
+
+  private File tempFile;
+
+  @Before
+  public void setUp() throws Exception {
+    tempFile = File.createTempFile(this.getClass().getSimpleName(), "");
+    tempFile.delete();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteQuietly(tempFile);
+  }
+
+  @Test
+  public void testWriteTo_SameAsMultiPartOutput() throws Exception {
+    MultiPartOutput expected = new MultiPartOutput("testWriteTo", "related");
+    expected.setHeader("X-Header", "value");
+    expected.addPart(PAYLOAD_1.getBytes(StandardCharsets.UTF_8), "payload1");
+    expected.addPart(PAYLOAD_2.getBytes(StandardCharsets.UTF_8), "base64", "payload2");
+    expected.addPart(PAYLOAD_3.getBytes(StandardCharsets.UTF_8), "quoted-printable", "payload3");
+    try (StreamingMultiPartOutput output = new StreamingMultiPartOutput("testWriteTo", "related")) {
+      output.setHeader("X-Header", "value");
+      output.addPart(stream(PAYLOAD_1), null, new InternetHeaders(), "payload1");
+      output.addPart(stream(PAYLOAD_2), "base64", new InternetHeaders(), "payload2");
+      output.addPart(stream(PAYLOAD_3), "quoted-printable", new InternetHeaders(), "payload3");
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      output.writeTo(out);
+      assertEquals(normalize(expected.getBytes()), normalize(out.toByteArray()));
+      try (BodyPartIterator parts = new BodyPartIterator(out.toByteArray())) {
+        assertEquals(3, parts.size());
+        assertEquals("testWriteTo", parts.getHeaders().getHeader(MimeConstants.HEADER_MESSAGE_ID, null));
+        assertEquals("value", parts.getHeaders().getHeader("X-Header", null));
+      }
+    }
+  }
+
+  @Test
+  public void testWriteTo_LargePart() throws Exception {
+    try (StreamingMultiPartOutput output = new StreamingMultiPartOutput("testWriteTo_LargePart", null, tempFile)) {
+      output.addPart(stream(PAYLOAD_1), null, new InternetHeaders(), "payload1");
+      assertFalse(tempFile.exists());
+      try (InputStream in = new NullInputStream(LARGE_PAYLOAD_SIZE)) {
+        output.addPart(in, null, new InternetHeaders(), "payload2");
+      }
+      assertTrue(tempFile.exists());
+      assertTrue(tempFile.length() > LARGE_PAYLOAD_SIZE);
+      try (CountingOutputStream out = new CountingOutputStream(new NullOutputStream())) {
+        output.writeTo(out);
+        assertTrue(out.getByteCount() > tempFile.length());
+      }
+    }
+    assertFalse(tempFile.exists());
+  }
+
+  @Test
+  public void testClose_DeletesTempFile() throws Exception {
+    StreamingMultiPartOutput output = new StreamingMultiPartOutput("testClose", null, tempFile);
+    try (InputStream in = new NullInputStream(LARGE_PAYLOAD_SIZE)) {
+      output.addPart(in, null, new InternetHeaders(), "payload1");
+    }
+    assertTrue(tempFile.exists());
+    output.close();
+    assertFalse(tempFile.exists());
+  }
+
+  @Test
+  public void testWriteTo_AlreadyWritten() throws Exception {
+    try (StreamingMultiPartOutput output = new StreamingMultiPartOutput("testWriteTo_AlreadyWritten", null)) {
+      output.addPart(stream(PAYLOAD_1), null, new InternetHeaders(), "payload1");
+      output.writeTo(new NullOutputStream());
+      try {
+        output.writeTo(new NullOutputStream());
+        fail();
+      }
+      catch (IOException expected) {
+        assertEquals("Multipart has already been written", expected.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testAddPart_AlreadyWritten() throws Exception {
+    try (StreamingMultiPartOutput output = new StreamingMultiPartOutput("testAddPart_AlreadyWritten", null)) {
+      output.addPart(stream(PAYLOAD_1), null, new InternetHeaders(), "payload1");
+      output.writeTo(new NullOutputStream());
+      try {
+        output.addPart(stream(PAYLOAD_2), null, new InternetHeaders(), "payload2");
+        fail();
+      }
+      catch (IOException expected) {
+        assertEquals("Multipart has already been written", expected.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testWriteTo_NoParts() throws Exception {
+    try (StreamingMultiPartOutput output = new StreamingMultiPartOutput("testWriteTo_NoParts", null)) {
+      output.writeTo(new NullOutputStream());
+      fail();
+    }
+    catch (MessagingException expected) {
+
+    }
+  }
+
+  @Test(expected = MessagingException.class)
+  public void testConstructor_NoMessageId() throws Exception {
+    new StreamingMultiPartOutput("", null);
+  }
+
+  private static InputStream stream(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // The boundary (and so the content-length) is unique to each multipart, so compare the body with a fixed boundary.
+  private static String normalize(byte[] bytes) {
+    String s = new String(bytes, StandardCharsets.ISO_8859_1);
+    Matcher m = BOUNDARY.matcher(s);
+    assertTrue(m.find());
+    String boundary = m.group(1);
+    return s.substring(s.indexOf("--" + boundary, m.end())).replace(boundary, "BOUNDARY");
+  }
+}
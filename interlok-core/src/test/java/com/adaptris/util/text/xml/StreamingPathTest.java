@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Adaptris Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.adaptris.util.text.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+
+import com.adaptris.util.KeyValuePair;
+import com.adaptris.util.KeyValuePairSet;
+
+public class StreamingPathTest {
+
+  private static final String XML = "<orders xmlns:x=\"urn:x\">"
+      + "<order id=\"1\"><customer x:ref=\"abc\"><name>Alice</name></customer>"
+      + "<line type=\"free\"><sku>0</sku></line><line type=\"paid\">cost<sku>A<b>1</b></sku></line><!-- comment --></order>"
+      + "</orders>";
+
+  @Test
+  public void testSelectText() throws Exception {
+    KeyValuePairSet ns = new KeyValuePairSet();
+    ns.add(new KeyValuePair("x", "urn:x"));
+    StreamingRecord record = readOrder();
+    assertEquals("order", record.getLocalName());
+    assertEquals(3, record.getChildren().size());
+    assertEquals("1", StreamingPath.parseRelative("@id", null).selectText(record));
+    assertEquals("Alice", StreamingPath.parseRelative("./customer/name", null).selectText(record));
+    assertEquals("abc", StreamingPath.parseRelative("customer/@x:ref", SimpleNamespaceContext.create(ns)).selectText(record));
+    assertEquals("abc", StreamingPath.parseRelative("customer/@ref", null).selectText(record));
+    assertEquals("0", StreamingPath.parseRelative("line/sku", null).selectText(record));
+    assertEquals("A1", StreamingPath.parseRelative("line[@type='paid']/sku", null).selectText(record));
+    assertEquals("cost", StreamingPath.parseRelative("line[@type='paid']/text()", null).selectText(record));
+    assertEquals("1", StreamingPath.parseRelative("*/sku/b", null).selectText(record));
+    assertEquals("Alice0costA1", StreamingPath.parseRelative(".", null).selectText(record));
+    assertNull(StreamingPath.parseRelative("line/@missing", null).selectText(record));
+    assertNull(StreamingPath.parseRelative("invoice", null).selectText(record));
+  }
+
+  @Test
+  public void testParseRelative_Unsupported() throws Exception {
+    for (String path : new String[] {"/orders/order", "../name", "line[1]", "line//sku", "@id/name", "text()/a", "count(line)",
+        "x:name", ""}) {
+      try {
+        StreamingPath.parseRelative(path, null);
+        fail(path + " should not be supported");
+      }
+      catch (IllegalArgumentException expected) {
+
+      }
+    }
+  }
+
+  @Test
+  public void testParse_UnsupportedPredicate() throws Exception {
+    for (String path : new String[] {"/a/b[@x='1' and @y='2']", "/a/b[@x='1' or @y='2']", "/a/b[@x and @y]", "/a/b[@x!='1']",
+        "/a/b[@x = '1'2']", "/a/b[@x='1\"]", "/a/b[@x=1]", "/a/b[@x='1']extra", "/a/b[@]"}) {
+      try {
+        StreamingPath.parse(path, null);
+        fail(path + " should not be supported");
+      }
+      catch (IllegalArgumentException expected) {
+
+      }
+    }
+  }
+
+  @Test
+  public void testParse_Predicate() throws Exception {
+    StreamingRecord record = readOrder();
+    assertEquals("A1", StreamingPath.parseRelative("line[ @type = \"paid\" ]/sku", null).selectText(record));
+    assertEquals("0", StreamingPath.parseRelative("line[@type='free'][@type]/sku", null).selectText(record));
+    assertNull(StreamingPath.parseRelative("line[@type=\"it's\"]/sku", null).selectText(record));
+  }
+
+  private static StreamingRecord readOrder() throws Exception {
+    XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(new StringReader(XML));
+    StreamingPath path = StreamingPath.parse("/orders/order[@id]", null);
+    int depth = 0;
+    while (reader.hasNext()) {
+      if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        if (depth == path.length() && path.matches(depth - 1, reader)) {
+          StreamingRecord record = StreamingRecord.read(reader);
+          assertTrue(reader.isEndElement());
+          assertEquals("order", reader.getLocalName());
+          return record;
+        }
+      }
+    }
+    throw new AssertionError("No order found");
+  }
+}
@@ -17,10 +17,22 @@ package com.adaptris.util.text.xml;
 
 import static com.adaptris.util.text.xml.SimpleNamespaceContextTest.createNamespaceEntries;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathFactory;
 
@@ -31,6 +43,8 @@ import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 
 import com.adaptris.core.util.DocumentBuilderFactoryBuilder;
+import com.adaptris.core.util.ManagedExecutors;
+import com.adaptris.core.util.ManagedThreadFactory;
 import com.adaptris.core.util.XmlHelper;
 
 import net.sf.saxon.xpath.XPathFactoryImpl;
@@ -162,6 +176,137 @@ public class XPathTest {
     assertNotNull(xpath.selectSingleNode(d, "/root/test"));
   }
 
+  @Test
+  public void testPrecompile_SharedBetweenInstances() throws Exception {
+    String expr = "/root/test[@att='" + System.nanoTime() + "']";
+    XPathFactory factory = XPath.newXPathFactory();
+    XPathExpressionCache cache = XPathExpressionCache.forFactory(factory);
+    Document d = XmlHelper.createDocument(XML, DocumentBuilderFactoryBuilder.newInstance());
+    new XPath(SimpleNamespaceContext.create(createNamespaceEntries()), factory).precompile(expr);
+    long misses = cache.getMisses();
+    long hits = cache.getHits();
+    XPath xpath = new XPath(SimpleNamespaceContext.create(createNamespaceEntries()), factory);
+    assertEquals(0, xpath.selectNodeList(d, expr).getLength());
+    assertEquals(misses, cache.getMisses());
+    assertEquals(hits + 1, cache.getHits());
+    // Different namespace context, different expression.
+    new XPath(null, factory).selectNodeList(d, expr);
+    assertEquals(misses + 1, cache.getMisses());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testPrecompile_NotSharedBetweenFactories() throws Exception {
+    XPathFactory factory = XPath.newXPathFactory();
+    XPathFactory other = XPath.newXPathFactory();
+    assertNotSame(XPathExpressionCache.forFactory(factory), XPathExpressionCache.forFactory(other));
+    new XPath(null, factory).precompile("/root/test");
+    assertEquals(1, XPathExpressionCache.forFactory(factory).size());
+    assertEquals(0, XPathExpressionCache.forFactory(other).size());
+  }
+
+  @Test
+  public void testPrecompile_UncomparableContext_NotCached() throws Exception {
+    String expr = "/root/test[@att='" + System.nanoTime() + "']";
+    XPathFactory factory = XPath.newXPathFactory();
+    XPathExpressionCache cache = XPathExpressionCache.forFactory(factory);
+    NamespaceContext ctx = new NamespaceContext() {
+      @Override
+      public String getNamespaceURI(String prefix) {
+        return XMLConstants.NULL_NS_URI;
+      }
+
+      @Override
+      public String getPrefix(String namespaceURI) {
+        return null;
+      }
+
+      @Override
+      public Iterator<String> getPrefixes(String namespaceURI) {
+        return Collections.emptyIterator();
+      }
+    };
+    Document d = XmlHelper.createDocument(XML, DocumentBuilderFactoryBuilder.newInstance());
+    new XPath(ctx, factory).precompile(expr);
+    assertEquals(0, new XPath(ctx, factory).selectNodeList(d, expr).getLength());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEvaluate_Full_EvictsLeastRecentlyUsed() throws Exception {
+    XPathFactory factory = XPath.newXPathFactory();
+    XPathExpressionCache cache = XPathExpressionCache.forFactory(factory);
+    XPath xpath = new XPath(null, factory);
+    Document d = XmlHelper.createDocument(XML, DocumentBuilderFactoryBuilder.newInstance());
+    xpath.precompile("/root/test");
+    for (int i = 0; i < XPathExpressionCache.MAX_ENTRIES * 2; i++) {
+      xpath.precompile("/root/test[" + i + "]");
+      assertEquals("one", xpath.selectSingleTextItem(d, "/root/test"));
+    }
+    assertTrue(cache.size() <= XPathExpressionCache.MAX_ENTRIES);
+    long misses = cache.getMisses();
+    assertEquals("one", xpath.selectSingleTextItem(d, "/root/test"));
+    assertEquals(misses, cache.getMisses());
+  }
+
+  @Test
+  public void testEvaluate_NotThreadSafeFactory_NewThreadPerMessage() throws Exception {
+    XPathFactory factory = XPathFactory.newInstance();
+    XPathExpressionCache cache = XPathExpressionCache.forFactory(factory);
+    assertFalse(cache.isThreadSafe());
+    Document d = XmlHelper.createDocument(XML, DocumentBuilderFactoryBuilder.newInstance());
+    new XPath(null, factory).precompile("/root/test");
+    long misses = cache.getMisses();
+    // Virtual threads if the JVM supports them, so each evaluation is on a new thread either way.
+    System.setProperty(ManagedExecutors.SYSPROP_USE_VIRTUAL_THREADS, "true");
+    try {
+      for (int i = 0; i < 3; i++) {
+        ExecutorService executor = ManagedExecutors.newSingleThreadExecutor(getClass().getSimpleName());
+        try {
+          assertEquals("one", executor.submit(() -> new XPath(null, factory).selectSingleTextItem(d, "/root/test")).get());
+        }
+        finally {
+          ManagedThreadFactory.shutdownQuietly(executor, 1000L);
+        }
+      }
+    }
+    finally {
+      System.clearProperty(ManagedExecutors.SYSPROP_USE_VIRTUAL_THREADS);
+    }
+    assertEquals(misses, cache.getMisses());
+  }
+
+  @Test
+  public void testEvaluate_NotThreadSafeFactory_Concurrent() throws Exception {
+    XPathFactory factory = XPathFactory.newInstance();
+    XPathExpressionCache cache = XPathExpressionCache.forFactory(factory);
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(executor.submit(() -> {
+          Document d = XmlHelper.createDocument(XML, DocumentBuilderFactoryBuilder.newInstance());
+          for (int j = 0; j < 100; j++) {
+            if (new XPath(null, factory).selectNodeList(d, "/root/test").getLength() != 2) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> f : results) {
+        assertTrue(f.get());
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    // At most one per thread has to be compiled.
+    assertTrue(cache.getMisses() <= threads);
+    assertEquals(1, cache.size());
+  }
+
   @Test
   public void testBuild() {
     assertEquals(XPathFactoryImpl.class, XPath.build(true).getClass());